@@ -0,0 +1,639 @@
+package com.alphawallet.attestation.codegen;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import javax.xml.parsers.DocumentBuilder;
+import javax.xml.parsers.DocumentBuilderFactory;
+import org.w3c.dom.Element;
+import org.w3c.dom.Node;
+
+/**
+ * Generates DER codecs from the ASN.X modules in data-modules/src.
+ * For each module a class named after the module is generated, containing a nested class for each
+ * named SEQUENCE type. The nested classes contain an offset-based reader which validates the
+ * structure in a single pass without copying or constructing ASN1 objects, and single-pass
+ * writers which compute the length of the encoding up front and write directly into a byte array.
+ *
+ * Elements of type INTEGER, OCTET STRING and BIT STRING are typed. Elements referring to a
+ * SEQUENCE defined in one of the modules being generated use the reader of that SEQUENCE. All
+ * other elements, such as imported types not being generated, CHOICEs and other primitive types,
+ * are handled as opaque DER encodings.
+ *
+ * Usage: CodecGenerator outputDirectory module.asd...
+ */
+public class CodecGenerator {
+  public static final String PACKAGE = "com.alphawallet.attestation.codec";
+  private static final String ASNX_PREFIX = "asnx:";
+  private static final int UNKNOWN_TAG = -1;
+  private static final Map<String, Integer> TAGS = new HashMap<>();
+
+  static {
+    TAGS.put("BOOLEAN", 0x01);
+    TAGS.put("INTEGER", 0x02);
+    TAGS.put("BIT-STRING", 0x03);
+    TAGS.put("OCTET-STRING", 0x04);
+    TAGS.put("NULL", 0x05);
+    TAGS.put("OBJECT-IDENTIFIER", 0x06);
+    TAGS.put("UTF8String", 0x0C);
+    TAGS.put("VisibleString", 0x1A);
+    TAGS.put("UTCTime", 0x17);
+    TAGS.put("GeneralizedTime", 0x18);
+  }
+
+  enum Kind { INTEGER, OCTET_STRING, BIT_STRING, SEQUENCE, RAW }
+
+  static class Module {
+    private final String name;
+    private final String fileName;
+    private final Map<String, Element> types = new LinkedHashMap<>();
+    private final Map<String, String> imports = new HashMap<>();
+
+    Module(String name, String fileName) {
+      this.name = name;
+      this.fileName = fileName;
+    }
+
+    String getClassName() {
+      return name + "Codec";
+    }
+  }
+
+  static class Field {
+    private final String name;
+    private final Kind kind;
+    private final int tag;
+    private final boolean optional;
+    private final String reference;
+    private final String annotation;
+
+    Field(String name, Kind kind, int tag, boolean optional, String reference, String annotation) {
+      this.name = name;
+      this.kind = kind;
+      this.tag = tag;
+      this.optional = optional;
+      this.reference = reference;
+      this.annotation = annotation;
+    }
+  }
+
+  private final Map<String, Module> modules = new LinkedHashMap<>();
+
+  public static void main(String[] args) throws Exception {
+    if (args.length < 2) {
+      System.err.println("Usage: CodecGenerator outputDirectory module.asd...");
+      System.exit(1);
+    }
+    CodecGenerator generator = new CodecGenerator();
+    for (int i = 1; i < args.length; i++) {
+      generator.load(new File(args[i]));
+    }
+    generator.generate(new File(args[0]));
+  }
+
+  void load(File file) throws Exception {
+    DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
+    factory.setNamespaceAware(true);
+    DocumentBuilder builder = factory.newDocumentBuilder();
+    Element root = builder.parse(file).getDocumentElement();
+    if (!"module".equals(root.getLocalName())) {
+      throw new IllegalArgumentException(file + " is not an ASN.X module");
+    }
+    Module module = new Module(root.getAttribute("name"), file.getName());
+    for (Element child : children(root)) {
+      if ("import".equals(child.getLocalName())) {
+        module.imports.put(child.getAttribute("name"), child.getAttribute("schemaLocation"));
+      } else if ("namedType".equals(child.getLocalName())) {
+        module.types.put(child.getAttribute("name"), child);
+      }
+    }
+    modules.put(module.fileName, module);
+  }
+
+  void generate(File outputDirectory) throws IOException {
+    File packageDirectory = new File(outputDirectory, PACKAGE.replace('.', File.separatorChar));
+    Files.createDirectories(packageDirectory.toPath());
+    for (Module module : modules.values()) {
+      String source = generate(module);
+      File target = new File(packageDirectory, module.getClassName() + ".java");
+      Files.write(target.toPath(), source.getBytes(StandardCharsets.UTF_8));
+    }
+  }
+
+  String generate(Module module) {
+    Map<String, List<Field>> structures = new LinkedHashMap<>();
+    for (Map.Entry<String, Element> type : module.types.entrySet()) {
+      Element sequence = sequenceOf(type.getValue());
+      if (sequence != null) {
+        structures.put(type.getKey(), fields(module, type.getKey(), sequence));
+      }
+    }
+    Source out = new Source();
+    out.line("// Generated by " + CodecGenerator.class.getSimpleName() + " from " + module.fileName + ", do not edit");
+    out.line("package " + PACKAGE + ";");
+    out.line("");
+    out.line("import com.alphawallet.attestation.core.DERSlice;");
+    out.line("import com.alphawallet.attestation.core.DERUtility;");
+    out.line("import java.io.IOException;");
+    if (uses(structures, Kind.INTEGER)) {
+      out.line("import java.math.BigInteger;");
+    }
+    out.line("import java.util.Arrays;");
+    out.line("");
+    out.line("/**");
+    out.line(" * DER codecs for the structures of the ASN.X module " + module.name + " in " + module.fileName);
+    out.line(" */");
+    out.open("public final class " + module.getClassName() + " {");
+    out.line("private " + module.getClassName() + "() {");
+    out.line("}");
+    for (Map.Entry<String, List<Field>> structure : structures.entrySet()) {
+      out.line("");
+      generateStructure(out, structure.getKey(), structure.getValue());
+    }
+    out.close("}");
+    return out.toString();
+  }
+
+  private void generateStructure(Source out, String name, List<Field> fields) {
+    out.line("/**");
+    out.line(" * The SEQUENCE " + name);
+    out.line(" */");
+    out.open("public static final class " + name + " {");
+    out.line("private final byte[] buffer;");
+    out.line("private final int offset;");
+    out.line("private final int end;");
+    for (Field field : fields) {
+      out.line("private int " + field.name + "Offset;");
+      out.line("private int " + field.name + "Value;");
+      out.line("private int " + field.name + "End;");
+      if (field.kind == Kind.SEQUENCE) {
+        out.line("private " + field.reference + " " + field.name + ";");
+      }
+    }
+    out.line("");
+    out.open("private " + name + "(byte[] buffer, int offset, int end) {");
+    out.line("this.buffer = buffer;");
+    out.line("this.offset = offset;");
+    out.line("this.end = end;");
+    out.close("}");
+    out.line("");
+    generateReaders(out, name, fields);
+    out.line("");
+    generateAccessors(out, fields);
+    generateWriters(out, fields);
+    out.close("}");
+  }
+
+  private void generateReaders(Source out, String name, List<Field> fields) {
+    out.line("/**");
+    out.line(" * Reads a " + name + " which makes up the entire buffer");
+    out.line(" */");
+    out.open("public static " + name + " read(byte[] buffer) throws IOException {");
+    out.line(name + " res = read(buffer, 0, buffer.length);");
+    out.open("if (res.end != buffer.length) {");
+    out.line("throw new IOException(\"Trailing data after " + name + "\");");
+    out.close("}");
+    out.line("return res;");
+    out.close("}");
+    out.line("");
+    out.line("/**");
+    out.line(" * Reads and validates the structure of a " + name + " starting at offset, without copying");
+    out.line(" * any of its content");
+    out.line(" * @param limit The index just after the last byte the encoding is allowed to use");
+    out.line(" */");
+    out.open("public static " + name + " read(byte[] buffer, int offset, int limit) throws IOException {");
+    out.line("int pos = DERSlice.expect(buffer, offset, limit, 0x30);");
+    out.line(name + " res = new " + name + "(buffer, offset, DERSlice.skip(buffer, offset, limit));");
+    for (Field field : fields) {
+      String f = "res." + field.name;
+      if (field.optional) {
+        out.open("if (pos < res.end && (buffer[pos] & 0xFF) == " + hex(field.tag) + ") {");
+      }
+      out.line(f + "Offset = pos;");
+      if (field.tag == UNKNOWN_TAG) {
+        out.line(f + "Value = DERSlice.valueOffset(buffer, pos, res.end);");
+      } else {
+        out.line(f + "Value = DERSlice.expect(buffer, pos, res.end, " + hex(field.tag) + ");");
+      }
+      out.line("pos = DERSlice.skip(buffer, pos, res.end);");
+      out.line(f + "End = pos;");
+      if (field.kind == Kind.INTEGER) {
+        out.open("if (" + f + "End == " + f + "Value) {");
+        out.line("throw new IOException(\"Empty INTEGER " + field.name + "\");");
+        out.close("}");
+      } else if (field.kind == Kind.BIT_STRING) {
+        out.open("if (" + f + "End == " + f + "Value || buffer[" + f + "Value] != 0) {");
+        out.line("throw new IOException(\"BIT STRING " + field.name + " must be a whole amount of bytes\");");
+        out.close("}");
+      } else if (field.kind == Kind.SEQUENCE) {
+        out.line(f + " = " + field.reference + ".read(buffer, " + f + "Offset, " + f + "End);");
+      }
+      if (field.optional) {
+        out.close("} else {");
+        out.indent++;
+        out.line(f + "Offset = -1;");
+        out.line(f + "Value = -1;");
+        out.line(f + "End = -1;");
+        out.close("}");
+      }
+    }
+    out.open("if (pos != res.end) {");
+    out.line("throw new IOException(\"Unexpected data at the end of " + name + "\");");
+    out.close("}");
+    out.line("return res;");
+    out.close("}");
+  }
+
+  private void generateAccessors(Source out, List<Field> fields) {
+    out.open("public byte[] getBuffer() {");
+    out.line("return buffer;");
+    out.close("}");
+    out.line("");
+    out.line("/**");
+    out.line(" * Returns the offset of the tag of the encoding in the buffer");
+    out.line(" */");
+    out.open("public int getOffset() {");
+    out.line("return offset;");
+    out.close("}");
+    out.line("");
+    out.line("/**");
+    out.line(" * Returns the length of the entire encoding, including header");
+    out.line(" */");
+    out.open("public int getLength() {");
+    out.line("return end - offset;");
+    out.close("}");
+    out.line("");
+    out.line("/**");
+    out.line(" * Returns a copy of the entire encoding");
+    out.line(" */");
+    out.open("public byte[] getEncoded() {");
+    out.line("return Arrays.copyOfRange(buffer, offset, end);");
+    out.close("}");
+    out.line("");
+    for (Field field : fields) {
+      String cap = capitalize(field.name);
+      String absent = field.optional ? "if (" + field.name + "Offset < 0) {" : null;
+      if (field.optional) {
+        out.open("public boolean has" + cap + "() {");
+        out.line("return " + field.name + "Offset >= 0;");
+        out.close("}");
+        out.line("");
+      }
+      out.line("/**");
+      if (field.annotation != null) {
+        out.line(" * " + field.annotation);
+      }
+      switch (field.kind) {
+        case INTEGER:
+          out.line(" * Returns " + (field.optional ? "null or " : "") + "the value of " + field.name);
+          out.line(" */");
+          out.open("public BigInteger get" + cap + "() {");
+          returnNullIfAbsent(out, absent);
+          out.line("return new BigInteger(Arrays.copyOfRange(buffer, " + field.name + "Value, " + field.name + "End));");
+          out.close("}");
+          out.line("");
+          out.line("/**");
+          out.line(" * Returns the value of " + field.name + " without constructing a BigInteger");
+          out.line(" * @throws ArithmeticException if the value does not fit in a long");
+          out.line(" */");
+          out.open("public long get" + cap + "AsLong() {");
+          out.line("return DERUtility.decodeLong(buffer, " + field.name + "Value, " + field.name + "End - " + field.name + "Value);");
+          out.close("}");
+          break;
+        case OCTET_STRING:
+          out.line(" * Returns " + (field.optional ? "null or " : "") + "a copy of the octets of " + field.name);
+          out.line(" */");
+          out.open("public byte[] get" + cap + "() {");
+          returnNullIfAbsent(out, absent);
+          out.line("return Arrays.copyOfRange(buffer, " + field.name + "Value, " + field.name + "End);");
+          out.close("}");
+          break;
+        case BIT_STRING:
+          out.line(" * Returns " + (field.optional ? "null or " : "") + "a copy of the bits of " + field.name);
+          out.line(" */");
+          out.open("public byte[] get" + cap + "() {");
+          returnNullIfAbsent(out, absent);
+          out.line("return Arrays.copyOfRange(buffer, " + field.name + "Value + 1, " + field.name + "End);");
+          out.close("}");
+          break;
+        case SEQUENCE:
+          out.line(" * Returns " + (field.optional ? "null or " : "") + "the reader of " + field.name);
+          out.line(" */");
+          out.open("public " + field.reference + " get" + cap + "() {");
+          out.line("return " + field.name + ";");
+          out.close("}");
+          break;
+        default:
+          out.line(" * Returns " + (field.optional ? "null or " : "") + "a copy of the entire encoding of " + field.name);
+          out.line(" */");
+          out.open("public byte[] get" + cap + "() {");
+          returnNullIfAbsent(out, absent);
+          out.line("return Arrays.copyOfRange(buffer, " + field.name + "Offset, " + field.name + "End);");
+          out.close("}");
+      }
+      out.line("");
+      out.line("/**");
+      out.line(" * Returns the offset of the tag of " + field.name + (field.optional ? ", or -1 if absent" : ""));
+      out.line(" */");
+      out.open("public int get" + cap + "Offset() {");
+      out.line("return " + field.name + "Offset;");
+      out.close("}");
+      out.line("");
+      out.line("/**");
+      out.line(" * Returns the length of the entire encoding of " + field.name + (field.optional ? ", or 0 if absent" : ""));
+      out.line(" */");
+      out.open("public int get" + cap + "Length() {");
+      out.line("return " + field.name + "End - " + field.name + "Offset;");
+      out.close("}");
+      out.line("");
+      if (field.kind == Kind.OCTET_STRING || field.kind == Kind.BIT_STRING) {
+        String skip = field.kind == Kind.BIT_STRING ? " + 1" : "";
+        out.line("/**");
+        out.line(" * Returns the offset of the " + (skip.isEmpty() ? "octets" : "bits") + " of " + field.name);
+        out.line(" */");
+        out.open("public int get" + cap + "ValueOffset() {");
+        out.line("return " + field.name + "Value" + skip + ";");
+        out.close("}");
+        out.line("");
+        out.open("public int get" + cap + "ValueLength() {");
+        out.line("return " + field.name + "End - " + field.name + "Value" + (skip.isEmpty() ? "" : " - 1") + ";");
+        out.close("}");
+        out.line("");
+      }
+    }
+  }
+
+  private static void returnNullIfAbsent(Source out, String absent) {
+    if (absent != null) {
+      out.open(absent);
+      out.line("return null;");
+      out.close("}");
+    }
+  }
+
+  private void generateWriters(Source out, List<Field> fields) {
+    StringBuilder parameters = new StringBuilder();
+    StringBuilder arguments = new StringBuilder();
+    for (Field field : fields) {
+      if (parameters.length() > 0) {
+        parameters.append(", ");
+        arguments.append(", ");
+      }
+      parameters.append(field.kind == Kind.INTEGER ? "BigInteger " : "byte[] ").append(field.name);
+      arguments.append(field.name);
+    }
+    out.line("/**");
+    out.line(" * Returns the length of the encoding constructed from the given values");
+    out.line(" */");
+    out.open("public static int encodedLength(" + parameters + ") {");
+    out.line("return DERUtility.encodedLength(contentLength(" + arguments + "));");
+    out.close("}");
+    out.line("");
+    out.open("private static int contentLength(" + parameters + ") {");
+    out.line("int res = 0;");
+    for (Field field : fields) {
+      String add;
+      switch (field.kind) {
+        case INTEGER:
+          add = "res += DERUtility.encodedIntegerLength(" + field.name + ");";
+          break;
+        case OCTET_STRING:
+          add = "res += DERUtility.encodedLength(" + field.name + ".length);";
+          break;
+        case BIT_STRING:
+          add = "res += DERUtility.encodedBitStringLength(" + field.name + ".length);";
+          break;
+        default:
+          add = "res += " + field.name + ".length;";
+      }
+      if (field.optional) {
+        out.open("if (" + field.name + " != null) {");
+        out.line(add);
+        out.close("}");
+      } else {
+        out.line(add);
+      }
+    }
+    out.line("return res;");
+    out.close("}");
+    out.line("");
+    out.line("/**");
+    out.line(" * Writes the encoding constructed from the given values into output at pos");
+    writeParameterDocs(out, fields);
+    out.line(" * @return The position just after the encoding");
+    out.line(" */");
+    out.open("public static int write(byte[] output, int pos, " + parameters + ") {");
+    out.line("pos = DERUtility.writeHeader(output, pos, 0x30, contentLength(" + arguments + "));");
+    for (Field field : fields) {
+      if (field.optional) {
+        out.open("if (" + field.name + " != null) {");
+      }
+      switch (field.kind) {
+        case INTEGER:
+          out.line("pos = DERUtility.writeInteger(output, pos, " + field.name + ");");
+          break;
+        case OCTET_STRING:
+          out.line("pos = DERUtility.writeElement(output, pos, 0x04, " + field.name + ");");
+          break;
+        case BIT_STRING:
+          out.line("pos = DERUtility.writeBitString(output, pos, " + field.name + ");");
+          break;
+        default:
+          out.line("System.arraycopy(" + field.name + ", 0, output, pos, " + field.name + ".length);");
+          out.line("pos += " + field.name + ".length;");
+      }
+      if (field.optional) {
+        out.close("}");
+      }
+    }
+    out.line("return pos;");
+    out.close("}");
+    out.line("");
+    out.line("/**");
+    out.line(" * Constructs the encoding from the given values");
+    writeParameterDocs(out, fields);
+    out.line(" */");
+    out.open("public static byte[] encode(" + parameters + ") {");
+    out.line("byte[] res = new byte[encodedLength(" + arguments + ")];");
+    out.line("write(res, 0, " + arguments + ");");
+    out.line("return res;");
+    out.close("}");
+  }
+
+  private static void writeParameterDocs(Source out, List<Field> fields) {
+    for (Field field : fields) {
+      String description;
+      switch (field.kind) {
+        case INTEGER:
+          description = "The value";
+          break;
+        case OCTET_STRING:
+          description = "The octets";
+          break;
+        case BIT_STRING:
+          description = "The bits";
+          break;
+        default:
+          description = "The DER encoding";
+      }
+      out.line(" * @param " + field.name + " " + description + (field.optional ? ", or null if absent" : ""));
+    }
+  }
+
+  private List<Field> fields(Module module, String typeName, Element sequence) {
+    List<Field> res = new ArrayList<>();
+    for (Element child : children(sequence)) {
+      boolean optional = false;
+      Element element = child;
+      if ("optional".equals(child.getLocalName())) {
+        optional = true;
+        element = firstChild(child, "element");
+      } else if ("annotation".equals(child.getLocalName())) {
+        continue;
+      }
+      if (element == null || !"element".equals(element.getLocalName())) {
+        throw new IllegalArgumentException("Unsupported construct " + child.getLocalName() + " in " + typeName);
+      }
+      res.add(field(module, element, optional));
+    }
+    for (int i = 0; i < res.size(); i++) {
+      Field field = res.get(i);
+      if (!field.optional) {
+        continue;
+      }
+      if (field.tag == UNKNOWN_TAG) {
+        throw new IllegalArgumentException("The tag of optional element " + field.name + " in " + typeName + " is unknown");
+      }
+      if (i + 1 < res.size() && (res.get(i + 1).tag == field.tag || res.get(i + 1).tag == UNKNOWN_TAG)) {
+        throw new IllegalArgumentException("Optional element " + field.name + " in " + typeName + " is ambiguous");
+      }
+    }
+    return res;
+  }
+
+  private Field field(Module module, Element element, boolean optional) {
+    String name = element.getAttribute("name");
+    Element annotationElement = firstChild(element, "annotation");
+    String annotation = annotationElement == null ? null : annotationElement.getTextContent().trim().replaceAll("\\s+", " ");
+    if (!element.hasAttribute("type")) {
+      // Inline type definitions are handled as opaque encodings
+      return new Field(name, Kind.RAW, UNKNOWN_TAG, optional, null, annotation);
+    }
+    return resolve(module, element.getAttribute("type"), name, optional, annotation);
+  }
+
+  private Field resolve(Module module, String type, String name, boolean optional, String annotation) {
+    if (type.startsWith(ASNX_PREFIX)) {
+      String primitive = type.substring(ASNX_PREFIX.length());
+      Integer tag = TAGS.get(primitive);
+      Kind kind = Kind.RAW;
+      if ("INTEGER".equals(primitive)) {
+        kind = Kind.INTEGER;
+      } else if ("OCTET-STRING".equals(primitive)) {
+        kind = Kind.OCTET_STRING;
+      } else if ("BIT-STRING".equals(primitive)) {
+        kind = Kind.BIT_STRING;
+      }
+      return new Field(name, kind, tag == null ? UNKNOWN_TAG : tag, optional, null, annotation);
+    }
+    Element namedType = module.types.get(type);
+    if (namedType != null) {
+      if (namedType.hasAttribute("type")) {
+        return resolve(module, namedType.getAttribute("type"), name, optional, annotation);
+      }
+      if (sequenceOf(namedType) != null) {
+        return new Field(name, Kind.SEQUENCE, 0x30, optional, module.getClassName() + "." + type, annotation);
+      }
+      return new Field(name, Kind.RAW, UNKNOWN_TAG, optional, null, annotation);
+    }
+    Module imported = modules.get(module.imports.get(type));
+    if (imported != null && imported.types.containsKey(type)) {
+      return resolve(imported, type, name, optional, annotation);
+    }
+    return new Field(name, Kind.RAW, UNKNOWN_TAG, optional, null, annotation);
+  }
+
+  /**
+   * Returns the sequence element of a named type, or null if the type is not a SEQUENCE
+   */
+  private static Element sequenceOf(Element namedType) {
+    Element type = firstChild(namedType, "type");
+    return type == null ? null : firstChild(type, "sequence");
+  }
+
+  private static boolean uses(Map<String, List<Field>> structures, Kind kind) {
+    for (List<Field> fields : structures.values()) {
+      for (Field field : fields) {
+        if (field.kind == kind) {
+          return true;
+        }
+      }
+    }
+    return false;
+  }
+
+  private static List<Element> children(Element parent) {
+    List<Element> res = new ArrayList<>();
+    for (Node node = parent.getFirstChild(); node != null; node = node.getNextSibling()) {
+      if (node.getNodeType() == Node.ELEMENT_NODE) {
+        res.add((Element) node);
+      }
+    }
+    return res;
+  }
+
+  private static Element firstChild(Element parent, String localName) {
+    for (Element child : children(parent)) {
+      if (localName.equals(child.getLocalName())) {
+        return child;
+      }
+    }
+    return null;
+  }
+
+  private static String capitalize(String name) {
+    return Character.toUpperCase(name.charAt(0)) + name.substring(1);
+  }
+
+  private static String hex(int tag) {
+    return String.format("0x%02X", tag);
+  }
+
+  /**
+   * Accumulates source code with two space indentation
+   */
+  private static class Source {
+    private final StringBuilder builder = new StringBuilder();
+    private int indent = 0;
+
+    void line(String line) {
+      if (!line.isEmpty()) {
+        for (int i = 0; i < indent; i++) {
+          builder.append("  ");
+        }
+      }
+      builder.append(line).append('\n');
+    }
+
+    void open(String line) {
+      line(line);
+      indent++;
+    }
+
+    void close(String line) {
+      indent--;
+      line(line);
+    }
+
+    @Override
+    public String toString() {
+      return builder.toString();
+    }
+  }
+}
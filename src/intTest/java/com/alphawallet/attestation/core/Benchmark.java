@@ -0,0 +1,40 @@
+package com.alphawallet.attestation.core;
+
+/**
+ * Micro-benchmark loop shared by the integration tests which compare implementations.
+ */
+public class Benchmark {
+  public interface Operation {
+    /**
+     * Runs the operation once and returns a value depending on its result
+     */
+    int run() throws Exception;
+  }
+
+  /**
+   * Runs operation warmup times and then returns the average amount of nanoseconds of the next
+   * iterations runs. Exceptions thrown by operation are rethrown as RuntimeException.
+   */
+  public static long measure(Operation operation, int warmup, int iterations) {
+    try {
+      int sink = 0;
+      for (int i = 0; i < warmup; i++) {
+        sink += operation.run();
+      }
+      long start = System.nanoTime();
+      for (int i = 0; i < iterations; i++) {
+        sink += operation.run();
+      }
+      long res = (System.nanoTime() - start) / iterations;
+      // Use the result such that the work cannot be optimized away
+      if (sink == 42) {
+        System.out.println();
+      }
+      return res;
+    } catch (RuntimeException e) {
+      throw e;
+    } catch (Exception e) {
+      throw new RuntimeException(e);
+    }
+  }
+}
@@ -0,0 +1,127 @@
+package com.alphawallet.token.tools;
+
+import com.alphawallet.attestation.core.AttestationCrypto;
+import com.alphawallet.token.entity.MagicLinkData;
+import com.alphawallet.token.entity.MagicLinkInfo;
+import com.alphawallet.token.entity.SalesOrderMalformed;
+import com.alphawallet.token.tools.MagicLinkBatchValidator.Result;
+import org.bouncycastle.math.ec.ECAlgorithms;
+import org.bouncycastle.math.ec.ECPoint;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigInteger;
+import java.security.SecureRandom;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Compares validating a synthetic corpus of magic links one at a time with MagicLinkBatchValidator.
+ * A quarter of the links have expired and a fifth of the corpus are duplicates. Recovery is
+ * simulated with a double scalar multiplication on secp256k1, which is what ecrecover costs.
+ */
+public class MagicLinkBatchIntegTest {
+    private static final int UNIQUE_LINKS = 2000;
+    private static final int DUPLICATES = 500;
+    private static final int ROUNDS = 3;
+    private static final String CONTRACT = "0x63ccef733a093e5bd773b41c96d3ece361464942";
+    private static final long NOW = System.currentTimeMillis() / 1000;
+
+    private static final ParseMagicLink parser = new ParseMagicLink(new TestCryptoFunctions() {
+        @Override
+        protected BigInteger recoverKey(byte[] data, byte[] signature) {
+            ECPoint g = AttestationCrypto.ECDSACurve.getG();
+            BigInteger r = new BigInteger(1, data).mod(AttestationCrypto.ECDSACurve.getN());
+            BigInteger s = new BigInteger(1, signature).mod(AttestationCrypto.ECDSACurve.getN());
+            ECPoint key = ECAlgorithms.sumOfTwoMultiplies(g, r, g.twice(), s).normalize();
+            // Only the x and y coordinates, without the byte indicating the encoding
+            byte[] encoded = key.getEncoded(false);
+            return new BigInteger(1, Arrays.copyOfRange(encoded, 1, encoded.length));
+        }
+    }, null);
+
+    private static List<String> links;
+
+    @BeforeAll
+    public static void setup() throws Exception {
+        SecureRandom rand = SecureRandom.getInstance("SHA1PRNG");
+        rand.setSeed("seed".getBytes());
+        links = new ArrayList<>(UNIQUE_LINKS + DUPLICATES);
+        byte[] signature = new byte[65];
+        for (int i = 0; i < UNIQUE_LINKS; i++) {
+            rand.nextBytes(signature);
+            long expiry = i % 4 == 0 ? NOW - 1000 : NOW + 100000;
+            links.add(parser.generateUniversalLink(new int[] {i % 1000, (i + 1) % 1000}, CONTRACT,
+                    BigInteger.TEN.pow(15), expiry, signature, MagicLinkInfo.MAINNET_NETWORK_ID));
+        }
+        for (int i = 0; i < DUPLICATES; i++) {
+            links.add(links.get(rand.nextInt(UNIQUE_LINKS)));
+        }
+    }
+
+    @Test
+    public void compareWithSequential() throws Exception {
+        int threads = Runtime.getRuntime().availableProcessors();
+        ExecutorService single = Executors.newSingleThreadExecutor();
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        try {
+            int expectedValid = sequential();
+            assertEquals(expectedValid, batch(single));
+            assertEquals(expectedValid, batch(pool));
+            long sequential = Long.MAX_VALUE;
+            long batchSingle = Long.MAX_VALUE;
+            long batchPool = Long.MAX_VALUE;
+            for (int i = 0; i < ROUNDS; i++) {
+                long start = System.nanoTime();
+                sequential();
+                sequential = Math.min(sequential, System.nanoTime() - start);
+                start = System.nanoTime();
+                batch(single);
+                batchSingle = Math.min(batchSingle, System.nanoTime() - start);
+                start = System.nanoTime();
+                batch(pool);
+                batchPool = Math.min(batchPool, System.nanoTime() - start);
+            }
+            System.out.println(String.format(
+                    "validate %d links: one at a time %d ms, batch on 1 thread %d ms, batch on %d threads %d ms",
+                    links.size(), sequential / 1000000, batchSingle / 1000000, threads, batchPool / 1000000));
+        } finally {
+            single.shutdownNow();
+            pool.shutdownNow();
+        }
+    }
+
+    /**
+     * Validates the links the way callers did before, returning the amount of valid orders
+     */
+    private static int sequential() {
+        int res = 0;
+        for (String link : links) {
+            try {
+                MagicLinkData data = parser.parseUniversalLink(link);
+                parser.getOwnerKey(data);
+                if (data.expiry > NOW && data.isValidOrder()) {
+                    res++;
+                }
+            } catch (SalesOrderMalformed e) {
+                // Not counted
+            }
+        }
+        return res;
+    }
+
+    private static int batch(ExecutorService executor) {
+        int res = 0;
+        for (Result result : new MagicLinkBatchValidator(parser, executor, () -> NOW).validate(links)) {
+            if (result.isValid()) {
+                res++;
+            }
+        }
+        return res;
+    }
+}
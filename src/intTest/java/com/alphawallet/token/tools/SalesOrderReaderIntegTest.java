@@ -0,0 +1,67 @@
+package com.alphawallet.token.tools;
+
+import com.alphawallet.token.entity.EthereumReadBuffer;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.math.BigInteger;
+
+import static com.alphawallet.attestation.core.Benchmark.measure;
+
+/**
+ * Compares replaying sales orders with the EthereumReadBuffer based readByteMessage to the offset
+ * based one and to SalesOrderReader.readOrders, reporting orders per second.
+ */
+public class SalesOrderReaderIntegTest {
+    private static final int ORDERS = 10_000;
+    private static final int WARMUP = 20;
+    private static final int ITERATIONS = 50;
+    private static final String CONTRACT = "0x63ccef733a093e5bd773b41c96d3ece361464942";
+
+    @Test
+    public void compare() throws Exception {
+        ParseMagicLink parser = new ParseMagicLink(null, null);
+        byte[][] messages = new byte[ORDERS][];
+        int[] counts = new int[ORDERS];
+        for (int i = 0; i < ORDERS; i++) {
+            int[] indices = new int[i % 8 + 1];
+            for (int j = 0; j < indices.length; j++) indices[j] = (i + 7 * j) & 0x7FFF;
+            messages[i] = parser.getTradeBytes(indices, CONTRACT, BigInteger.valueOf(1000L * i), 1700000000L + i);
+            counts[i] = indices.length;
+        }
+        byte[] sig = new byte[65];
+        BigInteger[] prices = new BigInteger[ORDERS];
+        int[] indices = new int[8 * ORDERS];
+        int[] offsets = new int[ORDERS + 1];
+
+        long readBuffer = measure(() -> {
+            int res = 0;
+            for (int i = 0; i < ORDERS; i++) {
+                EthereumReadBuffer ds = new EthereumReadBuffer(new ByteArrayInputStream(messages[i]));
+                ds.readBI();
+                ds.readBI();
+                ds.readAddress();
+                int[] tickets = new int[counts[i]];
+                ds.readUnsignedShort(tickets);
+                ds.close();
+                res += tickets[0];
+            }
+            return res;
+        }, WARMUP, ITERATIONS);
+        long byteMessage = measure(() -> {
+            int res = 0;
+            for (int i = 0; i < ORDERS; i++) {
+                res += parser.readByteMessage(messages[i], sig, counts[i]).tickets[0];
+            }
+            return res;
+        }, WARMUP, ITERATIONS);
+        long batch = measure(() -> SalesOrderReader.readOrders(messages, ORDERS, prices, null, null, indices, offsets),
+                WARMUP, ITERATIONS);
+        System.out.println(String.format("EthereumReadBuffer %d orders/s, readByteMessage %d orders/s, readOrders %d orders/s",
+                rate(readBuffer), rate(byteMessage), rate(batch)));
+    }
+
+    private static long rate(long nanos) {
+        return ORDERS * 1_000_000_000L / nanos;
+    }
+}
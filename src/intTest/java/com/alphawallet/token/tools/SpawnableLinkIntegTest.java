@@ -0,0 +1,47 @@
+package com.alphawallet.token.tools;
+
+import com.alphawallet.token.entity.MagicLinkInfo;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.List;
+
+import static com.alphawallet.attestation.core.Benchmark.measure;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+
+/**
+ * Compares the size and parse time of spawnable links with the token ids as 32 byte integers and
+ * compressed, for blocks of consecutive ticket ids as issued for events.
+ */
+public class SpawnableLinkIntegTest {
+    private static final int WARMUP = 20_000;
+    private static final int ITERATIONS = 50_000;
+    private static final String CONTRACT = "0x63ccef733a093e5bd773b41c96d3ece361464942";
+    // Event id in the high bits, ticket number in the low bits
+    private static final BigInteger EVENT = new BigInteger("546048445646851568430134455064804806").shiftLeft(64);
+
+    private final ParseMagicLink parser = new ParseMagicLink(new TestCryptoFunctions(), null);
+
+    @Test
+    public void compareRanges() throws Exception {
+        byte[] signature = new byte[65];
+        for (int count : new int[] {1, 10, 100, 500}) {
+            List<BigInteger> tokenIds = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                tokenIds.add(EVENT.add(BigInteger.valueOf(1000 + i)));
+            }
+            String spawnable = parser.completeUniversalLink(MagicLinkInfo.MAINNET_NETWORK_ID,
+                    ParseMagicLink.generateSpawnableLeadingLinkBytes(tokenIds, CONTRACT, BigInteger.ZERO, 0), signature);
+            String compressed = parser.completeUniversalLink(MagicLinkInfo.MAINNET_NETWORK_ID,
+                    ParseMagicLink.generateCompressedSpawnableLeadingLinkBytes(tokenIds, CONTRACT, BigInteger.ZERO, 0), signature);
+            assertArrayEquals(parser.parseUniversalLink(spawnable).message, parser.parseUniversalLink(compressed).message);
+            int iterations = ITERATIONS / count;
+            long spawnableTime = measure(() -> parser.parseUniversalLink(spawnable).ticketCount, WARMUP / count, iterations);
+            long compressedTime = measure(() -> parser.parseUniversalLink(compressed).ticketCount, WARMUP / count, iterations);
+            System.out.println(String.format(
+                    "%d token ids: spawnable %d chars %d us/parse, compressed %d chars %d us/parse",
+                    count, spawnable.length(), spawnableTime / 1000, compressed.length(), compressedTime / 1000));
+        }
+    }
+}
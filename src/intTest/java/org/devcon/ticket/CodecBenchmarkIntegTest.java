@@ -0,0 +1,87 @@
+package org.devcon.ticket;
+
+import static com.alphawallet.attestation.core.Benchmark.measure;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import com.alphawallet.attestation.codec.SignedTicketCodec.DevconTicket;
+import com.alphawallet.attestation.codec.SignedTicketCodec.SignedDevconTicket;
+import com.alphawallet.attestation.core.AttestationCrypto;
+import java.io.IOException;
+import java.math.BigInteger;
+import java.security.SecureRandom;
+import org.bouncycastle.asn1.ASN1InputStream;
+import org.bouncycastle.asn1.ASN1Integer;
+import org.bouncycastle.asn1.ASN1OctetString;
+import org.bouncycastle.asn1.ASN1Sequence;
+import org.bouncycastle.asn1.DERBitString;
+import org.bouncycastle.crypto.AsymmetricCipherKeyPair;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Compares the hand-written ticket codec with the one generated from SignedDevconTicket.asd.
+ * Signing and verification are left out, since they dominate and are the same for both.
+ */
+public class CodecBenchmarkIntegTest {
+  private static final int WARMUP = 50_000;
+  private static final int ITERATIONS = 200_000;
+  private static final BigInteger TICKET_ID = new BigInteger("546048445646851568430134455064804806");
+
+  private static byte[] encoding;
+
+  @BeforeAll
+  public static void setup() throws Exception {
+    SecureRandom rand = SecureRandom.getInstance("SHA1PRNG");
+    rand.setSeed("seed".getBytes());
+    AttestationCrypto crypto = new AttestationCrypto(rand);
+    AsymmetricCipherKeyPair keys = crypto.constructECKeys();
+    encoding = new Ticket("test@test.ts", 6, TICKET_ID, 1, keys, BigInteger.TEN).getDerEncodingWithPK();
+  }
+
+  @Test
+  public void encode() {
+    BigInteger devconId = BigInteger.valueOf(6);
+    BigInteger ticketClass = BigInteger.ONE;
+    assertArrayEquals(Ticket.encodeTicket(6, TICKET_ID, 1), DevconTicket.encode(devconId, TICKET_ID, ticketClass));
+    long handWritten = measure(() -> Ticket.encodeTicket(6, TICKET_ID, 1).length, WARMUP, ITERATIONS);
+    long generated = measure(() -> DevconTicket.encode(devconId, TICKET_ID, ticketClass).length, WARMUP, ITERATIONS);
+    report("encode ticket", handWritten, generated);
+  }
+
+  @Test
+  public void decode() throws Exception {
+    assertEquals(decodeWithBouncyCastle(), decodeGenerated());
+    long handWritten = measure(() -> decodeWithBouncyCastle(), WARMUP, ITERATIONS);
+    long generated = measure(() -> decodeGenerated(), WARMUP, ITERATIONS);
+    report("decode signed ticket", handWritten, generated);
+  }
+
+  /**
+   * Parses the ticket the way TicketDecoder does
+   */
+  private static int decodeWithBouncyCastle() throws IOException {
+    ASN1Sequence asn1 = ASN1Sequence.getInstance(new ASN1InputStream(encoding).readObject());
+    ASN1Sequence ticket = ASN1Sequence.getInstance(asn1.getObjectAt(0));
+    int devconId = ASN1Integer.getInstance(ticket.getObjectAt(0)).getValue().intValueExact();
+    BigInteger ticketId = ASN1Integer.getInstance(ticket.getObjectAt(1)).getValue();
+    int ticketClass = ASN1Integer.getInstance(ticket.getObjectAt(2)).getValue().intValueExact();
+    byte[] commitment = ASN1OctetString.getInstance(asn1.getObjectAt(1)).getOctets();
+    ASN1Sequence publicKeyInfo = ASN1Sequence.getInstance(asn1.getObjectAt(2));
+    byte[] publicKey = DERBitString.getInstance(publicKeyInfo.getObjectAt(1)).getBytes();
+    byte[] signature = DERBitString.getInstance(asn1.getObjectAt(3)).getBytes();
+    return devconId + ticketId.bitLength() + ticketClass + commitment.length + publicKey.length + signature.length;
+  }
+
+  private static int decodeGenerated() throws IOException {
+    SignedDevconTicket decoded = SignedDevconTicket.read(encoding);
+    DevconTicket ticket = decoded.getTicket();
+    return (int) ticket.getDevconIdAsLong() + ticket.getTicketId().bitLength() + (int) ticket.getTicketClassAsLong()
+        + decoded.getCommitment().length + decoded.getPublicKeyInfo().getPublicKey().length
+        + decoded.getSignatureValue().length;
+  }
+
+  private static void report(String name, long handWritten, long generated) {
+    System.out.println(String.format("%s: hand-written %d ns/op, generated %d ns/op", name, handWritten, generated));
+  }
+}
@@ -0,0 +1,69 @@
+package org.devcon.ticket;
+
+import static com.alphawallet.attestation.core.Benchmark.measure;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.alphawallet.attestation.core.AttestationCrypto;
+import java.io.IOException;
+import java.math.BigInteger;
+import java.security.SecureRandom;
+import java.util.Base64;
+import org.bouncycastle.crypto.AsymmetricCipherKeyPair;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Compares the size of magic links with DER and compact tickets, and the latency of decoding them
+ * when scanned, both with and without verification of the signature.
+ */
+public class CompactTicketIntegTest {
+  private static final int WARMUP = 2_000;
+  private static final int ITERATIONS = 10_000;
+  private static final BigInteger TICKET_ID = new BigInteger("546048445646851568430134455064804806");
+
+  private static TicketDecoder decoder;
+  private static Ticket ticket;
+  private static String derLink;
+  private static String compactLink;
+
+  @BeforeAll
+  public static void setup() throws Exception {
+    SecureRandom rand = SecureRandom.getInstance("SHA1PRNG");
+    rand.setSeed("seed".getBytes());
+    AttestationCrypto crypto = new AttestationCrypto(rand);
+    AsymmetricCipherKeyPair keys = crypto.constructECKeys();
+    decoder = new TicketDecoder(keys.getPublic());
+    ticket = new Ticket("test@test.ts", 6, TICKET_ID, 1, keys, BigInteger.TEN);
+    // Links as made by Issuer
+    derLink = Base64.getUrlEncoder().encodeToString(ticket.getDerEncoding());
+    compactLink = Base64.getUrlEncoder().encodeToString(ticket.getCompactEncoding());
+  }
+
+  @Test
+  public void size() {
+    System.out.println(String.format("ticket in link: DER %d bytes, %d chars, compact %d bytes, %d chars",
+        ticket.getDerEncoding().length, derLink.length(), ticket.getCompactEncoding().length, compactLink.length()));
+    assertTrue(compactLink.length() < derLink.length());
+  }
+
+  @Test
+  public void scanDecode() throws Exception {
+    assertArrayEquals(scan(derLink, true).getDerEncoding(), scan(compactLink, true).getDerEncoding());
+    report("decode unverified", measureScan(derLink, false), measureScan(compactLink, false));
+    report("decode and verify", measureScan(derLink, true), measureScan(compactLink, true));
+  }
+
+  private static Ticket scan(String link, boolean verify) throws IOException {
+    byte[] encoding = Base64.getUrlDecoder().decode(link);
+    return verify ? decoder.decode(encoding) : decoder.decodeUnverified(encoding);
+  }
+
+  private static long measureScan(String link, boolean verify) {
+    return measure(() -> scan(link, verify).getTicketClass(), WARMUP, ITERATIONS);
+  }
+
+  private static void report(String name, long der, long compact) {
+    System.out.println(String.format("%s: DER %d ns/op, compact %d ns/op", name, der, compact));
+  }
+}
@@ -0,0 +1,72 @@
+package org.devcon.ticket;
+
+import static com.alphawallet.attestation.core.Benchmark.measure;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+
+import com.alphawallet.attestation.core.AttestationCrypto;
+import com.alphawallet.attestation.core.SignatureUtility;
+import com.alphawallet.attestation.core.URLUtility;
+import java.io.IOException;
+import java.math.BigInteger;
+import java.security.SecureRandom;
+import java.util.List;
+import org.bouncycastle.crypto.AsymmetricCipherKeyPair;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Compares decoding a ticket link with URLUtility.decodeList, TicketDecoder and
+ * SignatureUtility.restoreKey to TicketLinkDecoder, reporting links decoded per second.
+ */
+public class TicketLinkIntegTest {
+  private static final int WARMUP = 20_000;
+  private static final int ITERATIONS = 50_000;
+  private static final int VERIFIED_ITERATIONS = 1_000;
+  private static final BigInteger TICKET_ID = new BigInteger("546048445646851568430134455064804806");
+  private static final BigInteger SECRET = new BigInteger("45845870684");
+
+  private static AsymmetricCipherKeyPair keys;
+  private static String link;
+
+  @BeforeAll
+  public static void setup() throws Exception {
+    SecureRandom rand = SecureRandom.getInstance("SHA1PRNG");
+    rand.setSeed("seed".getBytes());
+    AttestationCrypto crypto = new AttestationCrypto(rand);
+    keys = crypto.constructECKeys();
+    Ticket ticket = new Ticket("test@test.ts", 6, TICKET_ID, 1, keys, SECRET);
+    link = Ticket.magicLinkURLPrefix + "?ticket=" + ticket.getUrlEncoding() + "&secret=" + SECRET;
+  }
+
+  @Test
+  public void compare() throws Exception {
+    TicketLinkDecoder linkDecoder = new TicketLinkDecoder(keys.getPublic());
+    assertArrayEquals(decodeSeparately(false).getDerEncoding(),
+        linkDecoder.decodeUnverified(link).getTicket().getDerEncoding());
+
+    long separately = measure(() -> decodeSeparately(false).getDevconId(), WARMUP, ITERATIONS);
+    long oneLink = measure(() -> linkDecoder.decodeUnverified(link).getTicket().getDevconId(), WARMUP, ITERATIONS);
+    report("decode unverified", separately, oneLink);
+    separately = measure(() -> decodeSeparately(true).getDevconId(), VERIFIED_ITERATIONS, VERIFIED_ITERATIONS);
+    oneLink = measure(() -> linkDecoder.decode(link).getTicket().getDevconId(), VERIFIED_ITERATIONS, VERIFIED_ITERATIONS);
+    report("decode and verify", separately, oneLink);
+  }
+
+  /**
+   * Decodes the link the way it was done before TicketLinkDecoder
+   */
+  private static Ticket decodeSeparately(boolean verify) throws IOException {
+    int start = link.indexOf("ticket=") + "ticket=".length();
+    String secret = link.substring(link.indexOf("secret=") + "secret=".length());
+    List<byte[]> decoded = URLUtility.decodeList(link.substring(start, link.indexOf('&', start)));
+    SignatureUtility.restoreKey(decoded.get(1));
+    TicketDecoder decoder = new TicketDecoder(keys.getPublic());
+    Ticket res = verify ? decoder.decode(decoded.get(0)) : decoder.decodeUnverified(decoded.get(0));
+    return new BigInteger(secret).signum() > 0 ? res : null;
+  }
+
+  private static void report(String name, long separately, long oneLink) {
+    System.out.println(String.format("%s: separately %d links/s, TicketLinkDecoder %d links/s",
+        name, 1_000_000_000L / separately, 1_000_000_000L / oneLink));
+  }
+}
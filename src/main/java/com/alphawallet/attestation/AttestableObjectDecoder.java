@@ -2,7 +2,48 @@ package com.alphawallet.attestation;
 
 import com.alphawallet.attestation.core.Attestable;
 import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
 
 public interface AttestableObjectDecoder<T extends Attestable> {
   public T decode(byte[] encoding) throws IOException;
+
+  /**
+   * Decodes an object located at offset in a larger buffer, e.g. a child of an AttestedObject.
+   * Decoders that can read directly from the buffer should override this, the default copies the
+   * range unless it makes up the entire buffer.
+   */
+  public default T decode(byte[] buffer, int offset, int length) throws IOException {
+    if (offset == 0 && length == buffer.length) {
+      return decode(buffer);
+    }
+    return decode(Arrays.copyOfRange(buffer, offset, offset + length));
+  }
+
+  /**
+   * Decodes an object without verifying its signature, e.g. for indexing or to verify it later
+   * through verify() or a BatchVerifier. The object is marked as unverified until verify() succeeds.
+   * Decoders which cannot skip verification verify as part of decoding.
+   */
+  public default T decodeUnverified(byte[] buffer, int offset, int length) throws IOException {
+    return decode(buffer, offset, length);
+  }
+
+  public default T decodeUnverified(byte[] encoding) throws IOException {
+    return decodeUnverified(encoding, 0, encoding.length);
+  }
+
+  /**
+   * Decodes the remaining bytes of a buffer, e.g. a slice of a memory mapped file, without
+   * changing its position.
+   * Buffers backed by an array are decoded without copying.
+   */
+  public default T decode(ByteBuffer encoding) throws IOException {
+    if (encoding.hasArray()) {
+      return decode(encoding.array(), encoding.arrayOffset() + encoding.position(), encoding.remaining());
+    }
+    byte[] bytes = new byte[encoding.remaining()];
+    encoding.duplicate().get(bytes);
+    return decode(bytes);
+  }
 }
@@ -1,8 +1,10 @@
 package com.alphawallet.attestation;
 
 import com.alphawallet.attestation.core.ASNEncodable;
+import com.alphawallet.attestation.core.DERGate;
 import com.alphawallet.attestation.core.Validateable;
 import com.alphawallet.token.entity.Signable;
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.io.InvalidObjectException;
 import java.text.ParseException;
@@ -45,11 +47,31 @@ public class Attestation implements Signable, ASNEncodable, Validateable {
   private ASN1Sequence dataObject;
   private ASN1Sequence extensions;
 
+  // The encoding, cached once the attestation is frozen
+  private byte[] frozenEncoding;
+
   public Attestation() {
   }
 
   public Attestation(byte[] derEncoding) throws IOException, IllegalArgumentException {
-    ASN1InputStream input = new ASN1InputStream(derEncoding);
+    this(derEncoding, 0, derEncoding.length);
+  }
+
+  /**
+   * Decodes an attestation located at offset in a larger buffer, without copying it first
+   */
+  public Attestation(byte[] buffer, int offset, int length) throws IOException, IllegalArgumentException {
+    this(buffer, offset, length, false);
+  }
+
+  /**
+   * @param checked true if the range is part of an encoding which already passed the DERGate
+   */
+  Attestation(byte[] buffer, int offset, int length, boolean checked) throws IOException, IllegalArgumentException {
+    if (!checked) {
+      DERGate.getDefault().check(buffer, offset, length);
+    }
+    ASN1InputStream input = new ASN1InputStream(new ByteArrayInputStream(buffer, offset, length), length);
     int currentPos = 0;
     ASN1Sequence asn1 = ASN1Sequence.getInstance(input.readObject());
     ASN1TaggedObject taggedVersion = ASN1TaggedObject.getInstance(asn1.getObjectAt(currentPos));
@@ -119,6 +141,7 @@ public class Attestation implements Signable, ASNEncodable, Validateable {
   }
 
   public void setVersion(int version) {
+    checkNotFrozen();
     this.version = new ASN1Integer(version);
   }
 
@@ -128,6 +151,7 @@ public class Attestation implements Signable, ASNEncodable, Validateable {
 
   // TODO change to up-to 20 byte array
   public void setSerialNumber(long serialNumber) {
+    checkNotFrozen();
     this.serialNumber = new ASN1Integer(serialNumber);
   }
 
@@ -139,6 +163,7 @@ public class Attestation implements Signable, ASNEncodable, Validateable {
    * Takes as input the oid of the signature scheme to be used to sign the attestation
    */
   public void setSignature(String oid) {
+    checkNotFrozen();
     this.signature = new AlgorithmIdentifier(new ASN1ObjectIdentifier(oid));
   }
 
@@ -151,6 +176,7 @@ public class Attestation implements Signable, ASNEncodable, Validateable {
    * Microsystems, C=US".
    */
   public void setIssuer(String issuer) {
+    checkNotFrozen();
     this.issuer = new X500Name(issuer);
   }
 
@@ -163,6 +189,7 @@ public class Attestation implements Signable, ASNEncodable, Validateable {
   }
 
   public void setNotValidBefore(Date notValidBefore) {
+    checkNotFrozen();
     this.notValidBefore = new ASN1GeneralizedTime(notValidBefore);
   }
 
@@ -175,6 +202,7 @@ public class Attestation implements Signable, ASNEncodable, Validateable {
   }
 
   public void setNotValidAfter(Date notValidAfter) {
+    checkNotFrozen();
     this.notValidAfter = new ASN1GeneralizedTime(notValidAfter);
   }
 
@@ -186,6 +214,7 @@ public class Attestation implements Signable, ASNEncodable, Validateable {
    *
    */
   public void setSubject(String subject) {
+    checkNotFrozen();
     this.subject = new X500Name(subject);
   }
 
@@ -194,6 +223,7 @@ public class Attestation implements Signable, ASNEncodable, Validateable {
   }
 
   public void setSubjectPublicKeyInfo(SubjectPublicKeyInfo spki) {
+    checkNotFrozen();
     this.subjectPublicKeyInfo = spki;
   }
 
@@ -208,6 +238,7 @@ public class Attestation implements Signable, ASNEncodable, Validateable {
 
   // TODO change to list of arrays of 20 bytes
   public void setSmartcontracts(List<Long> smartcontracts) {
+    checkNotFrozen();
     ASN1EncodableVector seq = new ASN1EncodableVector();
     for (long current : smartcontracts) {
       seq.add(new ASN1Integer(current));
@@ -220,6 +251,7 @@ public class Attestation implements Signable, ASNEncodable, Validateable {
   }
 
   public void setExtensions(ASN1Sequence extensions) {
+    checkNotFrozen();
     if (dataObject != null) {
       throw new IllegalArgumentException(
           "DataObject already set. Only one of DataObject and Extensions is allowed.");
@@ -232,6 +264,7 @@ public class Attestation implements Signable, ASNEncodable, Validateable {
   }
 
   public void setDataObject(ASN1Sequence dataObject) {
+    checkNotFrozen();
     if (extensions != null) {
       throw new IllegalArgumentException(
           "Extensions already set. Only one of DataObject and Extensions is allowed.");
@@ -271,10 +304,41 @@ public class Attestation implements Signable, ASNEncodable, Validateable {
     return true;
   }
 
+  /**
+   * Makes the attestation immutable and computes its encoding once.
+   * Afterwards all setters throw an IllegalStateException and getPrehash() and getDerEncoding()
+   * return the cached encoding. Thus encoding no longer depends on the current time, so the
+   * validity period must be checked separately using checkValidity().
+   * @return this attestation
+   */
+  public Attestation freeze() {
+    if (frozenEncoding == null) {
+      if (!hasRequiredFields()) {
+        throw new IllegalStateException("The attestation is missing required fields");
+      }
+      frozenEncoding = encode();
+    }
+    return this;
+  }
+
+  public boolean isFrozen() {
+    return frozenEncoding != null;
+  }
+
+  private void checkNotFrozen() {
+    if (frozenEncoding != null) {
+      throw new IllegalStateException("The attestation is frozen");
+    }
+  }
+
+  private boolean hasRequiredFields() {
+    return version != null && serialNumber != null && signature != null && (extensions != null
+        || dataObject != null);
+  }
+
   @Override
   public boolean checkValidity() {
-    if (version == null || serialNumber == null || signature == null || (extensions == null
-        && dataObject == null)) {
+    if (!hasRequiredFields()) {
       return false;
     }
     if (getNotValidBefore() != null && getNotValidAfter() != null) {
@@ -303,13 +367,32 @@ public class Attestation implements Signable, ASNEncodable, Validateable {
 
   /**
    * Construct the DER encoded byte array to be signed. Returns null if the Attestation object is
-   * not valid
+   * not valid. If the attestation is frozen a copy of the cached encoding is returned without any
+   * checks.
    */
   @Override
   public byte[] getPrehash() {
+    if (frozenEncoding != null) {
+      return frozenEncoding.clone();
+    }
     if (!checkValidity()) {
       return null;
     }
+    return encode();
+  }
+
+  /**
+   * Same as getPrehash(), but returns the cached encoding of a frozen attestation without copying
+   * it. The array must not be modified.
+   */
+  byte[] prehash() {
+    if (frozenEncoding != null) {
+      return frozenEncoding;
+    }
+    return getPrehash();
+  }
+
+  private byte[] encode() {
     ASN1EncodableVector res = new ASN1EncodableVector();
     res.add(new DERTaggedObject(true, 0, this.version));
     res.add(this.serialNumber);
@@ -3,6 +3,8 @@ package com.alphawallet.attestation;
 import com.alphawallet.attestation.IdentifierAttestation.AttestationType;
 import com.alphawallet.attestation.core.ASNEncodable;
 import com.alphawallet.attestation.core.AttestationCrypto;
+import com.alphawallet.attestation.core.ConstructionPolicy;
+import com.alphawallet.attestation.core.DERGate;
 import com.alphawallet.attestation.core.SignatureUtility;
 import com.alphawallet.attestation.core.Verifiable;
 import java.io.IOException;
@@ -27,8 +29,19 @@ public class AttestationRequest implements ASNEncodable, Verifiable {
 
   private final AsymmetricKeyParameter publicKey;
   private final byte[] signature;
+  // Set by verify(), objects decoded without verification start out unverified
+  private volatile boolean verified;
 
   public AttestationRequest(String identity, AttestationType type, ProofOfExponent pok, AsymmetricCipherKeyPair keys) {
+    this(identity, type, pok, keys, ConstructionPolicy.VERIFY);
+  }
+
+  /**
+   * Constructs and signs a request. Under ConstructionPolicy.TRUSTED neither the signature nor the
+   * proof is verified, so the proof must have been computed locally.
+   */
+  public AttestationRequest(String identity, AttestationType type, ProofOfExponent pok, AsymmetricCipherKeyPair keys,
+      ConstructionPolicy policy) {
     try {
       this.identity = identity;
       this.type = type;
@@ -37,7 +50,9 @@ public class AttestationRequest implements ASNEncodable, Verifiable {
           .createKey( SubjectPublicKeyInfoFactory.createSubjectPublicKeyInfo(keys.getPublic()));
       this.signature = SignatureUtility.signDeterministic(getUnsignedEncoding(), keys.getPrivate());
 
-      if (!verify()) {
+      if (policy == ConstructionPolicy.TRUSTED) {
+        this.verified = true;
+      } else if (!verify()) {
         throw new IllegalArgumentException("The signature or proof is not valid");
       }
     } catch (IOException e) {
@@ -46,15 +61,28 @@ public class AttestationRequest implements ASNEncodable, Verifiable {
   }
 
   public AttestationRequest(byte[] derEncoding) {
+    this(derEncoding, true);
+  }
+
+  /**
+   * Decodes a request without verifying its signature and proof. It is unverified until verify()
+   * is called.
+   */
+  public static AttestationRequest decodeUnverified(byte[] derEncoding) {
+    return new AttestationRequest(derEncoding, false);
+  }
+
+  private AttestationRequest(byte[] derEncoding, boolean verify) {
     try {
+      DERGate.getDefault().check(derEncoding);
       ASN1InputStream input = new ASN1InputStream(derEncoding);
       ASN1Sequence asn1 = ASN1Sequence.getInstance(input.readObject());
       ASN1Sequence unsigned = ASN1Sequence.getInstance(asn1.getObjectAt(0));
       this.identity = DERVisibleString.getInstance(unsigned.getObjectAt(0)).getString();
       this.type = AttestationType.values()[
           ASN1Integer.getInstance(unsigned.getObjectAt(1)).getValue().intValueExact()];
-      this.pok = new ProofOfExponent(
-          ASN1Sequence.getInstance(unsigned.getObjectAt(2)).getEncoded());
+      byte[] pokEncoding = ASN1Sequence.getInstance(unsigned.getObjectAt(2)).getEncoded();
+      this.pok = new ProofOfExponent(pokEncoding, 0, pokEncoding.length, true);
       this.publicKey = PublicKeyFactory
           .createKey(SubjectPublicKeyInfo.getInstance(asn1.getObjectAt(1)));
       DERBitString signatureEnc = DERBitString.getInstance(asn1.getObjectAt(2));
@@ -62,7 +90,7 @@ public class AttestationRequest implements ASNEncodable, Verifiable {
     } catch (IOException e) {
       throw new RuntimeException(e);
     }
-    if (!verify()) {
+    if (verify && !verify()) {
       throw new IllegalArgumentException("The signature is not valid");
     }
   }
@@ -107,13 +135,13 @@ public class AttestationRequest implements ASNEncodable, Verifiable {
 
   @Override
   public boolean verify() {
-    if (!SignatureUtility.verify(getUnsignedEncoding(), signature, publicKey)) {
-      return false;
-    }
-    if (!AttestationCrypto.verifyAttestationRequestProof(pok)) {
-      return false;
-    }
+    verified = SignatureUtility.verify(getUnsignedEncoding(), signature, publicKey)
+        && AttestationCrypto.verifyAttestationRequestProof(pok);
+    return verified;
+  }
 
-    return true;
+  @Override
+  public boolean isVerified() {
+    return verified;
   }
 }
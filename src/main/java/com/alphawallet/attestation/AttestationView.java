@@ -0,0 +1,383 @@
+package com.alphawallet.attestation;
+
+import com.alphawallet.attestation.core.DERSlice;
+import com.alphawallet.attestation.core.SignatureUtility;
+import com.alphawallet.attestation.core.Validateable;
+import java.io.IOException;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+import org.bouncycastle.asn1.ASN1ObjectIdentifier;
+import org.bouncycastle.asn1.ASN1Primitive;
+import org.bouncycastle.asn1.ASN1Sequence;
+import org.bouncycastle.asn1.x500.X500Name;
+import org.bouncycastle.asn1.x509.SubjectPublicKeyInfo;
+import org.bouncycastle.asn1.x509.Time;
+import org.bouncycastle.crypto.params.AsymmetricKeyParameter;
+import org.bouncycastle.crypto.util.PublicKeyFactory;
+
+/**
+ * Read-only view of a DER encoded signed attestation, as constructed by SignedAttestation.
+ * The constructor only records where each field is located in the encoding, in a single pass.
+ * Each field is decoded the first time it is accessed and the encoding is never copied or
+ * re-encoded, so the signature is verified directly on the signed bytes.
+ * Use toAttestation() if a full Attestation object is needed.
+ */
+public class AttestationView implements Validateable {
+  private static final byte[] OID_OCTETSTRING_ENCODING;
+
+  static {
+    try {
+      OID_OCTETSTRING_ENCODING = new ASN1ObjectIdentifier(Attestation.OID_OCTETSTRING).getEncoded();
+    } catch (IOException e) {
+      throw new RuntimeException(e);
+    }
+  }
+
+  private final byte[] encoding;
+  // The signed part, i.e. the unsigned attestation
+  private final DERSlice tbs;
+  private final DERSlice version;
+  private final DERSlice serialNumber;
+  private final DERSlice signatureAlgorithm;
+  private final DERSlice issuer;
+  private final DERSlice validity;
+  private final DERSlice subject;
+  private final DERSlice subjectPublicKeyInfo;
+  private final DERSlice smartcontracts;
+  private final DERSlice objects;
+  private final DERSlice signature;
+
+  // Lazily decoded fields
+  private String signatureOid;
+  private String issuerName;
+  private Date notValidBefore;
+  private Date notValidAfter;
+  private String subjectName;
+  private SubjectPublicKeyInfo spki;
+  private byte[] commitment;
+
+  public AttestationView(byte[] derEncoding) throws IOException {
+    this(derEncoding, 0, derEncoding.length);
+  }
+
+  /**
+   * Constructs a view of the remaining bytes of buffer, without changing its position.
+   * Buffers backed by an array are used without copying, other buffers are copied once.
+   */
+  public AttestationView(ByteBuffer buffer) throws IOException {
+    this(bufferArray(buffer), bufferOffset(buffer), buffer.remaining());
+  }
+
+  public AttestationView(byte[] buffer, int offset, int length) throws IOException {
+    this.encoding = buffer;
+    int end = offset + length;
+    DERSlice signedAtt = DERSlice.read(buffer, offset, end).expectTag(DERSlice.TAG_SEQUENCE);
+    if (signedAtt.getEnd() != end) {
+      throw new IOException("Trailing data after attestation");
+    }
+    tbs = signedAtt.getFirstChild().expectTag(DERSlice.TAG_SEQUENCE);
+    DERSlice algorithm = next(tbs, signedAtt.getEnd()).expectTag(DERSlice.TAG_SEQUENCE);
+    signature = next(algorithm, signedAtt.getEnd()).expectTag(DERSlice.TAG_BIT_STRING);
+    if (signature.getEnd() != signedAtt.getEnd() || signature.getValueLength() < 1
+        || buffer[signature.getValueOffset()] != 0) {
+      throw new IOException("Malformed signature");
+    }
+
+    int limit = tbs.getEnd();
+    DERSlice taggedVersion = tbs.getFirstChild()
+        .expectTag(DERSlice.CONTEXT_SPECIFIC | DERSlice.CONSTRUCTED);
+    version = taggedVersion.getFirstChild().expectTag(DERSlice.TAG_INTEGER);
+    serialNumber = next(taggedVersion, limit).expectTag(DERSlice.TAG_INTEGER);
+    signatureAlgorithm = next(serialNumber, limit).expectTag(DERSlice.TAG_SEQUENCE);
+    issuer = next(signatureAlgorithm, limit).expectTag(DERSlice.TAG_SEQUENCE);
+    validity = next(issuer, limit);
+    if (validity.getTag() != DERSlice.TAG_NULL) {
+      validity.expectTag(DERSlice.TAG_SEQUENCE);
+    }
+    subject = next(validity, limit).expectTag(DERSlice.TAG_SEQUENCE);
+    subjectPublicKeyInfo = next(subject, limit);
+    if (subjectPublicKeyInfo.getTag() != DERSlice.TAG_NULL) {
+      subjectPublicKeyInfo.expectTag(DERSlice.TAG_SEQUENCE);
+    }
+    DERSlice current = subjectPublicKeyInfo.getNext(limit);
+    if (current == null) {
+      throw new IOException("Missing extensions or data object");
+    }
+    // The optional smartcontracts are included
+    if (current.getTag() == DERSlice.TAG_SEQUENCE) {
+      smartcontracts = current;
+      current = current.getNext(limit);
+      if (current == null) {
+        throw new IOException("Missing extensions or data object");
+      }
+    } else {
+      smartcontracts = null;
+    }
+    if (current.getTag() != (DERSlice.CONTEXT_SPECIFIC | DERSlice.CONSTRUCTED | 3)
+        && current.getTag() != (DERSlice.CONTEXT_SPECIFIC | DERSlice.CONSTRUCTED | 4)) {
+      throw new IOException("Expected extensions or data object");
+    }
+    objects = current;
+    objects.getFirstChild().expectTag(DERSlice.TAG_SEQUENCE);
+  }
+
+  /**
+   * Returns the element following current, which must be there
+   */
+  private static DERSlice next(DERSlice current, int limit) throws IOException {
+    DERSlice res = current.getNext(limit);
+    if (res == null) {
+      throw new IOException("Missing elements in attestation");
+    }
+    return res;
+  }
+
+  private static byte[] bufferArray(ByteBuffer buffer) {
+    if (buffer.hasArray()) {
+      return buffer.array();
+    }
+    byte[] res = new byte[buffer.remaining()];
+    buffer.duplicate().get(res);
+    return res;
+  }
+
+  private static int bufferOffset(ByteBuffer buffer) {
+    return buffer.hasArray() ? buffer.arrayOffset() + buffer.position() : 0;
+  }
+
+  public int getVersion() {
+    return decodeInteger(version).intValueExact();
+  }
+
+  public int getSerialNumber() {
+    return decodeInteger(serialNumber).intValueExact();
+  }
+
+  public String getSignature() {
+    if (signatureOid == null) {
+      try {
+        signatureOid = ASN1ObjectIdentifier.getInstance(
+            signatureAlgorithm.getFirstChild().getEncoded()).getId();
+      } catch (IOException e) {
+        throw new RuntimeException(e);
+      }
+    }
+    return signatureOid;
+  }
+
+  /**
+   * Returns the issuer or null if it is not included
+   */
+  public String getIssuer() {
+    if (issuerName == null && issuer.getValueLength() > 0) {
+      issuerName = X500Name.getInstance(issuer.getEncoded()).toString();
+    }
+    return issuerName;
+  }
+
+  /**
+   * Returns the start of the validity period or null if it is not included
+   */
+  public Date getNotValidBefore() {
+    if (notValidBefore == null && hasValidity()) {
+      notValidBefore = decodeTime(0);
+    }
+    return notValidBefore;
+  }
+
+  /**
+   * Returns the end of the validity period or null if it is not included
+   */
+  public Date getNotValidAfter() {
+    if (notValidAfter == null && hasValidity()) {
+      notValidAfter = decodeTime(1);
+    }
+    return notValidAfter;
+  }
+
+  private boolean hasValidity() {
+    return validity.getTag() != DERSlice.TAG_NULL;
+  }
+
+  private Date decodeTime(int index) {
+    try {
+      DERSlice time = validity.getFirstChild();
+      if (index == 1) {
+        time = time.getNext(validity.getEnd());
+      }
+      return Time.getInstance(ASN1Primitive.fromByteArray(time.getEncoded())).getDate();
+    } catch (IOException e) {
+      throw new RuntimeException(e);
+    }
+  }
+
+  /**
+   * Returns the subject or null if it is not included
+   */
+  public String getSubject() {
+    if (subjectName == null && subject.getValueLength() > 0) {
+      subjectName = X500Name.getInstance(subject.getEncoded()).toString();
+    }
+    return subjectName;
+  }
+
+  /**
+   * Returns the subject public key info or null if it is not included
+   */
+  public SubjectPublicKeyInfo getSubjectPublicKeyInfo() {
+    if (spki == null && subjectPublicKeyInfo.getTag() != DERSlice.TAG_NULL) {
+      spki = SubjectPublicKeyInfo.getInstance(subjectPublicKeyInfo.getEncoded());
+    }
+    return spki;
+  }
+
+  /**
+   * Returns the subject public key or null if it is not included
+   */
+  public AsymmetricKeyParameter getSubjectPublicKey() throws IOException {
+    SubjectPublicKeyInfo info = getSubjectPublicKeyInfo();
+    return info == null ? null : PublicKeyFactory.createKey(info);
+  }
+
+  /**
+   * Returns the smartcontracts or null if they are not included
+   */
+  public List<Long> getSmartcontracts() {
+    if (smartcontracts == null) {
+      return null;
+    }
+    try {
+      List<Long> res = new ArrayList<>();
+      for (DERSlice current : smartcontracts.getChildren()) {
+        res.add(decodeInteger(current.expectTag(DERSlice.TAG_INTEGER)).longValueExact());
+      }
+      return res;
+    } catch (IOException e) {
+      throw new RuntimeException(e);
+    }
+  }
+
+  /**
+   * Returns the extensions or null if the attestation contains a data object instead
+   */
+  public ASN1Sequence getExtensions() {
+    return hasExtensions() ? decodeObjects() : null;
+  }
+
+  /**
+   * Returns the data object or null if the attestation contains extensions instead
+   */
+  public ASN1Sequence getDataObject() {
+    return hasExtensions() ? null : decodeObjects();
+  }
+
+  private boolean hasExtensions() {
+    return (objects.getTag() & 0x1F) == 3;
+  }
+
+  private ASN1Sequence decodeObjects() {
+    try {
+      return ASN1Sequence.getInstance(objects.getFirstChild().getEncoded());
+    } catch (IOException e) {
+      throw new RuntimeException(e);
+    }
+  }
+
+  /**
+   * Returns the riddle of an identifier attestation, i.e. the value of the extension with OID
+   * Attestation.OID_OCTETSTRING, or null if there is no such extension.
+   * The extensions are scanned directly without being decoded.
+   */
+  public byte[] getCommitment() {
+    if (commitment == null && hasExtensions()) {
+      try {
+        DERSlice extensions = objects.getFirstChild();
+        for (DERSlice extension : extensions.getChildren()) {
+          DERSlice oid = extension.expectTag(DERSlice.TAG_SEQUENCE).getFirstChild();
+          if (!oid.encodingEquals(OID_OCTETSTRING_ENCODING)) {
+            continue;
+          }
+          // The value is the last element, after the optional critical flag
+          List<DERSlice> elements = extension.getChildren();
+          commitment = elements.get(elements.size() - 1).expectTag(DERSlice.TAG_OCTET_STRING).getValue();
+          break;
+        }
+      } catch (IOException e) {
+        throw new RuntimeException(e);
+      }
+    }
+    return commitment;
+  }
+
+  private static BigInteger decodeInteger(DERSlice integer) {
+    if (integer.getValueLength() == 0) {
+      throw new IllegalArgumentException("Empty integer");
+    }
+    return new BigInteger(integer.getValue());
+  }
+
+  /**
+   * Returns the buffer containing the encoding. Together with getSignedOffset() and
+   * getSignedLength() this gives the exact bytes that are signed.
+   */
+  public byte[] getBuffer() {
+    return encoding;
+  }
+
+  public int getSignedOffset() {
+    return tbs.getOffset();
+  }
+
+  public int getSignedLength() {
+    return tbs.getLength();
+  }
+
+  /**
+   * Returns a copy of the signed bytes, i.e. the DER encoding of the unsigned attestation
+   */
+  public byte[] getPrehash() {
+    return tbs.getEncoded();
+  }
+
+  /**
+   * Returns the signature on the attestation
+   */
+  public byte[] getSignatureValue() {
+    // Skip the byte counting unused bits, which the constructor checked to be present and zero
+    return Arrays.copyOfRange(encoding, signature.getValueOffset() + 1, signature.getEnd());
+  }
+
+  /**
+   * Verifies the signature directly on the signed bytes of the encoding
+   */
+  public boolean verify(AsymmetricKeyParameter signingPublicKey) {
+    return SignatureUtility.verify(encoding, tbs.getOffset(), tbs.getLength(),
+        getSignatureValue(), signingPublicKey);
+  }
+
+  /**
+   * Checks that the attestation is within its validity period, if it has one
+   */
+  @Override
+  public boolean checkValidity() {
+    if (getNotValidBefore() != null && getNotValidAfter() != null) {
+      long currentTime = System.currentTimeMillis();
+      if (!(currentTime >= getNotValidBefore().getTime() && currentTime < getNotValidAfter().getTime())) {
+        System.err.println("Attestation is no longer valid");
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Fully decodes the unsigned attestation
+   */
+  public Attestation toAttestation() throws IOException {
+    return new Attestation(getPrehash());
+  }
+}
@@ -3,17 +3,19 @@ package com.alphawallet.attestation;
 import com.alphawallet.attestation.core.ASNEncodable;
 import com.alphawallet.attestation.core.Attestable;
 import com.alphawallet.attestation.core.AttestationCrypto;
+import com.alphawallet.attestation.core.ConstructionPolicy;
+import com.alphawallet.attestation.core.DERGate;
+import com.alphawallet.attestation.core.DERSlice;
+import com.alphawallet.attestation.core.DERUtility;
 import com.alphawallet.attestation.core.SignatureUtility;
 import com.alphawallet.attestation.core.Verifiable;
 import java.io.IOException;
 import java.io.InvalidObjectException;
 import java.math.BigInteger;
 import java.util.Arrays;
-import org.bouncycastle.asn1.ASN1EncodableVector;
-import org.bouncycastle.asn1.ASN1InputStream;
+import java.util.List;
 import org.bouncycastle.asn1.ASN1OctetString;
 import org.bouncycastle.asn1.ASN1Sequence;
-import org.bouncycastle.asn1.DERBitString;
 import org.bouncycastle.asn1.DERSequence;
 import org.bouncycastle.asn1.x509.SubjectPublicKeyInfo;
 import org.bouncycastle.crypto.AsymmetricCipherKeyPair;
@@ -30,28 +32,42 @@ public class AttestedObject<T extends Attestable> implements ASNEncodable, Verif
 
   private final byte[] unsignedEncoding;
   private final byte[] encoding;
+  // Set by verify(), objects decoded without verification start out unverified
+  private volatile boolean verified;
 
   public AttestedObject(T attestableObject, SignedAttestation att, AsymmetricCipherKeyPair userKeys,
       BigInteger attestationSecret, BigInteger chequeSecret,
       AttestationCrypto crypto) {
+    this(attestableObject, att, userKeys, attestationSecret, chequeSecret, crypto, ConstructionPolicy.VERIFY);
+  }
+
+  private AttestedObject(T attestableObject, SignedAttestation att, AsymmetricCipherKeyPair userKeys,
+      BigInteger attestationSecret, BigInteger chequeSecret,
+      AttestationCrypto crypto, ConstructionPolicy policy) {
     this.attestableObject = attestableObject;
     this.att = att;
     this.userPublicKey = userKeys.getPublic();
 
     try {
-      this.pok = makeProof(attestationSecret, chequeSecret, crypto);
-      ASN1EncodableVector vec = new ASN1EncodableVector();
-      vec.add(ASN1Sequence.getInstance(this.attestableObject.getDerEncoding()));
-      vec.add(ASN1Sequence.getInstance(att.getDerEncoding()));
-      vec.add(ASN1Sequence.getInstance(pok.getDerEncoding()));
-      this.unsignedEncoding = new DERSequence(vec).getEncoded();
+      this.pok = makeProof(attestationSecret, chequeSecret, crypto, policy == ConstructionPolicy.VERIFY);
+      // The cached encodings of the parts are embedded directly
+      byte[] objectEncoding = this.attestableObject.getDerEncoding();
+      byte[] attEncoding = att.derEncoding();
+      byte[] pokEncoding = pok.getDerEncoding();
+      this.unsignedEncoding = DERUtility.encodeSequence(objectEncoding, attEncoding, pokEncoding);
       this.signature = SignatureUtility.signDeterministic(this.unsignedEncoding, userKeys.getPrivate());
-      vec.add(new DERBitString(this.signature));
-      this.encoding = new DERSequence(vec).getEncoded();
+      this.encoding = DERUtility.encodeSequence(objectEncoding, attEncoding, pokEncoding,
+          DERUtility.encodeBitString(this.signature));
     } catch (IOException e) {
       throw new RuntimeException(e);
     }
-    if (!verify()) {
+    if (policy == ConstructionPolicy.TRUSTED) {
+      // The proof and user signature were just made, so only parts received from elsewhere are checked
+      if ((!attestableObject.isVerified() && !attestableObject.verify()) || (!att.isVerified() && !att.verify())) {
+        throw new IllegalArgumentException("The redeem request is not valid");
+      }
+      this.verified = true;
+    } else if (!verify()) {
       throw new IllegalArgumentException("The redeem request is not valid");
     }
   }
@@ -64,13 +80,12 @@ public class AttestedObject<T extends Attestable> implements ASNEncodable, Verif
     this.signature = signature;
 
     try {
-      ASN1EncodableVector vec = new ASN1EncodableVector();
-      vec.add(ASN1Sequence.getInstance(object.getDerEncoding()));
-      vec.add(ASN1Sequence.getInstance(att.getDerEncoding()));
-      vec.add(ASN1Sequence.getInstance(pok.getDerEncoding()));
-      this.unsignedEncoding = new DERSequence(vec).getEncoded();
-      vec.add(new DERBitString(this.signature));
-      this.encoding = new DERSequence(vec).getEncoded();
+      byte[] objectEncoding = object.getDerEncoding();
+      byte[] attEncoding = att.derEncoding();
+      byte[] pokEncoding = pok.getDerEncoding();
+      this.unsignedEncoding = DERUtility.encodeSequence(objectEncoding, attEncoding, pokEncoding);
+      this.encoding = DERUtility.encodeSequence(objectEncoding, attEncoding, pokEncoding,
+          DERUtility.encodeBitString(this.signature));
     } catch (IOException e) {
       throw new RuntimeException(e);
     }
@@ -80,20 +95,70 @@ public class AttestedObject<T extends Attestable> implements ASNEncodable, Verif
   }
 
   public AttestedObject(byte[] derEncoding, AttestableObjectDecoder<T> decoder, AsymmetricKeyParameter publicAttestationSigningKey, AsymmetricKeyParameter userPublicKey) {
-    this.encoding = derEncoding;
+    this(derEncoding, 0, derEncoding.length, decoder, publicAttestationSigningKey, userPublicKey);
+  }
+
+  /**
+   * Decodes an attested object located at offset in a larger buffer.
+   * The boundaries of the elements are found in a single pass and each element is decoded directly
+   * from the buffer, without being re-encoded first. The encoding signed by the user is
+   * constructed from the exact bytes of the first three elements.
+   */
+  public AttestedObject(byte[] buffer, int offset, int length, AttestableObjectDecoder<T> decoder, AsymmetricKeyParameter publicAttestationSigningKey, AsymmetricKeyParameter userPublicKey) {
+    this(buffer, offset, length, decoder, publicAttestationSigningKey, userPublicKey, true);
+  }
+
+  /**
+   * Decodes an attested object without verifying any of the signatures or the proof. The object
+   * and its parts are unverified until verify() is called, which verifies all of them.
+   */
+  public static <T extends Attestable> AttestedObject<T> decodeUnverified(byte[] buffer, int offset, int length,
+      AttestableObjectDecoder<T> decoder, AsymmetricKeyParameter publicAttestationSigningKey, AsymmetricKeyParameter userPublicKey) {
+    return new AttestedObject<>(buffer, offset, length, decoder, publicAttestationSigningKey, userPublicKey, false);
+  }
+
+  public static <T extends Attestable> AttestedObject<T> decodeUnverified(byte[] derEncoding, AttestableObjectDecoder<T> decoder,
+      AsymmetricKeyParameter publicAttestationSigningKey, AsymmetricKeyParameter userPublicKey) {
+    return decodeUnverified(derEncoding, 0, derEncoding.length, decoder, publicAttestationSigningKey, userPublicKey);
+  }
+
+  private AttestedObject(byte[] buffer, int offset, int length, AttestableObjectDecoder<T> decoder,
+      AsymmetricKeyParameter publicAttestationSigningKey, AsymmetricKeyParameter userPublicKey, boolean verify) {
     this.userPublicKey = userPublicKey;
     try {
-      ASN1InputStream input = new ASN1InputStream(derEncoding);
-      ASN1Sequence asn1 = ASN1Sequence.getInstance(input.readObject());
-      this.attestableObject = decoder.decode(asn1.getObjectAt(0).toASN1Primitive().getEncoded());
-      this.att = new SignedAttestation(asn1.getObjectAt(1).toASN1Primitive().getEncoded(), publicAttestationSigningKey);
-      this.pok = new ProofOfExponent(asn1.getObjectAt(2).toASN1Primitive().getEncoded());
-      this.unsignedEncoding = new DERSequence(Arrays.copyOfRange(asn1.toArray(), 0, 3)).getEncoded();
-      this.signature = DERBitString.getInstance(asn1.getObjectAt(3)).getBytes();
+      DERGate.getDefault().check(buffer, offset, length);
+      DERSlice asn1 = DERSlice.read(buffer, offset, offset + length).expectTag(DERSlice.TAG_SEQUENCE);
+      this.encoding = offset == 0 && length == buffer.length ? buffer : asn1.getEncoded();
+      List<DERSlice> elements = asn1.getChildren();
+      if (elements.size() != 4) {
+        throw new IOException("An attested object must consist of 4 elements");
+      }
+      DERSlice objectEnc = elements.get(0);
+      DERSlice attEnc = elements.get(1);
+      DERSlice pokEnc = elements.get(2);
+      DERSlice signatureEnc = elements.get(3).expectTag(DERSlice.TAG_BIT_STRING);
+      if (verify) {
+        this.attestableObject = decoder.decode(buffer, objectEnc.getOffset(), objectEnc.getLength());
+      } else {
+        this.attestableObject = decoder.decodeUnverified(buffer, objectEnc.getOffset(), objectEnc.getLength());
+      }
+      // The whole encoding passed the gate, so the nested parts are not checked again
+      this.att = SignedAttestation.decodeChecked(buffer, attEnc.getOffset(), attEnc.getLength(), publicAttestationSigningKey, verify);
+      this.pok = new ProofOfExponent(buffer, pokEnc.getOffset(), pokEnc.getLength(), true);
+      // The first three elements are contiguous, so only a new header is needed
+      int unsignedLength = pokEnc.getEnd() - objectEnc.getOffset();
+      this.unsignedEncoding = new byte[DERUtility.encodedLength(unsignedLength)];
+      int pos = DERUtility.writeHeader(unsignedEncoding, 0, DERSlice.TAG_SEQUENCE, unsignedLength);
+      System.arraycopy(buffer, objectEnc.getOffset(), unsignedEncoding, pos, unsignedLength);
+      if (signatureEnc.getValueLength() < 1 || buffer[signatureEnc.getValueOffset()] != 0) {
+        throw new IOException("Invalid signature encoding");
+      }
+      // Skip the byte counting unused bits
+      this.signature = Arrays.copyOfRange(buffer, signatureEnc.getValueOffset() + 1, signatureEnc.getEnd());
     } catch (IOException e) {
       throw new RuntimeException(e);
     }
-    if (!verify()) {
+    if (verify && !verify()) {
       throw new IllegalArgumentException("The redeem request is not valid");
     }
   }
@@ -170,17 +235,24 @@ public class AttestedObject<T extends Attestable> implements ASNEncodable, Verif
     ASN1Sequence extensions = DERSequence.getInstance(att.getUnsignedAttestation().getExtensions().getObjectAt(0));
     // Index in the second DER sequence is 2 since the third object in an extension is the actual value
     byte[] attCom = ASN1OctetString.getInstance(extensions.getObjectAt(2)).getOctets();
-    return attestableObject.verify() && att.verify() && AttestationCrypto.verifyEqualityProof(attCom, attestableObject.getCommitment(), pok) && SignatureUtility.verify(unsignedEncoding, signature, userPublicKey);
+    verified = attestableObject.verify() && att.verify() && AttestationCrypto.verifyEqualityProof(attCom, attestableObject.getCommitment(), pok) && SignatureUtility.verify(unsignedEncoding, signature, userPublicKey);
+    return verified;
   }
 
-  private ProofOfExponent makeProof(BigInteger attestationSecret, BigInteger objectSecret, AttestationCrypto crypto) {
+  @Override
+  public boolean isVerified() {
+    return verified;
+  }
+
+  private ProofOfExponent makeProof(BigInteger attestationSecret, BigInteger objectSecret, AttestationCrypto crypto,
+      boolean verifyProof) {
     // TODO Bob should actually verify the attestable object is valid before trying to cash it to avoid wasting gas
     // Need to decode twice since the standard ASN1 encodes the octet string in an octet string
     ASN1Sequence extensions = DERSequence.getInstance(att.getUnsignedAttestation().getExtensions().getObjectAt(0));
     // Index in the second DER sequence is 2 since the third object in an extension is the actual value
     byte[] attCom = ASN1OctetString.getInstance(extensions.getObjectAt(2)).getOctets();
     ProofOfExponent pok = crypto.computeEqualityProof(attCom, attestableObject.getCommitment(), attestationSecret, objectSecret);
-    if (!crypto.verifyEqualityProof(attCom, attestableObject.getCommitment(), pok)) {
+    if (verifyProof && !AttestationCrypto.verifyEqualityProof(attCom, attestableObject.getCommitment(), pok)) {
       throw new RuntimeException("The redeem proof did not verify");
     }
     return pok;
@@ -192,4 +264,66 @@ public class AttestedObject<T extends Attestable> implements ASNEncodable, Verif
   }
 
   // TODO override equals and hashcode
+
+  /**
+   * Builds an attested object, signed by the user. By default everything is verified after
+   * construction. Under ConstructionPolicy.TRUSTED the proof and user signature made by the builder
+   * are trusted, and the attestable object and attestation are only verified if they have not been
+   * verified already, e.g. because they were constructed or decoded with verification.
+   */
+  public static class Builder<T extends Attestable> {
+    private T attestableObject;
+    private SignedAttestation att;
+    private AsymmetricCipherKeyPair userKeys;
+    private BigInteger attestationSecret;
+    private BigInteger objectSecret;
+    private AttestationCrypto crypto;
+    private ConstructionPolicy policy = ConstructionPolicy.VERIFY;
+
+    public Builder<T> attestableObject(T attestableObject) {
+      this.attestableObject = attestableObject;
+      return this;
+    }
+
+    public Builder<T> attestation(SignedAttestation att) {
+      this.att = att;
+      return this;
+    }
+
+    /**
+     * @param userKeys The keys of the subject of the attestation, used to sign the attested object
+     */
+    public Builder<T> userKeys(AsymmetricCipherKeyPair userKeys) {
+      this.userKeys = userKeys;
+      return this;
+    }
+
+    /**
+     * @param attestationSecret The secret of the commitment in the attestation
+     * @param objectSecret The secret of the commitment in the attestable object
+     */
+    public Builder<T> secrets(BigInteger attestationSecret, BigInteger objectSecret) {
+      this.attestationSecret = attestationSecret;
+      this.objectSecret = objectSecret;
+      return this;
+    }
+
+    public Builder<T> crypto(AttestationCrypto crypto) {
+      this.crypto = crypto;
+      return this;
+    }
+
+    public Builder<T> policy(ConstructionPolicy policy) {
+      this.policy = policy;
+      return this;
+    }
+
+    public AttestedObject<T> build() {
+      if (attestableObject == null || att == null || userKeys == null || attestationSecret == null
+          || objectSecret == null || crypto == null || policy == null) {
+        throw new IllegalStateException("All parts of the attested object must be set");
+      }
+      return new AttestedObject<>(attestableObject, att, userKeys, attestationSecret, objectSecret, crypto, policy);
+    }
+  }
 }
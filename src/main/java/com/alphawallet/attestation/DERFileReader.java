@@ -0,0 +1,267 @@
+package com.alphawallet.attestation;
+
+import com.alphawallet.attestation.core.Attestable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/**
+ * Reads a file consisting of concatenated DER encoded objects, such as signed tickets or cheques.
+ * The file is memory mapped and the top level TLVs are walked directly in the mapping. Each
+ * object is handed to an AttestableObjectDecoder as a slice of the mapping.
+ * Files larger than what can be mapped at once are processed in windows.
+ *
+ * Objects that cannot be decoded or whose signature is invalid are counted as failed and skipped.
+ * If the file itself is malformed, i.e. a top level TLV cannot be read, an IOException is thrown.
+ */
+public class DERFileReader<T extends Attestable> {
+  static final long DEFAULT_WINDOW_SIZE = 1L << 30;
+
+  private final Path file;
+  private final Supplier<? extends AttestableObjectDecoder<T>> decoderFactory;
+  private final long windowSize;
+
+  /**
+   * @param file The file to read
+   * @param decoderFactory Constructs decoders. In parallel mode each thread gets its own decoder
+   */
+  public DERFileReader(Path file, Supplier<? extends AttestableObjectDecoder<T>> decoderFactory) {
+    this(file, decoderFactory, DEFAULT_WINDOW_SIZE);
+  }
+
+  DERFileReader(Path file, Supplier<? extends AttestableObjectDecoder<T>> decoderFactory, long windowSize) {
+    this.file = file;
+    this.decoderFactory = decoderFactory;
+    this.windowSize = windowSize;
+  }
+
+  /**
+   * Decodes all objects in the file in order and hands them to consumer
+   */
+  public Statistics read(Consumer<? super T> consumer) throws IOException {
+    long start = System.nanoTime();
+    try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+      Statistics res = readRange(channel, 0, channel.size(), consumer);
+      res.elapsedNanos = System.nanoTime() - start;
+      return res;
+    }
+  }
+
+  /**
+   * Decodes all objects in the file using multiple threads. The file is split into parts at TLV
+   * boundaries, which requires a single pass over the headers of the objects.
+   * The consumer must be thread safe and the objects are not handed to it in any particular order.
+   * @param consumer The consumer of the decoded objects
+   * @param threads The amount of threads to use
+   */
+  public Statistics readParallel(Consumer<? super T> consumer, int threads) throws IOException {
+    long start = System.nanoTime();
+    try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+      List<Long> boundaries = split(channel, threads);
+      ExecutorService executor = Executors.newFixedThreadPool(threads);
+      try {
+        List<Future<Statistics>> parts = new ArrayList<>();
+        for (int i = 0; i < boundaries.size() - 1; i++) {
+          long from = boundaries.get(i);
+          long to = boundaries.get(i + 1);
+          parts.add(executor.submit(() -> readRange(channel, from, to, consumer)));
+        }
+        Statistics res = new Statistics();
+        for (Future<Statistics> part : parts) {
+          res.add(part.get());
+        }
+        res.elapsedNanos = System.nanoTime() - start;
+        return res;
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new IOException("Interrupted while reading " + file, e);
+      } catch (ExecutionException e) {
+        if (e.getCause() instanceof IOException) {
+          throw (IOException) e.getCause();
+        }
+        throw new RuntimeException(e.getCause());
+      } finally {
+        executor.shutdownNow();
+      }
+    }
+  }
+
+  private Statistics readRange(FileChannel channel, long from, long to, Consumer<? super T> consumer) throws IOException {
+    AttestableObjectDecoder<T> decoder = decoderFactory.get();
+    Statistics stats = new Statistics();
+    walk(channel, from, to, (window, position, offset, length) -> {
+      ByteBuffer slice = window.duplicate();
+      slice.limit(offset + length);
+      slice.position(offset);
+      stats.bytes += length;
+      T decoded;
+      try {
+        decoded = decoder.decode(slice.slice());
+      } catch (IOException | RuntimeException e) {
+        stats.failed++;
+        return;
+      }
+      stats.objects++;
+      consumer.accept(decoded);
+    });
+    return stats;
+  }
+
+  /**
+   * Returns the offsets at which to split the file into at most parts ranges, including 0 and the
+   * size of the file
+   */
+  private List<Long> split(FileChannel channel, int parts) throws IOException {
+    long size = channel.size();
+    List<Long> res = new ArrayList<>();
+    res.add(0L);
+    if (parts > 1) {
+      walk(channel, 0, size, (window, position, offset, length) -> {
+        long target = size * res.size() / parts;
+        if (position > res.get(res.size() - 1) && position >= target && res.size() < parts) {
+          res.add(position);
+        }
+      });
+    }
+    if (size > 0) {
+      res.add(size);
+    }
+    return res;
+  }
+
+  private interface TLVHandler {
+    /**
+     * @param window The currently mapped window
+     * @param position The position of the TLV in the file
+     * @param offset The offset of the TLV in the window
+     * @param length The length of the entire TLV
+     */
+    void handle(MappedByteBuffer window, long position, int offset, int length);
+  }
+
+  /**
+   * Walks the top level TLVs between from and to, mapping the file in windows
+   */
+  private void walk(FileChannel channel, long from, long to, TLVHandler handler) throws IOException {
+    long windowStart = from;
+    while (windowStart < to) {
+      long windowEnd = Math.min(to, windowStart + windowSize);
+      MappedByteBuffer window = channel.map(MapMode.READ_ONLY, windowStart, windowEnd - windowStart);
+      int offset = 0;
+      while (windowStart + offset < windowEnd) {
+        int length = tlvLength(window, offset);
+        if (length < 0) {
+          if (windowEnd == to) {
+            throw new IOException("Truncated DER object at position " + (windowStart + offset));
+          }
+          if (offset == 0) {
+            throw new IOException("DER object at position " + windowStart + " is larger than " + windowSize + " bytes");
+          }
+          // Continue with a new window starting at this TLV
+          break;
+        }
+        handler.handle(window, windowStart + offset, offset, length);
+        offset += length;
+      }
+      windowStart += offset;
+    }
+  }
+
+  /**
+   * Returns the length of the TLV at offset including its header, or -1 if it extends beyond the
+   * limit of the buffer
+   */
+  private static int tlvLength(ByteBuffer buffer, int offset) throws IOException {
+    int limit = buffer.limit();
+    if (offset + 2 > limit) {
+      return -1;
+    }
+    if ((buffer.get(offset) & 0x1F) == 0x1F) {
+      throw new IOException("Multi byte tags are not supported");
+    }
+    int first = buffer.get(offset + 1) & 0xFF;
+    int headerLength = 2;
+    long contentLength = first;
+    if (first >= 0x80) {
+      int lengthBytes = first & 0x7F;
+      if (lengthBytes == 0 || lengthBytes > 4) {
+        throw new IOException("Unsupported length encoding");
+      }
+      if (offset + 2 + lengthBytes > limit) {
+        return -1;
+      }
+      contentLength = 0;
+      for (int i = 0; i < lengthBytes; i++) {
+        contentLength = (contentLength << 8) | (buffer.get(offset + 2 + i) & 0xFF);
+      }
+      headerLength += lengthBytes;
+    }
+    if (headerLength + contentLength > limit - offset) {
+      return -1;
+    }
+    return (int) (headerLength + contentLength);
+  }
+
+  /**
+   * The result of reading a file
+   */
+  public static class Statistics {
+    private long objects;
+    private long failed;
+    private long bytes;
+    private long elapsedNanos;
+
+    private void add(Statistics other) {
+      objects += other.objects;
+      failed += other.failed;
+      bytes += other.bytes;
+    }
+
+    /**
+     * The amount of objects which were successfully decoded
+     */
+    public long getObjects() {
+      return objects;
+    }
+
+    /**
+     * The amount of objects which could not be decoded or verified
+     */
+    public long getFailed() {
+      return failed;
+    }
+
+    public long getBytes() {
+      return bytes;
+    }
+
+    public long getElapsedNanos() {
+      return elapsedNanos;
+    }
+
+    /**
+     * The throughput of successfully decoded objects
+     */
+    public double getObjectsPerSecond() {
+      return elapsedNanos == 0 ? 0 : objects * 1e9 / elapsedNanos;
+    }
+
+    @Override
+    public String toString() {
+      return String.format("%d objects (%d failed, %d bytes) in %.3f s, %.0f objects/s",
+          objects, failed, bytes, elapsedNanos / 1e9, getObjectsPerSecond());
+    }
+  }
+}
@@ -1,5 +1,6 @@
 package com.alphawallet.attestation;
 
+import com.alphawallet.attestation.core.AddressUtility;
 import com.alphawallet.attestation.core.AttestationCrypto;
 import com.alphawallet.attestation.core.Validateable;
 import java.io.IOException;
@@ -13,7 +14,6 @@ import org.bouncycastle.asn1.DEROctetString;
 import org.bouncycastle.asn1.DERSequence;
 import org.bouncycastle.asn1.x509.SubjectPublicKeyInfo;
 import org.bouncycastle.crypto.params.AsymmetricKeyParameter;
-import org.bouncycastle.crypto.util.PublicKeyFactory;
 import org.bouncycastle.crypto.util.SubjectPublicKeyInfoFactory;
 
 public class IdentifierAttestation extends Attestation implements Validateable {
@@ -92,15 +92,14 @@ public class IdentifierAttestation extends Attestation implements Validateable {
     }
     // Verify that the subject public key matches the subject common name
     try {
-      AsymmetricKeyParameter parsedSubjectKey = PublicKeyFactory
-          .createKey(getSubjectPublicKeyInfo());
-      String parsedSubject = "CN=" + AttestationCrypto.addressFromKey(parsedSubjectKey);
+      String parsedSubject = "CN=" + AddressUtility.addressFromKeyInfo(getSubjectPublicKeyInfo());
       if (!parsedSubject.equals(getSubject())) {
-        System.err.println("The subject public key does not match the Ethereum address attested to");
+        System.err.println("The subject public key does not match the Ethereum address attested to " + parsedSubject + " " + getSubject());
         return false;
       }
     } catch (IOException e) {
       System.err.println("Could not parse subject public key");
+      return false;
     }
     return true;
   }
@@ -118,6 +117,12 @@ public class IdentifierAttestation extends Attestation implements Validateable {
     this.setExtensions(new DERSequence(new DERSequence(extensions)));
   }
 
+  @Override
+  public IdentifierAttestation freeze() {
+    super.freeze();
+    return this;
+  }
+
   @Override
   public byte[] getDerEncoding() throws InvalidObjectException {
    return super.getDerEncoding();
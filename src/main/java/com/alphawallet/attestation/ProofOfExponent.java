@@ -2,12 +2,12 @@ package com.alphawallet.attestation;
 
 import com.alphawallet.attestation.core.ASNEncodable;
 import com.alphawallet.attestation.core.AttestationCrypto;
+import com.alphawallet.attestation.core.DERGate;
+import com.alphawallet.attestation.core.DERSlice;
 import java.io.IOException;
 import java.math.BigInteger;
+import java.util.List;
 import org.bouncycastle.asn1.ASN1EncodableVector;
-import org.bouncycastle.asn1.ASN1InputStream;
-import org.bouncycastle.asn1.ASN1OctetString;
-import org.bouncycastle.asn1.ASN1Sequence;
 import org.bouncycastle.asn1.DEROctetString;
 import org.bouncycastle.asn1.DERSequence;
 import org.bouncycastle.math.ec.ECPoint;
@@ -28,18 +28,35 @@ public class ProofOfExponent implements ASNEncodable {
   }
 
   public ProofOfExponent(byte[] derEncoded) {
-    this.encoding = derEncoded;
+    this(derEncoded, 0, derEncoded.length);
+  }
+
+  /**
+   * Decodes a proof located at offset in a larger buffer, reading the octet strings directly from
+   * the buffer
+   */
+  public ProofOfExponent(byte[] buffer, int offset, int length) {
+    this(buffer, offset, length, false);
+  }
+
+  /**
+   * @param checked true if the range is part of an encoding which already passed the DERGate
+   */
+  ProofOfExponent(byte[] buffer, int offset, int length, boolean checked) {
     try {
-      ASN1InputStream input = new ASN1InputStream(derEncoded);
-      ASN1Sequence asn1 = ASN1Sequence.getInstance(input.readObject());
-      ASN1OctetString baseEnc = ASN1OctetString.getInstance(asn1.getObjectAt(0));
-      this.base = AttestationCrypto.decodePoint(baseEnc.getOctets());
-      ASN1OctetString riddleEnc = ASN1OctetString.getInstance(asn1.getObjectAt(1));
-      this.riddle = AttestationCrypto.decodePoint(riddleEnc.getOctets());
-      ASN1OctetString challengeEnc = ASN1OctetString.getInstance(asn1.getObjectAt(2));
-      this.challenge = new BigInteger(challengeEnc.getOctets());
-      ASN1OctetString tPointEnc = ASN1OctetString.getInstance(asn1.getObjectAt(3));
-      this.tPoint = AttestationCrypto.decodePoint(tPointEnc.getOctets());
+      if (!checked) {
+        DERGate.getDefault().check(buffer, offset, length);
+      }
+      DERSlice asn1 = DERSlice.read(buffer, offset, offset + length).expectTag(DERSlice.TAG_SEQUENCE);
+      this.encoding = offset == 0 && length == buffer.length ? buffer : asn1.getEncoded();
+      List<DERSlice> elements = asn1.getChildren();
+      if (elements.size() != 4) {
+        throw new IOException("A proof must consist of 4 elements");
+      }
+      this.base = AttestationCrypto.decodePoint(elements.get(0).expectTag(DERSlice.TAG_OCTET_STRING).getValue());
+      this.riddle = AttestationCrypto.decodePoint(elements.get(1).expectTag(DERSlice.TAG_OCTET_STRING).getValue());
+      this.challenge = new BigInteger(elements.get(2).expectTag(DERSlice.TAG_OCTET_STRING).getValue());
+      this.tPoint = AttestationCrypto.decodePoint(elements.get(3).expectTag(DERSlice.TAG_OCTET_STRING).getValue());
     } catch (IOException e) {
       throw new RuntimeException(e);
     }
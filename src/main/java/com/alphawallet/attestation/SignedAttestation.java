@@ -1,18 +1,18 @@
 package com.alphawallet.attestation;
 
 import com.alphawallet.attestation.core.ASNEncodable;
+import com.alphawallet.attestation.core.ConstructionPolicy;
+import com.alphawallet.attestation.core.DERGate;
+import com.alphawallet.attestation.core.DERSlice;
+import com.alphawallet.attestation.core.DERUtility;
 import com.alphawallet.attestation.core.SignatureUtility;
 import com.alphawallet.attestation.core.Validateable;
 import com.alphawallet.attestation.core.Verifiable;
 import java.io.IOException;
-import java.io.InvalidObjectException;
-import org.bouncycastle.asn1.ASN1EncodableVector;
-import org.bouncycastle.asn1.ASN1InputStream;
+import java.util.Arrays;
+import java.util.List;
+import org.bouncycastle.asn1.ASN1Encoding;
 import org.bouncycastle.asn1.ASN1ObjectIdentifier;
-import org.bouncycastle.asn1.ASN1Primitive;
-import org.bouncycastle.asn1.ASN1Sequence;
-import org.bouncycastle.asn1.DERBitString;
-import org.bouncycastle.asn1.DERSequence;
 import org.bouncycastle.asn1.x509.AlgorithmIdentifier;
 import org.bouncycastle.crypto.AsymmetricCipherKeyPair;
 import org.bouncycastle.crypto.params.AsymmetricKeyParameter;
@@ -21,25 +21,91 @@ public class SignedAttestation implements ASNEncodable, Verifiable, Validateable
   private final Attestation att;
   private final byte[] signature;
   private final AsymmetricKeyParameter publicKey;
+  // Only cached once the attestation is frozen
+  private byte[] encoding;
+  // Set by verify(), objects decoded without verification start out unverified
+  private volatile boolean verified;
 
+  /**
+   * Signs an attestation. If the attestation is frozen its cached encoding is used for signing,
+   * verification and the encoding of the signed attestation, otherwise it gets re-encoded each time.
+   */
   public SignedAttestation(Attestation att, AsymmetricCipherKeyPair key) {
+    this(att, key, ConstructionPolicy.VERIFY);
+  }
+
+  /**
+   * Signs an attestation, only verifying the signature afterwards under ConstructionPolicy.VERIFY
+   */
+  public SignedAttestation(Attestation att, AsymmetricCipherKeyPair key, ConstructionPolicy policy) {
     this.att = att;
-    this.signature = SignatureUtility.signDeterministic(att.getPrehash(), key.getPrivate());
+    this.signature = SignatureUtility.signDeterministic(att.prehash(), key.getPrivate());
     this.publicKey = key.getPublic();
-    if (!verify()) {
+    if (policy == ConstructionPolicy.TRUSTED) {
+      this.verified = true;
+    } else if (!verify()) {
       throw new IllegalArgumentException("The signature is not valid");
     }
   }
 
   public SignedAttestation(byte[] derEncoding, AsymmetricKeyParameter signingPublicKey) throws IOException {
-    ASN1InputStream input = new ASN1InputStream(derEncoding);
-    ASN1Sequence asn1 = ASN1Sequence.getInstance(input.readObject());
-    ASN1Sequence attestationEnc = ASN1Sequence.getInstance(asn1.getObjectAt(0));
-    this.att = new Attestation(attestationEnc.getEncoded());
-    DERBitString signatureEnc = DERBitString.getInstance(asn1.getObjectAt(2));
-    this.signature = signatureEnc.getBytes();
+    this(derEncoding, 0, derEncoding.length, signingPublicKey);
+  }
+
+  /**
+   * Decodes a signed attestation located at offset in a larger buffer. The attestation and
+   * signature are read directly from the buffer instead of being re-encoded and parsed again.
+   * An IllegalArgumentException is thrown if the signature is not valid or if the attestation is
+   * outside its validity period.
+   */
+  public SignedAttestation(byte[] buffer, int offset, int length, AsymmetricKeyParameter signingPublicKey) throws IOException {
+    this(buffer, offset, length, signingPublicKey, true, false);
+  }
+
+  /**
+   * Decodes a signed attestation without verifying its signature or its validity period. It is
+   * unverified until verify() is called, and the validity period must be checked using
+   * checkValidity().
+   */
+  public static SignedAttestation decodeUnverified(byte[] buffer, int offset, int length, AsymmetricKeyParameter signingPublicKey) throws IOException {
+    return new SignedAttestation(buffer, offset, length, signingPublicKey, false, false);
+  }
+
+  public static SignedAttestation decodeUnverified(byte[] derEncoding, AsymmetricKeyParameter signingPublicKey) throws IOException {
+    return decodeUnverified(derEncoding, 0, derEncoding.length, signingPublicKey);
+  }
+
+  /**
+   * Decodes a signed attestation nested in an encoding which already passed the DERGate, such that
+   * its bytes are not walked again
+   */
+  static SignedAttestation decodeChecked(byte[] buffer, int offset, int length, AsymmetricKeyParameter signingPublicKey, boolean verify) throws IOException {
+    return new SignedAttestation(buffer, offset, length, signingPublicKey, verify, true);
+  }
+
+  private SignedAttestation(byte[] buffer, int offset, int length, AsymmetricKeyParameter signingPublicKey,
+      boolean verify, boolean checked) throws IOException {
+    if (!checked) {
+      DERGate.getDefault().check(buffer, offset, length);
+    }
+    List<DERSlice> asn1 = DERSlice.read(buffer, offset, offset + length)
+        .expectTag(DERSlice.TAG_SEQUENCE).getChildren();
+    if (asn1.size() != 3) {
+      throw new IOException("A signed attestation must consist of 3 elements");
+    }
+    DERSlice attestationEnc = asn1.get(0).expectTag(DERSlice.TAG_SEQUENCE);
+    this.att = new Attestation(buffer, attestationEnc.getOffset(), attestationEnc.getLength(), true).freeze();
+    DERSlice signatureEnc = asn1.get(2).expectTag(DERSlice.TAG_BIT_STRING);
+    if (signatureEnc.getValueLength() < 1 || buffer[signatureEnc.getValueOffset()] != 0) {
+      throw new IOException("Invalid signature encoding");
+    }
+    // Skip the byte counting unused bits
+    this.signature = Arrays.copyOfRange(buffer, signatureEnc.getValueOffset() + 1, signatureEnc.getEnd());
     this.publicKey = signingPublicKey;
-    if (!verify()) {
+    if (verify && !checkValidity()) {
+      throw new IllegalArgumentException("The attestation is not valid");
+    }
+    if (verify && !verify()) {
       throw new IllegalArgumentException("The signature is not valid");
     }
   }
@@ -56,17 +122,34 @@ public class SignedAttestation implements ASNEncodable, Verifiable, Validateable
 
   @Override
   public byte[] getDerEncoding() {
-    return constructSignedAttestation(this.att, this.signature);
+    if (encoding != null) {
+      return encoding.clone();
+    }
+    return derEncoding();
+  }
+
+  /**
+   * Same as getDerEncoding(), but returns the cached encoding without copying it. The array must
+   * not be modified.
+   */
+  byte[] derEncoding() {
+    if (encoding != null) {
+      return encoding;
+    }
+    byte[] res = constructSignedAttestation(this.att, this.signature);
+    if (att.isFrozen()) {
+      encoding = res;
+    }
+    return res;
   }
 
   static byte[] constructSignedAttestation(Attestation unsignedAtt, byte[] signature) {
     try {
-      byte[] rawAtt = unsignedAtt.getPrehash();
-      ASN1EncodableVector res = new ASN1EncodableVector();
-      res.add(ASN1Primitive.fromByteArray(rawAtt));
-      res.add(new AlgorithmIdentifier(new ASN1ObjectIdentifier(unsignedAtt.getSignature())));
-      res.add(new DERBitString(signature));
-      return new DERSequence(res).getEncoded();
+      byte[] rawAtt = unsignedAtt.prehash();
+      byte[] algorithm = new AlgorithmIdentifier(new ASN1ObjectIdentifier(unsignedAtt.getSignature()))
+          .getEncoded(ASN1Encoding.DER);
+      // The attestation is embedded as is, without being decoded again
+      return DERUtility.encodeSequence(rawAtt, algorithm, DERUtility.encodeBitString(signature));
     } catch (Exception e) {
       throw new RuntimeException(e);
     }
@@ -77,13 +160,22 @@ public class SignedAttestation implements ASNEncodable, Verifiable, Validateable
     return getUnsignedAttestation().checkValidity();
   }
 
+  /**
+   * Verifies the signature on the encoding of the attestation.
+   * Note that for a frozen attestation this does not check the validity period, use
+   * checkValidity() for that.
+   */
   @Override
   public boolean verify() {
-    try {
-      return SignatureUtility.verify(att.getDerEncoding(), signature, publicKey);
-    } catch (InvalidObjectException e) {
-      return false;
-    }
+    byte[] prehash = att.prehash();
+    // The encoding of an attestation which is not frozen is null if it is not valid
+    verified = prehash != null && SignatureUtility.verify(prehash, signature, publicKey);
+    return verified;
+  }
+
+  @Override
+  public boolean isVerified() {
+    return verified;
   }
 
 
@@ -3,24 +3,20 @@ package com.alphawallet.attestation.cheque;
 import com.alphawallet.attestation.IdentifierAttestation.AttestationType;
 import com.alphawallet.attestation.core.Attestable;
 import com.alphawallet.attestation.core.AttestationCrypto;
+import com.alphawallet.attestation.core.ConstructionPolicy;
+import com.alphawallet.attestation.core.DERUtility;
 import com.alphawallet.attestation.core.SignatureUtility;
 import java.io.IOException;
 import java.math.BigInteger;
-import java.util.Date;
-import org.bouncycastle.asn1.ASN1Encodable;
-import org.bouncycastle.asn1.ASN1EncodableVector;
-import org.bouncycastle.asn1.ASN1GeneralizedTime;
-import org.bouncycastle.asn1.ASN1Integer;
-import org.bouncycastle.asn1.ASN1Sequence;
-import org.bouncycastle.asn1.DERBitString;
-import org.bouncycastle.asn1.DEROctetString;
-import org.bouncycastle.asn1.DERSequence;
 import org.bouncycastle.asn1.x509.SubjectPublicKeyInfo;
 import org.bouncycastle.crypto.AsymmetricCipherKeyPair;
 import org.bouncycastle.crypto.params.AsymmetricKeyParameter;
 import org.bouncycastle.crypto.util.SubjectPublicKeyInfoFactory;
 
 public class Cheque implements Attestable {
+  private static final int OCTET_STRING = 0x04;
+  private static final int SEQUENCE = 0x30;
+
   private final byte[] commitment;
   private final long amount;
   private final long notValidBefore;
@@ -28,7 +24,11 @@ public class Cheque implements Attestable {
   private final AsymmetricKeyParameter publicKey;
   private final byte[] signature;
 
+  // The signed part of the cheque
+  private final byte[] encodedCheque;
   private final byte[] encoded;
+  // Set by verify(), objects decoded without verification start out unverified
+  private volatile boolean verified;
 
   /**
    *
@@ -40,25 +40,40 @@ public class Cheque implements Attestable {
    * @param secret the secret that must be known to cash the cheque
    */
   public Cheque(String identifier, AttestationType type, long amount, long validity, AsymmetricCipherKeyPair keys, BigInteger secret) {
+    this(identifier, type, amount, validity, keys, secret, ConstructionPolicy.VERIFY);
+  }
+
+  private Cheque(String identifier, AttestationType type, long amount, long validity, AsymmetricCipherKeyPair keys,
+      BigInteger secret, ConstructionPolicy policy) {
     this.commitment = AttestationCrypto.makeCommitment(identifier, type, secret);
     this.publicKey = keys.getPublic();
     this.amount = amount;
     long current =  System.currentTimeMillis();
     this.notValidBefore = current - (current % 1000); // Round down to nearest second
     this.notValidAfter = this.notValidBefore + validity;
-    ASN1Sequence cheque = makeCheque(this.commitment, amount, notValidBefore, notValidAfter);
+    this.encodedCheque = encodeCheque(this.commitment, amount, notValidBefore, notValidAfter);
     try {
-      this.signature = SignatureUtility.signDeterministic(cheque.getEncoded(), keys.getPrivate());
-      this.encoded = encodeSignedCheque(cheque, this.signature, this.publicKey);
+      this.signature = SignatureUtility.signDeterministic(encodedCheque, keys.getPrivate());
+      this.encoded = encodeSignedCheque(encodedCheque, this.signature, this.publicKey);
     } catch (IOException e) {
       throw new RuntimeException(e);
     }
-    if (!verify()) {
+    if (policy == ConstructionPolicy.TRUSTED) {
+      this.verified = true;
+    } else if (!verify()) {
       throw new IllegalArgumentException("Public and private keys are incorrect");
     }
   }
 
   public Cheque(byte[] commitment, long amount, long notValidBefore, long notValidAfter, byte[] signature, AsymmetricKeyParameter publicKey) {
+    this(commitment, amount, notValidBefore, notValidAfter, signature, publicKey, true);
+  }
+
+  /**
+   * @param verify Whether to verify the signature, if not the cheque is unverified until verify()
+   *               is called
+   */
+  Cheque(byte[] commitment, long amount, long notValidBefore, long notValidAfter, byte[] signature, AsymmetricKeyParameter publicKey, boolean verify) {
     this.commitment = commitment;
     this.publicKey = publicKey;
     this.amount = amount;
@@ -68,40 +83,52 @@ public class Cheque implements Attestable {
     this.notValidBefore = notValidBefore;
     this.notValidAfter = notValidAfter;
     this.signature = signature;
-    ASN1Sequence cheque = makeCheque(this.commitment, amount, notValidBefore, notValidAfter);
+    this.encodedCheque = encodeCheque(this.commitment, amount, notValidBefore, notValidAfter);
     try {
-      this.encoded = encodeSignedCheque(cheque, this.signature, this.publicKey);
+      this.encoded = encodeSignedCheque(encodedCheque, this.signature, this.publicKey);
     } catch (IOException e) {
       throw new RuntimeException(e);
     }
-    if (!verify()) {
+    if (verify && !verify()) {
       throw new IllegalArgumentException("Signature is invalid");
     }
   }
 
-  private ASN1Sequence makeCheque(byte[] commitment, long amount, long notValidBefore, long notValidAfter) {
-    ASN1EncodableVector cheque = new ASN1EncodableVector();
-    cheque.add(new ASN1Integer(amount));
-
-    ASN1GeneralizedTime notValidBeforeEnc = new ASN1GeneralizedTime(new Date(notValidBefore));
-    ASN1GeneralizedTime notValidAfterEnc = new ASN1GeneralizedTime(new Date(notValidAfter));
-    ASN1Sequence validityEnc = new DERSequence(new ASN1Encodable[] {notValidBeforeEnc, notValidAfterEnc});
-    cheque.add(validityEnc);
-
-    cheque.add(new DEROctetString(commitment));
-
-    return new DERSequence(cheque);
+  /**
+   * Constructs the DER encoding of the signed part of the cheque, that is
+   * SEQUENCE { amount INTEGER, SEQUENCE { notValidBefore GeneralizedTime,
+   * notValidAfter GeneralizedTime }, commitment OCTET STRING }.
+   * The lengths are computed up front and the encoding is written in a single pass.
+   */
+  static byte[] encodeCheque(byte[] commitment, long amount, long notValidBefore, long notValidAfter) {
+    int validityLength = 2 * DERUtility.GENERALIZED_TIME_LENGTH;
+    int contentLength = DERUtility.encodedIntegerLength(amount)
+        + DERUtility.encodedLength(validityLength) + DERUtility.encodedLength(commitment.length);
+    byte[] res = new byte[DERUtility.encodedLength(contentLength)];
+    int pos = DERUtility.writeHeader(res, 0, SEQUENCE, contentLength);
+    pos = DERUtility.writeInteger(res, pos, amount);
+    pos = DERUtility.writeHeader(res, pos, SEQUENCE, validityLength);
+    pos = DERUtility.writeGeneralizedTime(res, pos, notValidBefore);
+    pos = DERUtility.writeGeneralizedTime(res, pos, notValidAfter);
+    DERUtility.writeElement(res, pos, OCTET_STRING, commitment);
+    return res;
   }
 
-  private byte[] encodeSignedCheque(ASN1Sequence cheque, byte[] signature, AsymmetricKeyParameter publicKey) throws IOException {
-      ASN1EncodableVector signedCheque = new ASN1EncodableVector();
-      signedCheque.add(cheque);
-
-      SubjectPublicKeyInfo spki = SubjectPublicKeyInfoFactory.createSubjectPublicKeyInfo(publicKey);
-      signedCheque.add(spki.getPublicKeyData());
-
-      signedCheque.add(new DERBitString(signature));
-      return new DERSequence(signedCheque).getEncoded();
+  /**
+   * SEQUENCE { cheque, publicKey BIT STRING, signature BIT STRING }
+   */
+  private byte[] encodeSignedCheque(byte[] cheque, byte[] signature, AsymmetricKeyParameter publicKey) throws IOException {
+    SubjectPublicKeyInfo spki = SubjectPublicKeyInfoFactory.createSubjectPublicKeyInfo(publicKey);
+    byte[] publicKeyBits = spki.getPublicKeyData().getBytes();
+    int contentLength = cheque.length + DERUtility.encodedBitStringLength(publicKeyBits.length)
+        + DERUtility.encodedBitStringLength(signature.length);
+    byte[] res = new byte[DERUtility.encodedLength(contentLength)];
+    int pos = DERUtility.writeHeader(res, 0, SEQUENCE, contentLength);
+    System.arraycopy(cheque, 0, res, pos, cheque.length);
+    pos += cheque.length;
+    pos = DERUtility.writeBitString(res, pos, publicKeyBits);
+    DERUtility.writeBitString(res, pos, signature);
+    return res;
   }
 
   @Override
@@ -116,13 +143,13 @@ public class Cheque implements Attestable {
 
   @Override
   public boolean verify() {
-    try {
-      ASN1Sequence cheque = makeCheque(this.commitment, this.amount, this.getNotValidBefore(),
-          this.notValidAfter);
-      return SignatureUtility.verify(cheque.getEncoded(), signature, this.publicKey);
-    } catch (IOException e) {
-      throw new RuntimeException(e);
-    }
+    verified = SignatureUtility.verify(encodedCheque, signature, this.publicKey);
+    return verified;
+  }
+
+  @Override
+  public boolean isVerified() {
+    return verified;
   }
 
   @Override
@@ -154,4 +181,72 @@ public class Cheque implements Attestable {
   public AsymmetricKeyParameter getPublicKey() {
     return this.publicKey;
   }
+
+  /**
+   * Builds and signs cheques. By default the signature of each cheque is verified after signing,
+   * which can be skipped for bulk issuance through ConstructionPolicy.TRUSTED.
+   */
+  public static class Builder {
+    private String identifier;
+    private AttestationType type;
+    private long amount;
+    private long validity;
+    private AsymmetricCipherKeyPair keys;
+    private BigInteger secret;
+    private ConstructionPolicy policy = ConstructionPolicy.VERIFY;
+
+    /**
+     * @param identifier The identifier of the receiver
+     * @param type The type of identifier given
+     */
+    public Builder identifier(String identifier, AttestationType type) {
+      this.identifier = identifier;
+      this.type = type;
+      return this;
+    }
+
+    /**
+     * @param amount Amount of units the cheque should be valid for
+     */
+    public Builder amount(long amount) {
+      this.amount = amount;
+      return this;
+    }
+
+    /**
+     * @param validity Time from now which the cheque should be valid, in milliseconds
+     */
+    public Builder validity(long validity) {
+      this.validity = validity;
+      return this;
+    }
+
+    /**
+     * @param keys The keys used to sign the cheque
+     */
+    public Builder keys(AsymmetricCipherKeyPair keys) {
+      this.keys = keys;
+      return this;
+    }
+
+    /**
+     * @param secret The secret that must be known to cash the cheque
+     */
+    public Builder secret(BigInteger secret) {
+      this.secret = secret;
+      return this;
+    }
+
+    public Builder policy(ConstructionPolicy policy) {
+      this.policy = policy;
+      return this;
+    }
+
+    public Cheque build() {
+      if (identifier == null || type == null || keys == null || secret == null || policy == null) {
+        throw new IllegalStateException("Identifier, keys, secret and policy must be set");
+      }
+      return new Cheque(identifier, type, amount, validity, keys, secret, policy);
+    }
+  }
 }
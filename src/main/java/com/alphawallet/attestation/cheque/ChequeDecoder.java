@@ -1,7 +1,9 @@
 package com.alphawallet.attestation.cheque;
 
 import com.alphawallet.attestation.AttestableObjectDecoder;
+import com.alphawallet.attestation.core.DERGate;
 import com.alphawallet.attestation.core.SignatureUtility;
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.text.ParseException;
 import org.bouncycastle.asn1.ASN1GeneralizedTime;
@@ -17,7 +19,22 @@ public class ChequeDecoder implements AttestableObjectDecoder<Cheque> {
 
   @Override
   public Cheque decode(byte[] encoding) throws IOException {
-    ASN1InputStream input = new ASN1InputStream(encoding);
+    return decode(encoding, 0, encoding.length);
+  }
+
+  @Override
+  public Cheque decode(byte[] buffer, int offset, int length) throws IOException {
+    return decode(buffer, offset, length, true);
+  }
+
+  @Override
+  public Cheque decodeUnverified(byte[] buffer, int offset, int length) throws IOException {
+    return decode(buffer, offset, length, false);
+  }
+
+  private Cheque decode(byte[] buffer, int offset, int length, boolean verify) throws IOException {
+    DERGate.getDefault().check(buffer, offset, length);
+    ASN1InputStream input = new ASN1InputStream(new ByteArrayInputStream(buffer, offset, length), length);
     ASN1Sequence asn1 = ASN1Sequence.getInstance(input.readObject());
     ASN1Sequence cheque = ASN1Sequence.getInstance(asn1.getObjectAt(0));
     long amount = (ASN1Integer.getInstance(cheque.getObjectAt(0))).getValue().longValueExact();
@@ -37,8 +54,7 @@ public class ChequeDecoder implements AttestableObjectDecoder<Cheque> {
 
     AsymmetricKeyParameter publicKey = SignatureUtility.restoreKey(DERBitString.getInstance(asn1.getObjectAt(1)).getEncoded());
 
-    // Verify signature
     byte[] signature = DERBitString.getInstance(asn1.getObjectAt(2)).getBytes();
-    return new Cheque(commitment, amount, notValidBefore, notValidAfter, signature, publicKey);
+    return new Cheque(commitment, amount, notValidBefore, notValidAfter, signature, publicKey, verify);
   }
 }
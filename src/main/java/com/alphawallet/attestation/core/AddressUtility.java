@@ -0,0 +1,108 @@
+package com.alphawallet.attestation.core;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import org.bouncycastle.asn1.x509.SubjectPublicKeyInfo;
+import org.bouncycastle.crypto.digests.KeccakDigest;
+import org.bouncycastle.crypto.params.AsymmetricKeyParameter;
+import org.bouncycastle.crypto.params.ECPublicKeyParameters;
+import org.bouncycastle.crypto.util.PublicKeyFactory;
+import org.bouncycastle.math.ec.ECPoint;
+import org.bouncycastle.util.encoders.Hex;
+
+/**
+ * Derivation of addresses from public keys, with a cache keyed by the encoded public key.
+ * Keys are hashed directly from the encoding of their uncompressed point, without constructing
+ * SubjectPublicKeyInfo objects or intermediate arrays.
+ */
+public class AddressUtility {
+  /**
+   * The maximum amount of keys in the cache. When the cache is full it gets cleared.
+   */
+  public static final int MAX_CACHE_SIZE = 4096;
+  private static final int ADDRESS_LENGTH = 20;
+
+  // Cache of addresses in the format used by attestations
+  private static final Map<ByteBuffer, byte[]> attestationAddresses = new ConcurrentHashMap<>();
+  private static final ThreadLocal<KeccakDigest> keccak = ThreadLocal.withInitial(() -> new KeccakDigest(256));
+
+  /**
+   * Computes the address of an EC public key in the format used as subject of attestations, that
+   * is, "0x" followed by 40 upper case hex characters.
+   */
+  public static String addressFromKey(AsymmetricKeyParameter key) {
+    ECPoint q = ((ECPublicKeyParameters) key).getQ();
+    return formatAttestationAddress(attestationAddress(q.getEncoded(false)));
+  }
+
+  /**
+   * Same as addressFromKey(AsymmetricKeyParameter) but for the key contained in spki.
+   * The key is always parsed, which ensures that it is a point on its curve, but uncompressed keys
+   * are hashed directly from their encoding rather than being encoded again.
+   * @throws IOException if spki does not contain a valid EC public key
+   */
+  public static String addressFromKeyInfo(SubjectPublicKeyInfo spki) throws IOException {
+    AsymmetricKeyParameter key;
+    try {
+      key = PublicKeyFactory.createKey(spki);
+    } catch (IllegalArgumentException e) {
+      throw new IOException("Invalid public key", e);
+    }
+    if (!(key instanceof ECPublicKeyParameters)) {
+      throw new IOException("The public key is not an EC key");
+    }
+    byte[] encodedPoint = spki.getPublicKeyData().getBytes();
+    if (encodedPoint.length == 65 && encodedPoint[0] == 0x04) {
+      return formatAttestationAddress(attestationAddress(encodedPoint));
+    }
+    // The key must be normalized into its uncompressed form
+    return addressFromKey(key);
+  }
+
+  /**
+   * Addresses of attestations are computed from the DER encoding of the public key as a BIT STRING,
+   * minus the tag byte. That is, the hash of the length byte, the zero byte for unused bits and
+   * then the uncompressed point.
+   */
+  private static byte[] attestationAddress(byte[] uncompressedPoint) {
+    ByteBuffer cacheKey = ByteBuffer.wrap(uncompressedPoint);
+    byte[] address = attestationAddresses.get(cacheKey);
+    if (address == null) {
+      KeccakDigest digest = keccak.get();
+      digest.update((byte) (uncompressedPoint.length + 1));
+      digest.update((byte) 0x00);
+      digest.update(uncompressedPoint, 0, uncompressedPoint.length);
+      byte[] hash = new byte[32];
+      digest.doFinal(hash, 0);
+      address = Arrays.copyOfRange(hash, hash.length - ADDRESS_LENGTH, hash.length);
+      cache(cacheKey, address);
+    }
+    return address;
+  }
+
+  private static String formatAttestationAddress(byte[] address) {
+    return "0x" + Hex.toHexString(address).toUpperCase();
+  }
+
+  /**
+   * Returns the Keccak hash of the x and y coordinates of a point, as used for Ethereum addresses
+   */
+  public static byte[] hashPoint(ECPoint point) {
+    KeccakDigest digest = keccak.get();
+    // Skip the byte indicating the encoding is uncompressed
+    digest.update(point.getEncoded(false), 1, 64);
+    byte[] hash = new byte[32];
+    digest.doFinal(hash, 0);
+    return hash;
+  }
+
+  private static void cache(ByteBuffer key, byte[] address) {
+    if (attestationAddresses.size() >= MAX_CACHE_SIZE) {
+      attestationAddresses.clear();
+    }
+    attestationAddresses.put(key, address);
+  }
+}
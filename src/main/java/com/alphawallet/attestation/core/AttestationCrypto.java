@@ -14,20 +14,17 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
 import org.bouncycastle.asn1.sec.SECNamedCurves;
-import org.bouncycastle.asn1.x509.SubjectPublicKeyInfo;
 import org.bouncycastle.asn1.x9.X9ECParameters;
 import org.bouncycastle.crypto.AsymmetricCipherKeyPair;
 import org.bouncycastle.crypto.generators.ECKeyPairGenerator;
 import org.bouncycastle.crypto.params.AsymmetricKeyParameter;
 import org.bouncycastle.crypto.params.ECDomainParameters;
 import org.bouncycastle.crypto.params.ECKeyGenerationParameters;
-import org.bouncycastle.crypto.util.SubjectPublicKeyInfoFactory;
 import org.bouncycastle.jcajce.provider.digest.Keccak;
 import org.bouncycastle.jce.provider.BouncyCastleProvider;
 import org.bouncycastle.math.ec.ECCurve;
 import org.bouncycastle.math.ec.ECCurve.Fp;
 import org.bouncycastle.math.ec.ECPoint;
-import org.bouncycastle.util.encoders.Hex;
 
 public class AttestationCrypto {
   public static final String ECDSA_CURVE = "secp256k1";
@@ -68,26 +65,12 @@ public class AttestationCrypto {
 
   /**
    * Code shamelessly stolen from https://medium.com/@fixone/ecc-for-ethereum-on-android-7e35dc6624c9
+   * The derivation itself, and the caching of it, is done by AddressUtility.
    * @param key
    * @return
    */
   public static String addressFromKey(AsymmetricKeyParameter key) {
-    // Todo should be verified that is works as intended, are there any reference values?
-    byte[] pubKey;
-    try {
-      SubjectPublicKeyInfo spki = SubjectPublicKeyInfoFactory.createSubjectPublicKeyInfo(key);
-      pubKey = spki.getPublicKeyData().getEncoded();
-    } catch (IOException e) {
-      throw new RuntimeException(e);
-    }
-    //discard the first byte which only tells what kind of key it is //i.e. encoded/un-encoded
-    pubKey = Arrays.copyOfRange(pubKey,1,pubKey.length);
-    MessageDigest KECCAK = new Keccak.Digest256();
-    KECCAK.reset();
-    KECCAK.update(pubKey);
-    byte[] hash = KECCAK.digest();
-    //finally get only the last 20 bytes
-    return "0x" + Hex.toHexString(Arrays.copyOfRange(hash,hash.length-20,hash.length)).toUpperCase();
+    return AddressUtility.addressFromKey(key);
   }
 
   public AsymmetricCipherKeyPair constructECKeys() {
@@ -0,0 +1,317 @@
+package com.alphawallet.attestation.core;
+
+import static java.nio.charset.StandardCharsets.US_ASCII;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * Table driven Base64-URL codec compatible with the BouncyCastle UrlBase64 encoding used in magic
+ * links, i.e. the URL safe alphabet with '.' as padding.
+ * Data is encoded into and decoded from caller supplied arrays or buffers, and can be decoded
+ * directly from a range of a URL, such that no intermediate streams, arrays or strings are needed.
+ * Input is validated while it is decoded. Besides '.', the '=' padding of java.util.Base64 and
+ * unpadded input are accepted, but only if the unused bits of the last character are zero, so
+ * every decoded value has exactly one encoding of each kind.
+ * ASCII whitespace is skipped anywhere in the input, the same as by UrlBase64, e.g. for links
+ * which were wrapped or copied with a trailing newline.
+ */
+public class Base64Url {
+  private static final byte[] ALPHABET =
+      "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789-_".getBytes(US_ASCII);
+  private static final byte PADDING = '.';
+  private static final byte OTHER_PADDING = '=';
+  // The value of each ASCII character, or -1 if it is not in the alphabet
+  private static final int[] VALUES = new int[128];
+
+  static {
+    Arrays.fill(VALUES, -1);
+    for (int i = 0; i < ALPHABET.length; i++) {
+      VALUES[ALPHABET[i]] = i;
+    }
+  }
+
+  /**
+   * Returns the length of the padded encoding of length bytes
+   */
+  public static int encodedLength(int length) {
+    return (length + 2) / 3 * 4;
+  }
+
+  public static String encode(byte[] input) {
+    byte[] res = new byte[encodedLength(input.length)];
+    encode(input, 0, input.length, res, 0);
+    return new String(res, US_ASCII);
+  }
+
+  /**
+   * Writes the padded encoding of the input range to out as ASCII
+   * @return The amount of characters written
+   */
+  public static int encode(byte[] input, int offset, int length, byte[] out, int outOffset) {
+    return encode(input, offset, length, out, outOffset, PADDING);
+  }
+
+  /**
+   * Same as encode(byte[], int, int, byte[], int) with another padding character, e.g. '=' for
+   * links that are decoded with java.util.Base64 or android.util.Base64
+   */
+  public static int encode(byte[] input, int offset, int length, byte[] out, int outOffset, byte padding) {
+    int pos = outOffset;
+    int end = offset + length - length % 3;
+    for (int i = offset; i < end; i += 3) {
+      int bits = (input[i] & 0xFF) << 16 | (input[i + 1] & 0xFF) << 8 | (input[i + 2] & 0xFF);
+      out[pos++] = ALPHABET[bits >>> 18];
+      out[pos++] = ALPHABET[(bits >>> 12) & 0x3F];
+      out[pos++] = ALPHABET[(bits >>> 6) & 0x3F];
+      out[pos++] = ALPHABET[bits & 0x3F];
+    }
+    if (length % 3 != 0) {
+      int bits = (input[end] & 0xFF) << 16;
+      if (length % 3 == 2) {
+        bits |= (input[end + 1] & 0xFF) << 8;
+      }
+      out[pos++] = ALPHABET[bits >>> 18];
+      out[pos++] = ALPHABET[(bits >>> 12) & 0x3F];
+      out[pos++] = length % 3 == 2 ? ALPHABET[(bits >>> 6) & 0x3F] : padding;
+      out[pos++] = padding;
+    }
+    return pos - outOffset;
+  }
+
+  /**
+   * Encodes the remaining bytes of input into out as ASCII, advancing the position of both
+   */
+  public static void encode(ByteBuffer input, ByteBuffer out) {
+    if (out.remaining() < encodedLength(input.remaining())) {
+      throw new IllegalArgumentException("Output buffer is too small");
+    }
+    if (input.hasArray() && out.hasArray()) {
+      int written = encode(input.array(), input.arrayOffset() + input.position(), input.remaining(),
+          out.array(), out.arrayOffset() + out.position());
+      input.position(input.limit());
+      out.position(out.position() + written);
+      return;
+    }
+    while (input.remaining() >= 3) {
+      int bits = (input.get() & 0xFF) << 16 | (input.get() & 0xFF) << 8 | (input.get() & 0xFF);
+      out.put(ALPHABET[bits >>> 18]).put(ALPHABET[(bits >>> 12) & 0x3F])
+          .put(ALPHABET[(bits >>> 6) & 0x3F]).put(ALPHABET[bits & 0x3F]);
+    }
+    int rest = input.remaining();
+    if (rest != 0) {
+      int bits = (input.get() & 0xFF) << 16 | (rest == 2 ? (input.get() & 0xFF) << 8 : 0);
+      out.put(ALPHABET[bits >>> 18]).put(ALPHABET[(bits >>> 12) & 0x3F])
+          .put(rest == 2 ? ALPHABET[(bits >>> 6) & 0x3F] : PADDING).put(PADDING);
+    }
+  }
+
+  /**
+   * Returns the amount of bytes encoded in a range of characters
+   * @throws IOException if the length or padding of the range is not valid
+   */
+  public static int decodedLength(CharSequence input, int start, int end) throws IOException {
+    if (hasWhitespace(input, start, end)) {
+      CharSequence stripped = stripWhitespace(input, start, end);
+      return decodedLength(stripped, 0, stripped.length());
+    }
+    int dataEnd = dataEnd(input, start, end);
+    int chars = dataEnd - start;
+    return chars / 4 * 3 + (chars % 4 == 0 ? 0 : chars % 4 - 1);
+  }
+
+  public static byte[] decode(CharSequence input) throws IOException {
+    return decode(input, 0, input.length());
+  }
+
+  /**
+   * Decodes a range of characters, e.g. a parameter of a URL
+   * @throws IOException if the range is not valid Base64-URL
+   */
+  public static byte[] decode(CharSequence input, int start, int end) throws IOException {
+    byte[] res = new byte[decodedLength(input, start, end)];
+    decode(input, start, end, res, 0);
+    return res;
+  }
+
+  /**
+   * Decodes a range of ASCII characters in a buffer, e.g. a link read from a QR code
+   * @throws IOException if the range is not valid Base64-URL
+   */
+  public static byte[] decode(byte[] input, int offset, int length) throws IOException {
+    return decode(new AsciiSequence(input, offset, length), 0, length);
+  }
+
+  /**
+   * Decodes a range of characters into out
+   * @return The amount of bytes written
+   * @throws IOException if the range is not valid Base64-URL
+   */
+  public static int decode(CharSequence input, int start, int end, byte[] out, int outOffset) throws IOException {
+    if (hasWhitespace(input, start, end)) {
+      CharSequence stripped = stripWhitespace(input, start, end);
+      return decode(stripped, 0, stripped.length(), out, outOffset);
+    }
+    int dataEnd = dataEnd(input, start, end);
+    int pos = outOffset;
+    int i = start;
+    for (; i + 4 <= dataEnd; i += 4) {
+      int bits = value(input.charAt(i)) << 18 | value(input.charAt(i + 1)) << 12
+          | value(input.charAt(i + 2)) << 6 | value(input.charAt(i + 3));
+      if (bits < 0) {
+        throw invalidCharacter(input, i, i + 4);
+      }
+      out[pos++] = (byte) (bits >>> 16);
+      out[pos++] = (byte) (bits >>> 8);
+      out[pos++] = (byte) bits;
+    }
+    int rest = dataEnd - i;
+    if (rest != 0) {
+      int last = value(input.charAt(i + rest - 1));
+      int bits = value(input.charAt(i)) << 18 | value(input.charAt(i + 1)) << 12
+          | (rest == 3 ? last << 6 : 0);
+      if (bits < 0 || last < 0) {
+        throw invalidCharacter(input, i, dataEnd);
+      }
+      // The bits that do not make up a whole byte must be zero
+      if ((rest == 2 ? last & 0x0F : last & 0x03) != 0) {
+        throw new IOException("Last character is not canonical");
+      }
+      out[pos++] = (byte) (bits >>> 16);
+      if (rest == 3) {
+        out[pos++] = (byte) (bits >>> 8);
+      }
+    }
+    return pos - outOffset;
+  }
+
+  /**
+   * Decodes a range of characters into out, advancing its position.
+   * Buffers not backed by an array are written through a temporary array.
+   * @throws IOException if the range is not valid Base64-URL
+   */
+  public static void decode(CharSequence input, int start, int end, ByteBuffer out) throws IOException {
+    int length = decodedLength(input, start, end);
+    if (out.remaining() < length) {
+      throw new IllegalArgumentException("Output buffer is too small");
+    }
+    if (out.hasArray()) {
+      decode(input, start, end, out.array(), out.arrayOffset() + out.position());
+      out.position(out.position() + length);
+    } else {
+      out.put(decode(input, start, end));
+    }
+  }
+
+  /**
+   * Validates the length and padding of a range and returns the end of the encoded data
+   */
+  private static int dataEnd(CharSequence input, int start, int end) throws IOException {
+    if (start < 0 || end > input.length() || start > end) {
+      throw new IndexOutOfBoundsException("Invalid range");
+    }
+    int dataEnd = end;
+    if (dataEnd > start && isPadding(input.charAt(dataEnd - 1))) {
+      if ((end - start) % 4 != 0) {
+        throw new IOException("Padded input must consist of whole blocks");
+      }
+      dataEnd--;
+      if (isPadding(input.charAt(dataEnd - 1))) {
+        if (input.charAt(dataEnd - 1) != input.charAt(dataEnd)) {
+          throw new IOException("Mixed padding characters");
+        }
+        dataEnd--;
+      }
+    }
+    if ((dataEnd - start) % 4 == 1) {
+      throw new IOException("Invalid length of input");
+    }
+    return dataEnd;
+  }
+
+  private static boolean hasWhitespace(CharSequence input, int start, int end) {
+    for (int i = start; i < end; i++) {
+      if (isWhitespace(input.charAt(i))) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * Copies the range without whitespace, only done for the rare input that contains any
+   */
+  private static CharSequence stripWhitespace(CharSequence input, int start, int end) {
+    StringBuilder res = new StringBuilder(end - start);
+    for (int i = start; i < end; i++) {
+      char c = input.charAt(i);
+      if (!isWhitespace(c)) {
+        res.append(c);
+      }
+    }
+    return res;
+  }
+
+  private static boolean isWhitespace(char c) {
+    return c == ' ' || c == '\t' || c == '\n' || c == '\r';
+  }
+
+  private static boolean isPadding(char c) {
+    return c == PADDING || c == OTHER_PADDING;
+  }
+
+  /**
+   * Returns the value of a character, or a negative number if it is not in the alphabet
+   */
+  private static int value(char c) {
+    return c < VALUES.length ? VALUES[c] : -1;
+  }
+
+  private static IOException invalidCharacter(CharSequence input, int from, int to) {
+    for (int i = from; i < to; i++) {
+      if (value(input.charAt(i)) < 0) {
+        return new IOException("Invalid character at index " + i);
+      }
+    }
+    return new IOException("Invalid input");
+  }
+
+  /**
+   * View of ASCII bytes as characters, such that they can be decoded without copying
+   */
+  private static class AsciiSequence implements CharSequence {
+    private final byte[] buffer;
+    private final int offset;
+    private final int length;
+
+    AsciiSequence(byte[] buffer, int offset, int length) {
+      if (offset < 0 || length < 0 || offset + length > buffer.length) {
+        throw new IndexOutOfBoundsException("Invalid range");
+      }
+      this.buffer = buffer;
+      this.offset = offset;
+      this.length = length;
+    }
+
+    @Override
+    public int length() {
+      return length;
+    }
+
+    @Override
+    public char charAt(int index) {
+      return (char) (buffer[offset + index] & 0xFF);
+    }
+
+    @Override
+    public CharSequence subSequence(int start, int end) {
+      return new AsciiSequence(buffer, offset + start, end - start);
+    }
+
+    @Override
+    public String toString() {
+      return new String(buffer, offset, length, US_ASCII);
+    }
+  }
+}
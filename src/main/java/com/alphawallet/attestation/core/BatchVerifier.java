@@ -0,0 +1,80 @@
+package com.alphawallet.attestation.core;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Verifies many objects at once, e.g. objects decoded without verification by an indexer.
+ * The objects are split into consecutive parts which are verified in parallel, such that decoding
+ * and verification can be scheduled independently of each other.
+ */
+public class BatchVerifier {
+  private final int threads;
+
+  /**
+   * @param threads The amount of threads to verify with
+   */
+  public BatchVerifier(int threads) {
+    if (threads < 1) {
+      throw new IllegalArgumentException("At least one thread is needed");
+    }
+    this.threads = threads;
+  }
+
+  /**
+   * Verifies all the objects
+   * @return The result of verifying each object, in the same order as the objects
+   */
+  public boolean[] verify(List<? extends Verifiable> objects) {
+    boolean[] res = new boolean[objects.size()];
+    int parts = Math.min(threads, objects.size());
+    if (parts <= 1) {
+      verifyRange(objects, res, 0, objects.size());
+      return res;
+    }
+    ExecutorService executor = Executors.newFixedThreadPool(parts);
+    try {
+      List<Future<?>> futures = new ArrayList<>();
+      for (int i = 0; i < parts; i++) {
+        int from = objects.size() * i / parts;
+        int to = objects.size() * (i + 1) / parts;
+        futures.add(executor.submit(() -> verifyRange(objects, res, from, to)));
+      }
+      for (Future<?> future : futures) {
+        future.get();
+      }
+      return res;
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new RuntimeException(e);
+    } catch (ExecutionException e) {
+      throw new RuntimeException(e.getCause());
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
+  /**
+   * Verifies all the objects and returns those that failed verification
+   */
+  public <T extends Verifiable> List<T> failed(List<T> objects) {
+    boolean[] results = verify(objects);
+    List<T> res = new ArrayList<>();
+    for (int i = 0; i < results.length; i++) {
+      if (!results[i]) {
+        res.add(objects.get(i));
+      }
+    }
+    return res;
+  }
+
+  private static void verifyRange(List<? extends Verifiable> objects, boolean[] res, int from, int to) {
+    for (int i = from; i < to; i++) {
+      res[i] = objects.get(i).verify();
+    }
+  }
+}
@@ -0,0 +1,18 @@
+package com.alphawallet.attestation.core;
+
+/**
+ * Decides whether objects verify their own output when they are constructed locally, i.e. signed
+ * or proven with keys and secrets held by the caller.
+ */
+public enum ConstructionPolicy {
+  /**
+   * Verify all signatures and proofs right after constructing them. This is the default.
+   */
+  VERIFY,
+  /**
+   * Trust the signatures and proofs produced locally, e.g. when issuing in bulk with keys that are
+   * known to be correct. Parts which were not constructed locally and have not been verified yet
+   * are still verified.
+   */
+  TRUSTED
+}
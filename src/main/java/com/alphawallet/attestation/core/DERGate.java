@@ -0,0 +1,168 @@
+package com.alphawallet.attestation.core;
+
+import java.io.IOException;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Front end for parsing untrusted DER input. Before anything is decoded, the entire encoding is
+ * walked once, in time linear in its size and without constructing any objects, to ensure that it
+ * is a single well formed DER element within limits on its length, nesting depth and amount of
+ * elements. This keeps oversized or deeply nested payloads away from the ASN1 parser and the
+ * elliptic curve code.
+ *
+ * Rejections are counted per reason, so that abuse can be monitored.
+ * The decoders use the default gate, which can be replaced with one with other limits.
+ */
+public class DERGate {
+  public static final int DEFAULT_MAX_LENGTH = 64 * 1024;
+  public static final int DEFAULT_MAX_DEPTH = 16;
+  public static final int DEFAULT_MAX_ELEMENTS = 4096;
+
+  public enum Reason {
+    TOO_LONG,
+    TOO_DEEP,
+    TOO_MANY_ELEMENTS,
+    MALFORMED,
+    TRAILING_DATA
+  }
+
+  private static volatile DERGate defaultGate = new DERGate(DEFAULT_MAX_LENGTH, DEFAULT_MAX_DEPTH, DEFAULT_MAX_ELEMENTS);
+
+  private final int maxLength;
+  private final int maxDepth;
+  private final int maxElements;
+  private final LongAdder[] rejections = new LongAdder[Reason.values().length];
+
+  /**
+   * @param maxLength The maximum length of an encoding in bytes
+   * @param maxDepth The maximum nesting depth of constructed elements, where the outermost element has depth 1
+   * @param maxElements The maximum amount of elements, including all nested elements
+   */
+  public DERGate(int maxLength, int maxDepth, int maxElements) {
+    if (maxLength < 2 || maxDepth < 1 || maxElements < 1) {
+      throw new IllegalArgumentException("The limits must allow at least one element");
+    }
+    this.maxLength = maxLength;
+    this.maxDepth = maxDepth;
+    this.maxElements = maxElements;
+    for (int i = 0; i < rejections.length; i++) {
+      rejections[i] = new LongAdder();
+    }
+  }
+
+  /**
+   * Returns the gate used by the decoders
+   */
+  public static DERGate getDefault() {
+    return defaultGate;
+  }
+
+  public static void setDefault(DERGate gate) {
+    defaultGate = gate;
+  }
+
+  public void check(byte[] encoding) throws RejectedException {
+    check(encoding, 0, encoding.length);
+  }
+
+  /**
+   * Ensures that the range consists of exactly one DER element within the limits of this gate
+   * @throws RejectedException if not, after counting the reason
+   */
+  public void check(byte[] buffer, int offset, int length) throws RejectedException {
+    if (length > maxLength) {
+      throw reject(Reason.TOO_LONG, "Encoding of " + length + " bytes is longer than " + maxLength);
+    }
+    int limit = offset + length;
+    // The end of each constructed element currently being walked
+    int[] ends = new int[maxDepth];
+    int depth = 0;
+    int elements = 0;
+    int pos = offset;
+    try {
+      int end = DERSlice.skip(buffer, offset, limit);
+      if (end != limit) {
+        throw reject(Reason.TRAILING_DATA, "Trailing data after DER element");
+      }
+      do {
+        while (depth > 0 && pos == ends[depth - 1]) {
+          depth--;
+        }
+        if (depth == 0 && pos == limit) {
+          break;
+        }
+        if (++elements > maxElements) {
+          throw reject(Reason.TOO_MANY_ELEMENTS, "More than " + maxElements + " elements");
+        }
+        int parentEnd = depth == 0 ? limit : ends[depth - 1];
+        int valueOffset = DERSlice.valueOffset(buffer, pos, parentEnd);
+        int elementEnd = DERSlice.skip(buffer, pos, parentEnd);
+        if ((buffer[pos] & DERSlice.CONSTRUCTED) != 0) {
+          if (depth == maxDepth) {
+            throw reject(Reason.TOO_DEEP, "Nested deeper than " + maxDepth);
+          }
+          ends[depth++] = elementEnd;
+          pos = valueOffset;
+        } else {
+          pos = elementEnd;
+        }
+      } while (true);
+    } catch (RejectedException e) {
+      throw e;
+    } catch (IOException e) {
+      throw reject(Reason.MALFORMED, e.getMessage());
+    }
+  }
+
+  private RejectedException reject(Reason reason, String message) {
+    rejections[reason.ordinal()].increment();
+    return new RejectedException(reason, message);
+  }
+
+  public long getRejections(Reason reason) {
+    return rejections[reason.ordinal()].sum();
+  }
+
+  /**
+   * Returns the amount of rejections for each reason since the gate was constructed
+   */
+  public Map<Reason, Long> getRejections() {
+    Map<Reason, Long> res = new EnumMap<>(Reason.class);
+    for (Reason reason : Reason.values()) {
+      res.put(reason, getRejections(reason));
+    }
+    return res;
+  }
+
+  public int getMaxLength() {
+    return maxLength;
+  }
+
+  public int getMaxDepth() {
+    return maxDepth;
+  }
+
+  public int getMaxElements() {
+    return maxElements;
+  }
+
+  /**
+   * Thrown when an encoding is rejected by the gate
+   */
+  public static class RejectedException extends IOException {
+    private static final long serialVersionUID = 1L;
+
+    private final Reason reason;
+
+    public RejectedException(Reason reason, String message) {
+      super(message);
+      this.reason = reason;
+    }
+
+    public Reason getReason() {
+      return reason;
+    }
+  }
+}
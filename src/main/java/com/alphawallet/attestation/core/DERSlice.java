@@ -0,0 +1,246 @@
+package com.alphawallet.attestation.core;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * A view of a single DER encoded TLV (tag, length, value) inside a byte array.
+ * Reading a slice only validates the header and that the content is within bounds, nothing is
+ * copied and no ASN1 objects are constructed.
+ * Only single byte tags and definite lengths are supported, which is all DER needs for the
+ * structures used in this project.
+ */
+public class DERSlice {
+  public static final int TAG_INTEGER = 0x02;
+  public static final int TAG_BIT_STRING = 0x03;
+  public static final int TAG_OCTET_STRING = 0x04;
+  public static final int TAG_NULL = 0x05;
+  public static final int TAG_OID = 0x06;
+  public static final int TAG_GENERALIZED_TIME = 0x18;
+  public static final int TAG_SEQUENCE = 0x30;
+  public static final int TAG_SET = 0x31;
+  public static final int CONSTRUCTED = 0x20;
+  public static final int CONTEXT_SPECIFIC = 0x80;
+
+  private final byte[] buffer;
+  private final int offset;
+  private final int valueOffset;
+  private final int end;
+
+  private DERSlice(byte[] buffer, int offset, int valueOffset, int end) {
+    this.buffer = buffer;
+    this.offset = offset;
+    this.valueOffset = valueOffset;
+    this.end = end;
+  }
+
+  /**
+   * Reads the TLV starting at offset
+   * @param buffer The buffer containing the encoding
+   * @param offset The offset of the tag
+   * @param limit The index just after the last byte the TLV is allowed to use
+   */
+  public static DERSlice read(byte[] buffer, int offset, int limit) throws IOException {
+    int valueOffset = valueOffset(buffer, offset, limit);
+    return new DERSlice(buffer, offset, valueOffset, valueOffset + contentLength(buffer, offset));
+  }
+
+  /**
+   * Reads the single TLV that makes up the entire buffer
+   */
+  public static DERSlice read(byte[] buffer) throws IOException {
+    DERSlice res = read(buffer, 0, buffer.length);
+    if (res.getEnd() != buffer.length) {
+      throw new IOException("Trailing data after DER object");
+    }
+    return res;
+  }
+
+  /**
+   * Returns the index just after the TLV starting at offset, without constructing a slice
+   */
+  public static int skip(byte[] buffer, int offset, int limit) throws IOException {
+    return valueOffset(buffer, offset, limit) + contentLength(buffer, offset);
+  }
+
+  /**
+   * Validates the header of the TLV at offset and returns the offset of its content
+   */
+  public static int valueOffset(byte[] buffer, int offset, int limit) throws IOException {
+    if (offset < 0 || limit > buffer.length || offset + 2 > limit) {
+      throw new IOException("DER object out of bounds");
+    }
+    if ((buffer[offset] & 0x1F) == 0x1F) {
+      throw new IOException("Multi byte tags are not supported");
+    }
+    int first = buffer[offset + 1] & 0xFF;
+    int pos = offset + 2;
+    long length;
+    if (first < 0x80) {
+      length = first;
+    } else {
+      int lengthBytes = first & 0x7F;
+      if (lengthBytes == 0) {
+        throw new IOException("Indefinite length is not allowed in DER");
+      }
+      if (lengthBytes > 4 || pos + lengthBytes > limit) {
+        throw new IOException("DER length out of bounds");
+      }
+      if (buffer[pos] == 0) {
+        throw new IOException("Length is not minimally encoded");
+      }
+      length = 0;
+      for (int i = 0; i < lengthBytes; i++) {
+        length = (length << 8) | (buffer[pos++] & 0xFF);
+      }
+      if (length < 0x80) {
+        throw new IOException("Length is not minimally encoded");
+      }
+    }
+    if (length > limit - pos) {
+      throw new IOException("DER content out of bounds");
+    }
+    return pos;
+  }
+
+  /**
+   * Validates the header of the TLV at offset, ensures it has a specific tag and returns the
+   * offset of its content
+   */
+  public static int expect(byte[] buffer, int offset, int limit, int tag) throws IOException {
+    int res = valueOffset(buffer, offset, limit);
+    if ((buffer[offset] & 0xFF) != tag) {
+      throw new IOException("Expected tag " + tag + " but got " + (buffer[offset] & 0xFF));
+    }
+    return res;
+  }
+
+  /**
+   * Returns the content length of a TLV whose header has already been validated
+   */
+  private static int contentLength(byte[] buffer, int offset) {
+    int first = buffer[offset + 1] & 0xFF;
+    if (first < 0x80) {
+      return first;
+    }
+    int length = 0;
+    for (int i = 0; i < (first & 0x7F); i++) {
+      length = (length << 8) | (buffer[offset + 2 + i] & 0xFF);
+    }
+    return length;
+  }
+
+  public byte[] getBuffer() {
+    return buffer;
+  }
+
+  public int getTag() {
+    return buffer[offset] & 0xFF;
+  }
+
+  /**
+   * Returns the offset of the tag
+   */
+  public int getOffset() {
+    return offset;
+  }
+
+  /**
+   * Returns the offset of the content
+   */
+  public int getValueOffset() {
+    return valueOffset;
+  }
+
+  public int getValueLength() {
+    return end - valueOffset;
+  }
+
+  /**
+   * Returns the index just after the last byte of the TLV
+   */
+  public int getEnd() {
+    return end;
+  }
+
+  /**
+   * Returns the length of the entire TLV, including header
+   */
+  public int getLength() {
+    return end - offset;
+  }
+
+  public boolean isConstructed() {
+    return (getTag() & CONSTRUCTED) != 0;
+  }
+
+  /**
+   * Returns a copy of the entire TLV
+   */
+  public byte[] getEncoded() {
+    return Arrays.copyOfRange(buffer, offset, end);
+  }
+
+  /**
+   * Returns a copy of the content
+   */
+  public byte[] getValue() {
+    return Arrays.copyOfRange(buffer, valueOffset, end);
+  }
+
+  /**
+   * Returns whether the entire TLV equals expected, without copying it
+   */
+  public boolean encodingEquals(byte[] expected) {
+    if (end - offset != expected.length) {
+      return false;
+    }
+    for (int i = 0; i < expected.length; i++) {
+      if (buffer[offset + i] != expected[i]) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Returns the first TLV within the content of this one
+   */
+  public DERSlice getFirstChild() throws IOException {
+    return read(buffer, valueOffset, end);
+  }
+
+  /**
+   * Returns the TLV following this one, within a parent ending at limit, or null if this one is
+   * the last
+   */
+  public DERSlice getNext(int limit) throws IOException {
+    return end == limit ? null : read(buffer, end, limit);
+  }
+
+  /**
+   * Returns all the TLVs within the content of this one
+   */
+  public List<DERSlice> getChildren() throws IOException {
+    List<DERSlice> res = new ArrayList<>();
+    int pos = valueOffset;
+    while (pos < end) {
+      DERSlice child = read(buffer, pos, end);
+      res.add(child);
+      pos = child.getEnd();
+    }
+    return res;
+  }
+
+  /**
+   * Ensures the TLV has a specific tag
+   */
+  public DERSlice expectTag(int tag) throws IOException {
+    if (getTag() != tag) {
+      throw new IOException("Expected tag " + tag + " but got " + getTag());
+    }
+    return this;
+  }
+}
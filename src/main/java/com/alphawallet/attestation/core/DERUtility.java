@@ -86,6 +86,213 @@ public class DERUtility {
     }
   }
 
+  /**
+   * Constructs the DER encoding of a SEQUENCE directly from the DER encodings of its elements,
+   * without decoding and re-encoding them
+   * @param encodedElements The DER encoding of each element
+   */
+  public static byte[] encodeSequence(byte[]... encodedElements) {
+    int contentLength = 0;
+    for (byte[] current : encodedElements) {
+      contentLength += current.length;
+    }
+    byte[] res = new byte[headerLength(contentLength) + contentLength];
+    int pos = writeHeader(res, 0, 0x30, contentLength);
+    for (byte[] current : encodedElements) {
+      System.arraycopy(current, 0, res, pos, current.length);
+      pos += current.length;
+    }
+    return res;
+  }
+
+  /**
+   * Constructs the DER encoding of a BIT STRING without unused bits, e.g. a signature
+   */
+  public static byte[] encodeBitString(byte[] bits) {
+    byte[] res = new byte[encodedBitStringLength(bits.length)];
+    writeBitString(res, 0, bits);
+    return res;
+  }
+
+  /**
+   * Returns the length of the complete DER encoding of a BIT STRING without unused bits
+   */
+  public static int encodedBitStringLength(int byteLength) {
+    // Content includes the byte counting unused bits
+    return encodedLength(byteLength + 1);
+  }
+
+  /**
+   * Writes the DER encoding of a BIT STRING without unused bits into output at pos
+   * @return The position just after the encoding
+   */
+  public static int writeBitString(byte[] output, int pos, byte[] bits) {
+    pos = writeHeader(output, pos, 0x03, bits.length + 1);
+    output[pos++] = 0x00;
+    System.arraycopy(bits, 0, output, pos, bits.length);
+    return pos + bits.length;
+  }
+
+  /**
+   * Returns the amount of bytes needed for the tag and length of an element with a single byte tag
+   */
+  public static int headerLength(int contentLength) {
+    if (contentLength < 0x80) {
+      return 2;
+    }
+    int lengthBytes = 0;
+    for (int i = contentLength; i > 0; i >>>= 8) {
+      lengthBytes++;
+    }
+    return 2 + lengthBytes;
+  }
+
+  /**
+   * Writes a single byte tag and the minimal encoding of a length into output at pos
+   * @return The position just after the header
+   */
+  public static int writeHeader(byte[] output, int pos, int tag, int contentLength) {
+    output[pos++] = (byte) tag;
+    if (contentLength < 0x80) {
+      output[pos++] = (byte) contentLength;
+      return pos;
+    }
+    int lengthBytes = headerLength(contentLength) - 2;
+    output[pos++] = (byte) (0x80 | lengthBytes);
+    for (int i = lengthBytes - 1; i >= 0; i--) {
+      output[pos++] = (byte) (contentLength >>> (8 * i));
+    }
+    return pos;
+  }
+
+  /**
+   * Returns the length of the complete DER encoding of an element with a single byte tag
+   */
+  public static int encodedLength(int contentLength) {
+    return headerLength(contentLength) + contentLength;
+  }
+
+  /**
+   * Returns the length of the complete DER encoding of an INTEGER
+   */
+  public static int encodedIntegerLength(long value) {
+    return 2 + integerContentLength(value);
+  }
+
+  /**
+   * Returns the minimal amount of bytes needed to encode value in two's complement
+   */
+  private static int integerContentLength(long value) {
+    int length = 1;
+    while (length < 8 && (value >> (8 * length - 1)) != 0 && (value >> (8 * length - 1)) != -1) {
+      length++;
+    }
+    return length;
+  }
+
+  /**
+   * Writes the DER encoding of an INTEGER into output at pos
+   * @return The position just after the encoding
+   */
+  public static int writeInteger(byte[] output, int pos, long value) {
+    int length = integerContentLength(value);
+    pos = writeHeader(output, pos, 0x02, length);
+    for (int i = length - 1; i >= 0; i--) {
+      output[pos++] = (byte) (value >>> (8 * i));
+    }
+    return pos;
+  }
+
+  /**
+   * Returns the length of the complete DER encoding of an INTEGER, without encoding it
+   */
+  public static int encodedIntegerLength(BigInteger value) {
+    return encodedLength(value.bitLength() / 8 + 1);
+  }
+
+  /**
+   * Writes the DER encoding of an INTEGER into output at pos
+   * @return The position just after the encoding
+   */
+  public static int writeInteger(byte[] output, int pos, BigInteger value) {
+    return writeElement(output, pos, 0x02, value.toByteArray());
+  }
+
+  /**
+   * Decodes the content of an INTEGER which fits in a long
+   * @throws ArithmeticException if the value does not fit in a long
+   */
+  public static long decodeLong(byte[] buffer, int offset, int length) {
+    if (length < 1 || length > 8) {
+      throw new ArithmeticException("INTEGER does not fit in a long");
+    }
+    long res = buffer[offset];
+    for (int i = 1; i < length; i++) {
+      res = (res << 8) | (buffer[offset + i] & 0xFF);
+    }
+    return res;
+  }
+
+  /**
+   * Writes a complete element, i.e. a single byte tag, length and content, into output at pos
+   * @return The position just after the encoding
+   */
+  public static int writeElement(byte[] output, int pos, int tag, byte[] content) {
+    pos = writeHeader(output, pos, tag, content.length);
+    System.arraycopy(content, 0, output, pos, content.length);
+    return pos + content.length;
+  }
+
+  /**
+   * The length of the complete DER encoding of a GeneralizedTime with second precision
+   */
+  public static final int GENERALIZED_TIME_LENGTH = 17;
+
+  /**
+   * Writes the DER encoding of a GeneralizedTime in the format YYYYMMDDhhmmssZ into output at pos.
+   * Milliseconds are truncated. This gives the same encoding as ASN1GeneralizedTime(Date) but
+   * without going through a Date and a SimpleDateFormat.
+   * @throws IllegalArgumentException if the year is not between 1583 and 9999
+   * @return The position just after the encoding
+   */
+  public static int writeGeneralizedTime(byte[] output, int pos, long epochMillis) {
+    long seconds = Math.floorDiv(epochMillis, 1000L);
+    long days = Math.floorDiv(seconds, 86400L);
+    int secondOfDay = (int) Math.floorMod(seconds, 86400L);
+    // Convert days since epoch to a date in the proleptic Gregorian calendar
+    long shifted = days + 719468;
+    long era = Math.floorDiv(shifted, 146097);
+    long dayOfEra = shifted - era * 146097;
+    long yearOfEra = (dayOfEra - dayOfEra / 1460 + dayOfEra / 36524 - dayOfEra / 146096) / 365;
+    long dayOfYear = dayOfEra - (365 * yearOfEra + yearOfEra / 4 - yearOfEra / 100);
+    long monthIndex = (5 * dayOfYear + 2) / 153;
+    int day = (int) (dayOfYear - (153 * monthIndex + 2) / 5 + 1);
+    int month = (int) (monthIndex < 10 ? monthIndex + 3 : monthIndex - 9);
+    long year = yearOfEra + era * 400 + (month <= 2 ? 1 : 0);
+    if (year < 1583 || year > 9999) {
+      // Such dates are not Gregorian or not 4 digits and thus are formatted differently
+      throw new IllegalArgumentException("Only years between 1583 and 9999 are supported");
+    }
+    output[pos++] = 0x18;
+    output[pos++] = 15;
+    pos = writeDigits(output, pos, (int) year, 4);
+    pos = writeDigits(output, pos, month, 2);
+    pos = writeDigits(output, pos, day, 2);
+    pos = writeDigits(output, pos, secondOfDay / 3600, 2);
+    pos = writeDigits(output, pos, (secondOfDay / 60) % 60, 2);
+    pos = writeDigits(output, pos, secondOfDay % 60, 2);
+    output[pos++] = 'Z';
+    return pos;
+  }
+
+  private static int writeDigits(byte[] output, int pos, int value, int digits) {
+    for (int i = digits - 1; i >= 0; i--) {
+      output[pos + i] = (byte) ('0' + value % 10);
+      value /= 10;
+    }
+    return pos + digits;
+  }
+
   /**
    * Restores bytes from a base64 PEM-style DER encoding
    * @param input The string containing the base64 encoding
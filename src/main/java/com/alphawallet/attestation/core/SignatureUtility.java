@@ -5,7 +5,6 @@ import java.math.BigInteger;
 import org.bouncycastle.asn1.ASN1BitString;
 import org.bouncycastle.asn1.ASN1Encodable;
 import org.bouncycastle.asn1.ASN1EncodableVector;
-import org.bouncycastle.asn1.ASN1InputStream;
 import org.bouncycastle.asn1.ASN1Integer;
 import org.bouncycastle.asn1.ASN1ObjectIdentifier;
 import org.bouncycastle.asn1.ASN1Sequence;
@@ -23,6 +22,7 @@ import org.bouncycastle.crypto.signers.HMacDSAKCalculator;
 import org.bouncycastle.crypto.util.PublicKeyFactory;
 import org.bouncycastle.jcajce.provider.digest.Keccak;
 import org.bouncycastle.jcajce.provider.digest.Keccak.Digest256;
+import org.bouncycastle.util.BigIntegers;
 
 public class SignatureUtility {
     /**
@@ -58,11 +58,21 @@ public class SignatureUtility {
      */
     public static byte[] signDeterministic(byte[] toSign, AsymmetricKeyParameter key) {
         Digest keccak = new KeccakDigest(256);
+        ECDSASigner signer = new ECDSASigner(new HMacDSAKCalculator(keccak));
+        return signDeterministic(toSign, key, keccak, signer);
+    }
+
+    /**
+     * Same as signDeterministic(byte[], AsymmetricKeyParameter) but using a caller supplied Keccak
+     * digest and a signer whose HMacDSAKCalculator is based on that same digest.
+     * This allows the instances to be reused between signatures, as long as they are confined to a
+     * single thread.
+     */
+    static byte[] signDeterministic(byte[] toSign, AsymmetricKeyParameter key, Digest keccak, ECDSASigner signer) {
+        keccak.reset();
         keccak.update(toSign, 0, toSign.length);
-        HMacDSAKCalculator randomnessProvider = new HMacDSAKCalculator(keccak);
         byte[] digest = new byte[256/8];
         keccak.doFinal(digest, 0);
-        ECDSASigner signer = new ECDSASigner(randomnessProvider);
         signer.init(true, key);
         BigInteger[] signature = signer.generateSignature(digest);
         return normalizeAndEncodeSignature(signature, ((ECKeyParameters) key).getParameters());
@@ -89,11 +99,23 @@ public class SignatureUtility {
             if (signature[1].compareTo(half_curve) > 0) {
                 signature[1] = params.getN().subtract(signature[1]);
             }
+            return encodeSignature(signature[0], signature[1]);
+        } catch (Exception e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    /**
+     * DER encodes an ECDSA signature, i.e. SEQUENCE { r INTEGER, s INTEGER }, as the inverse of
+     * decodeSignature(byte[])
+     */
+    public static byte[] encodeSignature(BigInteger r, BigInteger s) {
+        try {
             ASN1EncodableVector asn1 = new ASN1EncodableVector();
-            asn1.add(new ASN1Integer(signature[0]));
-            asn1.add(new ASN1Integer(signature[1]));
+            asn1.add(new ASN1Integer(r));
+            asn1.add(new ASN1Integer(s));
             return new DERSequence(asn1).getEncoded();
-        } catch (Exception e) {
+        } catch (IOException e) {
             throw new RuntimeException(e);
         }
     }
@@ -104,12 +126,27 @@ public class SignatureUtility {
         return verifyHashed(digestBytes, signature, key);
     }
 
+    /**
+     * Same as verify(byte[], byte[], AsymmetricKeyParameter) but for a message that is a range of a
+     * larger buffer, e.g. the signed part of an encoded object, such that it does not need to be
+     * copied or re-encoded.
+     */
+    public static boolean verify(byte[] buffer, int offset, int length, byte[] signature, AsymmetricKeyParameter key) {
+        Digest keccak = new KeccakDigest(256);
+        keccak.update(buffer, offset, length);
+        byte[] digestBytes = new byte[keccak.getDigestSize()];
+        keccak.doFinal(digestBytes, 0);
+        return verifyHashed(digestBytes, signature, key);
+    }
+
     static boolean verifyHashed(byte[] digest, byte[] signature, AsymmetricKeyParameter key) {
+        BigInteger[] rs = decodeSignature(signature);
+        if (rs == null) {
+            return false;
+        }
+        BigInteger r = rs[0];
+        BigInteger s = rs[1];
         try {
-            ASN1InputStream input = new ASN1InputStream(signature);
-            ASN1Sequence seq = ASN1Sequence.getInstance(input.readObject());
-            BigInteger r = ASN1Integer.getInstance(seq.getObjectAt(0)).getValue();
-            BigInteger s = ASN1Integer.getInstance(seq.getObjectAt(1)).getValue();
             // Normalize number s
             BigInteger half_curve = ((ECKeyParameters) key).getParameters().getCurve().getOrder().shiftRight(1);
             if (s.compareTo(half_curve) > 0) {
@@ -123,4 +160,75 @@ public class SignatureUtility {
            return false;
         }
     }
+
+    /**
+     * Decodes a DER encoded ECDSA signature, i.e. SEQUENCE { r INTEGER, s INTEGER }, directly from
+     * the bytes without constructing any ASN1 objects.
+     * Only strict DER is accepted, that is, minimal lengths, minimal and positive integers and no
+     * trailing data.
+     * @param signature The DER encoded signature
+     * @return An array containing r and s, or null if the signature is not properly encoded
+     */
+    public static BigInteger[] decodeSignature(byte[] signature) {
+        // Smallest possible encoding is 30 06 02 01 xx 02 01 xx
+        if (signature == null || signature.length < 8 || signature[0] != 0x30) {
+            return null;
+        }
+        int seqLength = signature[1] & 0xFF;
+        int pos = 2;
+        if (seqLength == 0x81) {
+            // Long form is only allowed when the short form cannot be used
+            seqLength = signature[2] & 0xFF;
+            if (seqLength < 0x80) {
+                return null;
+            }
+            pos = 3;
+        } else if (seqLength > 0x7F) {
+            return null;
+        }
+        if (pos + seqLength != signature.length) {
+            return null;
+        }
+        int rStart = integerStart(signature, pos);
+        if (rStart < 0) {
+            return null;
+        }
+        int rLength = signature[rStart - 1];
+        int sStart = integerStart(signature, rStart + rLength);
+        if (sStart < 0) {
+            return null;
+        }
+        int sLength = signature[sStart - 1];
+        if (sStart + sLength != signature.length) {
+            return null;
+        }
+        return new BigInteger[] {
+            BigIntegers.fromUnsignedByteArray(signature, rStart, rLength),
+            BigIntegers.fromUnsignedByteArray(signature, sStart, sLength)};
+    }
+
+    /**
+     * Validates the header and content of a positive, minimally encoded DER INTEGER at pos
+     * @return The offset of the content of the integer or -1 if it is not valid
+     */
+    private static int integerStart(byte[] input, int pos) {
+        if (pos + 2 >= input.length || input[pos] != 0x02) {
+            return -1;
+        }
+        int length = input[pos + 1];
+        int start = pos + 2;
+        // Long form lengths are never minimal for integers of this size
+        if (length < 1 || start + length > input.length) {
+            return -1;
+        }
+        // Negative integer
+        if ((input[start] & 0x80) != 0) {
+            return -1;
+        }
+        // Superfluous leading zero
+        if (length > 1 && input[start] == 0 && (input[start + 1] & 0x80) == 0) {
+            return -1;
+        }
+        return start;
+    }
 }
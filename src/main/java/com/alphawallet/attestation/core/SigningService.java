@@ -0,0 +1,205 @@
+package com.alphawallet.attestation.core;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import org.bouncycastle.crypto.Digest;
+import org.bouncycastle.crypto.digests.KeccakDigest;
+import org.bouncycastle.crypto.params.AsymmetricKeyParameter;
+import org.bouncycastle.crypto.signers.ECDSASigner;
+import org.bouncycastle.crypto.signers.HMacDSAKCalculator;
+
+/**
+ * Asynchronous service for constructing deterministic signatures, as done by
+ * SignatureUtility.signDeterministic, on a pool of worker threads.
+ * Requests are placed in a bounded queue. When the queue is full, sign() blocks the caller until
+ * there is room, whereas trySign() fails immediately. Each worker thread reuses its own
+ * ECDSASigner and HMacDSAKCalculator between requests.
+ * Stages that depend on the returned future, and are added before it completes, run on the worker
+ * before it takes the next request, so work such as encoding the signed object is also spread over
+ * the workers and bounded by the queue. BulkIssuer issues tickets this way.
+ */
+public class SigningService implements AutoCloseable {
+  private final ThreadPoolExecutor executor;
+  // Permits for every request that is either queued or being processed by a worker.
+  // This is what bounds the queue, since a worker releases its permit slightly before it takes
+  // the next request from the executor's queue.
+  private final Semaphore capacity;
+  private final ThreadLocal<WorkerSigner> signers = ThreadLocal.withInitial(WorkerSigner::new);
+
+  private final long startTime;
+  private final AtomicLong completed = new AtomicLong();
+  private final AtomicLong failed = new AtomicLong();
+  private final AtomicLong totalLatency = new AtomicLong();
+  private final AtomicLong maxLatency = new AtomicLong();
+
+  /**
+   * @param workers The amount of worker threads to sign with
+   * @param queueSize The maximum amount of requests waiting for a worker
+   */
+  public SigningService(int workers, int queueSize) {
+    if (workers < 1 || queueSize < 1) {
+      throw new IllegalArgumentException("There must be at least one worker and room for one request in the queue");
+    }
+    this.capacity = new Semaphore(workers + queueSize);
+    this.executor = new ThreadPoolExecutor(workers, workers, 0L, TimeUnit.MILLISECONDS,
+        new LinkedBlockingQueue<>(), new WorkerThreadFactory());
+    this.executor.prestartAllCoreThreads();
+    this.startTime = System.nanoTime();
+  }
+
+  /**
+   * Constructs a service with a worker for each available core
+   * @param queueSize The maximum amount of requests waiting for a worker
+   */
+  public SigningService(int queueSize) {
+    this(Runtime.getRuntime().availableProcessors(), queueSize);
+  }
+
+  /**
+   * Schedules a deterministic signature on toSign. Blocks if the queue is full.
+   * @param toSign The message to sign
+   * @param key The private key to sign with
+   * @return A future which completes with the DER encoded signature
+   */
+  public CompletableFuture<byte[]> sign(byte[] toSign, AsymmetricKeyParameter key) throws InterruptedException {
+    capacity.acquire();
+    return submit(toSign, key);
+  }
+
+  /**
+   * Schedules a deterministic signature on toSign, without blocking.
+   * If the queue is full, the returned future is completed exceptionally with a
+   * RejectedExecutionException.
+   */
+  public CompletableFuture<byte[]> trySign(byte[] toSign, AsymmetricKeyParameter key) {
+    if (!capacity.tryAcquire()) {
+      CompletableFuture<byte[]> res = new CompletableFuture<>();
+      res.completeExceptionally(new RejectedExecutionException("The signing queue is full"));
+      return res;
+    }
+    return submit(toSign, key);
+  }
+
+  private CompletableFuture<byte[]> submit(byte[] toSign, AsymmetricKeyParameter key) {
+    CompletableFuture<byte[]> res = new CompletableFuture<>();
+    long submitted = System.nanoTime();
+    try {
+      executor.execute(() -> {
+        try {
+          WorkerSigner signer = signers.get();
+          byte[] signature = SignatureUtility.signDeterministic(toSign, key, signer.keccak, signer.signer);
+          recordLatency(System.nanoTime() - submitted);
+          completed.incrementAndGet();
+          res.complete(signature);
+        } catch (Throwable e) {
+          // Errors must also complete the future, otherwise the caller would wait forever
+          failed.incrementAndGet();
+          res.completeExceptionally(e);
+        } finally {
+          capacity.release();
+        }
+      });
+    } catch (RejectedExecutionException e) {
+      // The service has been closed
+      capacity.release();
+      res.completeExceptionally(e);
+    }
+    return res;
+  }
+
+  private void recordLatency(long latency) {
+    totalLatency.addAndGet(latency);
+    long currentMax;
+    do {
+      currentMax = maxLatency.get();
+    } while (latency > currentMax && !maxLatency.compareAndSet(currentMax, latency));
+  }
+
+  /**
+   * Returns the amount of requests waiting for a worker
+   */
+  public int getQueueDepth() {
+    return executor.getQueue().size();
+  }
+
+  /**
+   * Returns the amount of signatures successfully constructed
+   */
+  public long getCompletedCount() {
+    return completed.get();
+  }
+
+  /**
+   * Returns the amount of requests that failed
+   */
+  public long getFailedCount() {
+    return failed.get();
+  }
+
+  /**
+   * Returns the amount of signatures constructed per second since the service was started
+   */
+  public double getThroughput() {
+    long elapsed = System.nanoTime() - startTime;
+    return elapsed == 0 ? 0 : completed.get() * 1e9 / elapsed;
+  }
+
+  /**
+   * Returns the average time in milliseconds from a request was submitted until its signature was
+   * done
+   */
+  public double getAverageLatencyMillis() {
+    long count = completed.get();
+    return count == 0 ? 0 : totalLatency.get() / 1e6 / count;
+  }
+
+  /**
+   * Returns the largest time in milliseconds from a request was submitted until its signature was
+   * done
+   */
+  public double getMaxLatencyMillis() {
+    return maxLatency.get() / 1e6;
+  }
+
+  /**
+   * Stops accepting new requests and waits for the queued requests to be signed.
+   * If the calling thread is interrupted while waiting, it returns with the interrupt status set
+   * and the queued requests are still signed in the background.
+   */
+  @Override
+  public void close() {
+    executor.shutdown();
+    try {
+      executor.awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  /**
+   * The signer objects of a single worker thread. The HMacDSAKCalculator is based on the same
+   * digest as used for hashing the message, exactly as in SignatureUtility.signDeterministic.
+   */
+  private static class WorkerSigner {
+    private final Digest keccak = new KeccakDigest(256);
+    private final ECDSASigner signer = new ECDSASigner(new HMacDSAKCalculator(keccak));
+  }
+
+  private static class WorkerThreadFactory implements ThreadFactory {
+    private final AtomicInteger counter = new AtomicInteger();
+
+    @Override
+    public Thread newThread(Runnable r) {
+      Thread thread = new Thread(r, "signing-service-" + counter.incrementAndGet());
+      thread.setDaemon(true);
+      return thread;
+    }
+  }
+}
@@ -1,71 +1,71 @@
 package com.alphawallet.attestation.core;
 
-import static java.nio.charset.StandardCharsets.US_ASCII;
-
-import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
-import org.bouncycastle.asn1.ASN1Encodable;
-import org.bouncycastle.asn1.ASN1EncodableVector;
-import org.bouncycastle.asn1.ASN1InputStream;
-import org.bouncycastle.asn1.ASN1OctetString;
-import org.bouncycastle.asn1.ASN1Sequence;
-import org.bouncycastle.asn1.DEROctetString;
-import org.bouncycastle.asn1.DERSequence;
-import org.bouncycastle.util.encoders.UrlBase64Encoder;
 
 public class URLUtility {
   public static String encodeList(List<byte[]> inputs) {
     return encodeData(encodeListHelper(inputs));
   }
 
+  /**
+   * SEQUENCE OF OCTET STRING, written directly into a single array
+   */
   private static byte[] encodeListHelper(List<byte[]> inputs) {
-    try {
-      ASN1EncodableVector vec = new ASN1EncodableVector();
-      for (byte[] current : inputs) {
-        vec.add(new DEROctetString(current));
-      }
-      return new DERSequence(vec).getEncoded();
-    } catch (IOException e) {
-      throw new RuntimeException(e);
+    int contentLength = 0;
+    for (byte[] current : inputs) {
+      contentLength += DERUtility.encodedLength(current.length);
+    }
+    byte[] res = new byte[DERUtility.encodedLength(contentLength)];
+    int pos = DERUtility.writeHeader(res, 0, DERSlice.TAG_SEQUENCE, contentLength);
+    for (byte[] current : inputs) {
+      pos = DERUtility.writeElement(res, pos, DERSlice.TAG_OCTET_STRING, current);
     }
+    return res;
   }
 
   public static String encodeData(byte[] input) {
-    try {
-      UrlBase64Encoder encoder = new UrlBase64Encoder();
-      ByteArrayOutputStream baos = new ByteArrayOutputStream();
-      encoder.encode(input, 0, input.length, baos);
-      baos.close();
-      byte[] encodedBytes = baos.toByteArray();
-      return new String(encodedBytes, US_ASCII);
-    } catch (IOException e) {
-      throw new RuntimeException(e);
-    }
+    return Base64Url.encode(input);
   }
 
   /**
    * @param url The part of the URL that contains encoding. I.e. it must be pruned for domainame and such
    */
   public static List<byte[]> decodeList(String url) throws IOException {
+    return decodeList(url, 0, url.length());
+  }
+
+  /**
+   * Decodes a list from the range of a URL which contains the encoding, e.g. the value of a
+   * parameter, without extracting it first
+   */
+  public static List<byte[]> decodeList(CharSequence url, int start, int end) throws IOException {
+    byte[] decodedData = Base64Url.decode(url, start, end);
+    DERGate.getDefault().check(decodedData);
+    DERSlice sequence = DERSlice.read(decodedData).expectTag(DERSlice.TAG_SEQUENCE);
     List<byte[]> res = new ArrayList<>();
-    byte[] decodedData = decodeData(url);
-    ASN1InputStream input = new ASN1InputStream(decodedData);
-    ASN1Encodable[] asn1 = ASN1Sequence.getInstance(input.readObject()).toArray();
-    for (ASN1Encodable current : asn1) {
-      res.add(ASN1OctetString.getInstance(current).getOctets());
+    int pos = sequence.getValueOffset();
+    while (pos < sequence.getEnd()) {
+      DERSlice current = DERSlice.read(decodedData, pos, sequence.getEnd())
+          .expectTag(DERSlice.TAG_OCTET_STRING);
+      res.add(current.getValue());
+      pos = current.getEnd();
     }
     return res;
   }
 
   public static byte[] decodeData(String url) {
+    return decodeData(url, 0, url.length());
+  }
+
+  /**
+   * Decodes the range of a URL which contains the encoding, e.g. the value of a parameter,
+   * without extracting it first
+   */
+  public static byte[] decodeData(CharSequence url, int start, int end) {
     try {
-      UrlBase64Encoder encoder = new UrlBase64Encoder();
-      ByteArrayOutputStream baos = new ByteArrayOutputStream();
-      encoder.decode(url, baos);
-      baos.close();
-      return baos.toByteArray();
+      return Base64Url.decode(url, start, end);
     } catch (IOException e) {
       throw new RuntimeException(e);
     }
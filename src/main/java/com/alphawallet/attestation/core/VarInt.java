@@ -0,0 +1,115 @@
+package com.alphawallet.attestation.core;
+
+import java.io.IOException;
+import java.math.BigInteger;
+
+/**
+ * Unsigned variable length integers (LEB128) for compact binary formats, where DER headers are too
+ * costly, e.g. for QR codes.
+ * Each byte holds 7 bits of the value, least significant first, with the high bit set on all but
+ * the last byte. Only the minimal encoding is accepted when reading, such that every value has
+ * exactly one encoding.
+ */
+public class VarInt {
+  private static final int GROUP_BITS = 7;
+  private static final int MORE = 0x80;
+  // The longest encoding that always fits in a non-negative long
+  private static final int MAX_LONG_LENGTH = 9;
+
+  public static int encodedLength(long value) {
+    if (value < 0) {
+      throw new IllegalArgumentException("Negative values cannot be encoded");
+    }
+    int bits = 64 - Long.numberOfLeadingZeros(value);
+    return Math.max(1, (bits + GROUP_BITS - 1) / GROUP_BITS);
+  }
+
+  public static int encodedLength(BigInteger value) {
+    if (value.signum() < 0) {
+      throw new IllegalArgumentException("Negative values cannot be encoded");
+    }
+    return Math.max(1, (value.bitLength() + GROUP_BITS - 1) / GROUP_BITS);
+  }
+
+  /**
+   * Writes value at pos and returns the position after it
+   */
+  public static int write(byte[] out, int pos, long value) {
+    int length = encodedLength(value);
+    for (int i = 0; i < length - 1; i++) {
+      out[pos++] = (byte) ((value & 0x7F) | MORE);
+      value >>>= GROUP_BITS;
+    }
+    out[pos++] = (byte) value;
+    return pos;
+  }
+
+  /**
+   * Writes value at pos and returns the position after it
+   */
+  public static int write(byte[] out, int pos, BigInteger value) {
+    if (value.bitLength() < 64) {
+      return write(out, pos, value.longValue());
+    }
+    int length = encodedLength(value);
+    for (int i = 0; i < length; i++) {
+      int group = value.shiftRight(i * GROUP_BITS).intValue() & 0x7F;
+      out[pos++] = (byte) (i < length - 1 ? group | MORE : group);
+    }
+    return pos;
+  }
+
+  /**
+   * Returns the length of the integer encoded at pos
+   * @throws IOException if it is not terminated before limit or not minimally encoded
+   */
+  public static int length(byte[] buffer, int pos, int limit) throws IOException {
+    int i = pos;
+    while (i < limit && (buffer[i] & MORE) != 0) {
+      i++;
+    }
+    if (i >= limit) {
+      throw new IOException("Integer is not terminated");
+    }
+    if (i > pos && buffer[i] == 0) {
+      throw new IOException("Integer is not minimally encoded");
+    }
+    return i + 1 - pos;
+  }
+
+  /**
+   * Reads an integer of a length returned by length(byte[], int, int)
+   * @throws ArithmeticException if it does not fit in a long
+   */
+  public static long readLong(byte[] buffer, int pos, int length) {
+    // A minimal encoding longer than this is at least 2^63
+    if (length > MAX_LONG_LENGTH) {
+      throw new ArithmeticException("Integer does not fit in a long");
+    }
+    long res = 0;
+    for (int i = length - 1; i >= 0; i--) {
+      res = (res << GROUP_BITS) | (buffer[pos + i] & 0x7F);
+    }
+    return res;
+  }
+
+  /**
+   * Reads an integer of a length returned by length(byte[], int, int)
+   */
+  public static BigInteger read(byte[] buffer, int pos, int length) {
+    if (length <= MAX_LONG_LENGTH) {
+      return BigInteger.valueOf(readLong(buffer, pos, length));
+    }
+    // Collect the groups into a big endian magnitude
+    byte[] magnitude = new byte[(length * GROUP_BITS + 7) / 8];
+    for (int i = 0; i < length; i++) {
+      int group = buffer[pos + i] & 0x7F;
+      int bit = i * GROUP_BITS;
+      magnitude[magnitude.length - 1 - bit / 8] |= (byte) (group << (bit % 8));
+      if (bit % 8 > 1 && bit / 8 + 1 < magnitude.length) {
+        magnitude[magnitude.length - 2 - bit / 8] |= (byte) (group >>> (8 - bit % 8));
+      }
+    }
+    return new BigInteger(1, magnitude);
+  }
+}
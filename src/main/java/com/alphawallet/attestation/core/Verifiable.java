@@ -7,4 +7,15 @@ public interface Verifiable {
    * be done manually.
    */
   public boolean verify();
+
+  /**
+   * Returns true if the object has been successfully verified, either when it was constructed or
+   * through the last call to verify(), or if it was constructed locally under the trusted
+   * ConstructionPolicy. Objects decoded without verification are not verified until verify()
+   * succeeds.
+   * The default implementation does not track this and calls verify() instead.
+   */
+  public default boolean isVerified() {
+    return verify();
+  }
 }
@@ -218,7 +218,7 @@ public class Demo {
       throw new RuntimeException("Verification failed");
     }
 
-    AttestedObject redeem = new AttestedObject(cheque, att, userKeys, attestationSecret, chequeSecret, crypto);
+    AttestedObject<Cheque> redeem = new AttestedObject<>(cheque, att, userKeys, attestationSecret, chequeSecret, crypto);
     if (!redeem.checkValidity()) {
       System.err.println("Could not validate redeem request");
       throw new RuntimeException("Validation failed");
@@ -270,7 +270,7 @@ public class Demo {
     Date now = new Date();
     att.setNotValidBefore(now);
     att.setNotValidAfter(new Date(System.currentTimeMillis() + validityInMilliseconds));
-    SignedAttestation signed = new SignedAttestation(att, keys);
+    SignedAttestation signed = new SignedAttestation(att.freeze(), keys);
     if (!writeFile(attestationDir, DERUtility.printDER(signed.getDerEncoding(), "ATTESTATION"))) {
       System.err.println("Could not write attestation to disc");
       throw new IOException("Could not write file");
@@ -0,0 +1,316 @@
+package com.alphawallet.token.entity;
+
+import java.io.IOException;
+import java.math.BigInteger;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import com.alphawallet.attestation.core.VarInt;
+import com.alphawallet.token.tools.Numeric;
+
+/**
+ * ByteBuffer based alternative to EthereumReadBuffer for magic link payloads.
+ * Values are read directly from the buffer, indices are decoded straight into an int[] and token
+ * ids can be accessed as slices of the buffer or as 64 bit limbs, such that no BigInteger is
+ * needed per token.
+ * Reading beyond the end of the payload throws an IOException rather than silently returning
+ * zeros.
+ */
+public class EthereumByteReader
+{
+    public static final int TOKEN_ID_LENGTH = 32;
+    public static final int ADDRESS_LENGTH = 20;
+    public static final int SIGNATURE_LENGTH = 65;
+
+    private final ByteBuffer buffer;
+
+    public EthereumByteReader(byte[] data)
+    {
+        this(ByteBuffer.wrap(data));
+    }
+
+    /**
+     * Reads the remaining bytes of the buffer, which is read through a view such that the position
+     * of the buffer itself is not changed
+     */
+    public EthereumByteReader(ByteBuffer data)
+    {
+        buffer = data.slice();
+    }
+
+    public int remaining()
+    {
+        return buffer.remaining();
+    }
+
+    public int position()
+    {
+        return buffer.position();
+    }
+
+    /**
+     * Moves back to the start of the payload
+     */
+    public void reset()
+    {
+        buffer.position(0);
+    }
+
+    public byte readByte() throws IOException
+    {
+        ensure(1);
+        return buffer.get();
+    }
+
+    public long readUnsigned4() throws IOException
+    {
+        ensure(4);
+        return buffer.getInt() & 0xFFFFFFFFL;
+    }
+
+    /**
+     * Reads a signed 32 byte integer
+     */
+    public BigInteger readBI() throws IOException
+    {
+        return readBI(32);
+    }
+
+    /**
+     * Reads a signed integer of sz bytes
+     */
+    public BigInteger readBI(int sz) throws IOException
+    {
+        return new BigInteger(readBytes(sz));
+    }
+
+    public String readAddress() throws IOException
+    {
+        ensure(ADDRESS_LENGTH);
+        String res;
+        if (buffer.hasArray())
+        {
+            res = Numeric.toHexString(buffer.array(), buffer.arrayOffset() + buffer.position(), ADDRESS_LENGTH, true);
+            buffer.position(buffer.position() + ADDRESS_LENGTH);
+        }
+        else
+        {
+            res = Numeric.toHexString(readBytes(ADDRESS_LENGTH));
+        }
+        return res;
+    }
+
+    public byte[] readBytes(int length) throws IOException
+    {
+        ensure(length);
+        byte[] res = new byte[length];
+        buffer.get(res);
+        return res;
+    }
+
+    public void readSignature(byte[] signature) throws IOException
+    {
+        if (signature.length != SIGNATURE_LENGTH)
+        {
+            throw new IOException("Data isn't a signature");
+        }
+        ensure(SIGNATURE_LENGTH);
+        buffer.get(signature);
+    }
+
+    /**
+     * Reads big endian unsigned shorts into ints
+     */
+    public void readUnsignedShort(int[] ints) throws IOException
+    {
+        ensure(2 * ints.length);
+        for (int i = 0; i < ints.length; i++)
+        {
+            ints[i] = buffer.getShort() & 0xFFFF;
+        }
+    }
+
+    /**
+     * Reads indices encoded in 1 byte for 0-127 and 2 bytes, with the top bit set, for 128-32767
+     * @param length The amount of bytes holding the indices
+     */
+    public int[] readCompressedIndices(int length) throws IOException
+    {
+        ensure(length);
+        // There are at most as many indices as bytes
+        int[] res = new int[length];
+        int count = 0;
+        int end = buffer.position() + length;
+        while (buffer.position() < end)
+        {
+            int p = buffer.get() & 0xFF;
+            if ((p & 0x80) != 0)
+            {
+                if (buffer.position() == end)
+                {
+                    throw new IOException("Truncated index");
+                }
+                p = ((p & 0x7F) << 8) | (buffer.get() & 0xFF);
+            }
+            res[count++] = p;
+        }
+        return count == res.length ? res : Arrays.copyOf(res, count);
+    }
+
+    /**
+     * Returns the token ids of a spawnable link as read-only 32 byte slices of the payload
+     * @param length The amount of bytes holding the token ids
+     */
+    public ByteBuffer[] readTokenIdSlices(int length) throws IOException
+    {
+        ByteBuffer[] res = new ByteBuffer[tokenIdCount(length)];
+        for (int i = 0; i < res.length; i++)
+        {
+            ByteBuffer slice = buffer.slice();
+            slice.limit(TOKEN_ID_LENGTH);
+            res[i] = slice.asReadOnlyBuffer();
+            buffer.position(buffer.position() + TOKEN_ID_LENGTH);
+        }
+        return res;
+    }
+
+    /**
+     * Returns the token ids of a spawnable link as 4 big endian 64 bit limbs each, i.e. token id i
+     * is held in limbs 4i to 4i + 3 with the most significant limb first
+     * @param length The amount of bytes holding the token ids
+     */
+    public long[] readTokenIdLimbs(int length) throws IOException
+    {
+        long[] res = new long[tokenIdCount(length) * 4];
+        for (int i = 0; i < res.length; i++)
+        {
+            res[i] = buffer.getLong();
+        }
+        return res;
+    }
+
+    /**
+     * Same as EthereumReadBuffer.readTokenIdsFromSpawnableLink, i.e. signed integers
+     * @param length The amount of bytes holding the token ids
+     */
+    public List<BigInteger> readTokenIds(int length) throws IOException
+    {
+        int count = tokenIdCount(length);
+        List<BigInteger> res = new ArrayList<>(count);
+        for (int i = 0; i < count; i++)
+        {
+            res.add(readBI(TOKEN_ID_LENGTH));
+        }
+        return res;
+    }
+
+    /**
+     * Reads token ids written by EthereumByteWriter.writeCompressedTokenIds
+     * @param length The amount of bytes holding the compressed token ids
+     * @return The token ids as 32 byte integers, exactly as in a spawnable link
+     */
+    public byte[] readCompressedTokenIds(int length) throws IOException
+    {
+        if (length < 1)
+        {
+            throw new IOException("Token id prefix is missing");
+        }
+        byte[] src;
+        int pos;
+        if (buffer.hasArray())
+        {
+            ensure(length);
+            src = buffer.array();
+            pos = buffer.arrayOffset() + buffer.position();
+            buffer.position(buffer.position() + length);
+        }
+        else
+        {
+            src = readBytes(length);
+            pos = 0;
+        }
+        int end = pos + length;
+        int prefixLength = src[pos++] & 0xFF;
+        int prefixStart = pos;
+        pos += prefixLength;
+        if (prefixLength >= TOKEN_ID_LENGTH || pos > end)
+        {
+            throw new IOException("Invalid token id prefix");
+        }
+        // Every token id ends with the one byte of its VarInt that has the top bit clear
+        int count = 0;
+        for (int i = pos; i < end; i++)
+        {
+            if (src[i] >= 0) count++;
+        }
+        byte[] res = new byte[count * TOKEN_ID_LENGTH];
+        int lowLength = TOKEN_ID_LENGTH - prefixLength;
+        // Low bytes of at most 7 bytes, and their differences, fit in a long
+        boolean small = lowLength < 8;
+        long low = 0;
+        BigInteger bigLow = BigInteger.ZERO;
+        for (int id = 0; id < res.length; id += TOKEN_ID_LENGTH)
+        {
+            System.arraycopy(src, prefixStart, res, id, prefixLength);
+            int size = VarInt.length(src, pos, end);
+            if (small)
+            {
+                if (size > 9)
+                {
+                    throw new IOException("Token id out of range");
+                }
+                long delta = VarInt.readLong(src, pos, size);
+                low += (delta >>> 1) ^ -(delta & 1);
+                if (low < 0 || low >= 1L << (8 * lowLength))
+                {
+                    throw new IOException("Token id out of range");
+                }
+                long value = low;
+                for (int i = id + TOKEN_ID_LENGTH - 1; i >= id + prefixLength; i--)
+                {
+                    res[i] = (byte) value;
+                    value >>>= 8;
+                }
+            }
+            else
+            {
+                BigInteger delta = VarInt.read(src, pos, size);
+                bigLow = bigLow.add(delta.testBit(0) ? delta.shiftRight(1).add(BigInteger.ONE).negate() : delta.shiftRight(1));
+                if (bigLow.signum() < 0 || bigLow.bitLength() > 8 * lowLength)
+                {
+                    throw new IOException("Token id out of range");
+                }
+                byte[] value = bigLow.toByteArray();
+                int valueLength = Math.min(value.length, lowLength);
+                System.arraycopy(value, value.length - valueLength, res, id + TOKEN_ID_LENGTH - valueLength, valueLength);
+            }
+            pos += size;
+        }
+        if (pos != end)
+        {
+            throw new IOException("Token id is not terminated");
+        }
+        return res;
+    }
+
+    private int tokenIdCount(int length) throws IOException
+    {
+        if (length < 0 || length % TOKEN_ID_LENGTH != 0)
+        {
+            throw new IOException("Token ids must be " + TOKEN_ID_LENGTH + " bytes each");
+        }
+        ensure(length);
+        return length / TOKEN_ID_LENGTH;
+    }
+
+    private void ensure(int length) throws IOException
+    {
+        if (length < 0 || length > buffer.remaining())
+        {
+            throw new IOException("Payload is too short", new BufferUnderflowException());
+        }
+    }
+}
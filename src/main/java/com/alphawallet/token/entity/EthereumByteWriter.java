@@ -0,0 +1,326 @@
+package com.alphawallet.token.entity;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.util.List;
+
+import com.alphawallet.attestation.core.VarInt;
+import com.alphawallet.token.tools.Convert;
+import com.alphawallet.token.tools.Numeric;
+
+/**
+ * ByteBuffer based alternative to EthereumWriteBuffer for magic link payloads.
+ * The size of a payload is known up front, so it is written in a single pass into a buffer of
+ * exactly that size, which is then returned without copying.
+ * Values are encoded the same way as by EthereumWriteBuffer.
+ */
+public class EthereumByteWriter
+{
+    private static final long MAX_MICRO_ETH = 0xFFFFFFFFL;
+    // The longest varint needed for the difference of two 32 byte token ids
+    private static final int MAX_DELTA_LENGTH = 38;
+
+    private final ByteBuffer buffer;
+
+    /**
+     * @param length The exact length of the payload
+     */
+    public EthereumByteWriter(int length)
+    {
+        this(ByteBuffer.allocate(length));
+    }
+
+    /**
+     * Writes from the current position of a caller supplied buffer
+     */
+    public EthereumByteWriter(ByteBuffer buffer)
+    {
+        this.buffer = buffer;
+    }
+
+    /**
+     * Returns the amount of bytes writeCompressedIndices uses for indices
+     */
+    public static int compressedIndicesLength(int[] indices)
+    {
+        int res = 0;
+        for (int i : indices)
+        {
+            res += i < (1 << 7) ? 1 : 2;
+        }
+        return res;
+    }
+
+    /**
+     * Returns the amount of bytes writeCompressedTokenIds uses for token ids
+     */
+    public static int compressedTokenIdsLength(byte[] tokenIds, int offset, int length)
+    {
+        int prefixLength = tokenIdPrefixLength(tokenIds, offset, length);
+        int res = 1 + prefixLength;
+        for (BigInteger delta : tokenIdDeltas(tokenIds, offset, length, prefixLength))
+        {
+            res += VarInt.encodedLength(delta);
+        }
+        return res;
+    }
+
+    public EthereumByteWriter writeByte(int value)
+    {
+        buffer.put((byte) value);
+        return this;
+    }
+
+    public EthereumByteWriter write(byte[] bytes)
+    {
+        buffer.put(bytes);
+        return this;
+    }
+
+    public EthereumByteWriter write(byte[] bytes, int offset, int length)
+    {
+        buffer.put(bytes, offset, length);
+        return this;
+    }
+
+    public EthereumByteWriter writeZeros(int length)
+    {
+        for (int i = 0; i < length; i++)
+        {
+            buffer.put((byte) 0);
+        }
+        return this;
+    }
+
+    /**
+     * Writes value as 32 bytes, like Numeric.toBytesPadded
+     */
+    public EthereumByteWriter write32(BigInteger value)
+    {
+        return writePadded(value, 32);
+    }
+
+    /**
+     * Writes value as an unsigned 64 bit integer padded to 32 bytes
+     */
+    public EthereumByteWriter write32(long value)
+    {
+        writeZeros(24);
+        buffer.putLong(value);
+        return this;
+    }
+
+    /**
+     * Writes a token id held in 4 big endian limbs, as returned by EthereumByteReader.readTokenIdLimbs
+     */
+    public EthereumByteWriter write32(long[] limbs, int offset)
+    {
+        for (int i = offset; i < offset + 4; i++)
+        {
+            buffer.putLong(limbs[i]);
+        }
+        return this;
+    }
+
+    /**
+     * Writes the lower 32 bits of value
+     */
+    public EthereumByteWriter writeUnsigned4(long value)
+    {
+        buffer.putInt((int) value);
+        return this;
+    }
+
+    public EthereumByteWriter writeAddress(BigInteger address)
+    {
+        return writePadded(address, 20);
+    }
+
+    /**
+     * Writes a hex address, with or without prefix, directly without converting it to a BigInteger
+     */
+    public EthereumByteWriter writeAddress(String address)
+    {
+        String hex = Numeric.cleanHexPrefix(address);
+        if (hex.length() > 40)
+        {
+            return writeAddress(new BigInteger(hex, 16));
+        }
+        // Left pad short addresses with zeros
+        int start = buffer.position();
+        writeZeros(20);
+        int pos = start + 20;
+        for (int i = hex.length(); i > 0; i -= 2)
+        {
+            int low = digit(hex.charAt(i - 1));
+            int high = i > 1 ? digit(hex.charAt(i - 2)) : 0;
+            buffer.put(--pos, (byte) ((high << 4) | low));
+        }
+        return this;
+    }
+
+    /**
+     * Writes indices in 1 byte for 0-127 and 2 bytes, with the top bit set, for 128-32767
+     */
+    public EthereumByteWriter writeCompressedIndices(int[] indices)
+    {
+        for (int i : indices)
+        {
+            if (i < 0 || i >= (1 << 15))
+            {
+                throw new IllegalArgumentException("Index out of representation range: " + i);
+            }
+            if (i < (1 << 7))
+            {
+                buffer.put((byte) i);
+            }
+            else
+            {
+                buffer.put((byte) ((i >> 8) | (1 << 7)));
+                buffer.put((byte) i);
+            }
+        }
+        return this;
+    }
+
+    /**
+     * Writes indices as big endian unsigned shorts
+     */
+    public EthereumByteWriter writeUnsignedShorts(int[] indices)
+    {
+        for (int i : indices)
+        {
+            buffer.putShort((short) i);
+        }
+        return this;
+    }
+
+    public EthereumByteWriter writeTokenIds(List<BigInteger> tokenIds)
+    {
+        for (BigInteger tokenId : tokenIds)
+        {
+            write32(tokenId);
+        }
+        return this;
+    }
+
+    /**
+     * Writes token ids, given as 32 byte integers like in a spawnable link, compressed as:
+     * 1 byte holding the amount of leading bytes all token ids share, at most 31
+     * those shared leading bytes
+     * per token id the zigzag encoded difference of its remaining low bytes to those of the previous
+     * token id, starting from 0, as a VarInt
+     * A range of consecutive token ids thus takes a single byte per token id.
+     */
+    public EthereumByteWriter writeCompressedTokenIds(byte[] tokenIds, int offset, int length)
+    {
+        int prefixLength = tokenIdPrefixLength(tokenIds, offset, length);
+        writeByte(prefixLength);
+        if (length > 0)
+        {
+            write(tokenIds, offset, prefixLength);
+        }
+        byte[] varInt = new byte[MAX_DELTA_LENGTH];
+        for (BigInteger delta : tokenIdDeltas(tokenIds, offset, length, prefixLength))
+        {
+            buffer.put(varInt, 0, VarInt.write(varInt, 0, delta));
+        }
+        return this;
+    }
+
+    /**
+     * Writes a wei value as 4 bytes of micro eth, capped at the largest value that fits
+     */
+    public EthereumByteWriter write4ByteMicroEth(BigInteger weiValue)
+    {
+        BigInteger microEth = Convert.fromWei(new BigDecimal(weiValue), Convert.Unit.SZABO).abs().toBigInteger();
+        long value = microEth.bitLength() > 32 ? MAX_MICRO_ETH : microEth.longValue();
+        return writeUnsigned4(value);
+    }
+
+    /**
+     * Returns the payload, which is the backing array itself if it was written entirely
+     */
+    public byte[] toByteArray()
+    {
+        if (buffer.hasArray() && buffer.arrayOffset() == 0 && buffer.position() == buffer.array().length)
+        {
+            return buffer.array();
+        }
+        byte[] res = new byte[buffer.position()];
+        ByteBuffer written = buffer.duplicate();
+        written.flip();
+        written.get(res);
+        return res;
+    }
+
+    private EthereumByteWriter writePadded(BigInteger value, int length)
+    {
+        byte[] bytes = value.toByteArray();
+        int srcOffset = bytes[0] == 0 ? 1 : 0;
+        int bytesLength = bytes.length - srcOffset;
+        if (bytesLength > length)
+        {
+            throw new RuntimeException("Input is too large to put in byte array of size " + length);
+        }
+        writeZeros(length - bytesLength);
+        buffer.put(bytes, srcOffset, bytesLength);
+        return this;
+    }
+
+    /**
+     * Returns the amount of leading bytes shared by all token ids, leaving at least one low byte
+     */
+    private static int tokenIdPrefixLength(byte[] tokenIds, int offset, int length)
+    {
+        if (length % EthereumByteReader.TOKEN_ID_LENGTH != 0)
+        {
+            throw new IllegalArgumentException("Token ids must be " + EthereumByteReader.TOKEN_ID_LENGTH + " bytes each");
+        }
+        if (length == 0)
+        {
+            return 0;
+        }
+        int res = EthereumByteReader.TOKEN_ID_LENGTH - 1;
+        for (int id = offset + EthereumByteReader.TOKEN_ID_LENGTH; id < offset + length; id += EthereumByteReader.TOKEN_ID_LENGTH)
+        {
+            int shared = 0;
+            while (shared < res && tokenIds[id + shared] == tokenIds[offset + shared])
+            {
+                shared++;
+            }
+            res = shared;
+        }
+        return res;
+    }
+
+    /**
+     * Returns the zigzag encoded differences between the low bytes of consecutive token ids
+     */
+    private static BigInteger[] tokenIdDeltas(byte[] tokenIds, int offset, int length, int prefixLength)
+    {
+        BigInteger[] res = new BigInteger[length / EthereumByteReader.TOKEN_ID_LENGTH];
+        int lowLength = EthereumByteReader.TOKEN_ID_LENGTH - prefixLength;
+        BigInteger previous = BigInteger.ZERO;
+        for (int i = 0; i < res.length; i++)
+        {
+            int id = offset + i * EthereumByteReader.TOKEN_ID_LENGTH;
+            BigInteger low = Numeric.toBigInt(tokenIds, id + prefixLength, lowLength);
+            BigInteger delta = low.subtract(previous);
+            res[i] = delta.signum() >= 0 ? delta.shiftLeft(1) : delta.negate().shiftLeft(1).subtract(BigInteger.ONE);
+            previous = low;
+        }
+        return res;
+    }
+
+    private static int digit(char c)
+    {
+        int res = Character.digit(c, 16);
+        if (res < 0)
+        {
+            throw new NumberFormatException("Invalid hex character " + c);
+        }
+        return res;
+    }
+}
@@ -1,5 +1,9 @@
 package com.alphawallet.token.entity;
 
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
 /**
  * Created by James on 2/03/2019.
  * Stormbird in Singapore
@@ -50,6 +54,27 @@ public class MagicLinkInfo
     public static final int ARTIS_SIGMA1_NETWORK_ID = 246529;
     public static final int ARTIS_TAU1_NETWORK_ID = 246785;
 
+    //network ids by magic link domain, such that the host of a link is resolved in one lookup
+    private static final Map<String, Integer> networkIdsByDomain;
+
+    static
+    {
+        Map<String, Integer> domains = new HashMap<>();
+        domains.put(mainnetMagicLinkDomain, MAINNET_NETWORK_ID);
+        domains.put(legacyMagicLinkDomain, LEGACY_VALUE);
+        domains.put(classicMagicLinkDomain, CLASSIC_NETWORK_ID);
+        domains.put(kovanMagicLinkDomain, KOVAN_NETWORK_ID);
+        domains.put(ropstenMagicLinkDomain, ROPSTEN_NETWORK_ID);
+        domains.put(rinkebyMagicLinkDomain, RINKEBY_NETWORK_ID);
+        domains.put(poaMagicLinkDomain, POA_NETWORK_ID);
+        domains.put(sokolMagicLinkDomain, SOKOL_NETWORK_ID);
+        domains.put(xDaiMagicLinkDomain, XDAI_NETWORK_ID);
+        domains.put(goerliMagicLinkDomain, GOERLI_NETWORK_ID);
+        domains.put(artisSigma1MagicLinkDomain, ARTIS_SIGMA1_NETWORK_ID);
+        domains.put(artisTau1MagicLinkDomain, ARTIS_TAU1_NETWORK_ID);
+        networkIdsByDomain = Collections.unmodifiableMap(domains);
+    }
+
     //network names
     private static final String ETHEREUM_NETWORK = "Ethereum";
     private static final String CLASSIC_NETWORK = "Ethereum Classic";
@@ -184,24 +209,39 @@ public class MagicLinkInfo
 
     public static int identifyChainId(String link)
     {
-        if (link == null || link.length() == 0) return 0;
-
-        int chainId = 0;
-        //split out the chainId from the magiclink
-        int index = link.indexOf(mainnetMagicLinkDomain);
-        int dSlash = link.indexOf("://");
-        int legacy = link.indexOf(legacyMagicLinkDomain);
-        //try new style link
-        if (index > 0 && dSlash > 0)
-        {
-            String domain = link.substring(dSlash+3, index + mainnetMagicLinkDomain.length());
-            chainId = getNetworkIdFromDomain(domain);
-        }
-        else if (legacy > 0)
+        String host = getHost(link);
+        if (host == null) return 0;
+
+        Integer chainId = getNetworkIdFromHost(host);
+        return chainId != null ? chainId : 0;
+    }
+
+    /**
+     * Returns the host of a link or URL prefix, i.e. the part after the scheme up to the first '/',
+     * or null if there is none
+     */
+    public static String getHost(String link)
+    {
+        if (link == null) return null;
+        int start = link.indexOf("://");
+        start = start < 0 ? 0 : start + 3;
+        int end = link.indexOf('/', start);
+        if (end < 0) end = link.length();
+        return end > start ? link.substring(start, end) : null;
+    }
+
+    /**
+     * Resolves the host of a magic link in a single lookup.
+     * Unknown subdomains of the main domain resolve to mainnet, like in getNetworkIdFromDomain.
+     * @return The network id, LEGACY_VALUE for the legacy domain or null if the host is not a magic link domain
+     */
+    public static Integer getNetworkIdFromHost(String host)
+    {
+        Integer chainId = networkIdsByDomain.get(host);
+        if (chainId == null && host.endsWith("." + mainnetMagicLinkDomain))
         {
-            chainId = 0;
+            chainId = MAINNET_NETWORK_ID;
         }
-
         return chainId;
     }
 
@@ -0,0 +1,64 @@
+package com.alphawallet.token.tools;
+
+import java.math.BigInteger;
+import java.security.SignatureException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import com.alphawallet.token.entity.CryptoFunctionsInterface;
+
+/**
+ * Wraps the platform's CryptoFunctionsInterface and caches the addresses it derives from recovered
+ * keys, such that the same owner is only hashed once when many of its links are parsed.
+ * All other functions are passed straight to the wrapped implementation.
+ */
+public class CachingCryptoFunctions implements CryptoFunctionsInterface
+{
+    /**
+     * The maximum amount of keys in the cache. When the cache is full it gets cleared.
+     */
+    public static final int MAX_CACHE_SIZE = 4096;
+
+    private final CryptoFunctionsInterface crypto;
+    private final Map<BigInteger, String> addresses = new ConcurrentHashMap<>();
+
+    public CachingCryptoFunctions(CryptoFunctionsInterface crypto)
+    {
+        this.crypto = crypto;
+    }
+
+    @Override
+    public byte[] Base64Decode(String message)
+    {
+        return crypto.Base64Decode(message);
+    }
+
+    @Override
+    public byte[] Base64Encode(byte[] data)
+    {
+        return crypto.Base64Encode(data);
+    }
+
+    @Override
+    public BigInteger signedMessageToKey(byte[] data, byte[] signature) throws SignatureException
+    {
+        return crypto.signedMessageToKey(data, signature);
+    }
+
+    @Override
+    public String getAddressFromKey(BigInteger recoveredKey)
+    {
+        String address = addresses.get(recoveredKey);
+        if (address == null)
+        {
+            address = crypto.getAddressFromKey(recoveredKey);
+            //null can't be cached, and means the implementation failed
+            if (address != null)
+            {
+                if (addresses.size() >= MAX_CACHE_SIZE) addresses.clear();
+                addresses.put(recoveredKey, address);
+            }
+        }
+        return address;
+    }
+}
@@ -0,0 +1,253 @@
+package com.alphawallet.token.tools;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+
+import com.alphawallet.attestation.core.Base64Url;
+import com.alphawallet.token.entity.EthereumByteReader;
+import com.alphawallet.token.entity.EthereumByteWriter;
+import com.alphawallet.token.entity.SalesOrderMalformed;
+
+/**
+ * Generates the magic links for many orders of the same contract at once, e.g. a link per buyer.
+ * The trade bytes of all orders are written into one buffer and signed in parallel, after which
+ * the links are Base64 encoded into one more buffer and written out in one go, one link per line.
+ * The buffers are kept for the next batch, such that hardly anything is allocated per link.
+ *
+ * The links are always encoded with the URL safe alphabet and '=' padding, as by
+ * java.util.Base64.getUrlEncoder(), rather than through the CryptoFunctionsInterface of the parser.
+ * They are only identical to those of ParseMagicLink.generateUniversalLink if the platform encodes
+ * the same way, but any parser accepting URL safe Base64 decodes them to the same order.
+ */
+public class MagicLinkBatchGenerator
+{
+    public interface Signer
+    {
+        /**
+         * Signs the trade bytes of an order, which are in message from offset to offset + length.
+         * Called concurrently from several threads.
+         * @return The 65 byte signature
+         */
+        byte[] sign(byte[] message, int offset, int length);
+    }
+
+    public static class Order
+    {
+        public final int[] indices;
+        public final BigInteger priceWei;
+        public final long expiry;
+
+        public Order(int[] indices, BigInteger priceWei, long expiry)
+        {
+            this.indices = indices;
+            this.priceWei = priceWei;
+            this.expiry = expiry;
+        }
+    }
+
+    private final byte[] prefix;
+    private final byte[] contractAddress;
+    private final Signer signer;
+    private final Executor executor;
+    private final int parts;
+
+    // Reused between batches
+    private byte[] messages = new byte[0];
+    private byte[] links = new byte[0];
+    private byte[] encoded = new byte[0];
+    private int[] messageOffsets = new int[0];
+    private int[] linkOffsets = new int[0];
+
+    /**
+     * Signs all orders on the calling thread
+     */
+    public MagicLinkBatchGenerator(ParseMagicLink parser, int chainId, String contractAddress, Signer signer)
+    {
+        this(parser, chainId, contractAddress, signer, Runnable::run, 1);
+    }
+
+    /**
+     * @param executor Runs the signing, the caller remains responsible for shutting it down
+     * @param parts The amount of parts each batch is split into to sign in parallel, e.g. the
+     *              amount of threads of the executor
+     */
+    public MagicLinkBatchGenerator(ParseMagicLink parser, int chainId, String contractAddress, Signer signer,
+                                   Executor executor, int parts)
+    {
+        if (parts < 1)
+        {
+            throw new IllegalArgumentException("At least one part is needed");
+        }
+        this.prefix = parser.getLinkPrefix(chainId).getBytes(StandardCharsets.US_ASCII);
+        this.contractAddress = new EthereumByteWriter(EthereumByteReader.ADDRESS_LENGTH)
+                .writeAddress(contractAddress)
+                .toByteArray();
+        this.signer = signer;
+        this.executor = executor;
+        this.parts = parts;
+    }
+
+    /**
+     * Writes the links of the orders to a file, one per line and in the same order as the orders
+     */
+    public void generate(List<Order> orders, Path file) throws IOException, SalesOrderMalformed
+    {
+        try (OutputStream out = Files.newOutputStream(file))
+        {
+            generate(orders, out);
+        }
+    }
+
+    /**
+     * Writes the links of the orders to out, one per line and in the same order as the orders
+     * @return The amount of bytes written
+     */
+    public synchronized int generate(List<Order> orders, OutputStream out) throws IOException, SalesOrderMalformed
+    {
+        layout(orders);
+        writeMessages(orders);
+        sign(orders.size());
+        int length = encode(orders.size());
+        out.write(encoded, 0, length);
+        return length;
+    }
+
+    /**
+     * Computes where the trade bytes and link of each order go and makes room for them
+     */
+    private void layout(List<Order> orders) throws SalesOrderMalformed
+    {
+        int count = orders.size();
+        if (messageOffsets.length < count + 1)
+        {
+            messageOffsets = new int[count + 1];
+            linkOffsets = new int[count + 1];
+        }
+        int messagesLength = 0;
+        int linksLength = 0;
+        int encodedLength = 0;
+        for (int i = 0; i < count; i++)
+        {
+            Order order = orders.get(i);
+            if (order.priceWei.compareTo(ParseMagicLink.maxPrice) > 0)
+            {
+                throw new SalesOrderMalformed("Order's price too high to be used in a link");
+            }
+            for (int index : order.indices)
+            {
+                if (index < 0 || index >= (1 << 15))
+                {
+                    throw new SalesOrderMalformed("Index out of representation range: " + index);
+                }
+            }
+            messageOffsets[i] = messagesLength;
+            linkOffsets[i] = linksLength;
+            messagesLength += ParseMagicLink.TRADE_HEADER_LENGTH + 2 * order.indices.length;
+            int linkLength = ParseMagicLink.LINK_HEADER_LENGTH + EthereumByteWriter.compressedIndicesLength(order.indices)
+                    + EthereumByteReader.SIGNATURE_LENGTH;
+            linksLength += linkLength;
+            encodedLength += prefix.length + Base64Url.encodedLength(linkLength) + 1;
+        }
+        messageOffsets[count] = messagesLength;
+        linkOffsets[count] = linksLength;
+        if (messages.length < messagesLength) messages = new byte[messagesLength];
+        if (links.length < linksLength) links = new byte[linksLength];
+        if (encoded.length < encodedLength) encoded = new byte[encodedLength];
+    }
+
+    /**
+     * Writes the trade bytes and the unsigned link of each order, the same as getTradeBytes and
+     * generateLeadingLinkBytes
+     */
+    private void writeMessages(List<Order> orders)
+    {
+        EthereumByteWriter messageWriter = new EthereumByteWriter(ByteBuffer.wrap(messages));
+        EthereumByteWriter linkWriter = new EthereumByteWriter(ByteBuffer.wrap(links));
+        for (int i = 0; i < orders.size(); i++)
+        {
+            Order order = orders.get(i);
+            messageWriter.write32(order.priceWei)
+                    .write32(order.expiry)
+                    .write(contractAddress)
+                    .writeUnsignedShorts(order.indices);
+            linkWriter.writeByte(ParseMagicLink.normal)
+                    .write4ByteMicroEth(order.priceWei)
+                    .writeUnsigned4(order.expiry)
+                    .write(contractAddress)
+                    .writeCompressedIndices(order.indices)
+                    .writeZeros(EthereumByteReader.SIGNATURE_LENGTH);
+        }
+    }
+
+    /**
+     * Signs the orders in consecutive parts in parallel, putting each signature at the end of its link
+     */
+    private void sign(int count)
+    {
+        int parts = Math.min(this.parts, count);
+        if (parts <= 1)
+        {
+            signRange(0, count);
+            return;
+        }
+        try
+        {
+            CompletableFuture<?>[] futures = new CompletableFuture<?>[parts];
+            for (int i = 0; i < parts; i++)
+            {
+                int from = count * i / parts;
+                int to = count * (i + 1) / parts;
+                futures[i] = CompletableFuture.runAsync(() -> signRange(from, to), executor);
+            }
+            CompletableFuture.allOf(futures).get();
+        }
+        catch (InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException(e);
+        }
+        catch (ExecutionException e)
+        {
+            throw new RuntimeException(e.getCause());
+        }
+    }
+
+    private void signRange(int from, int to)
+    {
+        for (int i = from; i < to; i++)
+        {
+            byte[] signature = signer.sign(messages, messageOffsets[i], messageOffsets[i + 1] - messageOffsets[i]);
+            if (signature.length != EthereumByteReader.SIGNATURE_LENGTH)
+            {
+                throw new IllegalArgumentException("Signature must be " + EthereumByteReader.SIGNATURE_LENGTH + " bytes");
+            }
+            System.arraycopy(signature, 0, links, linkOffsets[i + 1] - signature.length, signature.length);
+        }
+    }
+
+    /**
+     * Encodes the links into lines with the prefix
+     * @return The length of the encoded links
+     */
+    private int encode(int count)
+    {
+        int pos = 0;
+        for (int i = 0; i < count; i++)
+        {
+            System.arraycopy(prefix, 0, encoded, pos, prefix.length);
+            pos += prefix.length;
+            pos += Base64Url.encode(links, linkOffsets[i], linkOffsets[i + 1] - linkOffsets[i], encoded, pos, (byte) '=');
+            encoded[pos++] = '\n';
+        }
+        return pos;
+    }
+}
@@ -0,0 +1,197 @@
+package com.alphawallet.token.tools;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.function.Consumer;
+import java.util.function.LongSupplier;
+
+import com.alphawallet.token.entity.MagicLinkData;
+import com.alphawallet.token.entity.SalesOrderMalformed;
+
+/**
+ * Validates many sales order magic links at once, e.g. when ingesting links in bulk.
+ * Each link passes through stages which run on the given executor: parsing, discarding expired
+ * orders such that no EC work is spent on them, and recovering the owner followed by
+ * MagicLinkData.isValidOrder. Identical links within a batch are only validated once.
+ * Set an OwnerKeyCache on the parser to also skip recovery for links seen in earlier batches.
+ */
+public class MagicLinkBatchValidator
+{
+    public enum Status
+    {
+        VALID,
+        /** The owner could not be recovered or the order is incomplete */
+        INVALID,
+        EXPIRED,
+        MALFORMED
+    }
+
+    public static class Result
+    {
+        /** The position of the link in the batch */
+        public final int index;
+        public final String link;
+        public final Status status;
+        /** The parsed order, or null if the link is malformed. Shared between identical links */
+        public final MagicLinkData data;
+
+        private Result(int index, String link, Outcome outcome)
+        {
+            this.index = index;
+            this.link = link;
+            this.status = outcome.status;
+            this.data = outcome.data;
+        }
+
+        public boolean isValid()
+        {
+            return status == Status.VALID;
+        }
+    }
+
+    private final ParseMagicLink parser;
+    private final Executor executor;
+    private final LongSupplier clock;
+
+    /**
+     * @param executor Runs the stages, the caller remains responsible for shutting it down
+     */
+    public MagicLinkBatchValidator(ParseMagicLink parser, Executor executor)
+    {
+        this(parser, executor, () -> System.currentTimeMillis() / 1000);
+    }
+
+    /**
+     * @param clock Supplies the current time in seconds since the epoch, like MagicLinkData.expiry
+     */
+    MagicLinkBatchValidator(ParseMagicLink parser, Executor executor, LongSupplier clock)
+    {
+        this.parser = parser;
+        this.executor = executor;
+        this.clock = clock;
+    }
+
+    /**
+     * Validates all the links
+     * @return The result of each link, in the same order as the links
+     */
+    public List<Result> validate(List<String> links)
+    {
+        List<Result> res = new ArrayList<>(links.size());
+        validate(links, res::add, true);
+        return res;
+    }
+
+    /**
+     * Validates all the links and passes each result to consumer, returning once all results have
+     * been passed on
+     * @param inOrder Whether to pass the results on in the same order as the links, from the calling
+     *                thread, or as soon as they are completed, from the threads of the executor.
+     *                The consumer is never called concurrently in either case.
+     */
+    public void validate(List<String> links, Consumer<Result> consumer, boolean inOrder)
+    {
+        List<CompletableFuture<Result>> results = submit(links);
+        try
+        {
+            if (inOrder)
+            {
+                for (CompletableFuture<Result> result : results)
+                {
+                    consumer.accept(result.get());
+                }
+            }
+            else
+            {
+                List<CompletableFuture<Void>> delivered = new ArrayList<>(results.size());
+                for (CompletableFuture<Result> result : results)
+                {
+                    delivered.add(result.thenAccept(current -> {
+                        synchronized (consumer)
+                        {
+                            consumer.accept(current);
+                        }
+                    }));
+                }
+                CompletableFuture.allOf(delivered.toArray(new CompletableFuture<?>[0])).get();
+            }
+        }
+        catch (InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException(e);
+        }
+        catch (ExecutionException e)
+        {
+            throw new RuntimeException(e.getCause());
+        }
+    }
+
+    private List<CompletableFuture<Result>> submit(List<String> links)
+    {
+        long now = clock.getAsLong();
+        Map<String, CompletableFuture<Outcome>> unique = new HashMap<>();
+        List<CompletableFuture<Result>> res = new ArrayList<>(links.size());
+        for (int i = 0; i < links.size(); i++)
+        {
+            int index = i;
+            String link = links.get(i);
+            CompletableFuture<Outcome> outcome = unique.get(link);
+            if (outcome == null)
+            {
+                outcome = CompletableFuture.supplyAsync(() -> parse(link, now), executor)
+                        .thenCompose(this::recover);
+                unique.put(link, outcome);
+            }
+            res.add(outcome.thenApply(current -> new Result(index, link, current)));
+        }
+        return res;
+    }
+
+    /**
+     * Parses a link and discards it if it has expired, such that it is not recovered
+     */
+    private Outcome parse(String link, long now)
+    {
+        MagicLinkData data;
+        try
+        {
+            data = parser.parseUniversalLink(link);
+        }
+        catch (SalesOrderMalformed e)
+        {
+            return new Outcome(Status.MALFORMED, null);
+        }
+        return new Outcome(data.expiry <= now ? Status.EXPIRED : null, data);
+    }
+
+    private CompletableFuture<Outcome> recover(Outcome parsed)
+    {
+        if (parsed.status != null)
+        {
+            return CompletableFuture.completedFuture(parsed);
+        }
+        return CompletableFuture.supplyAsync(() -> {
+            parser.getOwnerKey(parsed.data);
+            return new Outcome(parsed.data.isValidOrder() ? Status.VALID : Status.INVALID, parsed.data);
+        }, executor);
+    }
+
+    private static class Outcome
+    {
+        /** null while the link still has to be recovered */
+        private final Status status;
+        private final MagicLinkData data;
+
+        private Outcome(Status status, MagicLinkData data)
+        {
+            this.status = status;
+            this.data = data;
+        }
+    }
+}
@@ -0,0 +1,208 @@
+package com.alphawallet.token.tools;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+/**
+ * Bounded cache of owner addresses recovered from magic links, keyed by the signed message and the
+ * signature, such that links which are processed repeatedly, e.g. when balances change, only need
+ * a single ecrecover.
+ * An entry is kept until the expiry of its link, after which the link cannot be used anyway. When
+ * the cache is full, expired entries are dropped first and then those that expire soonest.
+ * Hits, misses and evictions are counted for monitoring.
+ */
+public class OwnerKeyCache
+{
+    private final int maxEntries;
+    private final LongSupplier clock;
+    private final Map<Key, Entry> entries = new ConcurrentHashMap<>();
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder expired = new LongAdder();
+    private final LongAdder evicted = new LongAdder();
+
+    /**
+     * @param maxEntries The maximum amount of owner addresses to keep
+     */
+    public OwnerKeyCache(int maxEntries)
+    {
+        this(maxEntries, () -> System.currentTimeMillis() / 1000);
+    }
+
+    /**
+     * @param clock Supplies the current time in seconds since the epoch, like MagicLinkData.expiry
+     */
+    OwnerKeyCache(int maxEntries, LongSupplier clock)
+    {
+        if (maxEntries < 1)
+        {
+            throw new IllegalArgumentException("The cache must be able to hold an entry");
+        }
+        this.maxEntries = maxEntries;
+        this.clock = clock;
+    }
+
+    /**
+     * Returns the owner address recovered from a link, or null if it is not cached or the link has
+     * expired
+     */
+    public String get(byte[] message, byte[] signature)
+    {
+        Key key = new Key(message, signature, false);
+        Entry entry = entries.get(key);
+        if (entry != null && entry.expiry <= clock.getAsLong())
+        {
+            if (entries.remove(key, entry)) expired.increment();
+            entry = null;
+        }
+        if (entry == null)
+        {
+            misses.increment();
+            return null;
+        }
+        hits.increment();
+        return entry.ownerAddress;
+    }
+
+    /**
+     * Caches the owner address recovered from a link until the link expires.
+     * Links that have already expired are not cached.
+     * @param expiry The expiry of the link in seconds since the epoch
+     */
+    public void put(byte[] message, byte[] signature, long expiry, String ownerAddress)
+    {
+        long now = clock.getAsLong();
+        if (expiry <= now)
+        {
+            return;
+        }
+        entries.put(new Key(message, signature, true), new Entry(ownerAddress, expiry));
+        if (entries.size() > maxEntries)
+        {
+            evict(now);
+        }
+    }
+
+    /**
+     * Drops expired entries and, if the cache is still full, those that expire soonest until a
+     * tenth of the cache is free, such that eviction does not happen on every insertion
+     */
+    private synchronized void evict(long now)
+    {
+        if (entries.size() <= maxEntries)
+        {
+            return;
+        }
+        List<Map.Entry<Key, Entry>> remaining = new ArrayList<>(entries.size());
+        for (Map.Entry<Key, Entry> current : entries.entrySet())
+        {
+            if (current.getValue().expiry <= now)
+            {
+                if (entries.remove(current.getKey(), current.getValue())) expired.increment();
+            }
+            else
+            {
+                remaining.add(current);
+            }
+        }
+        int target = maxEntries - maxEntries / 10;
+        if (remaining.size() > target)
+        {
+            remaining.sort(Comparator.comparingLong(current -> current.getValue().expiry));
+            for (int i = 0; i < remaining.size() - target; i++)
+            {
+                Map.Entry<Key, Entry> current = remaining.get(i);
+                if (entries.remove(current.getKey(), current.getValue())) evicted.increment();
+            }
+        }
+    }
+
+    public int size()
+    {
+        return entries.size();
+    }
+
+    public void clear()
+    {
+        entries.clear();
+    }
+
+    public long getHits()
+    {
+        return hits.sum();
+    }
+
+    public long getMisses()
+    {
+        return misses.sum();
+    }
+
+    /**
+     * Returns the amount of entries dropped because their link expired
+     */
+    public long getExpired()
+    {
+        return expired.sum();
+    }
+
+    /**
+     * Returns the amount of entries dropped because the cache was full
+     */
+    public long getEvicted()
+    {
+        return evicted.sum();
+    }
+
+    private static class Entry
+    {
+        private final String ownerAddress;
+        private final long expiry;
+
+        private Entry(String ownerAddress, long expiry)
+        {
+            this.ownerAddress = ownerAddress;
+            this.expiry = expiry;
+        }
+    }
+
+    /**
+     * The message and signature of a link
+     */
+    private static class Key
+    {
+        private final byte[] message;
+        private final byte[] signature;
+        private final int hash;
+
+        /**
+         * @param copy Whether to copy the arrays, which is needed for keys that are stored such that
+         *             later changes to the link data do not affect the cache
+         */
+        private Key(byte[] message, byte[] signature, boolean copy)
+        {
+            this.message = copy ? message.clone() : message;
+            this.signature = copy ? signature.clone() : signature;
+            this.hash = 31 * Arrays.hashCode(message) + Arrays.hashCode(signature);
+        }
+
+        @Override
+        public boolean equals(Object other)
+        {
+            if (!(other instanceof Key)) return false;
+            Key key = (Key) other;
+            return hash == key.hash && Arrays.equals(message, key.message) && Arrays.equals(signature, key.signature);
+        }
+
+        @Override
+        public int hashCode()
+        {
+            return hash;
+        }
+    }
+}
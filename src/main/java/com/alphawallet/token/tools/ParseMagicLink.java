@@ -1,8 +1,6 @@
 package com.alphawallet.token.tools;
 
-import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
-import java.io.DataOutputStream;
 import java.io.IOException;
 import java.math.BigDecimal;
 import java.math.BigInteger;
@@ -12,15 +10,13 @@ import java.util.Map;
 
 import com.alphawallet.token.entity.*;
 
-import static com.alphawallet.token.entity.MagicLinkInfo.mainnetMagicLinkDomain;
-
 /**
  * Created by James on 21/02/2018.
  */
 
 public class ParseMagicLink
 {
-    private final static BigInteger maxPrice = Convert.toWei(BigDecimal.valueOf(0xFFFFFFFFL),
+    final static BigInteger maxPrice = Convert.toWei(BigDecimal.valueOf(0xFFFFFFFFL),
             Convert.Unit.SZABO).toBigInteger();
 
     //link formats
@@ -29,19 +25,27 @@ public class ParseMagicLink
     public static final byte spawnable = 0x02;
     public static final byte customizable = 0x03;
     public static final byte currencyLink = 0x04;
+    //spawnable with the token ids compressed, see EthereumByteWriter.writeCompressedTokenIds
+    public static final byte compressedSpawnable = 0x05;
 
     private static final String CURRENCY_LINK_PREFIX = "XDAIDROP";
+    //price, expiry and contract address at the start of the trade bytes
+    static final int TRADE_HEADER_LENGTH = 32 + 32 + EthereumByteReader.ADDRESS_LENGTH;
+    //type, micro eth price, expiry and contract address at the start of a link
+    static final int LINK_HEADER_LENGTH = 1 + 4 + 4 + EthereumByteReader.ADDRESS_LENGTH;
     private CryptoFunctionsInterface cryptoInterface;
 
     private Map<Integer, ChainSpec> extraChains;
+    //chain ids by the host of their url prefix, consulted before the built in domains
+    private final Map<String, Integer> extraChainHosts = new HashMap<>();
+    private volatile OwnerKeyCache ownerKeyCache;
 
     public ParseMagicLink(CryptoFunctionsInterface cryptInf, List<ChainSpec> chains)
     {
         cryptoInterface = cryptInf;
         if (chains != null)
         {
-            extraChains = new HashMap<>();
-            for (ChainSpec cs : chains) extraChains.put(cs.chainId, cs);
+            for (ChainSpec cs : chains) addChain(cs);
         }
     }
 
@@ -49,25 +53,22 @@ public class ParseMagicLink
     {
         if (extraChains == null) extraChains = new HashMap<>();
         extraChains.put(chain.chainId, chain);
+        String host = MagicLinkInfo.getHost(chain.urlPrefix);
+        if (host != null) extraChainHosts.put(host, chain.chainId);
     }
 
     public MessageData readByteMessage(byte[] message, byte[] sig, int ticketCount) throws SalesOrderMalformed
     {
-        MessageData data = new MessageData();
-        ByteArrayInputStream bas = new ByteArrayInputStream(message);
-        try {
-            EthereumReadBuffer ds = new EthereumReadBuffer(bas);
-            data.priceWei = ds.readBI();
-            ds.readBI();
-            ds.readAddress();
-            data.tickets = new int[ticketCount];
-            ds.readUnsignedShort(data.tickets);
-            System.arraycopy(sig, 0, data.signature, 0, 65);
-            ds.close();
-        }
-        catch(IOException e) {
+        //the expiry and contract are skipped rather than decoded
+        if (ticketCount < 0 || message.length < SalesOrderReader.INDICES_OFFSET + 2 * ticketCount)
+        {
             throw new SalesOrderMalformed();
         }
+        MessageData data = new MessageData();
+        data.priceWei = SalesOrderReader.readPriceWei(message, 0);
+        data.tickets = new int[ticketCount];
+        SalesOrderReader.readIndices(message, 0, ticketCount, data.tickets, 0);
+        System.arraycopy(sig, 0, data.signature, 0, 65);
         return data;
     }
 
@@ -93,91 +94,79 @@ public class ParseMagicLink
 
     public MagicLinkData parseUniversalLink(String link) throws SalesOrderMalformed
     {
-        int chainId = MagicLinkInfo.identifyChainId(link);
-        String magicLinkUrlPrefix = MagicLinkInfo.getMagicLinkDomainFromNetworkId(chainId);
-        if (chainId == 0 && extraChains != null)
-        {
-            chainId = identifyChain(link);
-            if (chainId > 0) magicLinkUrlPrefix = extraChains.get(chainId).urlPrefix;
-        }
-
-        int offset = link.indexOf(magicLinkUrlPrefix);
-        if (offset > -1)
-        {
-            offset += magicLinkUrlPrefix.length() + 1;
-            String linkData = link.substring(offset);
-            return getMagicLinkDataFromURL(linkData, chainId);
-        }
-        else
+        //resolve the host of the link once, the encoded order follows the '/' after it
+        int hostStart = link.indexOf("://");
+        int hostEnd = hostStart < 0 ? -1 : link.indexOf('/', hostStart + 3);
+        if (hostEnd < 0)
         {
             throw new SalesOrderMalformed("Invalid link format");
         }
-    }
-
-    private int identifyChain(String link)
-    {
-        int dSlash = link.indexOf("://");
-        int chainId = 0;
-        //split out the chainId from the magiclink
-        int index = link.indexOf(mainnetMagicLinkDomain);
-
-        if (index > 0 && dSlash > 0)
+        String host = link.substring(hostStart + 3, hostEnd);
+        Integer chainId = extraChainHosts.get(host);
+        if (chainId == null) chainId = MagicLinkInfo.getNetworkIdFromHost(host);
+        if (chainId == null)
         {
-            String domain = link.substring(dSlash+3, index + mainnetMagicLinkDomain.length());
-            for (ChainSpec cs : extraChains.values())
-            {
-                int prefix = link.indexOf(cs.urlPrefix);
-                if (prefix > 0)
-                {
-                    chainId = cs.chainId;
-                    break;
-                }
-            }
+            throw new SalesOrderMalformed("Invalid link format");
         }
-
-        return chainId;
+        return getMagicLinkDataFromURL(link.substring(hostEnd + 1), chainId);
     }
 
-    private MagicLinkData getDataFromLinks(MagicLinkData data, EthereumReadBuffer ds) throws IOException
+    private MagicLinkData getDataFromLinks(MagicLinkData data, byte[] fullOrder, EthereumByteReader ds) throws IOException
     {
-        long szabo = ds.toUnsignedLong(ds.readInt());
-        data.expiry = ds.toUnsignedLong(ds.readInt());
+        long szabo = ds.readUnsigned4();
+        data.expiry = ds.readUnsigned4();
         data.priceWei = Convert.toWei(BigDecimal.valueOf(szabo), Convert.Unit.SZABO).toBigInteger();
         data.contractAddress = ds.readAddress();
+        byte[] tokenIds = fullOrder;
+        int tokenIdsStart = ds.position();
+        int tokenIdsLength = ds.remaining() - EthereumByteReader.SIGNATURE_LENGTH;
         switch (data.contractType)
         {
             case spawnable:
-                data.tokenIds = ds.readTokenIdsFromSpawnableLink(ds.available() - 65);
+                data.tokenIds = ds.readTokenIds(tokenIdsLength);
+                data.ticketCount = data.tokenIds.size();
+                break;
+            case compressedSpawnable:
+                tokenIds = ds.readCompressedTokenIds(tokenIdsLength);
+                tokenIdsStart = 0;
+                tokenIdsLength = tokenIds.length;
+                data.tokenIds = new EthereumByteReader(tokenIds).readTokenIds(tokenIdsLength);
                 data.ticketCount = data.tokenIds.size();
                 break;
             default:
-                data.indices = ds.readCompressedIndices(ds.available() - 65);
+                data.indices = ds.readCompressedIndices(tokenIdsLength);
                 data.ticketCount = data.indices.length;
                 break;
         }
 
         //now read signature
         ds.readSignature(data.signature);
-        ds.close();
         //now we have to build the message that the contract is expecting the signature for
-        data.message = getTradeBytes(data);
+        if (data.contractType == spawnable || data.contractType == compressedSpawnable)
+        {
+            //the token ids are signed as 32 byte integers, exactly as they appear in a spawnable link
+            data.message = getSpawnableBytes(tokenIds, tokenIdsStart, tokenIdsLength, data.contractAddress, data.priceWei, data.expiry);
+        }
+        else
+        {
+            data.message = getTradeBytes(data);
+        }
         BigInteger microEth = Convert.fromWei(new BigDecimal(data.priceWei), Convert.Unit.SZABO).abs().toBigInteger();
         data.price = microEth.doubleValue() / 1000000.0;
         return data;
     }
 
     //Note: currency links handle the unit in szabo directly, no need to parse to wei or vice versa
-    private MagicLinkData parseCurrencyLinks(MagicLinkData data, EthereumReadBuffer ds) throws IOException
+    private MagicLinkData parseCurrencyLinks(MagicLinkData data, EthereumByteReader ds) throws IOException
     {
         data.prefix = ds.readBytes(8);
         data.nonce = ds.readBI(4);
         data.amount = ds.readBI(4);
-        data.expiry = ds.toUnsignedLong(ds.readInt());
+        data.expiry = ds.readUnsigned4();
         data.contractAddress = ds.readAddress();
         data.priceWei = BigInteger.ZERO;
         data.price = 0;
         ds.readSignature(data.signature);
-        ds.close();
         //now we have to build the message that the contract is expecting the signature for
         data.message = getTradeBytes(data);
         return data;
@@ -191,8 +180,7 @@ public class ParseMagicLink
         try
         {
             byte[] fullOrder = cryptoInterface.Base64Decode(linkData);
-            ByteArrayInputStream bas = new ByteArrayInputStream(fullOrder);
-            EthereumReadBuffer ds = new EthereumReadBuffer(bas);
+            EthereumByteReader ds = new EthereumByteReader(fullOrder);
             data.contractType = ds.readByte();
 
             switch (data.contractType)
@@ -203,11 +191,12 @@ public class ParseMagicLink
                 case normal:
                 case spawnable:
                 case customizable:
-                    return getDataFromLinks(data, ds);
+                case compressedSpawnable:
+                    return getDataFromLinks(data, fullOrder, ds);
                 case currencyLink:
                     return parseCurrencyLinks(data, ds);
                 default:
-                    return getDataFromLinks(data, ds);
+                    return getDataFromLinks(data, fullOrder, ds);
             }
         } catch (Exception e) {
             data.chainId = 0;
@@ -221,10 +210,23 @@ public class ParseMagicLink
      * @return string address of the owner
      */
     public String getOwnerKey(MagicLinkData data) {
+        if (ownerKeyCache != null)
+        {
+            String cached = ownerKeyCache.get(data.message, data.signature);
+            if (cached != null)
+            {
+                data.ownerAddress = cached;
+                return cached;
+            }
+        }
         data.ownerAddress = "0x";
         try {
             BigInteger recoveredKey = cryptoInterface.signedMessageToKey(data.message, data.signature);
             data.ownerAddress += cryptoInterface.getAddressFromKey(recoveredKey);
+            if (ownerKeyCache != null)
+            {
+                ownerKeyCache.put(data.message, data.signature, data.expiry, data.ownerAddress);
+            }
         }
         catch (Exception e)
         {
@@ -233,6 +235,20 @@ public class ParseMagicLink
         return data.ownerAddress;
     }
 
+    /**
+     * Caches the owner addresses recovered by getOwnerKey, for links that are processed repeatedly
+     * @param cache The cache to use, or null to recover the owner every time
+     */
+    public void setOwnerKeyCache(OwnerKeyCache cache)
+    {
+        ownerKeyCache = cache;
+    }
+
+    public OwnerKeyCache getOwnerKeyCache()
+    {
+        return ownerKeyCache;
+    }
+
     private byte[] getTradeBytes(MagicLinkData data)
     {
         switch (data.contractType)
@@ -242,6 +258,7 @@ public class ParseMagicLink
             case customizable:
                 return getTradeBytes(data.indices, data.contractAddress, data.priceWei, data.expiry);
             case spawnable:
+            case compressedSpawnable:
                 return getSpawnableBytes(data.tokenIds, data.contractAddress, data.priceWei, data.expiry);
             case currencyLink:
                 return getCurrencyBytes(data.contractAddress, data.amount, data.expiry, data.nonce.longValue());//data.formCurrencyDropLinkMessage();
@@ -252,65 +269,43 @@ public class ParseMagicLink
 
     public byte[] getSpawnableBytes(List<BigInteger> tokenIds, String contractAddress, BigInteger priceWei, long expiry)
     {
-        try {
-            //form the transaction we need to push to buy
-            //trade bytes
-            ByteArrayOutputStream buffer = new ByteArrayOutputStream();
-            DataOutputStream ds = new DataOutputStream(buffer);
-
-            UnsignedLong expiryUL = UnsignedLong.create(expiry);
-
-            BigInteger addrBI = new BigInteger(Numeric.cleanHexPrefix(contractAddress), 16);
-            ds.write(Numeric.toBytesPadded(priceWei, 32));
-            ds.write(Numeric.toBytesPadded(expiryUL, 32));
-            ds.write(Numeric.toBytesPadded(addrBI, 20));
+        //form the transaction we need to push to buy
+        //trade bytes
+        return tradeHeader(TRADE_HEADER_LENGTH + tokenIds.size() * EthereumByteReader.TOKEN_ID_LENGTH, contractAddress, priceWei, expiry)
+                .writeTokenIds(tokenIds)
+                .toByteArray();
+    }
 
-            for (BigInteger tokenId : tokenIds)
-            {
-                ds.write(Numeric.toBytesPadded(tokenId, 32));
-            }
-            ds.flush();
-            ds.close();
-            return buffer.toByteArray();
-        }
-        catch (IOException e)
-        {
-            e.printStackTrace();
-            return null;
-        }
+    /**
+     * Same as getSpawnableBytes(List, String, BigInteger, long) for token ids that are already
+     * encoded as 32 byte integers, e.g. in a link, which are copied as they are
+     */
+    public byte[] getSpawnableBytes(byte[] tokenIds, int offset, int length, String contractAddress, BigInteger priceWei, long expiry)
+    {
+        return tradeHeader(TRADE_HEADER_LENGTH + length, contractAddress, priceWei, expiry)
+                .write(tokenIds, offset, length)
+                .toByteArray();
     }
 
     public byte[] getTradeBytes(int[] ticketSendIndexList, String contractAddress, BigInteger priceWei, long expiry)
     {
-        try {
-            //form the transaction we need to push to buy
-            //trade bytes
-            ByteArrayOutputStream buffer = new ByteArrayOutputStream();
-            DataOutputStream ds = new DataOutputStream(buffer);
-
-            UnsignedLong expiryUL = UnsignedLong.create(expiry);
-
-            BigInteger addrBI = new BigInteger(Numeric.cleanHexPrefix(contractAddress), 16);
-            ds.write(Numeric.toBytesPadded(priceWei, 32));
-            ds.write(Numeric.toBytesPadded(expiryUL, 32));
-            ds.write(Numeric.toBytesPadded(addrBI, 20));
+        //form the transaction we need to push to buy
+        //trade bytes
+        return tradeHeader(TRADE_HEADER_LENGTH + 2 * ticketSendIndexList.length, contractAddress, priceWei, expiry)
+                .writeUnsignedShorts(ticketSendIndexList)
+                .toByteArray();
+    }
 
-            byte[] uint16 = new byte[2];
-            for (int i : ticketSendIndexList) {
-                //write big endian encoding
-                uint16[0] = (byte) (i >> 8);
-                uint16[1] = (byte) (i & 0xFF);
-                ds.write(uint16);
-            }
-            ds.flush();
-            ds.close();
-            return buffer.toByteArray();
-        }
-        catch (IOException e)
-        {
-            e.printStackTrace();
-            return null;
-        }
+    /**
+     * Writes the price, expiry and contract address which start the trade bytes into a writer
+     * for length bytes
+     */
+    private static EthereumByteWriter tradeHeader(int length, String contractAddress, BigInteger priceWei, long expiry)
+    {
+        return new EthereumByteWriter(length)
+                .write32(priceWei)
+                .write32(expiry)
+                .writeAddress(contractAddress);
     }
 
     /**
@@ -336,39 +331,51 @@ public class ParseMagicLink
             long expiry
     ) throws SalesOrderMalformed
     {
+        if (priceWei.compareTo(maxPrice) > 0) {
+            throw new SalesOrderMalformed("Order's price too high to be used in a link");
+        }
+        byte[] encodedTokenIds = null;
+        int length = LINK_HEADER_LENGTH;
+        switch (type)
+        {
+            case spawnable:
+                length += tokenIds.size() * EthereumByteReader.TOKEN_ID_LENGTH;
+                break;
+            case compressedSpawnable:
+                encodedTokenIds = new EthereumByteWriter(tokenIds.size() * EthereumByteReader.TOKEN_ID_LENGTH)
+                        .writeTokenIds(tokenIds)
+                        .toByteArray();
+                length += EthereumByteWriter.compressedTokenIdsLength(encodedTokenIds, 0, encodedTokenIds.length);
+                break;
+            default:
+                length += EthereumByteWriter.compressedIndicesLength(ticketSendIndexList);
+                break;
+        }
+        EthereumByteWriter wb = new EthereumByteWriter(length)
+                .writeByte(type)
+                .write4ByteMicroEth(priceWei)
+                .writeUnsigned4(expiry)
+                .writeAddress(contractAddress);
         try
         {
-            ByteArrayOutputStream buffer = new ByteArrayOutputStream();
-            EthereumWriteBuffer wb = new EthereumWriteBuffer(buffer);
-
-            wb.writeByte(type);
-
-            if (priceWei.compareTo(maxPrice) > 0) {
-                throw new SalesOrderMalformed("Order's price too high to be used in a link");
-            }
-            wb.write4ByteMicroEth(priceWei);
-            wb.writeUnsigned4(expiry);
-            wb.writeAddress(contractAddress);
             switch (type)
             {
                 case spawnable:
                     wb.writeTokenIds(tokenIds);
                     break;
+                case compressedSpawnable:
+                    wb.writeCompressedTokenIds(encodedTokenIds, 0, encodedTokenIds.length);
+                    break;
                 default:
                     wb.writeCompressedIndices(ticketSendIndexList);
                     break;
             }
-
-            wb.flush();
-            wb.close();
-
-            return buffer.toByteArray();
         }
-        catch (IOException e)
+        catch (IllegalArgumentException e)
         {
-            e.printStackTrace();
-            return null;
+            throw new SalesOrderMalformed(e.getMessage());
         }
+        return wb.toByteArray();
     }
 
     public byte[] getCurrencyBytes(String contractAddress, BigInteger szaboAmount, long expiry, long nonce)
@@ -424,29 +431,44 @@ public class ParseMagicLink
         return generateLeadingLinkBytes(spawnable, null, tokenIds, contractAddress, priceWei, expiry);
     }
 
+    /**
+     * Same as generateSpawnableLeadingLinkBytes, but with the token ids compressed, such that a range
+     * of consecutive token ids takes a single byte per token. The signed message is the same.
+     */
+    public static byte[] generateCompressedSpawnableLeadingLinkBytes(List<BigInteger> tokenIds, String contractAddress, BigInteger priceWei, long expiry) throws SalesOrderMalformed
+    {
+        return generateLeadingLinkBytes(compressedSpawnable, null, tokenIds, contractAddress, priceWei, expiry);
+    }
+
     public String generateUniversalLink(int[] thisTickets, String contractAddr, BigInteger price, long expiry, byte[] signature, int chainId) throws SalesOrderMalformed
     {
         byte[] leading = generateLeadingLinkBytes(thisTickets, contractAddr, price, expiry);
         return completeUniversalLink(chainId, leading, signature);
     }
 
-    public String completeUniversalLink(int chainId, byte[] message, byte[] signature)
+    /**
+     * Returns the URL that precedes the encoded order in links for a chain
+     */
+    public String getLinkPrefix(int chainId)
     {
-        byte[] completeLink = new byte[message.length + signature.length];
-        System.arraycopy(message, 0, completeLink, 0, message.length);
-        System.arraycopy(signature, 0, completeLink, message.length, signature.length);
-        String magiclinkPrefix;
         if (extraChains != null && extraChains.containsKey(chainId))
         {
-            magiclinkPrefix = extraChains.get(chainId).urlPrefix;
+            return extraChains.get(chainId).urlPrefix;
         }
         else
         {
-            magiclinkPrefix = MagicLinkInfo.generatePrefix(chainId);
+            return MagicLinkInfo.generatePrefix(chainId);
         }
+    }
+
+    public String completeUniversalLink(int chainId, byte[] message, byte[] signature)
+    {
+        byte[] completeLink = new byte[message.length + signature.length];
+        System.arraycopy(message, 0, completeLink, 0, message.length);
+        System.arraycopy(signature, 0, completeLink, message.length, signature.length);
 
         StringBuilder sb = new StringBuilder();
-        sb.append(magiclinkPrefix);
+        sb.append(getLinkPrefix(chainId));
         byte[] b64 = cryptoInterface.Base64Encode(completeLink);
         sb.append(new String(b64));
         //this trade can be claimed by anyone who pushes the transaction through and has the sig
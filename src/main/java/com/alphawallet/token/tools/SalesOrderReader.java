@@ -0,0 +1,157 @@
+package com.alphawallet.token.tools;
+
+import java.math.BigInteger;
+import java.util.Arrays;
+
+import com.alphawallet.token.entity.EthereumByteReader;
+import com.alphawallet.token.entity.SalesOrderMalformed;
+
+/**
+ * Reads the fields of sales order messages, as made by ParseMagicLink.getTradeBytes, directly from
+ * the message bytes at a given offset:
+ *     - bytes32: price Wei
+ *     - bytes32: expiry
+ *     - bytes20: contract address
+ *     - Uint16[]: ticket indices
+ *
+ * Unlike EthereumReadBuffer no stream is wrapped around the message and fields which are not needed
+ * are not decoded, such that many orders can be checked without creating objects per order.
+ */
+public class SalesOrderReader
+{
+    static final int EXPIRY_OFFSET = 32;
+    static final int CONTRACT_OFFSET = 64;
+    static final int INDICES_OFFSET = ParseMagicLink.TRADE_HEADER_LENGTH;
+
+    private SalesOrderReader() { }
+
+    /**
+     * Checks the bounds of a message and returns the amount of ticket indices it holds
+     */
+    public static int indexCount(byte[] message, int offset, int length) throws SalesOrderMalformed
+    {
+        if (offset < 0 || length < INDICES_OFFSET || offset > message.length - length
+                || (length - INDICES_OFFSET) % 2 != 0)
+        {
+            throw new SalesOrderMalformed("Invalid sales order length");
+        }
+        return (length - INDICES_OFFSET) / 2;
+    }
+
+    /**
+     * Reads the price as a signed 32 byte integer, the same as EthereumReadBuffer.readBI
+     */
+    public static BigInteger readPriceWei(byte[] message, int offset)
+    {
+        return new BigInteger(Arrays.copyOfRange(message, offset, offset + 32));
+    }
+
+    /**
+     * Reads the expiry, which is written from a long as an unsigned 64 bit integer.
+     * Expiries of 2^63 and more are returned as the negative long they were written from.
+     */
+    public static long readExpiry(byte[] message, int offset) throws SalesOrderMalformed
+    {
+        int low = offset + EXPIRY_OFFSET + 24;
+        long res = 0;
+        for (int i = low; i < low + 8; i++)
+        {
+            res = (res << 8) | (message[i] & 0xFF);
+        }
+        //the leading bytes must be zero
+        for (int i = offset + EXPIRY_OFFSET; i < low; i++)
+        {
+            if (message[i] != 0)
+            {
+                throw new SalesOrderMalformed("Expiry out of range");
+            }
+        }
+        return res;
+    }
+
+    /**
+     * Copies the 20 byte contract address to dest at destOffset
+     */
+    public static void readContract(byte[] message, int offset, byte[] dest, int destOffset)
+    {
+        System.arraycopy(message, offset + CONTRACT_OFFSET, dest, destOffset, EthereumByteReader.ADDRESS_LENGTH);
+    }
+
+    /**
+     * Returns whether the order is for the given 20 byte contract address
+     */
+    public static boolean isContract(byte[] message, int offset, byte[] contract)
+    {
+        if (contract.length != EthereumByteReader.ADDRESS_LENGTH) return false;
+        for (int i = 0; i < EthereumByteReader.ADDRESS_LENGTH; i++)
+        {
+            if (message[offset + CONTRACT_OFFSET + i] != contract[i]) return false;
+        }
+        return true;
+    }
+
+    /**
+     * Reads count ticket indices into dest at destOffset
+     */
+    public static void readIndices(byte[] message, int offset, int count, int[] dest, int destOffset)
+    {
+        int pos = offset + INDICES_OFFSET;
+        for (int i = destOffset; i < destOffset + count; i++)
+        {
+            dest[i] = ((message[pos] & 0xFF) << 8) | (message[pos + 1] & 0xFF);
+            pos += 2;
+        }
+    }
+
+    /**
+     * Reads the first count messages into the given arrays, which are filled at the index of the message.
+     * The indices of all orders are concatenated: those of message i are at
+     * indexOffsets[i] to indexOffsets[i + 1] in indices.
+     * Arrays of fields which are not needed may be null.
+     *
+     * @param priceWei price of each order, or null
+     * @param expiry expiry of each order, or null
+     * @param contracts 20 bytes of contract address per order, or null
+     * @param indices ticket indices of all orders, or null
+     * @param indexOffsets count + 1 offsets into indices, or null if indices is null
+     * @return the total amount of indices
+     * @throws SalesOrderMalformed if a message is malformed, after filling the arrays for the messages before it
+     */
+    public static int readOrders(byte[][] messages, int count, BigInteger[] priceWei, long[] expiry,
+                                 byte[] contracts, int[] indices, int[] indexOffsets) throws SalesOrderMalformed
+    {
+        if ((indices == null) != (indexOffsets == null))
+        {
+            throw new IllegalArgumentException("Indices need index offsets");
+        }
+        int total = 0;
+        if (indexOffsets != null) indexOffsets[0] = 0;
+        for (int i = 0; i < count; i++)
+        {
+            byte[] message = messages[i];
+            int indexCount;
+            try
+            {
+                indexCount = indexCount(message, 0, message.length);
+                if (expiry != null) expiry[i] = readExpiry(message, 0);
+            }
+            catch (SalesOrderMalformed e)
+            {
+                throw new SalesOrderMalformed("Order " + i + ": " + e.getMessage());
+            }
+            if (priceWei != null) priceWei[i] = readPriceWei(message, 0);
+            if (contracts != null) readContract(message, 0, contracts, i * EthereumByteReader.ADDRESS_LENGTH);
+            if (indices != null)
+            {
+                if (total + indexCount > indices.length)
+                {
+                    throw new IllegalArgumentException("Indices array is too small");
+                }
+                readIndices(message, 0, indexCount, indices, total);
+                indexOffsets[i + 1] = total + indexCount;
+            }
+            total += indexCount;
+        }
+        return total;
+    }
+}
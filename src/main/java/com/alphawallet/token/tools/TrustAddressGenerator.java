@@ -1,23 +1,24 @@
 package com.alphawallet.token.tools;
 
+import com.alphawallet.attestation.core.AddressUtility;
 import org.bouncycastle.asn1.x9.X9ECParameters;
+import org.bouncycastle.crypto.digests.KeccakDigest;
 import org.bouncycastle.crypto.ec.CustomNamedCurves;
 import org.bouncycastle.crypto.params.ECDomainParameters;
-import org.bouncycastle.jcajce.provider.asymmetric.util.EC5Util;
-import org.bouncycastle.jce.ECNamedCurveTable;
-import org.bouncycastle.jce.ECPointUtil;
-import org.bouncycastle.jce.provider.BouncyCastleProvider;
-import org.bouncycastle.jce.spec.ECNamedCurveParameterSpec;
-import org.bouncycastle.math.ec.ECCurve;
+import org.bouncycastle.math.ec.ECMultiplier;
 import org.bouncycastle.math.ec.ECPoint;
-import org.bouncycastle.jcajce.provider.digest.Keccak;
+import org.bouncycastle.math.ec.FixedPointCombMultiplier;
+import org.bouncycastle.math.ec.FixedPointUtil;
 import org.bouncycastle.util.encoders.Hex;
 
 import java.math.BigInteger;
 import java.security.*;
-import java.security.interfaces.ECPublicKey;
 import java.security.spec.InvalidKeySpecException;
 import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 
 /***** WARNING *****
  *
@@ -34,48 +35,67 @@ public class TrustAddressGenerator {
 
     public static final byte[] masterPubKey = Hex.decode("04f0985bd9dbb6f461adc994a0c12595716a7f4fb2879bfc5155dffec3770096201c13f8314b46db8d8177887f8d95af1f2dd217291ce6ffe9183681186696bbe5");
 
+    // The master key is decoded once and, since it is the base of every derivation, gets a
+    // precomputed table for fixed-base multiplication
+    private static final ECPoint MASTER_POINT = CURVE.getCurve().decodePoint(masterPubKey);
+    private static final ECMultiplier MULTIPLIER = new FixedPointCombMultiplier();
+
+    static {
+        FixedPointUtil.precompute(MASTER_POINT);
+    }
+
     public static String getTrustAddress(String contractAddress, String digest) throws NoSuchAlgorithmException, NoSuchProviderException, InvalidKeySpecException {
-        return preimageToAddress((contractAddress + "TRUST" + digest).getBytes());
+        return preimageToAddress(trustPreimage(contractAddress, digest));
     }
 
     public static String getRevokeAddress(String contractAddress, String digest) throws NoSuchAlgorithmException, NoSuchProviderException, InvalidKeySpecException {
-        return preimageToAddress((contractAddress + "REVOKE" + digest).getBytes());
+        return preimageToAddress(revokePreimage(contractAddress, digest));
+    }
+
+    private static byte[] trustPreimage(String contractAddress, String digest) {
+        return (contractAddress + "TRUST" + digest).getBytes();
+    }
+
+    private static byte[] revokePreimage(String contractAddress, String digest) {
+        return (contractAddress + "REVOKE" + digest).getBytes();
     }
 
     // this won't make sense at all if you didn't read security.md
     // https://github.com/AlphaWallet/TokenScript/blob/master/doc/security.md
     public static String preimageToAddress(byte[] preimage) throws NoSuchAlgorithmException, NoSuchProviderException, InvalidKeySpecException {
-        Security.addProvider(new BouncyCastleProvider());
-
-        // get the hash of the preimage text
-        Keccak.Digest256 digest = new Keccak.Digest256();
-        digest.update(preimage);
-        byte[] hash = digest.digest();
-
-        // use the hash to derive a new address
-        BigInteger keyDerivationFactor = new BigInteger(Numeric.toHexStringNoPrefix(hash), 16);
-        ECPoint donatePKPoint = extractPublicKey(decodeKey(masterPubKey));
-        ECPoint digestPKPoint = donatePKPoint.multiply(keyDerivationFactor);
-        return getAddress(digestPKPoint);
+        return getAddress(derivePoint(preimage));
     }
 
-    private static ECPoint extractPublicKey(ECPublicKey ecPublicKey) {
-        java.security.spec.ECPoint publicPointW = ecPublicKey.getW();
-        BigInteger xCoord = publicPointW.getAffineX();
-        BigInteger yCoord = publicPointW.getAffineY();
-        return CURVE.getCurve().createPoint(xCoord, yCoord);
+    /**
+     * Derives the trust and revoke addresses of many (contract, digest) pairs.
+     * The point multiplications are done in parallel and the resulting points are normalized
+     * together, which only costs a single field inversion.
+     * @param requests The pairs of contract address and digest
+     * @return The addresses, in the same order as the requests
+     */
+    public static List<Response> deriveAll(List<Request> requests) {
+        ECPoint[] points = new ECPoint[2 * requests.size()];
+        IntStream.range(0, requests.size()).parallel().forEach(i -> {
+            Request req = requests.get(i);
+            points[2 * i] = derivePoint(trustPreimage(req.contract, req.digest));
+            points[2 * i + 1] = derivePoint(revokePreimage(req.contract, req.digest));
+        });
+        CURVE.getCurve().normalizeAll(points);
+        return IntStream.range(0, requests.size()).parallel()
+                .mapToObj(i -> new Response(getAddress(points[2 * i]), getAddress(points[2 * i + 1])))
+                .collect(Collectors.toList());
     }
 
-    private static ECPublicKey decodeKey(byte[] encoded)
-            throws NoSuchAlgorithmException, NoSuchProviderException, InvalidKeySpecException {
-        ECNamedCurveParameterSpec params = ECNamedCurveTable.getParameterSpec("secp256k1");
-        KeyFactory fact = KeyFactory.getInstance("ECDSA", "BC");
-        ECCurve curve = params.getCurve();
-        java.security.spec.EllipticCurve ellipticCurve = EC5Util.convertCurve(curve, params.getSeed());
-        java.security.spec.ECPoint point = ECPointUtil.decodePoint(ellipticCurve, encoded);
-        java.security.spec.ECParameterSpec params2 = EC5Util.convertSpec(ellipticCurve, params);
-        java.security.spec.ECPublicKeySpec keySpec = new java.security.spec.ECPublicKeySpec(point, params2);
-        return (ECPublicKey) fact.generatePublic(keySpec);
+    private static ECPoint derivePoint(byte[] preimage) {
+        // get the hash of the preimage text
+        KeccakDigest digest = new KeccakDigest(256);
+        digest.update(preimage, 0, preimage.length);
+        byte[] hash = new byte[32];
+        digest.doFinal(hash, 0);
+
+        // use the hash to derive a new address
+        BigInteger keyDerivationFactor = new BigInteger(1, hash);
+        return MULTIPLIER.multiply(MASTER_POINT, keyDerivationFactor);
     }
 
     private static String getAddress(ECPoint pub) {
@@ -83,15 +103,9 @@ public class TrustAddressGenerator {
         return Numeric.toHexString(pubKeyHash);
     }
 
-    private static byte[] computeAddress(byte[] pubBytes) {
-        Keccak.Digest256 digest = new Keccak.Digest256();
-        digest.update(Arrays.copyOfRange(pubBytes, 1, pubBytes.length));
-        byte[] addressBytes = digest.digest();
-        return Arrays.copyOfRange(addressBytes, 0, 20);
-    }
-
     private static byte[] computeAddress(ECPoint pubPoint) {
-        return computeAddress(pubPoint.getEncoded(false ));
+        byte[] addressBytes = AddressUtility.hashPoint(pubPoint);
+        return Arrays.copyOfRange(addressBytes, 0, 20);
     }
 
     /**********************************************************************************
@@ -130,9 +144,7 @@ public class TrustAddressGenerator {
      **********************************************************************************/
 
     public Response DeriveTrustAddress(Request req) throws Exception {
-        String trust = getTrustAddress(req.contract, req.getDigest());
-        String revoke = getRevokeAddress(req.contract, req.getDigest());
-        return new Response(trust, revoke);
+        return deriveAll(Collections.singletonList(req)).get(0);
     }
 
     public static class Request {
@@ -0,0 +1,147 @@
+package com.alphawallet.token.tools;
+
+import com.alphawallet.token.tools.TrustAddressGenerator.Request;
+import com.alphawallet.token.tools.TrustAddressGenerator.Response;
+import com.amazonaws.services.lambda.runtime.Context;
+import com.amazonaws.services.lambda.runtime.RequestHandler;
+import org.bouncycastle.crypto.digests.KeccakDigest;
+import org.bouncycastle.math.ec.ECCurve;
+import org.bouncycastle.math.ec.ECLookupTable;
+import org.bouncycastle.math.ec.ECPoint;
+import org.bouncycastle.math.ec.FixedPointCombMultiplier;
+import org.bouncycastle.math.ec.FixedPointPreCompInfo;
+import org.bouncycastle.math.ec.FixedPointUtil;
+import org.bouncycastle.math.ec.custom.sec.SecP256K1Curve;
+import org.bouncycastle.util.encoders.Hex;
+
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.io.Writer;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.util.Properties;
+
+/**
+ * AWS Lambda entry point for deriving trust and revoke addresses, as done by
+ * TrustAddressGenerator.DeriveTrustAddress, but tuned for cold starts:
+ * - Nothing is initialized before the first request arrives.
+ * - No JCA provider is registered; only the lightweight BouncyCastle API is used.
+ * - The secp256k1 curve is constructed directly instead of through the named curve tables.
+ * - The master key and its fixed-base comb table are read from a resource instead of being
+ *   computed.
+ *
+ * The resource is generated by running this class with the arguments --export {file}.
+ * Running it without arguments measures the latency of the first and second invocation.
+ * The Gradle task trustAddressAppCDS uses that run to dump an AppCDS archive of the classes the
+ * function needs.
+ */
+public class TrustAddressHandler implements RequestHandler<Request, Response> {
+    static final String CONSTANTS_RESOURCE = "trust-address-constants.properties";
+
+    @Override
+    public Response handleRequest(Request req, Context context) {
+        return new Response(
+                Constants.deriveAddress(req.getContractAddress() + "TRUST" + req.getDigest()),
+                Constants.deriveAddress(req.getContractAddress() + "REVOKE" + req.getDigest()));
+    }
+
+    /**
+     * Holder of the curve constants, which only gets initialized by the first request
+     */
+    private static class Constants {
+        private static final ECCurve CURVE = new SecP256K1Curve();
+        private static final ECPoint MASTER_POINT;
+        private static final FixedPointCombMultiplier MULTIPLIER = new FixedPointCombMultiplier();
+
+        static {
+            Properties props = new Properties();
+            try (InputStream in = TrustAddressHandler.class.getResourceAsStream(CONSTANTS_RESOURCE)) {
+                if (in == null) {
+                    throw new IOException("Missing resource " + CONSTANTS_RESOURCE);
+                }
+                props.load(in);
+            } catch (IOException e) {
+                throw new RuntimeException(e);
+            }
+            MASTER_POINT = CURVE.decodePoint(Hex.decode(props.getProperty("master")));
+            String[] encodedTable = props.getProperty("comb.table").split(",");
+            ECPoint[] table = new ECPoint[encodedTable.length];
+            for (int i = 0; i < table.length; i++) {
+                table[i] = CURVE.decodePoint(Hex.decode(encodedTable[i]));
+            }
+            FixedPointPreCompInfo info = new FixedPointPreCompInfo();
+            info.setWidth(Integer.parseInt(props.getProperty("comb.width")));
+            info.setOffset(CURVE.decodePoint(Hex.decode(props.getProperty("comb.offset"))));
+            info.setLookupTable(CURVE.createCacheSafeLookupTable(table, 0, table.length));
+            // Install the table such that the comb multiplier finds it instead of computing it
+            CURVE.precompute(MASTER_POINT, FixedPointUtil.PRECOMP_NAME, existing -> info);
+        }
+
+        private static String deriveAddress(String preimage) {
+            byte[] preimageBytes = preimage.getBytes();
+            KeccakDigest digest = new KeccakDigest(256);
+            digest.update(preimageBytes, 0, preimageBytes.length);
+            byte[] hash = new byte[32];
+            digest.doFinal(hash, 0);
+            ECPoint derived = MULTIPLIER.multiply(MASTER_POINT, new BigInteger(1, hash)).normalize();
+
+            // The address is the first 20 bytes of the hash of the uncompressed point without its prefix
+            byte[] encoded = derived.getEncoded(false);
+            digest.update(encoded, 1, encoded.length - 1);
+            digest.doFinal(hash, 0);
+            return "0x" + Hex.toHexString(hash, 0, 20);
+        }
+    }
+
+    /**
+     * Writes the master key and its fixed-base comb table in the format of the constants resource
+     */
+    static void exportConstants(Writer out) {
+        ECCurve curve = new SecP256K1Curve();
+        ECPoint master = curve.decodePoint(TrustAddressGenerator.masterPubKey);
+        FixedPointPreCompInfo info = FixedPointUtil.precompute(master);
+        ECLookupTable table = info.getLookupTable();
+        PrintWriter writer = new PrintWriter(out);
+        writer.println("# secp256k1 constants for " + TrustAddressHandler.class.getName());
+        writer.println("# Generated by running it with --export. Do not edit.");
+        writer.println("master=" + Hex.toHexString(master.getEncoded(false)));
+        writer.println("comb.width=" + info.getWidth());
+        writer.println("comb.offset=" + Hex.toHexString(info.getOffset().normalize().getEncoded(false)));
+        writer.print("comb.table=");
+        for (int i = 0; i < table.getSize(); i++) {
+            writer.print((i > 0 ? "," : "") + Hex.toHexString(table.lookup(i).normalize().getEncoded(false)));
+        }
+        writer.println();
+        writer.flush();
+    }
+
+    /**********************************************************************************
+     Local harness
+     **********************************************************************************/
+
+    public static void main(String args[]) throws IOException {
+        if (args.length == 2 && args[0].equals("--export")) {
+            try (OutputStream out = new FileOutputStream(args[1])) {
+                exportConstants(new OutputStreamWriter(out, StandardCharsets.ISO_8859_1));
+            }
+            return;
+        }
+        Request req = new Request("0x63cCEF733a093E5Bd773b41C96D3eCE361464942",
+                "z+I6NxdALVtlc3TuUo2QEeV9rwyAmKB4UtQWkTLQhpE=");
+        TrustAddressHandler handler = new TrustAddressHandler();
+        long start = System.nanoTime();
+        Response first = handler.handleRequest(req, null);
+        long firstLatency = System.nanoTime() - start;
+        start = System.nanoTime();
+        handler.handleRequest(req, null);
+        long secondLatency = System.nanoTime() - start;
+        System.out.println("Trust Address:\t" + first.getTrustAddress());
+        System.out.println("Revoke Address:\t" + first.getRevokeAddress());
+        System.out.printf("First invocation:\t%.3f ms%n", firstLatency / 1e6);
+        System.out.printf("Second invocation:\t%.3f ms%n", secondLatency / 1e6);
+    }
+}
@@ -0,0 +1,250 @@
+package org.devcon.ticket;
+
+import com.alphawallet.attestation.IdentifierAttestation.AttestationType;
+import com.alphawallet.attestation.core.AttestationCrypto;
+import com.alphawallet.attestation.core.ConstructionPolicy;
+import com.alphawallet.attestation.core.SignatureUtility;
+import com.alphawallet.attestation.core.SigningService;
+import org.bouncycastle.crypto.AsymmetricCipherKeyPair;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.io.Reader;
+import java.io.Writer;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.security.SecureRandom;
+import java.util.ArrayDeque;
+import java.util.Base64;
+import java.util.Deque;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+
+/**
+ * Issues the tickets listed in a CSV file of mail,devconId,ticketId,ticketClass lines and writes
+ * a magic link per ticket, in the same format as Issuer, to an output file.
+ * The key is loaded once and the tickets are signed on all cores through a SigningService. The links
+ * are written in the order of the CSV file and at most a batch of them is waiting to be written,
+ * such that memory use is bounded by the batch size.
+ * If the output file already contains links, e.g. from an interrupted run, issuance resumes after
+ * as many tickets of the CSV file as there are complete links, since ticket ids may repeat.
+ */
+public class BulkIssuer {
+    static final int DEFAULT_BATCH_SIZE = 1024;
+    // The amount of bytes read at once when counting the links of the output
+    private static final int CHUNK_LENGTH = 8 * 1024;
+
+    private final AsymmetricCipherKeyPair keys;
+    private final SecureRandom rand;
+    private final int threads;
+    private final int batchSize;
+    private final boolean compact;
+
+    /**
+     * @param threads The amount of worker threads to sign with
+     * @param compact Whether to use the compact ticket format for smaller QR codes
+     */
+    public BulkIssuer(AsymmetricCipherKeyPair keys, SecureRandom rand, int threads, boolean compact) {
+        this(keys, rand, threads, compact, DEFAULT_BATCH_SIZE);
+    }
+
+    BulkIssuer(AsymmetricCipherKeyPair keys, SecureRandom rand, int threads, boolean compact, int batchSize) {
+        if (threads < 1 || batchSize < 1) {
+            throw new IllegalArgumentException("At least one thread and one ticket per batch are needed");
+        }
+        // The tickets are trusted, so the keys are checked once up front
+        byte[] check = Ticket.encodeTicket(0, BigInteger.ZERO, 0);
+        if (!SignatureUtility.verify(check, SignatureUtility.signDeterministic(check, keys.getPrivate()), keys.getPublic())) {
+            throw new IllegalArgumentException("Public and private keys are incorrect");
+        }
+        this.keys = keys;
+        this.rand = rand;
+        this.threads = threads;
+        this.batchSize = batchSize;
+        this.compact = compact;
+    }
+
+    /**
+     * Issues the tickets of the CSV file which are not yet in the output file and appends their links
+     * @return The amount of tickets issued
+     */
+    public long issue(Path csv, Path output) throws IOException {
+        long resumeAfter = completeLinks(output);
+        try (BufferedReader in = Files.newBufferedReader(csv, StandardCharsets.UTF_8);
+            Writer out = Files.newBufferedWriter(output, StandardCharsets.US_ASCII,
+                StandardOpenOption.CREATE, StandardOpenOption.APPEND)) {
+            return issue(in, out, resumeAfter);
+        }
+    }
+
+    /**
+     * Issues the tickets of a CSV file and writes a link per line to out, flushing after each batch
+     * @param resumeAfter The amount of tickets at the start of the CSV file which have already been
+     *                    issued, e.g. the amount of links written by an earlier run, or 0 to issue all
+     * @return The amount of tickets issued
+     */
+    public long issue(Reader csv, Writer out, long resumeAfter) throws IOException {
+        BufferedReader in = csv instanceof BufferedReader ? (BufferedReader) csv : new BufferedReader(csv);
+        try (SigningService signer = new SigningService(threads, batchSize)) {
+            long skipped = 0;
+            long res = 0;
+            int lineNumber = 0;
+            // The links in the order of the CSV file, which have not been written yet
+            Deque<CompletableFuture<String>> pending = new ArrayDeque<>(batchSize);
+            String line;
+            while ((line = in.readLine()) != null) {
+                lineNumber++;
+                if (line.trim().isEmpty() || line.startsWith("#")) {
+                    continue;
+                }
+                Request request = parse(line, lineNumber);
+                if (skipped < resumeAfter) {
+                    skipped++;
+                    continue;
+                }
+                if (pending.size() == batchSize) {
+                    res += write(pending, out);
+                }
+                pending.add(issue(request, signer));
+            }
+            if (skipped < resumeAfter) {
+                throw new IOException("Cannot resume after " + resumeAfter + " tickets, the CSV file only has " + skipped);
+            }
+            res += write(pending, out);
+            return res;
+        }
+    }
+
+    /**
+     * Signs the ticket through the signer. The rest of the link is made in a stage depending on the
+     * signature, which normally runs on the worker that made it.
+     */
+    private CompletableFuture<String> issue(Request request, SigningService signer) {
+        byte[] encodedTicket = Ticket.encodeTicket(request.devconId, request.ticketId, request.ticketClass);
+        try {
+            return signer.sign(encodedTicket, keys.getPrivate()).thenApply(signature -> link(request, signature));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException(e);
+        }
+    }
+
+    /**
+     * Writes the pending links in order and flushes
+     * @return The amount of links written
+     */
+    private static int write(Deque<CompletableFuture<String>> pending, Writer out) throws IOException {
+        int res = pending.size();
+        try {
+            while (!pending.isEmpty()) {
+                out.write(pending.poll().get());
+                out.write('\n');
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException(e);
+        } catch (ExecutionException e) {
+            throw new RuntimeException(e.getCause());
+        }
+        out.flush();
+        return res;
+    }
+
+    private String link(Request request, byte[] signature) {
+        byte[] commitment = AttestationCrypto.makeCommitment(request.mail, AttestationType.EMAIL, request.secret);
+        // The keys are checked up front, so the signatures are trusted
+        Ticket ticket = new Ticket(request.devconId, request.ticketId, request.ticketClass, commitment, signature,
+            keys.getPublic(), ConstructionPolicy.TRUSTED);
+        byte[] encoding = compact ? ticket.getCompactEncoding() : ticket.getDerEncoding();
+        return Ticket.magicLinkURLPrefix + "?ticket=" + Base64.getUrlEncoder().encodeToString(encoding)
+            + "&secret=" + request.secret;
+    }
+
+    /**
+     * Parses a CSV line, taking the fields from the end such that the mail may contain commas.
+     * The secret is sampled here, on the reading thread, such that the secrets only depend on rand
+     * and not on the scheduling of the threads.
+     */
+    private Request parse(String line, int lineNumber) throws IOException {
+        int third = line.lastIndexOf(',');
+        int second = third < 0 ? -1 : line.lastIndexOf(',', third - 1);
+        int first = second < 0 ? -1 : line.lastIndexOf(',', second - 1);
+        if (first <= 0) {
+            throw new IOException("Line " + lineNumber + " is not mail,devconId,ticketId,ticketClass");
+        }
+        try {
+            return new Request(line.substring(0, first).trim(),
+                Integer.parseInt(line.substring(first + 1, second).trim()),
+                new BigInteger(line.substring(second + 1, third).trim()),
+                Integer.parseInt(line.substring(third + 1).trim()),
+                Issuer.sampleSecret(rand));
+        } catch (NumberFormatException e) {
+            throw new IOException("Line " + lineNumber + " contains an invalid number", e);
+        }
+    }
+
+    /**
+     * Returns the amount of complete links in an output file, i.e. the amount of lines.
+     * A partially written last line is removed.
+     */
+    static long completeLinks(Path output) throws IOException {
+        if (!Files.exists(output)) {
+            return 0;
+        }
+        try (RandomAccessFile file = new RandomAccessFile(output.toFile(), "rw")) {
+            byte[] chunk = new byte[CHUNK_LENGTH];
+            long res = 0;
+            long pos = 0;
+            long lastLineEnd = 0;
+            int read;
+            while ((read = file.read(chunk)) > 0) {
+                for (int i = 0; i < read; i++) {
+                    if (chunk[i] == '\n') {
+                        res++;
+                        lastLineEnd = pos + i + 1;
+                    }
+                }
+                pos += read;
+            }
+            file.setLength(lastLineEnd);
+            return res;
+        }
+    }
+
+    private static class Request {
+        private final String mail;
+        private final int devconId;
+        private final BigInteger ticketId;
+        private final int ticketClass;
+        private final BigInteger secret;
+
+        private Request(String mail, int devconId, BigInteger ticketId, int ticketClass, BigInteger secret) {
+            this.mail = mail;
+            this.devconId = devconId;
+            this.ticketId = ticketId;
+            this.ticketClass = ticketClass;
+            this.secret = secret;
+        }
+    }
+
+    public static void main(String... args) throws IOException {
+        if (args.length != 3 && !(args.length == 4 && args[3].equals("compact"))) {
+            System.err.println("Commandline Options:");
+            System.err.println("{key.pem}\tPath to the PEM file that contains the issuer private key.");
+            System.err.println("{tickets.csv}\tPath to a CSV file with a mail,devconId,ticketId,ticketClass line per ticket.");
+            System.err.println("{links.txt}\tPath to the file to append a magic link per ticket to.");
+            System.err.println("[compact]\tOptional, use the compact ticket format for smaller QR codes.");
+        } else {
+            AsymmetricCipherKeyPair keys = Issuer.loadKeys(Paths.get(args[0]));
+            BulkIssuer issuer = new BulkIssuer(keys, new SecureRandom(), Runtime.getRuntime().availableProcessors(),
+                args.length == 4);
+            long issued = issuer.issue(Paths.get(args[1]), Paths.get(args[2]));
+            System.out.printf("Issued %d tickets%n", issued);
+        }
+    }
+}
@@ -0,0 +1,122 @@
+package org.devcon.ticket;
+
+import com.alphawallet.attestation.AttestableObjectDecoder;
+import com.alphawallet.attestation.core.AttestationCrypto;
+import com.alphawallet.attestation.core.SignatureUtility;
+import com.alphawallet.attestation.core.VarInt;
+import java.io.IOException;
+import java.math.BigInteger;
+import java.util.Arrays;
+import org.bouncycastle.crypto.params.AsymmetricKeyParameter;
+import org.bouncycastle.crypto.params.ECKeyParameters;
+import org.bouncycastle.util.BigIntegers;
+
+/**
+ * Decodes tickets in the compact binary format described in Ticket.getCompactEncoding().
+ * Since the format does not contain the public key of the issuer, it must always be supplied.
+ * Only the canonical encoding of a ticket is accepted, i.e. minimal varints, a compressed
+ * commitment and a signature with a low s.
+ */
+public class CompactTicketDecoder implements AttestableObjectDecoder<Ticket> {
+  // Ticket ids of up to 256 bits
+  private static final int MAX_TICKET_ID_LENGTH = 37;
+  // Integers of up to 35 bits, which covers every int
+  private static final int MAX_INT_LENGTH = 5;
+
+  private final AsymmetricKeyParameter publicKey;
+
+  public CompactTicketDecoder(AsymmetricKeyParameter publicKey) {
+    if (publicKey == null) {
+      throw new IllegalArgumentException("The public key of the issuer is needed");
+    }
+    this.publicKey = publicKey;
+  }
+
+  /**
+   * Returns true if the range holds a ticket in the compact format rather than DER
+   */
+  public static boolean isCompact(byte[] buffer, int offset, int length) {
+    return length > 0 && buffer[offset] == Ticket.COMPACT_VERSION;
+  }
+
+  @Override
+  public Ticket decode(byte[] encoding) throws IOException {
+    return decode(encoding, 0, encoding.length);
+  }
+
+  @Override
+  public Ticket decode(byte[] buffer, int offset, int length) throws IOException {
+    return decode(buffer, offset, length, true);
+  }
+
+  @Override
+  public Ticket decodeUnverified(byte[] buffer, int offset, int length) throws IOException {
+    return decode(buffer, offset, length, false);
+  }
+
+  private Ticket decode(byte[] buffer, int offset, int length, boolean verify) throws IOException {
+    if (!isCompact(buffer, offset, length)) {
+      throw new IOException("Not a compact ticket of a known version");
+    }
+    int limit = offset + length;
+    int pos = offset + 1;
+    int varIntLength = VarInt.length(buffer, pos, limit);
+    int devconId = readInt(buffer, pos, varIntLength, "Devcon id");
+    pos += varIntLength;
+    varIntLength = VarInt.length(buffer, pos, limit);
+    if (varIntLength > MAX_TICKET_ID_LENGTH) {
+      throw new IOException("Ticket id is too long");
+    }
+    BigInteger ticketId = VarInt.read(buffer, pos, varIntLength);
+    pos += varIntLength;
+    varIntLength = VarInt.length(buffer, pos, limit);
+    int ticketClass = readInt(buffer, pos, varIntLength, "Ticket class");
+    pos += varIntLength;
+    if (limit - pos != Ticket.COMPACT_COMMITMENT_LENGTH + 2 * Ticket.COMPACT_SCALAR_LENGTH) {
+      throw new IOException("Compact ticket has the wrong length");
+    }
+    byte[] commitment = decompress(buffer, pos);
+    pos += Ticket.COMPACT_COMMITMENT_LENGTH;
+    BigInteger r = BigIntegers.fromUnsignedByteArray(buffer, pos, Ticket.COMPACT_SCALAR_LENGTH);
+    BigInteger s = BigIntegers.fromUnsignedByteArray(buffer, pos + Ticket.COMPACT_SCALAR_LENGTH, Ticket.COMPACT_SCALAR_LENGTH);
+    if (r.signum() == 0 || s.signum() == 0 || !isLow(s)) {
+      throw new IOException("Signature is not canonical");
+    }
+    byte[] signature = SignatureUtility.encodeSignature(r, s);
+    return new Ticket(devconId, ticketId, ticketClass, commitment, signature, publicKey, verify);
+  }
+
+  private static int readInt(byte[] buffer, int pos, int length, String field) throws IOException {
+    if (length > MAX_INT_LENGTH) {
+      throw new IOException(field + " is too long");
+    }
+    long value = VarInt.readLong(buffer, pos, length);
+    if (value > Integer.MAX_VALUE) {
+      throw new IOException(field + " is too large");
+    }
+    return (int) value;
+  }
+
+  /**
+   * Restores the uncompressed commitment used by Ticket
+   */
+  private static byte[] decompress(byte[] buffer, int pos) throws IOException {
+    if (buffer[pos] != 0x02 && buffer[pos] != 0x03) {
+      throw new IOException("Commitment is not a compressed point");
+    }
+    try {
+      return AttestationCrypto.decodePoint(
+          Arrays.copyOfRange(buffer, pos, pos + Ticket.COMPACT_COMMITMENT_LENGTH)).getEncoded(false);
+    } catch (IllegalArgumentException e) {
+      throw new IOException("Commitment is not a point on the curve", e);
+    }
+  }
+
+  private boolean isLow(BigInteger s) {
+    if (!(publicKey instanceof ECKeyParameters)) {
+      return true;
+    }
+    BigInteger order = ((ECKeyParameters) publicKey).getParameters().getN();
+    return s.compareTo(order.shiftRight(1)) <= 0;
+  }
+}
@@ -19,36 +19,50 @@ import java.util.Base64;
 public class Issuer {
     static SecureRandom rand = new SecureRandom();
 
+    /**
+     * Samples a secret, to be shared between the issuer and the ticket holder, uniformly below the curve order
+     */
+    static BigInteger sampleSecret(SecureRandom rand) {
+        BigInteger res;
+        do {
+            res = new BigInteger(AttestationCrypto.curveOrder.bitLength(), rand);
+        } while (res.compareTo(AttestationCrypto.curveOrder) >= 0);
+        return res;
+    }
+
+    /**
+     * Restores the issuer keys from a PEM file with an RFC 5915 private key
+     */
+    static AsymmetricCipherKeyPair loadKeys(Path keyFile) throws java.io.IOException {
+        byte[] dataCER = DERUtility.restoreBytes(Files.readAllLines(keyFile));
+        ASN1InputStream asn1InputStream = new ASN1InputStream(dataCER);
+        ASN1Primitive dataASN1 = asn1InputStream.readObject();
+        asn1InputStream.close();
+        // will throw up badly if dataASN1 is not instanceof ASN1Sequence
+        return DERUtility.restoreRFC5915Key(dataASN1);
+    }
+
     public static void main(String... args) throws java.io.IOException{
-        int curveLength = AttestationCrypto.curveOrder.toString(2).length();
         /* secret shared between the issuer and the ticket holder */
-        BigInteger sharedSecret = new BigInteger(curveLength, rand);
-        if (sharedSecret.compareTo(AttestationCrypto.curveOrder) >= 0) {
-            main(args);
-            return;
-        }
+        BigInteger sharedSecret = sampleSecret(rand);
 
-        if (args.length != 5) {
+        if (args.length != 5 && !(args.length == 6 && args[5].equals("compact"))) {
             System.err.println("Commandline Options:");
             System.err.println("{key.pem}\tPath to the PEM file that contains the issuer private key.");
             System.err.println("{mail}\tThe email address of the ticket owner.");
             System.err.println("{devconID}\tAn integer which is 6 for Devcon 6.");
             System.err.println("{ticketID}\tAn integer ticket ID.");
             System.err.println("{ticketClass}\tAn integer representing the ticket class.");
+            System.err.println("[compact]\tOptional, use the compact ticket format for smaller QR codes.");
         } else {
             String mail = args[1];
             int devconID = Integer.parseInt(args[2]);
             BigInteger ticketID = new BigInteger(args[3]);
             int ticketClass = Integer.parseInt(args[4]);
-            Path keyFile = Paths.get(args[0]);
-            byte[] dataCER = DERUtility.restoreBytes(Files.readAllLines(keyFile));
-            ASN1InputStream asn1InputStream = new ASN1InputStream(dataCER);
-            ASN1Primitive dataASN1 = asn1InputStream.readObject();
-            asn1InputStream.close();
-            // will throw up badly if dataASN1 is not instanceof ASN1Sequence
-            AsymmetricCipherKeyPair issuerKeyPair= DERUtility.restoreRFC5915Key(dataASN1);
+            AsymmetricCipherKeyPair issuerKeyPair = loadKeys(Paths.get(args[0]));
             Ticket ticket = new Ticket(mail, devconID, ticketID, ticketClass, issuerKeyPair, sharedSecret);
-            String ticketInUrl = new String(Base64.getUrlEncoder().encode(ticket.getDerEncoding()));
+            byte[] encoding = args.length == 6 ? ticket.getCompactEncoding() : ticket.getDerEncoding();
+            String ticketInUrl = new String(Base64.getUrlEncoder().encode(encoding));
             System.out.printf("%s?ticket=%s&secret=%s", Ticket.magicLinkURLPrefix, ticketInUrl, sharedSecret.toString());
         }
     }
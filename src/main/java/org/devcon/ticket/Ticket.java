@@ -3,18 +3,16 @@ package org.devcon.ticket;
 import com.alphawallet.attestation.IdentifierAttestation.AttestationType;
 import com.alphawallet.attestation.core.Attestable;
 import com.alphawallet.attestation.core.AttestationCrypto;
+import com.alphawallet.attestation.core.ConstructionPolicy;
+import com.alphawallet.attestation.core.DERUtility;
 import com.alphawallet.attestation.core.SignatureUtility;
+import com.alphawallet.attestation.core.VarInt;
 import java.io.IOException;
 import java.math.BigInteger;
 import java.util.Arrays;
 
 import com.alphawallet.attestation.core.URLUtility;
-import org.bouncycastle.asn1.ASN1EncodableVector;
-import org.bouncycastle.asn1.ASN1Integer;
-import org.bouncycastle.asn1.ASN1Sequence;
-import org.bouncycastle.asn1.DERBitString;
-import org.bouncycastle.asn1.DEROctetString;
-import org.bouncycastle.asn1.DERSequence;
+import org.bouncycastle.asn1.ASN1Encoding;
 import org.bouncycastle.asn1.x509.AlgorithmIdentifier;
 import org.bouncycastle.asn1.x509.SubjectPublicKeyInfo;
 import org.bouncycastle.crypto.AsymmetricCipherKeyPair;
@@ -22,6 +20,14 @@ import org.bouncycastle.crypto.params.AsymmetricKeyParameter;
 import org.bouncycastle.crypto.util.SubjectPublicKeyInfoFactory;
 
 public class Ticket implements Attestable {
+  private static final int INTEGER = 0x02;
+  private static final int OCTET_STRING = 0x04;
+  private static final int SEQUENCE = 0x30;
+  // Layout of the compact encoding, see getCompactEncoding()
+  static final byte COMPACT_VERSION = 0x01;
+  static final int COMPACT_COMMITMENT_LENGTH = 33;
+  static final int COMPACT_SCALAR_LENGTH = 32;
+
   private final BigInteger ticketId;
   private final int ticketClass;
   private final int devconId;
@@ -30,7 +36,11 @@ public class Ticket implements Attestable {
   private final byte[] signature;
   public static final String magicLinkURLPrefix = "https://ticket.devcon.org/";
   private final AsymmetricKeyParameter publicKey;
+  // The signed part of the ticket
+  private final byte[] encodedTicket;
   private final byte[] encoded;
+  // Set by verify(), objects decoded without verification start out unverified
+  private volatile boolean verified;
 
   /**
    *
@@ -43,6 +53,11 @@ public class Ticket implements Attestable {
    */
   public Ticket(String mail, int devconId, BigInteger ticketId, int ticketClass,
       AsymmetricCipherKeyPair keys, BigInteger secret ) {
+    this(mail, devconId, ticketId, ticketClass, keys, secret, ConstructionPolicy.VERIFY);
+  }
+
+  private Ticket(String mail, int devconId, BigInteger ticketId, int ticketClass,
+      AsymmetricCipherKeyPair keys, BigInteger secret, ConstructionPolicy policy) {
     this.ticketId = ticketId;
     this.ticketClass = ticketClass;
     this.devconId = devconId;
@@ -54,20 +69,39 @@ public class Ticket implements Attestable {
     } catch (IOException e) {
       throw new RuntimeException(e);
     }
-    ASN1Sequence asn1Tic = makeTicket();
-    try {
-      this.signature = SignatureUtility.signDeterministic(asn1Tic.getEncoded(), keys.getPrivate());
-      this.encoded = encodeSignedTicket(asn1Tic);
-    } catch (IOException e) {
-      throw new RuntimeException(e);
-    }
+    this.encodedTicket = encodeTicket(devconId, ticketId, ticketClass);
+    this.signature = SignatureUtility.signDeterministic(encodedTicket, keys.getPrivate());
+    this.encoded = encodeSignedTicket();
     this.publicKey = keys.getPublic();
-    if (!verify()) {
+    if (policy == ConstructionPolicy.TRUSTED) {
+      this.verified = true;
+    } else if (!verify()) {
       throw new IllegalArgumentException("Public and private keys are incorrect");
     }
   }
 
   public Ticket(int devconId, BigInteger ticketId, int ticketClass, byte[] commitment, byte[] signature, AsymmetricKeyParameter publicKey) {
+    this(devconId, ticketId, ticketClass, commitment, signature, publicKey, true);
+  }
+
+  /**
+   * Constructs a ticket from a signature made by the caller, e.g. on another thread or by a
+   * separate signer. ConstructionPolicy.TRUSTED skips verifying the signature and marks the ticket
+   * as verified, so it is only meant for signatures made with keys that are known to be correct.
+   */
+  public Ticket(int devconId, BigInteger ticketId, int ticketClass, byte[] commitment, byte[] signature,
+      AsymmetricKeyParameter publicKey, ConstructionPolicy policy) {
+    this(devconId, ticketId, ticketClass, commitment, signature, publicKey, policy != ConstructionPolicy.TRUSTED);
+    if (policy == ConstructionPolicy.TRUSTED) {
+      this.verified = true;
+    }
+  }
+
+  /**
+   * @param verify Whether to verify the signature, if not the ticket is unverified until verify()
+   *               is called
+   */
+  Ticket(int devconId, BigInteger ticketId, int ticketClass, byte[] commitment, byte[] signature, AsymmetricKeyParameter publicKey, boolean verify) {
     this.ticketId = ticketId;
     this.ticketClass = ticketClass;
     this.devconId = devconId;
@@ -80,47 +114,65 @@ public class Ticket implements Attestable {
       throw new RuntimeException(e);
     }
     this.signature = signature;
-    ASN1Sequence ticket = makeTicket();
-    try {
-      this.encoded = encodeSignedTicket(ticket);
-    } catch (IOException e) {
-      throw new RuntimeException(e);
-    }
+    this.encodedTicket = encodeTicket(devconId, ticketId, ticketClass);
+    this.encoded = encodeSignedTicket();
     this.publicKey = publicKey;
-    if (!verify()) {
+    if (verify && !verify()) {
       throw new IllegalArgumentException("Signature is invalid");
     }
   }
 
-  private ASN1Sequence makeTicket() {
-    ASN1EncodableVector ticket = new ASN1EncodableVector();
-    ticket.add(new ASN1Integer(devconId));
-    ticket.add(new ASN1Integer(ticketId));
-    ticket.add(new ASN1Integer(ticketClass));
-    return new DERSequence(ticket);
+  /**
+   * Constructs the DER encoding of the signed part of the ticket, that is
+   * SEQUENCE { devconId INTEGER, ticketId INTEGER, ticketClass INTEGER }.
+   * The lengths are computed up front and the encoding is written in a single pass.
+   */
+  static byte[] encodeTicket(int devconId, BigInteger ticketId, int ticketClass) {
+    byte[] ticketIdBytes = ticketId.toByteArray();
+    int contentLength = DERUtility.encodedIntegerLength(devconId)
+        + DERUtility.encodedLength(ticketIdBytes.length)
+        + DERUtility.encodedIntegerLength(ticketClass);
+    byte[] res = new byte[DERUtility.encodedLength(contentLength)];
+    int pos = DERUtility.writeHeader(res, 0, SEQUENCE, contentLength);
+    pos = DERUtility.writeInteger(res, pos, devconId);
+    pos = DERUtility.writeElement(res, pos, INTEGER, ticketIdBytes);
+    DERUtility.writeInteger(res, pos, ticketClass);
+    return res;
   }
 
-  private byte[] encodeSignedTicket(ASN1Sequence ticket) throws IOException {
-    ASN1EncodableVector signedTicket = new ASN1EncodableVector();
-    signedTicket.add(ticket);
-    signedTicket.add(new DEROctetString(commitment));
-    signedTicket.add(new DERBitString(signature));
-    return new DERSequence(signedTicket).getEncoded();
+  /**
+   * SEQUENCE { ticket, commitment OCTET STRING, signature BIT STRING }
+   */
+  private byte[] encodeSignedTicket() {
+    int contentLength = encodedTicket.length + DERUtility.encodedLength(commitment.length)
+        + DERUtility.encodedBitStringLength(signature.length);
+    byte[] res = new byte[DERUtility.encodedLength(contentLength)];
+    int pos = DERUtility.writeHeader(res, 0, SEQUENCE, contentLength);
+    System.arraycopy(encodedTicket, 0, res, pos, encodedTicket.length);
+    pos += encodedTicket.length;
+    pos = DERUtility.writeElement(res, pos, OCTET_STRING, commitment);
+    DERUtility.writeBitString(res, pos, signature);
+    return res;
   }
 
+  /**
+   * SEQUENCE { ticket, commitment OCTET STRING, SubjectPublicKeyInfo, signature BIT STRING }
+   */
   public byte[] getDerEncodingWithPK() {
     try {
-      ASN1Sequence ticket = makeTicket();
-      ASN1EncodableVector signedTicket = new ASN1EncodableVector();
-      signedTicket.add(ticket);
-      signedTicket.add(new DEROctetString(commitment));
-      ASN1EncodableVector publicKeyInfo = new ASN1EncodableVector();
-      SubjectPublicKeyInfo spki = SubjectPublicKeyInfoFactory.createSubjectPublicKeyInfo(publicKey);
-      publicKeyInfo.add(spki.getAlgorithm());
-      publicKeyInfo.add(spki.getPublicKeyData());
-      signedTicket.add(new DERSequence(publicKeyInfo));
-      signedTicket.add(new DERBitString(signature));
-      return new DERSequence(signedTicket).getEncoded();
+      byte[] spki = SubjectPublicKeyInfoFactory.createSubjectPublicKeyInfo(publicKey)
+          .getEncoded(ASN1Encoding.DER);
+      int contentLength = encodedTicket.length + DERUtility.encodedLength(commitment.length)
+          + spki.length + DERUtility.encodedBitStringLength(signature.length);
+      byte[] res = new byte[DERUtility.encodedLength(contentLength)];
+      int pos = DERUtility.writeHeader(res, 0, SEQUENCE, contentLength);
+      System.arraycopy(encodedTicket, 0, res, pos, encodedTicket.length);
+      pos += encodedTicket.length;
+      pos = DERUtility.writeElement(res, pos, OCTET_STRING, commitment);
+      System.arraycopy(spki, 0, res, pos, spki.length);
+      pos += spki.length;
+      DERUtility.writeBitString(res, pos, signature);
+      return res;
     } catch (IOException e) {
       throw new RuntimeException("Could not create public key info");
     }
@@ -139,14 +191,63 @@ public class Ticket implements Attestable {
     return URLUtility.encodeList(Arrays.asList(this.encoded, keyInfo.getPublicKeyData().getEncoded()));
   }
 
+  /**
+   * Encodes the ticket in the compact binary format for QR codes, that is
+   * version || devconId || ticketId || ticketClass || commitment || r || s
+   * where the version is a single byte, the integers are unsigned varints, the commitment is a
+   * compressed point of 33 bytes and r and s are the signature as 32 byte unsigned big endian
+   * integers.
+   * The signature is the same as in the DER encoding, that is, over the DER encoded
+   * SEQUENCE { devconId, ticketId, ticketClass }, so the signed message has the same canonical form
+   * regardless of the format the ticket is transported in and one format can be converted into
+   * the other.
+   */
+  public byte[] getCompactEncoding() {
+    BigInteger[] rs = SignatureUtility.decodeSignature(signature);
+    if (rs == null || devconId < 0 || ticketClass < 0 || ticketId.signum() < 0) {
+      throw new IllegalArgumentException("Ticket cannot be encoded in the compact format");
+    }
+    byte[] compressedCommitment = AttestationCrypto.decodePoint(commitment).getEncoded(true);
+    int length = 1 + VarInt.encodedLength(devconId) + VarInt.encodedLength(ticketId)
+        + VarInt.encodedLength(ticketClass) + COMPACT_COMMITMENT_LENGTH + 2 * COMPACT_SCALAR_LENGTH;
+    byte[] res = new byte[length];
+    res[0] = COMPACT_VERSION;
+    int pos = VarInt.write(res, 1, devconId);
+    pos = VarInt.write(res, pos, ticketId);
+    pos = VarInt.write(res, pos, ticketClass);
+    System.arraycopy(compressedCommitment, 0, res, pos, COMPACT_COMMITMENT_LENGTH);
+    pos += COMPACT_COMMITMENT_LENGTH;
+    pos = writeScalar(res, pos, rs[0]);
+    writeScalar(res, pos, rs[1]);
+    return res;
+  }
+
+  private static int writeScalar(byte[] out, int pos, BigInteger value) {
+    byte[] bytes = value.toByteArray();
+    // Skip the sign byte, if any
+    int skip = bytes.length > COMPACT_SCALAR_LENGTH ? bytes.length - COMPACT_SCALAR_LENGTH : 0;
+    int length = bytes.length - skip;
+    System.arraycopy(bytes, skip, out, pos + COMPACT_SCALAR_LENGTH - length, length);
+    return pos + COMPACT_SCALAR_LENGTH;
+  }
+
+  /**
+   * Returns the compact encoding for use in a magic link, which is considerably shorter than the
+   * DER encoding and thus gives a QR code of a lower version
+   */
+  public String getCompactUrlEncoding() {
+    return URLUtility.encodeData(getCompactEncoding());
+  }
+
   @Override
   public boolean verify() {
-    try {
-      ASN1Sequence ticket = makeTicket();
-      return SignatureUtility.verify(ticket.getEncoded(), signature, this.publicKey);
-    } catch (IOException e) {
-      throw new RuntimeException(e);
-    }
+    verified = SignatureUtility.verify(encodedTicket, signature, this.publicKey);
+    return verified;
+  }
+
+  @Override
+  public boolean isVerified() {
+    return verified;
   }
 
   @Override
@@ -183,4 +284,69 @@ public class Ticket implements Attestable {
   public AsymmetricKeyParameter getPublicKey() {
     return publicKey;
   }
+
+  /**
+   * Builds and signs tickets. By default the signature of each ticket is verified after signing,
+   * which can be skipped for bulk issuance through ConstructionPolicy.TRUSTED.
+   */
+  public static class Builder {
+    private String mail;
+    private int devconId;
+    private BigInteger ticketId;
+    private int ticketClass;
+    private AsymmetricCipherKeyPair keys;
+    private BigInteger secret;
+    private ConstructionPolicy policy = ConstructionPolicy.VERIFY;
+
+    /**
+     * @param mail The mail address of the recipient
+     */
+    public Builder mail(String mail) {
+      this.mail = mail;
+      return this;
+    }
+
+    public Builder devconId(int devconId) {
+      this.devconId = devconId;
+      return this;
+    }
+
+    public Builder ticketId(BigInteger ticketId) {
+      this.ticketId = ticketId;
+      return this;
+    }
+
+    public Builder ticketClass(int ticketClass) {
+      this.ticketClass = ticketClass;
+      return this;
+    }
+
+    /**
+     * @param keys The keys used to sign the ticket
+     */
+    public Builder keys(AsymmetricCipherKeyPair keys) {
+      this.keys = keys;
+      return this;
+    }
+
+    /**
+     * @param secret The secret that must be known to use the ticket
+     */
+    public Builder secret(BigInteger secret) {
+      this.secret = secret;
+      return this;
+    }
+
+    public Builder policy(ConstructionPolicy policy) {
+      this.policy = policy;
+      return this;
+    }
+
+    public Ticket build() {
+      if (mail == null || ticketId == null || keys == null || secret == null || policy == null) {
+        throw new IllegalStateException("Mail, ticket id, keys, secret and policy must be set");
+      }
+      return new Ticket(mail, devconId, ticketId, ticketClass, keys, secret, policy);
+    }
+  }
 }
@@ -1,7 +1,9 @@
 package org.devcon.ticket;
 
 import com.alphawallet.attestation.AttestableObjectDecoder;
+import com.alphawallet.attestation.core.DERGate;
 import com.alphawallet.attestation.core.SignatureUtility;
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.math.BigInteger;
 import java.util.Arrays;
@@ -29,7 +31,31 @@ public class TicketDecoder implements AttestableObjectDecoder<Ticket> {
 
   @Override
   public Ticket decode(byte[] encoding) throws IOException {
-    ASN1InputStream input = new ASN1InputStream(encoding);
+    return decode(encoding, 0, encoding.length);
+  }
+
+  @Override
+  public Ticket decode(byte[] buffer, int offset, int length) throws IOException {
+    return decode(buffer, offset, length, true);
+  }
+
+  @Override
+  public Ticket decodeUnverified(byte[] buffer, int offset, int length) throws IOException {
+    return decode(buffer, offset, length, false);
+  }
+
+  private Ticket decode(byte[] buffer, int offset, int length, boolean verify) throws IOException {
+    if (CompactTicketDecoder.isCompact(buffer, offset, length)) {
+      // Magic links may carry the ticket in the compact format rather than DER
+      if (publicKey == null) {
+        throw new IOException("The public key must be supplied to decode a compact ticket");
+      }
+      CompactTicketDecoder compactDecoder = new CompactTicketDecoder(publicKey);
+      return verify ? compactDecoder.decode(buffer, offset, length)
+          : compactDecoder.decodeUnverified(buffer, offset, length);
+    }
+    DERGate.getDefault().check(buffer, offset, length);
+    ASN1InputStream input = new ASN1InputStream(new ByteArrayInputStream(buffer, offset, length), length);
     ASN1Sequence asn1 = ASN1Sequence.getInstance(input.readObject());
     ASN1Sequence ticket = ASN1Sequence.getInstance(asn1.getObjectAt(0));
     int devconId = (ASN1Integer.getInstance(ticket.getObjectAt(0))).getValue().intValueExact();
@@ -49,7 +75,7 @@ public class TicketDecoder implements AttestableObjectDecoder<Ticket> {
      */
     byte[] commitment = (ASN1OctetString.getInstance(asn1.getObjectAt(1))).getOctets();
     byte[] signature = parsePKandSignature(asn1);
-    return new Ticket(devconId, ticketId, ticketClassInt, commitment, signature, publicKey);
+    return new Ticket(devconId, ticketId, ticketClassInt, commitment, signature, publicKey, verify);
   }
 
   /**
@@ -0,0 +1,318 @@
+package org.devcon.ticket;
+
+import com.alphawallet.attestation.core.AttestationCrypto;
+import com.alphawallet.attestation.core.Base64Url;
+import com.alphawallet.attestation.core.DERGate;
+import com.alphawallet.attestation.core.DERSlice;
+import com.alphawallet.attestation.core.DERUtility;
+import com.alphawallet.attestation.core.SignatureUtility;
+import java.io.IOException;
+import java.math.BigInteger;
+import java.util.Arrays;
+import org.bouncycastle.asn1.ASN1ObjectIdentifier;
+import org.bouncycastle.asn1.x509.AlgorithmIdentifier;
+import org.bouncycastle.crypto.params.AsymmetricKeyParameter;
+import org.bouncycastle.crypto.params.ECPublicKeyParameters;
+import org.bouncycastle.crypto.util.SubjectPublicKeyInfoFactory;
+
+/**
+ * Decodes ticket magic links, i.e. links with the query ticket=...&secret=..., in a single pass.
+ * The parameters are located in the link without splitting it, the ticket parameter is Base64
+ * decoded into one buffer and the ticket and the public key of the issuer are parsed from slices
+ * of that buffer. This replaces URLUtility.decodeList, TicketDecoder.decode and
+ * SignatureUtility.restoreKey.
+ * The ticket parameter may hold a DER encoded ticket, with or without the public key, a compact
+ * ticket, or the URL encoding of Ticket.getUrlEncoding(), which also holds the public key.
+ */
+public class TicketLinkDecoder {
+  public static final String TICKET_PARAMETER = "ticket";
+  public static final String SECRET_PARAMETER = "secret";
+  // Decimal secrets up to this length fit in a long
+  private static final int MAX_LONG_DIGITS = 18;
+  // The AlgorithmIdentifier assumed by SignatureUtility.restoreKey(byte[])
+  private static final byte[] DEFAULT_ALGORITHM = encodeDefaultAlgorithm();
+
+  private final AsymmetricKeyParameter publicKey;
+
+  /**
+   * @param publicKey The public key of the issuer, or null to use the key in the link
+   */
+  public TicketLinkDecoder(AsymmetricKeyParameter publicKey) {
+    this.publicKey = publicKey;
+  }
+
+  public static class TicketLink {
+    private final Ticket ticket;
+    private final BigInteger secret;
+    private final AsymmetricKeyParameter linkKey;
+
+    private TicketLink(Ticket ticket, BigInteger secret, AsymmetricKeyParameter linkKey) {
+      this.ticket = ticket;
+      this.secret = secret;
+      this.linkKey = linkKey;
+    }
+
+    public Ticket getTicket() {
+      return ticket;
+    }
+
+    /**
+     * Returns the secret of the link, or null if the link has none
+     */
+    public BigInteger getSecret() {
+      return secret;
+    }
+
+    /**
+     * Returns the public key of the issuer included in the link, or null if there is none
+     */
+    public AsymmetricKeyParameter getLinkKey() {
+      return linkKey;
+    }
+  }
+
+  /**
+   * Decodes and verifies the ticket of a link
+   * @param link The entire link or only its query
+   */
+  public TicketLink decode(CharSequence link) throws IOException {
+    return decode(link, true);
+  }
+
+  public TicketLink decodeUnverified(CharSequence link) throws IOException {
+    return decode(link, false);
+  }
+
+  private TicketLink decode(CharSequence link, boolean verify) throws IOException {
+    int ticketStart = -1;
+    int ticketEnd = -1;
+    int secretStart = -1;
+    int secretEnd = -1;
+    int end = indexOf(link, '#', 0, link.length());
+    int query = indexOf(link, '?', 0, end);
+    int pos = query < end ? query + 1 : 0;
+    while (pos < end) {
+      int parameterEnd = indexOf(link, '&', pos, end);
+      // Parameters without a value are skipped
+      int nameEnd = indexOf(link, '=', pos, parameterEnd);
+      if (nameEnd == parameterEnd) {
+        pos = parameterEnd + 1;
+        continue;
+      }
+      if (isParameter(link, pos, nameEnd, TICKET_PARAMETER)) {
+        ticketStart = nameEnd + 1;
+        ticketEnd = parameterEnd;
+      } else if (isParameter(link, pos, nameEnd, SECRET_PARAMETER)) {
+        secretStart = nameEnd + 1;
+        secretEnd = parameterEnd;
+      }
+      pos = parameterEnd + 1;
+    }
+    if (ticketStart < 0) {
+      throw new IOException("The link does not contain a ticket");
+    }
+    BigInteger secret = secretStart < 0 ? null : parseSecret(link, secretStart, secretEnd);
+    byte[] buffer = Base64Url.decode(link, ticketStart, ticketEnd);
+    return decodeTicketParameter(buffer, secret, verify);
+  }
+
+  private TicketLink decodeTicketParameter(byte[] buffer, BigInteger secret, boolean verify) throws IOException {
+    if (CompactTicketDecoder.isCompact(buffer, 0, buffer.length)) {
+      return new TicketLink(decodeTicket(buffer, 0, buffer.length, null, verify), secret, null);
+    }
+    DERGate.getDefault().check(buffer);
+    DERSlice outer = DERSlice.read(buffer).expectTag(DERSlice.TAG_SEQUENCE);
+    DERSlice first = outer.getFirstChild();
+    if (first.getTag() != DERSlice.TAG_OCTET_STRING) {
+      // Only the ticket
+      return new TicketLink(decodeTicket(buffer, 0, buffer.length, null, verify), secret, null);
+    }
+    // The list of Ticket.getUrlEncoding() of the ticket followed by the key
+    DERSlice key = next(first, outer.getEnd()).expectTag(DERSlice.TAG_OCTET_STRING);
+    if (key.getEnd() != outer.getEnd()) {
+      throw new IOException("Unexpected elements in ticket link");
+    }
+    DERSlice keyBits = DERSlice.read(buffer, key.getValueOffset(), key.getEnd()).expectTag(DERSlice.TAG_BIT_STRING);
+    if (keyBits.getEnd() != key.getEnd()) {
+      throw new IOException("Trailing data after public key");
+    }
+    AsymmetricKeyParameter linkKey = restoreKey(buffer, keyBits);
+    Ticket ticket = decodeTicket(buffer, first.getValueOffset(), first.getEnd(), linkKey, verify);
+    return new TicketLink(ticket, secret, linkKey);
+  }
+
+  /**
+   * Decodes the compact or DER encoded ticket from offset to end
+   * @param linkKey The public key included in the link next to the ticket, if any
+   */
+  private Ticket decodeTicket(byte[] buffer, int offset, int end, AsymmetricKeyParameter linkKey, boolean verify)
+      throws IOException {
+    if (CompactTicketDecoder.isCompact(buffer, offset, end - offset)) {
+      CompactTicketDecoder decoder = new CompactTicketDecoder(issuerKey(linkKey));
+      return verify ? decoder.decode(buffer, offset, end - offset)
+          : decoder.decodeUnverified(buffer, offset, end - offset);
+    }
+    DERSlice signed = DERSlice.read(buffer, offset, end).expectTag(DERSlice.TAG_SEQUENCE);
+    if (signed.getEnd() != end) {
+      throw new IOException("Trailing data after ticket");
+    }
+    DERSlice ticket = signed.getFirstChild().expectTag(DERSlice.TAG_SEQUENCE);
+    DERSlice devconId = ticket.getFirstChild().expectTag(DERSlice.TAG_INTEGER);
+    DERSlice ticketId = next(devconId, ticket.getEnd()).expectTag(DERSlice.TAG_INTEGER);
+    DERSlice ticketClass = next(ticketId, ticket.getEnd()).expectTag(DERSlice.TAG_INTEGER);
+    if (ticketClass.getEnd() != ticket.getEnd()) {
+      throw new IOException("Unexpected elements in ticket");
+    }
+    DERSlice commitment = next(ticket, signed.getEnd()).expectTag(DERSlice.TAG_OCTET_STRING);
+    DERSlice signature = next(commitment, signed.getEnd());
+    if (signature.getTag() == DERSlice.TAG_SEQUENCE) {
+      // The optional PublicKeyInfo is included
+      DERSlice algorithm = signature.getFirstChild().expectTag(DERSlice.TAG_SEQUENCE);
+      DERSlice keyBits = next(algorithm, signature.getEnd()).expectTag(DERSlice.TAG_BIT_STRING);
+      if (keyBits.getEnd() != signature.getEnd()) {
+        throw new IOException("Unexpected elements in public key info");
+      }
+      AsymmetricKeyParameter ticketKey = restoreKey(buffer, algorithm, keyBits);
+      if (linkKey != null && !sameKey(linkKey, ticketKey)) {
+        throw new IllegalArgumentException("The public key of the ticket is not the same as in the link");
+      }
+      linkKey = ticketKey;
+      signature = next(signature, signed.getEnd());
+    }
+    signature.expectTag(DERSlice.TAG_BIT_STRING);
+    if (signature.getEnd() != signed.getEnd() || signature.getValueLength() < 1
+        || buffer[signature.getValueOffset()] != 0) {
+      throw new IOException("Invalid signature encoding");
+    }
+    return new Ticket(
+        intValue(buffer, devconId),
+        new BigInteger(ticketId.getValue()),
+        intValue(buffer, ticketClass),
+        commitment.getValue(),
+        Arrays.copyOfRange(buffer, signature.getValueOffset() + 1, signature.getEnd()),
+        issuerKey(linkKey),
+        verify);
+  }
+
+  /**
+   * Returns the key to verify with, which is the supplied key if any, and otherwise the key in
+   * the link. If both are present they must be the same.
+   */
+  private AsymmetricKeyParameter issuerKey(AsymmetricKeyParameter linkKey) throws IOException {
+    if (publicKey == null) {
+      if (linkKey == null) {
+        throw new IOException("The public key must be supplied for links without one");
+      }
+      return linkKey;
+    }
+    if (linkKey != null && !sameKey(publicKey, linkKey)) {
+      throw new IllegalArgumentException("The public key is not the same as supplied as argument");
+    }
+    return publicKey;
+  }
+
+  /**
+   * Restores a key encoded as a BIT STRING on the curve of SignatureUtility.restoreKey(byte[])
+   */
+  private static AsymmetricKeyParameter restoreKey(byte[] buffer, DERSlice keyBits) throws IOException {
+    if (keyBits.getValueLength() < 2 || buffer[keyBits.getValueOffset()] != 0) {
+      throw new IOException("Invalid public key encoding");
+    }
+    byte[] point = Arrays.copyOfRange(buffer, keyBits.getValueOffset() + 1, keyBits.getEnd());
+    try {
+      return new ECPublicKeyParameters(AttestationCrypto.ECDSACurve.getCurve().decodePoint(point),
+          AttestationCrypto.ECDSAdomain);
+    } catch (IllegalArgumentException e) {
+      throw new IOException("Invalid public key", e);
+    }
+  }
+
+  /**
+   * Restores a key with its AlgorithmIdentifier, directly from the point for the usual curve
+   */
+  private static AsymmetricKeyParameter restoreKey(byte[] buffer, DERSlice algorithm, DERSlice keyBits)
+      throws IOException {
+    if (algorithm.encodingEquals(DEFAULT_ALGORITHM)) {
+      return restoreKey(buffer, keyBits);
+    }
+    return SignatureUtility.restoreKey(AlgorithmIdentifier.getInstance(algorithm.getEncoded()), keyBits.getEncoded());
+  }
+
+  private static boolean sameKey(AsymmetricKeyParameter first, AsymmetricKeyParameter second) throws IOException {
+    if (first instanceof ECPublicKeyParameters && second instanceof ECPublicKeyParameters) {
+      ECPublicKeyParameters firstEC = (ECPublicKeyParameters) first;
+      ECPublicKeyParameters secondEC = (ECPublicKeyParameters) second;
+      return firstEC.getParameters().getCurve().equals(secondEC.getParameters().getCurve())
+          && firstEC.getQ().equals(secondEC.getQ());
+    }
+    return Arrays.equals(SubjectPublicKeyInfoFactory.createSubjectPublicKeyInfo(first).getEncoded(),
+        SubjectPublicKeyInfoFactory.createSubjectPublicKeyInfo(second).getEncoded());
+  }
+
+  private static DERSlice next(DERSlice current, int limit) throws IOException {
+    DERSlice res = current.getNext(limit);
+    if (res == null) {
+      throw new IOException("Missing elements in ticket link");
+    }
+    return res;
+  }
+
+  private static int intValue(byte[] buffer, DERSlice integer) throws IOException {
+    if (integer.getValueLength() > 4) {
+      throw new IOException("Integer out of range");
+    }
+    return (int) DERUtility.decodeLong(buffer, integer.getValueOffset(), integer.getValueLength());
+  }
+
+  /**
+   * Parses a decimal secret without extracting it from the link first, unless it is large
+   */
+  private static BigInteger parseSecret(CharSequence link, int start, int end) throws IOException {
+    if (start == end) {
+      throw new IOException("The secret is empty");
+    }
+    long value = 0;
+    for (int i = start; i < end; i++) {
+      char c = link.charAt(i);
+      if (c < '0' || c > '9') {
+        throw new IOException("The secret must be a decimal number");
+      }
+      value = 10 * value + (c - '0');
+    }
+    return end - start <= MAX_LONG_DIGITS ? BigInteger.valueOf(value)
+        : new BigInteger(link.subSequence(start, end).toString());
+  }
+
+  private static boolean isParameter(CharSequence link, int start, int nameEnd, String name) {
+    if (nameEnd - start != name.length()) {
+      return false;
+    }
+    for (int i = 0; i < name.length(); i++) {
+      if (link.charAt(start + i) != name.charAt(i)) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Returns the index of c in the range, or end if it is not there
+   */
+  private static int indexOf(CharSequence link, char c, int start, int end) {
+    for (int i = start; i < end; i++) {
+      if (link.charAt(i) == c) {
+        return i;
+      }
+    }
+    return end;
+  }
+
+  private static byte[] encodeDefaultAlgorithm() {
+    try {
+      return new AlgorithmIdentifier(new ASN1ObjectIdentifier(AttestationCrypto.OID_SIGNATURE_ALG),
+          AttestationCrypto.ECDSACurve.toASN1Primitive()).getEncoded();
+    } catch (IOException e) {
+      throw new RuntimeException(e);
+    }
+  }
+}
@@ -3,6 +3,8 @@ package com.alphawallet.attestation;
 import static org.junit.jupiter.api.Assertions.assertArrayEquals;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
 import com.alphawallet.attestation.core.AttestationCrypto;
@@ -111,5 +113,40 @@ public class AttestationTest {
         Attestation newAtt = new Attestation(encoding);
         assertArrayEquals(encoding, newAtt.getPrehash());
     }
+    @Test
+    public void testFrozen() throws Exception {
+        Attestation att = HelperTest.makeMaximalAtt(subjectKeys.getPublic());
+        byte[] encoding = att.getPrehash();
+        assertFalse(att.isFrozen());
+        assertSame(att, att.freeze());
+        assertTrue(att.isFrozen());
+        // The encoding is only computed once
+        assertArrayEquals(encoding, att.getPrehash());
+        assertSame(att.prehash(), att.prehash());
+        // Callers get a copy of the cached encoding
+        byte[] copy = att.getDerEncoding();
+        copy[0]++;
+        assertArrayEquals(encoding, att.getPrehash());
+        assertThrows(IllegalStateException.class, () -> att.setSerialNumber(1));
+        assertThrows(IllegalStateException.class, () -> att.setNotValidAfter(new Date()));
+    }
+
+    @Test
+    public void testFrozenExpired() throws Exception {
+        Attestation att = HelperTest.makeUnsignedx509Att(subjectKeys.getPublic());
+        att.setNotValidAfter(new Date(System.currentTimeMillis() + 100));
+        byte[] encoding = att.freeze().getPrehash();
+        Thread.sleep(200);
+        // Encoding no longer depends on the time, but validity does
+        assertFalse(att.checkValidity());
+        assertArrayEquals(encoding, att.getPrehash());
+    }
+
+    @Test
+    public void testFreezeIncomplete() {
+        Attestation att = new Attestation();
+        assertThrows(IllegalStateException.class, att::freeze);
+        assertFalse(att.isFrozen());
+    }
 }
 
@@ -0,0 +1,185 @@
+package com.alphawallet.attestation;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.alphawallet.attestation.core.AttestationCrypto;
+import java.io.IOException;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.security.SecureRandom;
+import java.util.Arrays;
+import org.bouncycastle.asn1.ASN1Encodable;
+import org.bouncycastle.asn1.ASN1EncodableVector;
+import org.bouncycastle.asn1.ASN1OctetString;
+import org.bouncycastle.asn1.ASN1Sequence;
+import org.bouncycastle.asn1.DERBitString;
+import org.bouncycastle.asn1.DERNull;
+import org.bouncycastle.asn1.DERSequence;
+import org.bouncycastle.crypto.AsymmetricCipherKeyPair;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+public class AttestationViewTest {
+  private static AsymmetricCipherKeyPair subjectKeys;
+  private static AsymmetricCipherKeyPair issuerKeys;
+
+  @BeforeAll
+  public static void setupKeys() throws Exception {
+    SecureRandom rand = SecureRandom.getInstance("SHA1PRNG");
+    rand.setSeed("seed".getBytes());
+    AttestationCrypto crypto = new AttestationCrypto(rand);
+    subjectKeys = crypto.constructECKeys();
+    issuerKeys = crypto.constructECKeys();
+  }
+
+  private static void assertSameFields(Attestation att, AttestationView view) {
+    assertEquals(att.getVersion(), view.getVersion());
+    assertEquals(att.getSerialNumber(), view.getSerialNumber());
+    assertEquals(att.getSignature(), view.getSignature());
+    assertEquals(att.getNotValidBefore(), view.getNotValidBefore());
+    assertEquals(att.getNotValidAfter(), view.getNotValidAfter());
+    assertEquals(att.getSubjectPublicKeyInfo(), view.getSubjectPublicKeyInfo());
+    assertEquals(att.getExtensions(), view.getExtensions());
+    assertEquals(att.getDataObject(), view.getDataObject());
+    assertArrayEquals(att.getPrehash(), view.getPrehash());
+  }
+
+  @Test
+  public void standardAttestation() throws Exception {
+    IdentifierAttestation att = HelperTest.makeUnsignedStandardAtt(subjectKeys.getPublic(), BigInteger.TEN, "some@mail.com");
+    SignedAttestation signed = new SignedAttestation(att, issuerKeys);
+    AttestationView view = new AttestationView(signed.getDerEncoding());
+    assertSameFields(att, view);
+    assertEquals(att.getIssuer(), view.getIssuer());
+    assertEquals(att.getSubject(), view.getSubject());
+    assertEquals(att.getSmartcontracts(), view.getSmartcontracts());
+    ASN1Sequence extension = ASN1Sequence.getInstance(att.getExtensions().getObjectAt(0));
+    assertArrayEquals(ASN1OctetString.getInstance(extension.getObjectAt(2)).getOctets(), view.getCommitment());
+    assertArrayEquals(signed.getSignature(), view.getSignatureValue());
+    assertArrayEquals(att.getPrehash(), Arrays.copyOfRange(view.getBuffer(), view.getSignedOffset(),
+        view.getSignedOffset() + view.getSignedLength()));
+    assertTrue(view.verify(issuerKeys.getPublic()));
+    assertFalse(view.verify(subjectKeys.getPublic()));
+    assertTrue(view.checkValidity());
+    assertArrayEquals(att.getPrehash(), view.toAttestation().getPrehash());
+  }
+
+  @Test
+  public void maximalAttestation() throws Exception {
+    Attestation att = HelperTest.makeMaximalAtt(subjectKeys.getPublic());
+    SignedAttestation signed = new SignedAttestation(att, issuerKeys);
+    AttestationView view = new AttestationView(signed.getDerEncoding());
+    assertSameFields(att, view);
+    assertEquals(att.getSmartcontracts(), view.getSmartcontracts());
+    assertNull(view.getCommitment());
+    assertTrue(view.verify(issuerKeys.getPublic()));
+  }
+
+  @Test
+  public void minimalAttestation() throws Exception {
+    Attestation att = HelperTest.makeMinimalAtt();
+    SignedAttestation signed = new SignedAttestation(att, issuerKeys);
+    AttestationView view = new AttestationView(signed.getDerEncoding());
+    assertSameFields(att, view);
+    assertNull(view.getIssuer());
+    assertNull(view.getSubject());
+    assertNull(view.getSmartcontracts());
+    assertNull(view.getSubjectPublicKey());
+    assertTrue(view.verify(issuerKeys.getPublic()));
+  }
+
+  @Test
+  public void byteBuffers() throws Exception {
+    Attestation att = HelperTest.makeUnsignedStandardAtt(subjectKeys.getPublic(), BigInteger.TEN, "some@mail.com");
+    byte[] encoding = new SignedAttestation(att, issuerKeys).getDerEncoding();
+    // Heap buffer where the attestation is not at the start of the array
+    byte[] padded = new byte[encoding.length + 10];
+    System.arraycopy(encoding, 0, padded, 7, encoding.length);
+    ByteBuffer heap = ByteBuffer.wrap(padded, 7, encoding.length);
+    AttestationView heapView = new AttestationView(heap);
+    assertSame(padded, heapView.getBuffer());
+    assertEquals(7, heap.position());
+    assertSameFields(att, heapView);
+    assertTrue(heapView.verify(issuerKeys.getPublic()));
+
+    ByteBuffer direct = ByteBuffer.allocateDirect(encoding.length);
+    direct.put(encoding).flip();
+    AttestationView directView = new AttestationView(direct);
+    assertSameFields(att, directView);
+    assertTrue(directView.verify(issuerKeys.getPublic()));
+  }
+
+  @Test
+  public void tamperedAttestation() throws Exception {
+    Attestation att = HelperTest.makeUnsignedStandardAtt(subjectKeys.getPublic(), BigInteger.TEN, "some@mail.com");
+    byte[] encoding = new SignedAttestation(att, issuerKeys).getDerEncoding();
+    // Change the last byte of the commitment
+    AttestationView original = new AttestationView(encoding);
+    byte[] tampered = encoding.clone();
+    tampered[original.getSignedOffset() + original.getSignedLength() - 1] ^= 0x01;
+    AttestationView view = new AttestationView(tampered);
+    assertFalse(view.verify(issuerKeys.getPublic()));
+  }
+
+  @Test
+  public void malformedEncoding() throws Exception {
+    Attestation att = HelperTest.makeUnsignedStandardAtt(subjectKeys.getPublic(), BigInteger.TEN, "some@mail.com");
+    byte[] encoding = new SignedAttestation(att, issuerKeys).getDerEncoding();
+    assertThrows(IOException.class, () -> new AttestationView(Arrays.copyOf(encoding, encoding.length - 1)));
+    assertThrows(IOException.class, () -> new AttestationView(Arrays.copyOf(encoding, encoding.length + 1)));
+    assertThrows(IOException.class, () -> new AttestationView(att.getPrehash()));
+    byte[] wrongTag = encoding.clone();
+    wrongTag[0] = 0x31;
+    assertThrows(IOException.class, () -> new AttestationView(wrongTag));
+  }
+
+  @Test
+  public void missingElements() throws Exception {
+    assertThrows(IOException.class, () -> new AttestationView(new byte[] {0x30, 0x05, 0x30, 0x03, 0x02, 0x01, 0x01}));
+    Attestation att = HelperTest.makeUnsignedStandardAtt(subjectKeys.getPublic(), BigInteger.TEN, "some@mail.com");
+    ASN1Sequence signed = ASN1Sequence.getInstance(new SignedAttestation(att, issuerKeys).getDerEncoding());
+    ASN1Sequence tbs = ASN1Sequence.getInstance(signed.getObjectAt(0));
+    // The signed part ends after each of its elements
+    for (int i = 1; i < tbs.size(); i++) {
+      ASN1EncodableVector truncatedTbs = new ASN1EncodableVector();
+      for (int j = 0; j < i; j++) {
+        truncatedTbs.add(tbs.getObjectAt(j));
+      }
+      ASN1EncodableVector truncated = new ASN1EncodableVector();
+      truncated.add(new DERSequence(truncatedTbs));
+      truncated.add(signed.getObjectAt(1));
+      truncated.add(signed.getObjectAt(2));
+      byte[] encoding = new DERSequence(truncated).getEncoded();
+      assertThrows(IOException.class, () -> new AttestationView(encoding));
+    }
+    // The algorithm or signature is missing
+    for (int i = 1; i < signed.size(); i++) {
+      ASN1EncodableVector truncated = new ASN1EncodableVector();
+      for (int j = 0; j < i; j++) {
+        truncated.add(signed.getObjectAt(j));
+      }
+      byte[] encoding = new DERSequence(truncated).getEncoded();
+      assertThrows(IOException.class, () -> new AttestationView(encoding));
+    }
+  }
+
+  @Test
+  public void malformedSignature() throws Exception {
+    Attestation att = HelperTest.makeUnsignedStandardAtt(subjectKeys.getPublic(), BigInteger.TEN, "some@mail.com");
+    ASN1Sequence signed = ASN1Sequence.getInstance(new SignedAttestation(att, issuerKeys).getDerEncoding());
+    // An empty BIT STRING, which replaces a NULL of the same length
+    byte[] empty = new DERSequence(new ASN1Encodable[] {signed.getObjectAt(0), signed.getObjectAt(1), DERNull.INSTANCE}).getEncoded();
+    empty[empty.length - 2] = 0x03;
+    assertThrows(IOException.class, () -> new AttestationView(empty));
+    // A signature with unused bits
+    byte[] signature = DERBitString.getInstance(signed.getObjectAt(2)).getBytes();
+    byte[] unusedBits = new DERSequence(new ASN1Encodable[] {signed.getObjectAt(0), signed.getObjectAt(1), new DERBitString(signature, 1)}).getEncoded();
+    assertThrows(IOException.class, () -> new AttestationView(unusedBits));
+  }
+}
@@ -0,0 +1,128 @@
+package com.alphawallet.attestation;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.alphawallet.attestation.core.AttestationCrypto;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.math.BigInteger;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.SecureRandom;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import org.bouncycastle.crypto.AsymmetricCipherKeyPair;
+import org.devcon.ticket.Ticket;
+import org.devcon.ticket.TicketDecoder;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+public class DERFileReaderTest {
+  private static final int AMOUNT = 40;
+  private static AsymmetricCipherKeyPair senderKeys;
+  private static List<byte[]> encodings;
+
+  @TempDir
+  Path tempDir;
+
+  @BeforeAll
+  public static void setup() throws Exception {
+    SecureRandom rand = SecureRandom.getInstance("SHA1PRNG");
+    rand.setSeed("seed".getBytes());
+    AttestationCrypto crypto = new AttestationCrypto(rand);
+    senderKeys = crypto.constructECKeys();
+    encodings = new ArrayList<>();
+    for (int i = 0; i < AMOUNT; i++) {
+      Ticket ticket = new Ticket("test@test.ts", 6, BigInteger.valueOf(i), 0, senderKeys, BigInteger.TEN);
+      // Mix encodings with and without the public key
+      encodings.add(i % 2 == 0 ? ticket.getDerEncoding() : ticket.getDerEncodingWithPK());
+    }
+  }
+
+  private Path writeFile(List<byte[]> objects) throws IOException {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    for (byte[] current : objects) {
+      out.write(current);
+    }
+    Path file = tempDir.resolve("objects.der");
+    Files.write(file, out.toByteArray());
+    return file;
+  }
+
+  @Test
+  public void sequential() throws Exception {
+    Path file = writeFile(encodings);
+    List<Ticket> res = new ArrayList<>();
+    DERFileReader.Statistics stats = new DERFileReader<>(file, () -> new TicketDecoder(senderKeys.getPublic()))
+        .read(res::add);
+    assertEquals(AMOUNT, stats.getObjects());
+    assertEquals(0, stats.getFailed());
+    assertEquals(Files.size(file), stats.getBytes());
+    assertTrue(stats.getObjectsPerSecond() > 0);
+    for (int i = 0; i < AMOUNT; i++) {
+      assertEquals(BigInteger.valueOf(i), res.get(i).getTicketId());
+    }
+  }
+
+  @Test
+  public void smallWindows() throws Exception {
+    Path file = writeFile(encodings);
+    List<Ticket> res = new ArrayList<>();
+    // Windows only fit a few objects, so objects span window boundaries
+    DERFileReader.Statistics stats = new DERFileReader<>(file, () -> new TicketDecoder(senderKeys.getPublic()), 500)
+        .read(res::add);
+    assertEquals(AMOUNT, stats.getObjects());
+    for (int i = 0; i < AMOUNT; i++) {
+      byte[] expected = encodings.get(i);
+      assertArrayEquals(expected, i % 2 == 0 ? res.get(i).getDerEncoding() : res.get(i).getDerEncodingWithPK());
+      assertEquals(BigInteger.valueOf(i), res.get(i).getTicketId());
+    }
+  }
+
+  @Test
+  public void parallel() throws Exception {
+    Path file = writeFile(encodings);
+    List<Ticket> res = Collections.synchronizedList(new ArrayList<>());
+    DERFileReader.Statistics stats = new DERFileReader<>(file, () -> new TicketDecoder(senderKeys.getPublic()), 700)
+        .readParallel(res::add, 4);
+    assertEquals(AMOUNT, stats.getObjects());
+    assertEquals(Files.size(file), stats.getBytes());
+    res.sort(Comparator.comparing(Ticket::getTicketId));
+    for (int i = 0; i < AMOUNT; i++) {
+      assertEquals(BigInteger.valueOf(i), res.get(i).getTicketId());
+    }
+  }
+
+  @Test
+  public void invalidObjectsAreCounted() throws Exception {
+    List<byte[]> objects = new ArrayList<>(encodings);
+    // Break the signature of one ticket while keeping the TLV intact
+    byte[] broken = objects.get(3).clone();
+    broken[broken.length - 1] ^= 0x01;
+    objects.set(3, broken);
+    Path file = writeFile(objects);
+    List<Ticket> res = new ArrayList<>();
+    DERFileReader.Statistics stats = new DERFileReader<>(file, () -> new TicketDecoder(senderKeys.getPublic()))
+        .read(res::add);
+    assertEquals(AMOUNT - 1, stats.getObjects());
+    assertEquals(1, stats.getFailed());
+  }
+
+  @Test
+  public void truncatedFile() throws Exception {
+    byte[] last = encodings.get(AMOUNT - 1);
+    List<byte[]> objects = new ArrayList<>(encodings.subList(0, AMOUNT - 1));
+    objects.add(Arrays.copyOf(last, last.length - 1));
+    Path file = writeFile(objects);
+    DERFileReader<Ticket> reader = new DERFileReader<>(file, () -> new TicketDecoder(senderKeys.getPublic()));
+    assertThrows(IOException.class, () -> reader.read(ticket -> {}));
+    assertThrows(IOException.class, () -> reader.readParallel(ticket -> {}, 3));
+  }
+}
@@ -8,6 +8,7 @@ import com.alphawallet.attestation.core.AttestationCrypto;
 import java.lang.reflect.Field;
 import java.math.BigInteger;
 import java.security.SecureRandom;
+import java.util.Arrays;
 
 import com.alphawallet.attestation.core.AttestationCryptoWithEthereumCharacteristics;
 import org.bouncycastle.asn1.ASN1ObjectIdentifier;
@@ -16,6 +17,8 @@ import org.bouncycastle.asn1.x509.AlgorithmIdentifier;
 import org.bouncycastle.asn1.x509.SubjectPublicKeyInfo;
 import org.bouncycastle.crypto.AsymmetricCipherKeyPair;
 import org.bouncycastle.crypto.util.SubjectPublicKeyInfoFactory;
+import org.bouncycastle.jcajce.provider.digest.Keccak;
+import org.bouncycastle.util.encoders.Hex;
 import org.junit.jupiter.api.BeforeAll;
 import org.junit.jupiter.api.Test;
 
@@ -108,4 +111,24 @@ public class IdentifierAttestationTest {
     assertFalse(initial.checkValidity());
   }
 
+  @Test
+  public void testPublicKeyNotOnCurve() throws Exception {
+    IdentifierAttestation initial = HelperTest.makeUnsignedStandardAtt(subjectKeys.getPublic(), BigInteger.ONE, mail);
+    Field field = initial.getClass().getSuperclass().getDeclaredField("subjectPublicKeyInfo");
+    field.setAccessible(true);
+    // Move the public key off the curve
+    SubjectPublicKeyInfo spki = SubjectPublicKeyInfoFactory.createSubjectPublicKeyInfo(subjectKeys.getPublic());
+    byte[] point = spki.getPublicKeyData().getBytes();
+    point[point.length - 1]++;
+    spki = new SubjectPublicKeyInfo(spki.getAlgorithm(), point);
+    field.set(initial, spki);
+    // Make the subject match the address of the invalid key
+    byte[] encoded = spki.getPublicKeyData().getEncoded();
+    byte[] hash = new Keccak.Digest256().digest(Arrays.copyOfRange(encoded, 1, encoded.length));
+    field = initial.getClass().getSuperclass().getDeclaredField("subject");
+    field.setAccessible(true);
+    field.set(initial, new X500Name("CN=0x" + Hex.toHexString(hash, 12, 20).toUpperCase()));
+    assertFalse(initial.checkValidity());
+  }
+
 }
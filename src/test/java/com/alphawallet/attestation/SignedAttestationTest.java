@@ -1,13 +1,20 @@
 package com.alphawallet.attestation;
 
 import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.junit.jupiter.api.Assertions.fail;
 
 import com.alphawallet.attestation.core.AttestationCrypto;
 import com.alphawallet.attestation.core.AttestationCryptoWithEthereumCharacteristics;
+import com.alphawallet.attestation.core.DERGate;
+import com.alphawallet.attestation.core.DERGate.RejectedException;
 import com.alphawallet.attestation.core.SignatureUtility;
 import java.io.ByteArrayInputStream;
+import java.io.IOException;
 import java.math.BigInteger;
 import java.security.PublicKey;
 import java.security.SecureRandom;
@@ -15,6 +22,12 @@ import java.security.cert.CertificateExpiredException;
 import java.security.cert.CertificateFactory;
 import java.security.cert.CertificateNotYetValidException;
 import java.security.cert.X509Certificate;
+import java.util.Date;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.bouncycastle.asn1.ASN1Encodable;
+import org.bouncycastle.asn1.ASN1Sequence;
+import org.bouncycastle.asn1.DERNull;
+import org.bouncycastle.asn1.DERSequence;
 import org.bouncycastle.crypto.AsymmetricCipherKeyPair;
 import org.bouncycastle.crypto.Digest;
 import org.bouncycastle.crypto.digests.SHA256Digest;
@@ -59,6 +72,67 @@ public class SignedAttestationTest {
     assertArrayEquals(signed.getDerEncoding(), newSigned.getDerEncoding());
   }
 
+  @Test
+  public void testFrozenAttestation() throws Exception {
+    Attestation att = HelperTest.makeUnsignedStandardAtt(subjectKeys.getPublic(), BigInteger.ONE, "some@mail.com").freeze();
+    SignedAttestation signed = new SignedAttestation(att, issuerKeys);
+    assertTrue(signed.verify());
+    // The encoding is cached, but callers get a copy of it
+    assertSame(signed.derEncoding(), signed.derEncoding());
+    byte[] copy = signed.getDerEncoding();
+    copy[copy.length - 1]++;
+    assertArrayEquals(signed.derEncoding(), new SignedAttestation(signed.getDerEncoding(), issuerKeys.getPublic()).getDerEncoding());
+    SignedAttestation newSigned = new SignedAttestation(signed.getDerEncoding(), issuerKeys.getPublic());
+    assertTrue(newSigned.getUnsignedAttestation().isFrozen());
+    assertArrayEquals(signed.getDerEncoding(), newSigned.getDerEncoding());
+    assertThrows(IllegalStateException.class, () -> att.setSerialNumber(2));
+  }
+
+  @Test
+  public void testDecodeExpired() throws Exception {
+    Attestation att = HelperTest.makeUnsignedStandardAtt(subjectKeys.getPublic(), BigInteger.ONE, "some@mail.com");
+    att.setNotValidAfter(new Date(System.currentTimeMillis() + 100));
+    byte[] encoding = new SignedAttestation(att.freeze(), issuerKeys).getDerEncoding();
+    Thread.sleep(200);
+    assertThrows(IllegalArgumentException.class, () -> new SignedAttestation(encoding, issuerKeys.getPublic()));
+    // Skipping the checks must be asked for explicitly
+    SignedAttestation unverified = SignedAttestation.decodeUnverified(encoding, issuerKeys.getPublic());
+    assertTrue(unverified.verify());
+    assertFalse(unverified.checkValidity());
+  }
+
+  @Test
+  public void testEmptySignature() throws Exception {
+    Attestation att = HelperTest.makeUnsignedStandardAtt(subjectKeys.getPublic(), BigInteger.ONE, "some@mail.com");
+    ASN1Sequence signed = ASN1Sequence.getInstance(new SignedAttestation(att, issuerKeys).getDerEncoding());
+    // Replace the signature with an empty BIT STRING, through a NULL of the same length
+    byte[] encoding = new DERSequence(new ASN1Encodable[] {signed.getObjectAt(0), signed.getObjectAt(1), DERNull.INSTANCE}).getEncoded();
+    encoding[encoding.length - 2] = 0x03;
+    assertThrows(IOException.class, () -> new SignedAttestation(encoding, issuerKeys.getPublic()));
+    assertThrows(IOException.class, () -> SignedAttestation.decodeUnverified(encoding, issuerKeys.getPublic()));
+  }
+
+  @Test
+  public void testGateCheckedOnce() throws Exception {
+    byte[] encoding = new SignedAttestation(HelperTest.makeMaximalAtt(subjectKeys.getPublic()), issuerKeys).getDerEncoding();
+    AtomicInteger checks = new AtomicInteger();
+    DERGate original = DERGate.getDefault();
+    DERGate.setDefault(new DERGate(DERGate.DEFAULT_MAX_LENGTH, DERGate.DEFAULT_MAX_DEPTH, DERGate.DEFAULT_MAX_ELEMENTS) {
+      @Override
+      public void check(byte[] buffer, int offset, int length) throws RejectedException {
+        checks.incrementAndGet();
+        super.check(buffer, offset, length);
+      }
+    });
+    try {
+      new SignedAttestation(encoding, issuerKeys.getPublic());
+      // The nested attestation is not walked again
+      assertEquals(1, checks.get());
+    } finally {
+      DERGate.setDefault(original);
+    }
+  }
+
   @Test
   public void testX509() throws Exception {
     Attestation att = HelperTest.makeUnsignedx509Att(subjectKeys.getPublic());
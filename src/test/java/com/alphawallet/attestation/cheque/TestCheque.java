@@ -3,11 +3,13 @@ package com.alphawallet.attestation.cheque;
 import static org.junit.jupiter.api.Assertions.assertArrayEquals;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
 import com.alphawallet.attestation.core.AttestationCrypto;
 import com.alphawallet.attestation.IdentifierAttestation.AttestationType;
 import com.alphawallet.attestation.core.AttestationCryptoWithEthereumCharacteristics;
+import com.alphawallet.attestation.core.ConstructionPolicy;
 import com.alphawallet.attestation.core.SignatureUtility;
 import com.alphawallet.attestation.core.URLUtility;
 import java.io.IOException;
@@ -15,11 +17,20 @@ import java.lang.reflect.Field;
 import java.math.BigInteger;
 import java.security.SecureRandom;
 import java.util.Arrays;
+import java.util.Date;
 import java.util.List;
+import org.bouncycastle.asn1.ASN1Encodable;
+import org.bouncycastle.asn1.ASN1EncodableVector;
+import org.bouncycastle.asn1.ASN1GeneralizedTime;
+import org.bouncycastle.asn1.ASN1Integer;
+import org.bouncycastle.asn1.DERBitString;
+import org.bouncycastle.asn1.DEROctetString;
+import org.bouncycastle.asn1.DERSequence;
 import org.bouncycastle.asn1.x509.SubjectPublicKeyInfo;
 import org.bouncycastle.crypto.AsymmetricCipherKeyPair;
 import org.bouncycastle.crypto.params.AsymmetricKeyParameter;
 import org.bouncycastle.crypto.util.SubjectPublicKeyInfoFactory;
+import org.bouncycastle.util.encoders.Hex;
 import org.junit.jupiter.api.BeforeAll;
 import org.junit.jupiter.api.Test;
 
@@ -106,4 +117,60 @@ public class TestCheque {
     assertFalse(cheque.checkValidity());
   }
 
+  @Test
+  public void testGoldenChequeEncoding() {
+    // Vectors produced by the previous BouncyCastle based encoder
+    byte[] commitment = new byte[65];
+    for (int i = 0; i < commitment.length; i++) {
+      commitment[i] = (byte) i;
+    }
+    assertEquals("306b020203e83022180f32303230303931333132323634305a180f32303230303931333133323634305a0441"
+            + "000102030405060708090a0b0c0d0e0f101112131415161718191a1b1c1d1e1f202122232425262728292a2b2c2d2e2f"
+            + "303132333435363738393a3b3c3d3e3f40",
+        Hex.toHexString(Cheque.encodeCheque(commitment, 1000, 1600000000000L, 1600003600000L)));
+    byte[] longCommitment = new byte[200];
+    for (int i = 0; i < longCommitment.length; i++) {
+      longCommitment[i] = (byte) (255 - i);
+    }
+    assertEquals("3081f902087fffffffffffffff3022180f32303030303232393030303030305a180f323039393132333132333539"
+            + "35395a0481c8",
+        Hex.toHexString(Arrays.copyOf(Cheque.encodeCheque(longCommitment, Long.MAX_VALUE, 951782400000L,
+            4102444799000L), 52)));
+    assertEquals("30290201ff3022180f31393730303130313030303030305a180f31393730303130313030303030315a0400",
+        Hex.toHexString(Cheque.encodeCheque(new byte[0], -1, 0L, 1000L)));
+  }
+
+  @Test
+  public void testSignedChequeEncoding() throws IOException {
+    Cheque cheque = new Cheque("test@test.ts", AttestationType.EMAIL, 1000, 3600000, senderKeys, BigInteger.TEN);
+    ASN1EncodableVector chequeVec = new ASN1EncodableVector();
+    chequeVec.add(new ASN1Integer(cheque.getAmount()));
+    chequeVec.add(new DERSequence(new ASN1Encodable[] {
+        new ASN1GeneralizedTime(new Date(cheque.getNotValidBefore())),
+        new ASN1GeneralizedTime(new Date(cheque.getNotValidAfter()))}));
+    chequeVec.add(new DEROctetString(cheque.getCommitment()));
+    ASN1EncodableVector signedCheque = new ASN1EncodableVector();
+    signedCheque.add(new DERSequence(chequeVec));
+    signedCheque.add(SubjectPublicKeyInfoFactory.createSubjectPublicKeyInfo(senderKeys.getPublic()).getPublicKeyData());
+    signedCheque.add(new DERBitString(cheque.getSignature()));
+    assertArrayEquals(new DERSequence(signedCheque).getEncoded(), cheque.getDerEncoding());
+  }
+
+  @Test
+  public void testBuilder() throws IOException {
+    Cheque.Builder builder = new Cheque.Builder()
+        .identifier("test@test.ts", AttestationType.EMAIL)
+        .amount(1000)
+        .validity(3600000)
+        .keys(senderKeys)
+        .secret(BigInteger.TEN);
+    Cheque verified = builder.build();
+    assertTrue(verified.isVerified());
+    Cheque trusted = builder.policy(ConstructionPolicy.TRUSTED).build();
+    assertTrue(trusted.isVerified());
+    assertEquals(1000, trusted.getAmount());
+    assertArrayEquals(verified.getCommitment(), trusted.getCommitment());
+    assertTrue(new ChequeDecoder().decode(trusted.getDerEncoding()).verify());
+    assertThrows(IllegalStateException.class, () -> new Cheque.Builder().amount(1000).build());
+  }
 }
@@ -22,9 +22,11 @@ import java.math.BigInteger;
 import java.security.PublicKey;
 import java.security.SecureRandom;
 import java.util.Arrays;
+import org.bouncycastle.asn1.ASN1Encodable;
 import org.bouncycastle.asn1.ASN1Integer;
 import org.bouncycastle.asn1.ASN1OctetString;
 import org.bouncycastle.asn1.ASN1Sequence;
+import org.bouncycastle.asn1.DERNull;
 import org.bouncycastle.asn1.DERSequence;
 import org.bouncycastle.asn1.x509.SubjectPublicKeyInfo;
 import org.bouncycastle.crypto.AsymmetricCipherKeyPair;
@@ -120,6 +122,21 @@ public class TestRedeemCheque {
     assertArrayEquals(attestedCheque.getDerEncoding(), newConstructor.getDerEncoding());
   }
 
+  @Test
+  public void testEmptySignature() throws Exception {
+    ASN1Sequence redeem = ASN1Sequence.getInstance(attestedCheque.getDerEncoding());
+    // Replace the signature with an empty BIT STRING, through a NULL of the same length
+    byte[] encoding = new DERSequence(new ASN1Encodable[] {redeem.getObjectAt(0), redeem.getObjectAt(1),
+        redeem.getObjectAt(2), DERNull.INSTANCE}).getEncoded();
+    encoding[encoding.length - 2] = 0x03;
+    try {
+      new AttestedObject<>(encoding, new ChequeDecoder(), issuerKeys.getPublic(), subjectKeys.getPublic());
+      fail();
+    } catch (RuntimeException e) {
+      assertTrue(e.getCause() instanceof IOException);
+    }
+  }
+
   @Test
   public void testNegativeAttestation() throws Exception {
     Attestation att = attestedCheque.getAtt().getUnsignedAttestation();
@@ -141,7 +158,13 @@ public class TestRedeemCheque {
     Field field = cheque.getClass().getDeclaredField("notValidAfter");
     field.setAccessible(true);
     // Set validity to the past
-    field.set(cheque, System.currentTimeMillis()-1000);
+    long past = System.currentTimeMillis() - 1000;
+    field.set(cheque, past);
+    // The signed bytes are kept by the cheque, so they must be changed accordingly
+    Field encodedField = cheque.getClass().getDeclaredField("encodedCheque");
+    encodedField.setAccessible(true);
+    encodedField.set(cheque, Cheque.encodeCheque(cheque.getCommitment(), cheque.getAmount(),
+        cheque.getNotValidBefore(), past));
     assertFalse(cheque.checkValidity());
     assertFalse(attestedCheque.checkValidity());
     // Verification should also fail since signature is now invalid
@@ -0,0 +1,168 @@
+package com.alphawallet.attestation.codec;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.alphawallet.attestation.AttestedObject;
+import com.alphawallet.attestation.HelperTest;
+import com.alphawallet.attestation.IdentifierAttestation.AttestationType;
+import com.alphawallet.attestation.ProofOfExponent;
+import com.alphawallet.attestation.SignedAttestation;
+import com.alphawallet.attestation.cheque.Cheque;
+import com.alphawallet.attestation.codec.SignedChequeCodec.SignedCheque;
+import com.alphawallet.attestation.codec.SignedTicketCodec.DevconTicket;
+import com.alphawallet.attestation.codec.SignedTicketCodec.SignedDevconTicket;
+import com.alphawallet.attestation.codec.UseDevconTicketCodec.UseDevconTicket;
+import com.alphawallet.attestation.core.AttestationCrypto;
+import com.alphawallet.attestation.core.AttestationCryptoWithEthereumCharacteristics;
+import java.io.IOException;
+import java.math.BigInteger;
+import java.security.SecureRandom;
+import java.util.Arrays;
+import org.bouncycastle.asn1.x509.SubjectPublicKeyInfo;
+import org.bouncycastle.crypto.AsymmetricCipherKeyPair;
+import org.bouncycastle.crypto.util.SubjectPublicKeyInfoFactory;
+import org.devcon.ticket.Ticket;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Ensures the codecs generated from data-modules/src agree with the hand-written encoders
+ */
+public class GeneratedCodecTest {
+  private static final String MAIL = "test@test.ts";
+  private static final BigInteger TICKET_ID = new BigInteger("546048445646851568430134455064804806");
+  private static final BigInteger SECRET = new BigInteger("48646");
+  private static final BigInteger ATTESTATION_SECRET = new BigInteger("8408464");
+
+  private static AsymmetricCipherKeyPair subjectKeys;
+  private static AsymmetricCipherKeyPair issuerKeys;
+  private static AttestationCrypto crypto;
+
+  @BeforeAll
+  public static void setupKeys() throws Exception {
+    SecureRandom rand = SecureRandom.getInstance("SHA1PRNG");
+    rand.setSeed("seed".getBytes());
+    crypto = new AttestationCryptoWithEthereumCharacteristics(rand);
+    subjectKeys = crypto.constructECKeys();
+    issuerKeys = crypto.constructECKeys();
+  }
+
+  @Test
+  public void signedTicket() throws Exception {
+    Ticket ticket = new Ticket(MAIL, 6, TICKET_ID, 1, issuerKeys, SECRET);
+    SignedDevconTicket decoded = SignedDevconTicket.read(ticket.getDerEncoding());
+    assertEquals(6, decoded.getTicket().getDevconIdAsLong());
+    assertEquals(TICKET_ID, decoded.getTicket().getTicketId());
+    assertEquals(BigInteger.ONE, decoded.getTicket().getTicketClass());
+    assertArrayEquals(ticket.getCommitment(), decoded.getCommitment());
+    assertArrayEquals(ticket.getSignature(), decoded.getSignatureValue());
+    assertFalse(decoded.hasPublicKeyInfo());
+    assertNull(decoded.getPublicKeyInfo());
+    assertEquals(-1, decoded.getPublicKeyInfoOffset());
+
+    byte[] encodedTicket = DevconTicket.encode(BigInteger.valueOf(6), TICKET_ID, BigInteger.ONE);
+    assertArrayEquals(decoded.getTicket().getEncoded(), encodedTicket);
+    assertArrayEquals(ticket.getDerEncoding(),
+        SignedDevconTicket.encode(encodedTicket, ticket.getCommitment(), null, ticket.getSignature()));
+  }
+
+  @Test
+  public void signedTicketWithPublicKey() throws Exception {
+    Ticket ticket = new Ticket(MAIL, 6, TICKET_ID, 1, issuerKeys, SECRET);
+    byte[] encoding = ticket.getDerEncodingWithPK();
+    SignedDevconTicket decoded = SignedDevconTicket.read(encoding);
+    assertTrue(decoded.hasPublicKeyInfo());
+    SubjectPublicKeyInfo spki = SubjectPublicKeyInfoFactory.createSubjectPublicKeyInfo(issuerKeys.getPublic());
+    assertArrayEquals(spki.getPublicKeyData().getBytes(), decoded.getPublicKeyInfo().getPublicKey());
+    assertArrayEquals(spki.getAlgorithm().getEncoded(), decoded.getPublicKeyInfo().getSignatureAlgorithm());
+    assertArrayEquals(ticket.getSignature(), decoded.getSignatureValue());
+    assertArrayEquals(encoding, SignedDevconTicket.encode(decoded.getTicket().getEncoded(),
+        decoded.getCommitment(), decoded.getPublicKeyInfo().getEncoded(), decoded.getSignatureValue()));
+    // Zero-copy access to the signature
+    assertArrayEquals(ticket.getSignature(), Arrays.copyOfRange(encoding, decoded.getSignatureValueValueOffset(),
+        decoded.getSignatureValueValueOffset() + decoded.getSignatureValueValueLength()));
+  }
+
+  @Test
+  public void signedCheque() throws Exception {
+    Cheque cheque = new Cheque(MAIL, AttestationType.EMAIL, 1000, 3600000, issuerKeys, SECRET);
+    SignedCheque decoded = SignedCheque.read(cheque.getDerEncoding());
+    assertEquals(1000, decoded.getCheque().getAmountAsLong());
+    assertArrayEquals(cheque.getCommitment(), decoded.getCheque().getCommitment());
+    assertArrayEquals(cheque.getSignature(), decoded.getSignatureValue());
+    byte[] encodedCheque = SignedChequeCodec.Cheque.encode(BigInteger.valueOf(1000),
+        decoded.getCheque().getValidity(), cheque.getCommitment());
+    assertArrayEquals(cheque.getDerEncoding(),
+        SignedCheque.encode(encodedCheque, decoded.getPublicKey(), cheque.getSignature()));
+  }
+
+  @Test
+  public void proof() throws Exception {
+    ProofOfExponent pok = crypto.computeAttestationProof(SECRET);
+    ProofOfExponentCodec.Proof decoded = ProofOfExponentCodec.Proof.read(pok.getDerEncoding());
+    assertArrayEquals(pok.getBase().getEncoded(false), decoded.getBase());
+    assertArrayEquals(pok.getRiddle().getEncoded(false), decoded.getRiddle());
+    assertEquals(pok.getChallenge(), new BigInteger(decoded.getChallengePoint()));
+    assertArrayEquals(pok.getPoint().getEncoded(false), decoded.getResponseValue());
+    assertArrayEquals(pok.getDerEncoding(), ProofOfExponentCodec.Proof.encode(decoded.getBase(),
+        decoded.getRiddle(), decoded.getChallengePoint(), decoded.getResponseValue()));
+  }
+
+  @Test
+  public void useTicket() throws Exception {
+    SignedAttestation att = new SignedAttestation(
+        HelperTest.makeUnsignedStandardAtt(subjectKeys.getPublic(), ATTESTATION_SECRET, MAIL), issuerKeys);
+    Ticket ticket = new Ticket(MAIL, 6, TICKET_ID, 0, issuerKeys, SECRET);
+    AttestedObject<Ticket> attested = new AttestedObject<>(ticket, att, subjectKeys, ATTESTATION_SECRET, SECRET, crypto);
+    UseDevconTicket decoded = UseDevconTicket.read(attested.getDerEncoding());
+    assertEquals(TICKET_ID, decoded.getSignedDevconTicket().getTicket().getTicketId());
+    assertArrayEquals(att.getDerEncoding(), decoded.getAttestation());
+    assertArrayEquals(attested.getPok().getDerEncoding(), decoded.getProof().getEncoded());
+    assertArrayEquals(attested.getSignature(), decoded.getSignatureValue());
+    assertArrayEquals(attested.getDerEncoding(), UseDevconTicket.encode(ticket.getDerEncoding(),
+        att.getDerEncoding(), attested.getPok().getDerEncoding(), attested.getSignature()));
+  }
+
+  @Test
+  public void redeemCheque() throws Exception {
+    SignedAttestation att = new SignedAttestation(
+        HelperTest.makeUnsignedStandardAtt(subjectKeys.getPublic(), ATTESTATION_SECRET, MAIL), issuerKeys);
+    Cheque cheque = new Cheque(MAIL, AttestationType.EMAIL, 1000, 3600000, issuerKeys, SECRET);
+    AttestedObject<Cheque> attested = new AttestedObject<>(cheque, att, subjectKeys, ATTESTATION_SECRET, SECRET, crypto);
+    RedeemChequeCodec.RedeemCheque decoded = RedeemChequeCodec.RedeemCheque.read(attested.getDerEncoding());
+    assertEquals(1000, decoded.getSignedCheque().getCheque().getAmountAsLong());
+    assertArrayEquals(attested.getPok().getDerEncoding(), decoded.getProof().getEncoded());
+    assertArrayEquals(attested.getDerEncoding(), RedeemChequeCodec.RedeemCheque.encode(cheque.getDerEncoding(),
+        att.getDerEncoding(), attested.getPok().getDerEncoding(), attested.getSignature()));
+  }
+
+  @Test
+  public void largeAndNegativeIntegers() throws Exception {
+    BigInteger large = BigInteger.ONE.shiftLeft(200);
+    BigInteger negative = BigInteger.valueOf(-129);
+    DevconTicket decoded = DevconTicket.read(DevconTicket.encode(large, negative, BigInteger.ZERO));
+    assertEquals(large, decoded.getDevconId());
+    assertEquals(negative, decoded.getTicketId());
+    assertEquals(-129, decoded.getTicketIdAsLong());
+    assertEquals(0, decoded.getTicketClassAsLong());
+    assertThrows(ArithmeticException.class, decoded::getDevconIdAsLong);
+  }
+
+  @Test
+  public void malformedEncoding() throws Exception {
+    Ticket ticket = new Ticket(MAIL, 6, TICKET_ID, 1, issuerKeys, SECRET);
+    byte[] encoding = ticket.getDerEncoding();
+    assertThrows(IOException.class, () -> SignedDevconTicket.read(Arrays.copyOf(encoding, encoding.length - 1)));
+    assertThrows(IOException.class, () -> SignedDevconTicket.read(Arrays.copyOf(encoding, encoding.length + 1)));
+    // A ticket is not a cheque
+    assertThrows(IOException.class, () -> SignedCheque.read(encoding));
+    byte[] wrongTag = encoding.clone();
+    wrongTag[0] = 0x31;
+    assertThrows(IOException.class, () -> SignedDevconTicket.read(wrongTag));
+  }
+}
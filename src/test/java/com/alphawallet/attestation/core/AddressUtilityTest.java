@@ -0,0 +1,75 @@
+package com.alphawallet.attestation.core;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.IOException;
+import java.math.BigInteger;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.util.Arrays;
+import org.bouncycastle.asn1.x509.SubjectPublicKeyInfo;
+import org.bouncycastle.crypto.AsymmetricCipherKeyPair;
+import org.bouncycastle.crypto.params.AsymmetricKeyParameter;
+import org.bouncycastle.crypto.params.ECPublicKeyParameters;
+import org.bouncycastle.crypto.util.SubjectPublicKeyInfoFactory;
+import org.bouncycastle.jcajce.provider.digest.Keccak;
+import org.bouncycastle.util.encoders.Hex;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.web3j.crypto.Keys;
+
+public class AddressUtilityTest {
+  private static AttestationCrypto crypto;
+
+  @BeforeAll
+  public static void setupCrypto() throws Exception {
+    SecureRandom rand = SecureRandom.getInstance("SHA1PRNG");
+    rand.setSeed("seed".getBytes());
+    crypto = new AttestationCrypto(rand);
+  }
+
+  /**
+   * The way addresses of attestations were originally computed
+   */
+  private static String referenceAddress(AsymmetricKeyParameter key) throws Exception {
+    SubjectPublicKeyInfo spki = SubjectPublicKeyInfoFactory.createSubjectPublicKeyInfo(key);
+    byte[] pubKey = spki.getPublicKeyData().getEncoded();
+    pubKey = Arrays.copyOfRange(pubKey, 1, pubKey.length);
+    MessageDigest KECCAK = new Keccak.Digest256();
+    byte[] hash = KECCAK.digest(pubKey);
+    return "0x" + Hex.toHexString(Arrays.copyOfRange(hash, hash.length - 20, hash.length)).toUpperCase();
+  }
+
+  @Test
+  public void attestationAddress() throws Exception {
+    for (int i = 0; i < 20; i++) {
+      AsymmetricCipherKeyPair keys = crypto.constructECKeys();
+      String expected = referenceAddress(keys.getPublic());
+      assertEquals(expected, AddressUtility.addressFromKey(keys.getPublic()));
+      // Cached
+      assertEquals(expected, AddressUtility.addressFromKey(keys.getPublic()));
+      SubjectPublicKeyInfo spki = SubjectPublicKeyInfoFactory.createSubjectPublicKeyInfo(keys.getPublic());
+      assertEquals(expected, AddressUtility.addressFromKeyInfo(spki));
+    }
+  }
+
+  @Test
+  public void pointNotOnCurve() throws Exception {
+    SubjectPublicKeyInfo spki = SubjectPublicKeyInfoFactory.createSubjectPublicKeyInfo(crypto.constructECKeys().getPublic());
+    byte[] point = spki.getPublicKeyData().getBytes();
+    point[point.length - 1]++;
+    SubjectPublicKeyInfo invalid = new SubjectPublicKeyInfo(spki.getAlgorithm(), point);
+    assertThrows(IOException.class, () -> AddressUtility.addressFromKeyInfo(invalid));
+  }
+
+  @Test
+  public void hashPoint() {
+    for (int i = 0; i < 20; i++) {
+      ECPublicKeyParameters key = (ECPublicKeyParameters) crypto.constructECKeys().getPublic();
+      byte[] encoded = key.getQ().getEncoded(false);
+      BigInteger rawKey = new BigInteger(1, Arrays.copyOfRange(encoded, 1, encoded.length));
+      assertEquals(Keys.getAddress(rawKey), Hex.toHexString(AddressUtility.hashPoint(key.getQ()), 12, 20));
+    }
+  }
+}
@@ -0,0 +1,124 @@
+package com.alphawallet.attestation.core;
+
+import static java.nio.charset.StandardCharsets.US_ASCII;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.security.SecureRandom;
+import java.util.Arrays;
+import java.util.Base64;
+import org.bouncycastle.util.encoders.UrlBase64;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+public class Base64UrlTest {
+  private static SecureRandom rand;
+
+  @BeforeAll
+  public static void setup() throws Exception {
+    rand = SecureRandom.getInstance("SHA1PRNG");
+    rand.setSeed("seed".getBytes());
+  }
+
+  @Test
+  public void compatibleWithBouncyCastle() throws IOException {
+    for (int length = 0; length < 100; length++) {
+      byte[] data = new byte[length];
+      rand.nextBytes(data);
+      String expected = new String(UrlBase64.encode(data), US_ASCII);
+      assertEquals(expected, Base64Url.encode(data));
+      assertEquals(length, Base64Url.decodedLength(expected, 0, expected.length()));
+      assertArrayEquals(data, Base64Url.decode(expected));
+      // The padding of java.util.Base64 and no padding at all
+      assertArrayEquals(data, Base64Url.decode(Base64.getUrlEncoder().encodeToString(data)));
+      assertArrayEquals(data, Base64Url.decode(Base64.getUrlEncoder().withoutPadding().encodeToString(data)));
+    }
+  }
+
+  @Test
+  public void decodeRange() throws IOException {
+    byte[] data = new byte[50];
+    rand.nextBytes(data);
+    String encoded = Base64Url.encode(data);
+    String url = "https://ticket.devcon.org/?ticket=" + encoded + "&secret=42";
+    int start = url.indexOf('=') + 1;
+    int end = url.indexOf('&');
+    assertArrayEquals(data, Base64Url.decode(url, start, end));
+    assertArrayEquals(data, URLUtility.decodeData(url, start, end));
+    byte[] ascii = url.getBytes(US_ASCII);
+    assertArrayEquals(data, Base64Url.decode(ascii, start, end - start));
+
+    byte[] out = new byte[60];
+    assertEquals(data.length, Base64Url.decode(url, start, end, out, 5));
+    assertArrayEquals(data, Arrays.copyOfRange(out, 5, 55));
+  }
+
+  @Test
+  public void buffers() throws IOException {
+    byte[] data = new byte[31];
+    rand.nextBytes(data);
+    String expected = Base64Url.encode(data);
+    for (ByteBuffer out : new ByteBuffer[] {ByteBuffer.allocate(100), ByteBuffer.allocateDirect(100)}) {
+      for (ByteBuffer input : new ByteBuffer[] {ByteBuffer.wrap(data), ByteBuffer.allocateDirect(31).put(data)}) {
+        input.rewind();
+        out.clear();
+        Base64Url.encode(input, out);
+        assertEquals(0, input.remaining());
+        assertEquals(expected.length(), out.position());
+        byte[] encoded = new byte[out.position()];
+        out.flip();
+        out.get(encoded);
+        assertEquals(expected, new String(encoded, US_ASCII));
+      }
+      out.clear();
+      Base64Url.decode(expected, 0, expected.length(), out);
+      assertEquals(data.length, out.position());
+      byte[] decoded = new byte[data.length];
+      out.flip();
+      out.get(decoded);
+      assertArrayEquals(data, decoded);
+    }
+    assertThrows(IllegalArgumentException.class, () -> Base64Url.encode(ByteBuffer.wrap(data), ByteBuffer.allocate(10)));
+  }
+
+  @Test
+  public void skipWhitespace() throws IOException {
+    byte[] data = new byte[50];
+    rand.nextBytes(data);
+    String encoded = Base64Url.encode(data);
+    String wrapped = " " + encoded.substring(0, 30) + "\r\n" + encoded.substring(30, 67) + "\t" + encoded.substring(67) + "\n";
+    // The same as BouncyCastle
+    assertArrayEquals(data, UrlBase64.decode(wrapped));
+    assertEquals(data.length, Base64Url.decodedLength(wrapped, 0, wrapped.length()));
+    assertArrayEquals(data, Base64Url.decode(wrapped));
+    assertArrayEquals(data, Base64Url.decode(wrapped.getBytes(US_ASCII), 0, wrapped.length()));
+    assertArrayEquals(data, URLUtility.decodeData(wrapped));
+    assertArrayEquals(new byte[0], Base64Url.decode(" \n"));
+    // Whitespace does not count towards whole blocks
+    assertThrows(IOException.class, () -> Base64Url.decode("ABCDAB. "));
+  }
+
+  @Test
+  public void invalidInput() {
+    // Character outside the alphabet
+    assertThrows(IOException.class, () -> Base64Url.decode("AB+D"));
+    assertThrows(IOException.class, () -> Base64Url.decode("ABæD"));
+    // Padding in the middle
+    assertThrows(IOException.class, () -> Base64Url.decode("AB..ABCD"));
+    // Mixed padding
+    assertThrows(IOException.class, () -> Base64Url.decode("AB.="));
+    // Too much padding
+    assertThrows(IOException.class, () -> Base64Url.decode("A..."));
+    // Padding of incomplete blocks
+    assertThrows(IOException.class, () -> Base64Url.decode("ABCDAB."));
+    // Impossible length
+    assertThrows(IOException.class, () -> Base64Url.decode("ABCDA"));
+    // Unused bits are not zero
+    assertThrows(IOException.class, () -> Base64Url.decode("AB.."));
+    assertThrows(IOException.class, () -> Base64Url.decode("ABD."));
+    assertThrows(RuntimeException.class, () -> URLUtility.decodeData("AB+D"));
+  }
+}
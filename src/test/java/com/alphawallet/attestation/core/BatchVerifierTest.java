@@ -0,0 +1,75 @@
+package com.alphawallet.attestation.core;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.math.BigInteger;
+import java.security.SecureRandom;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import org.bouncycastle.crypto.AsymmetricCipherKeyPair;
+import org.devcon.ticket.Ticket;
+import org.devcon.ticket.TicketDecoder;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+public class BatchVerifierTest {
+  private static final int AMOUNT = 20;
+  private static AsymmetricCipherKeyPair issuerKeys;
+  private static List<Ticket> tickets;
+
+  @BeforeAll
+  public static void setup() throws Exception {
+    SecureRandom rand = SecureRandom.getInstance("SHA1PRNG");
+    rand.setSeed("seed".getBytes());
+    AttestationCrypto crypto = new AttestationCrypto(rand);
+    issuerKeys = crypto.constructECKeys();
+    tickets = new ArrayList<>();
+    TicketDecoder decoder = new TicketDecoder(issuerKeys.getPublic());
+    for (int i = 0; i < AMOUNT; i++) {
+      byte[] encoding = new Ticket("test@test.ts", 6, BigInteger.valueOf(i), 0, issuerKeys, BigInteger.TEN)
+          .getDerEncoding().clone();
+      if (i % 7 == 3) {
+        // Break the signature
+        encoding[encoding.length - 1] ^= 0x01;
+      }
+      tickets.add(decoder.decodeUnverified(encoding));
+    }
+  }
+
+  @Test
+  public void verifyInParallel() {
+    boolean[] res = new BatchVerifier(4).verify(tickets);
+    assertEquals(AMOUNT, res.length);
+    for (int i = 0; i < AMOUNT; i++) {
+      assertEquals(i % 7 != 3, res[i]);
+      assertEquals(res[i], tickets.get(i).isVerified());
+    }
+  }
+
+  @Test
+  public void failed() {
+    List<Ticket> failed = new BatchVerifier(3).failed(tickets);
+    assertEquals(3, failed.size());
+    assertSame(tickets.get(3), failed.get(0));
+    assertSame(tickets.get(10), failed.get(1));
+    assertSame(tickets.get(17), failed.get(2));
+  }
+
+  @Test
+  public void fewObjects() {
+    assertEquals(0, new BatchVerifier(8).verify(Collections.emptyList()).length);
+    boolean[] res = new BatchVerifier(8).verify(tickets.subList(2, 4));
+    assertTrue(res[0]);
+    assertFalse(res[1]);
+  }
+
+  @Test
+  public void invalidThreads() {
+    assertThrows(IllegalArgumentException.class, () -> new BatchVerifier(0));
+  }
+}
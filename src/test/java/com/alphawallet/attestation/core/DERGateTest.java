@@ -0,0 +1,104 @@
+package com.alphawallet.attestation.core;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import com.alphawallet.attestation.HelperTest;
+import com.alphawallet.attestation.SignedAttestation;
+import com.alphawallet.attestation.core.DERGate.Reason;
+import com.alphawallet.attestation.core.DERGate.RejectedException;
+import java.math.BigInteger;
+import java.security.SecureRandom;
+import java.util.Arrays;
+import org.bouncycastle.crypto.AsymmetricCipherKeyPair;
+import org.devcon.ticket.Ticket;
+import org.devcon.ticket.TicketDecoder;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+public class DERGateTest {
+  private static AsymmetricCipherKeyPair keys;
+  private static byte[] ticket;
+  private static byte[] attestation;
+
+  @BeforeAll
+  public static void setup() throws Exception {
+    SecureRandom rand = SecureRandom.getInstance("SHA1PRNG");
+    rand.setSeed("seed".getBytes());
+    AttestationCrypto crypto = new AttestationCrypto(rand);
+    keys = crypto.constructECKeys();
+    ticket = new Ticket("test@test.ts", 6, BigInteger.TEN, 0, keys, BigInteger.ONE).getDerEncodingWithPK();
+    attestation = new SignedAttestation(HelperTest.makeUnsignedStandardAtt(keys.getPublic(), BigInteger.TEN,
+        "test@test.ts"), keys).getDerEncoding();
+  }
+
+  /**
+   * Returns amount SEQUENCEs nested in each other, for amount below 64
+   */
+  private static byte[] nested(int amount) {
+    byte[] res = new byte[2 * amount];
+    for (int i = 0; i < amount; i++) {
+      res[2 * i] = 0x30;
+      res[2 * i + 1] = (byte) (2 * (amount - i - 1));
+    }
+    return res;
+  }
+
+  private static void assertRejected(DERGate gate, Reason reason, byte[] encoding) {
+    RejectedException e = assertThrows(RejectedException.class, () -> gate.check(encoding));
+    assertEquals(reason, e.getReason());
+  }
+
+  @Test
+  public void acceptsValidEncodings() throws Exception {
+    DERGate gate = new DERGate(DERGate.DEFAULT_MAX_LENGTH, DERGate.DEFAULT_MAX_DEPTH, DERGate.DEFAULT_MAX_ELEMENTS);
+    gate.check(ticket);
+    gate.check(attestation);
+    gate.check(nested(DERGate.DEFAULT_MAX_DEPTH));
+    byte[] padded = new byte[ticket.length + 10];
+    System.arraycopy(ticket, 0, padded, 5, ticket.length);
+    gate.check(padded, 5, ticket.length);
+    for (Reason reason : Reason.values()) {
+      assertEquals(0, gate.getRejections(reason));
+    }
+  }
+
+  @Test
+  public void rejectsAndCounts() {
+    DERGate gate = new DERGate(1000, 8, 30);
+    assertRejected(gate, Reason.TOO_LONG, new byte[1001]);
+    assertRejected(gate, Reason.TOO_DEEP, nested(9));
+    assertRejected(gate, Reason.TOO_DEEP, nested(50));
+    assertRejected(gate, Reason.TOO_MANY_ELEMENTS, attestation.length <= 1000 ? attestation : ticket);
+    assertRejected(gate, Reason.MALFORMED, Arrays.copyOf(ticket, ticket.length - 1));
+    assertRejected(gate, Reason.TRAILING_DATA, Arrays.copyOf(ticket, ticket.length + 1));
+    // Indefinite lengths are not DER
+    assertRejected(gate, Reason.MALFORMED, new byte[] {0x30, (byte) 0x80, 0x00, 0x00});
+    // A child extending beyond its parent
+    assertRejected(gate, Reason.MALFORMED, new byte[] {0x30, 0x03, 0x04, 0x05, 0x00});
+
+    assertEquals(1, gate.getRejections(Reason.TOO_LONG));
+    assertEquals(2, gate.getRejections(Reason.TOO_DEEP));
+    assertEquals(1, gate.getRejections(Reason.TOO_MANY_ELEMENTS));
+    assertEquals(3, gate.getRejections(Reason.MALFORMED));
+    assertEquals(1, gate.getRejections(Reason.TRAILING_DATA));
+    assertEquals(Long.valueOf(3), gate.getRejections().get(Reason.MALFORMED));
+  }
+
+  @Test
+  public void decodersUseTheDefaultGate() {
+    DERGate original = DERGate.getDefault();
+    DERGate gate = new DERGate(100_000, 4, 100);
+    DERGate.setDefault(gate);
+    try {
+      RejectedException e = assertThrows(RejectedException.class,
+          () -> new TicketDecoder(keys.getPublic()).decode(nested(50)));
+      assertEquals(Reason.TOO_DEEP, e.getReason());
+      assertEquals(1, gate.getRejections(Reason.TOO_DEEP));
+      assertThrows(RejectedException.class, () -> URLUtility.decodeList(URLUtility.encodeData(new byte[200_000])));
+      assertEquals(1, gate.getRejections(Reason.TOO_LONG));
+    } finally {
+      DERGate.setDefault(original);
+    }
+  }
+}
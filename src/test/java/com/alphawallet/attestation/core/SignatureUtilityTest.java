@@ -0,0 +1,146 @@
+package com.alphawallet.attestation.core;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.math.BigInteger;
+import java.security.SecureRandom;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import org.bouncycastle.asn1.ASN1InputStream;
+import org.bouncycastle.asn1.ASN1Integer;
+import org.bouncycastle.asn1.ASN1Sequence;
+import org.bouncycastle.crypto.AsymmetricCipherKeyPair;
+import org.bouncycastle.util.encoders.Hex;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+public class SignatureUtilityTest {
+  private static AsymmetricCipherKeyPair keys;
+  private static SecureRandom rand;
+
+  @BeforeAll
+  public static void setupKeys() throws Exception {
+    rand = SecureRandom.getInstance("SHA1PRNG");
+    rand.setSeed("seed".getBytes());
+    AttestationCrypto crypto = new AttestationCrypto(rand);
+    keys = crypto.constructECKeys();
+  }
+
+  /**
+   * Reference parsing of a signature, done the way SignatureUtility used to do it
+   */
+  private static BigInteger[] bouncyCastleDecode(byte[] signature) {
+    try {
+      ASN1InputStream input = new ASN1InputStream(signature);
+      ASN1Sequence seq = ASN1Sequence.getInstance(input.readObject());
+      BigInteger r = ASN1Integer.getInstance(seq.getObjectAt(0)).getValue();
+      BigInteger s = ASN1Integer.getInstance(seq.getObjectAt(1)).getValue();
+      return new BigInteger[] {r, s};
+    } catch (Exception e) {
+      return null;
+    }
+  }
+
+  private static List<byte[]> makeSignatures(int amount) {
+    List<byte[]> res = new ArrayList<>();
+    for (int i = 0; i < amount; i++) {
+      byte[] msg = new byte[32];
+      rand.nextBytes(msg);
+      res.add(SignatureUtility.signDeterministic(msg, keys.getPrivate()));
+    }
+    return res;
+  }
+
+  @Test
+  public void validSignatures() {
+    for (byte[] signature : makeSignatures(200)) {
+      BigInteger[] fast = SignatureUtility.decodeSignature(signature);
+      assertNotNull(fast);
+      assertArrayEquals(bouncyCastleDecode(signature), fast);
+    }
+  }
+
+  @Test
+  public void fuzzAgainstBouncyCastle() {
+    int acceptedMutations = 0;
+    for (byte[] signature : makeSignatures(100)) {
+      for (int i = 0; i < 100; i++) {
+        byte[] mutated = mutate(signature);
+        BigInteger[] fast = SignatureUtility.decodeSignature(mutated);
+        if (fast != null) {
+          // Anything accepted must be parsed identically by BouncyCastle
+          assertArrayEquals(bouncyCastleDecode(mutated), fast, Hex.toHexString(mutated));
+          acceptedMutations++;
+        }
+      }
+    }
+    // Ensure the fuzzing also exercises inputs which are accepted
+    assertTrue(acceptedMutations > 0);
+  }
+
+  private static byte[] mutate(byte[] input) {
+    byte[] res;
+    switch (rand.nextInt(5)) {
+      case 0:
+        // Flip a bit
+        res = input.clone();
+        res[rand.nextInt(res.length)] ^= 1 << rand.nextInt(8);
+        return res;
+      case 1:
+        // Truncate
+        return Arrays.copyOf(input, rand.nextInt(input.length));
+      case 2:
+        // Append garbage
+        res = Arrays.copyOf(input, input.length + 1 + rand.nextInt(4));
+        return res;
+      case 3:
+        // Overwrite a byte
+        res = input.clone();
+        res[rand.nextInt(res.length)] = (byte) rand.nextInt(256);
+        return res;
+      default:
+        // Completely random
+        res = new byte[rand.nextInt(80)];
+        rand.nextBytes(res);
+        return res;
+    }
+  }
+
+  @Test
+  public void rejectMalformed() {
+    // Valid minimal encoding
+    assertNotNull(SignatureUtility.decodeSignature(Hex.decode("3006020101020102")));
+    // Negative integer
+    assertNull(SignatureUtility.decodeSignature(Hex.decode("3006020181020102")));
+    // Superfluous leading zero
+    assertNull(SignatureUtility.decodeSignature(Hex.decode("300702020001020102")));
+    // Empty integer
+    assertNull(SignatureUtility.decodeSignature(Hex.decode("30050200020102")));
+    // Non-minimal sequence length
+    assertNull(SignatureUtility.decodeSignature(Hex.decode("308106020101020102")));
+    // Trailing data
+    assertNull(SignatureUtility.decodeSignature(Hex.decode("300602010102010200")));
+    // Too many elements
+    assertNull(SignatureUtility.decodeSignature(Hex.decode("3009020101020102020103")));
+    // Wrong tag
+    assertNull(SignatureUtility.decodeSignature(Hex.decode("3106020101020102")));
+    assertNull(SignatureUtility.decodeSignature(null));
+    assertNull(SignatureUtility.decodeSignature(new byte[0]));
+  }
+
+  @Test
+  public void verifyMalformed() {
+    byte[] msg = new byte[] {0x42};
+    byte[] signature = SignatureUtility.signDeterministic(msg, keys.getPrivate());
+    assertTrue(SignatureUtility.verify(msg, signature, keys.getPublic()));
+    assertFalse(SignatureUtility.verify(msg, Arrays.copyOf(signature, signature.length + 1), keys.getPublic()));
+    assertFalse(SignatureUtility.verify(msg, Arrays.copyOf(signature, signature.length - 1), keys.getPublic()));
+    assertEquals(2, SignatureUtility.decodeSignature(signature).length);
+  }
+}
@@ -0,0 +1,131 @@
+package com.alphawallet.attestation.core;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.math.BigInteger;
+import java.security.SecureRandom;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import org.bouncycastle.crypto.AsymmetricCipherKeyPair;
+import org.bouncycastle.crypto.params.ECPrivateKeyParameters;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+public class SigningServiceTest {
+  private static AsymmetricCipherKeyPair keys;
+  private static SecureRandom rand;
+
+  @BeforeAll
+  public static void setupKeys() throws Exception {
+    rand = SecureRandom.getInstance("SHA1PRNG");
+    rand.setSeed("seed".getBytes());
+    AttestationCrypto crypto = new AttestationCrypto(rand);
+    keys = crypto.constructECKeys();
+  }
+
+  @Test
+  public void sameAsSynchronousSigning() throws Exception {
+    List<byte[]> messages = new ArrayList<>();
+    List<CompletableFuture<byte[]>> futures = new ArrayList<>();
+    try (SigningService service = new SigningService(4, 8)) {
+      for (int i = 0; i < 50; i++) {
+        byte[] msg = new byte[i + 1];
+        rand.nextBytes(msg);
+        messages.add(msg);
+        futures.add(service.sign(msg, keys.getPrivate()));
+      }
+      for (int i = 0; i < messages.size(); i++) {
+        byte[] signature = futures.get(i).get();
+        assertArrayEquals(SignatureUtility.signDeterministic(messages.get(i), keys.getPrivate()), signature);
+        assertTrue(SignatureUtility.verify(messages.get(i), signature, keys.getPublic()));
+      }
+      assertEquals(50, service.getCompletedCount());
+      assertEquals(0, service.getFailedCount());
+      assertEquals(0, service.getQueueDepth());
+      assertTrue(service.getThroughput() > 0);
+      assertTrue(service.getAverageLatencyMillis() > 0);
+      assertTrue(service.getMaxLatencyMillis() >= service.getAverageLatencyMillis());
+    }
+  }
+
+  @Test
+  public void failedSigning() throws Exception {
+    try (SigningService service = new SigningService(1, 1)) {
+      // A public key cannot be used for signing
+      CompletableFuture<byte[]> future = service.sign(new byte[] {0x01}, keys.getPublic());
+      assertThrows(ExecutionException.class, future::get);
+      assertEquals(1, service.getFailedCount());
+      assertEquals(0, service.getCompletedCount());
+    }
+  }
+
+  @Test
+  public void errorCompletesFuture() throws Exception {
+    ECPrivateKeyParameters key = (ECPrivateKeyParameters) keys.getPrivate();
+    ECPrivateKeyParameters failingKey = new ECPrivateKeyParameters(key.getD(), key.getParameters()) {
+      @Override
+      public BigInteger getD() {
+        throw new Error("Signer failure");
+      }
+    };
+    try (SigningService service = new SigningService(1, 1)) {
+      ExecutionException e = assertThrows(ExecutionException.class,
+          () -> service.sign(new byte[] {0x01}, failingKey).get());
+      assertEquals("Signer failure", e.getCause().getMessage());
+      assertEquals(1, service.getFailedCount());
+      // The worker is still there
+      assertTrue(SignatureUtility.verify(new byte[] {0x01}, service.sign(new byte[] {0x01}, key).get(), keys.getPublic()));
+    }
+  }
+
+  @Test
+  public void rejectWhenFull() throws Exception {
+    CountDownLatch release = new CountDownLatch(1);
+    ECPrivateKeyParameters key = (ECPrivateKeyParameters) keys.getPrivate();
+    // Keeps the only worker busy until released
+    ECPrivateKeyParameters blockingKey = new ECPrivateKeyParameters(key.getD(), key.getParameters()) {
+      @Override
+      public BigInteger getD() {
+        try {
+          release.await();
+        } catch (InterruptedException e) {
+          throw new RuntimeException(e);
+        }
+        return super.getD();
+      }
+    };
+    byte[] msg = new byte[] {0x01};
+    try (SigningService service = new SigningService(1, 1)) {
+      CompletableFuture<byte[]> processing = service.sign(msg, blockingKey);
+      CompletableFuture<byte[]> queued = service.trySign(msg, key);
+      ExecutionException e = assertThrows(ExecutionException.class, () -> service.trySign(msg, key).get());
+      assertTrue(e.getCause() instanceof RejectedExecutionException);
+      release.countDown();
+      assertArrayEquals(processing.get(), queued.get());
+      assertEquals(2, service.getCompletedCount());
+      assertEquals(0, service.getFailedCount());
+    }
+  }
+
+  @Test
+  public void rejectWhenClosed() throws Exception {
+    SigningService service = new SigningService(1, 1);
+    service.close();
+    CompletableFuture<byte[]> future = service.trySign(new byte[] {0x01}, keys.getPrivate());
+    ExecutionException e = assertThrows(ExecutionException.class, future::get);
+    assertTrue(e.getCause() instanceof RejectedExecutionException);
+  }
+
+  @Test
+  public void illegalSize() {
+    assertThrows(IllegalArgumentException.class, () -> new SigningService(0, 1));
+    assertThrows(IllegalArgumentException.class, () -> new SigningService(1, 0));
+  }
+}
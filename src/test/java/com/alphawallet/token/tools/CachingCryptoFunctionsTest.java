@@ -0,0 +1,70 @@
+package com.alphawallet.token.tools;
+
+import com.alphawallet.token.entity.CryptoFunctionsInterface;
+import com.alphawallet.token.entity.MagicLinkData;
+import com.alphawallet.token.entity.MagicLinkInfo;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigInteger;
+import java.util.Base64;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+public class CachingCryptoFunctionsTest {
+    private static final String CONTRACT = "0x63ccef733a093e5bd773b41c96d3ece361464942";
+
+    private final AtomicInteger derivations = new AtomicInteger();
+    private final CryptoFunctionsInterface platform = new CryptoFunctionsInterface() {
+        @Override
+        public byte[] Base64Decode(String message) {
+            return Base64.getUrlDecoder().decode(message);
+        }
+
+        @Override
+        public byte[] Base64Encode(byte[] data) {
+            return Base64.getUrlEncoder().encode(data);
+        }
+
+        @Override
+        public BigInteger signedMessageToKey(byte[] data, byte[] signature) {
+            return new BigInteger(1, signature);
+        }
+
+        @Override
+        public String getAddressFromKey(BigInteger recoveredKey) {
+            derivations.incrementAndGet();
+            return recoveredKey.signum() == 0 ? null : String.format("%040x", recoveredKey.mod(BigInteger.ONE.shiftLeft(160)));
+        }
+    };
+
+    @Test
+    public void cachesAddresses() {
+        CachingCryptoFunctions crypto = new CachingCryptoFunctions(platform);
+        assertEquals(platform.getAddressFromKey(BigInteger.TEN), crypto.getAddressFromKey(BigInteger.TEN));
+        assertEquals(platform.getAddressFromKey(BigInteger.TEN), crypto.getAddressFromKey(BigInteger.TEN));
+        assertEquals(3, derivations.get());
+        // Failures are not cached
+        assertNull(crypto.getAddressFromKey(BigInteger.ZERO));
+        assertNull(crypto.getAddressFromKey(BigInteger.ZERO));
+        assertEquals(5, derivations.get());
+        assertArrayEquals(new byte[] {1, 2}, crypto.Base64Decode("AQI="));
+    }
+
+    @Test
+    public void parserUsesPlatformAddress() throws Exception {
+        ParseMagicLink parser = new ParseMagicLink(new CachingCryptoFunctions(platform), null);
+        byte[] signature = new byte[65];
+        signature[64] = 27;
+        String link = parser.generateUniversalLink(new int[] {1, 2}, CONTRACT, BigInteger.ZERO, 1600000000L, signature,
+                MagicLinkInfo.MAINNET_NETWORK_ID);
+        for (int i = 0; i < 3; i++) {
+            MagicLinkData data = parser.parseUniversalLink(link);
+            assertEquals("0x" + platform.getAddressFromKey(new BigInteger(1, signature)), parser.getOwnerKey(data));
+        }
+        // Once by the parser and once for each comparison
+        assertEquals(4, derivations.get());
+    }
+}
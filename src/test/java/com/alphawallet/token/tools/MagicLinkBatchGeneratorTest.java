@@ -0,0 +1,119 @@
+package com.alphawallet.token.tools;
+
+import com.alphawallet.token.entity.MagicLinkData;
+import com.alphawallet.token.entity.MagicLinkInfo;
+import com.alphawallet.token.entity.SalesOrderMalformed;
+import com.alphawallet.token.tools.MagicLinkBatchGenerator.Order;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayOutputStream;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class MagicLinkBatchGeneratorTest {
+    private static final String CONTRACT = "0x63ccef733a093e5bd773b41c96d3ece361464942";
+
+    @TempDir
+    Path tempDir;
+
+    private final ParseMagicLink parser = new ParseMagicLink(new TestCryptoFunctions(), null);
+    private final ExecutorService executor = Executors.newFixedThreadPool(4);
+
+    @AfterEach
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * Derives a signature from the message, such that every order gets its own
+     */
+    private static byte[] sign(byte[] message, int offset, int length) {
+        byte[] res = new byte[65];
+        for (int i = 0; i < length; i++) {
+            res[i % res.length] += message[offset + i] * (i + 1);
+        }
+        return res;
+    }
+
+    private static List<Order> orders(int count) {
+        List<Order> res = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            int[] indices = new int[i % 5 + 1];
+            for (int j = 0; j < indices.length; j++) indices[j] = 100 * i + j;
+            res.add(new Order(indices, BigInteger.TEN.pow(12 + i % 4).multiply(BigInteger.valueOf(i)), 1700000000L + i));
+        }
+        return res;
+    }
+
+    @Test
+    public void sameAsSingleLinks() throws Exception {
+        List<Order> orders = orders(40);
+        for (int parts : new int[] {1, 4, 7}) {
+            MagicLinkBatchGenerator generator = new MagicLinkBatchGenerator(parser, MagicLinkInfo.XDAI_NETWORK_ID, CONTRACT,
+                    MagicLinkBatchGeneratorTest::sign, executor, parts);
+            // The buffers of a larger batch are reused for a smaller one
+            for (List<Order> batch : Arrays.asList(orders, orders.subList(3, 17))) {
+                ByteArrayOutputStream out = new ByteArrayOutputStream();
+                int length = generator.generate(batch, out);
+                assertEquals(out.size(), length);
+                String[] links = new String(out.toByteArray(), StandardCharsets.US_ASCII).split("\n");
+                assertEquals(batch.size(), links.length);
+                for (int i = 0; i < batch.size(); i++) {
+                    Order order = batch.get(i);
+                    byte[] message = parser.getTradeBytes(order.indices, CONTRACT, order.priceWei, order.expiry);
+                    assertEquals(parser.generateUniversalLink(order.indices, CONTRACT, order.priceWei, order.expiry,
+                            sign(message, 0, message.length), MagicLinkInfo.XDAI_NETWORK_ID), links[i]);
+                    MagicLinkData data = parser.parseUniversalLink(links[i]);
+                    assertArrayEquals(order.indices, data.indices);
+                    assertArrayEquals(message, data.message);
+                }
+            }
+        }
+    }
+
+    @Test
+    public void toFile() throws Exception {
+        List<Order> orders = orders(10);
+        Path file = tempDir.resolve("links.txt");
+        new MagicLinkBatchGenerator(parser, MagicLinkInfo.MAINNET_NETWORK_ID, CONTRACT, MagicLinkBatchGeneratorTest::sign)
+                .generate(orders, file);
+        List<String> links = Files.readAllLines(file, StandardCharsets.US_ASCII);
+        assertEquals(orders.size(), links.size());
+        for (int i = 0; i < orders.size(); i++) {
+            assertArrayEquals(orders.get(i).indices, parser.parseUniversalLink(links.get(i)).indices);
+        }
+    }
+
+    @Test
+    public void invalidOrders() {
+        MagicLinkBatchGenerator generator = new MagicLinkBatchGenerator(parser, MagicLinkInfo.MAINNET_NETWORK_ID, CONTRACT,
+                MagicLinkBatchGeneratorTest::sign, executor, 2);
+        assertThrows(SalesOrderMalformed.class, () -> generator.generate(
+                Collections.singletonList(new Order(new int[] {1 << 15}, BigInteger.ONE, 0)), new ByteArrayOutputStream()));
+        assertThrows(SalesOrderMalformed.class, () -> generator.generate(
+                Collections.singletonList(new Order(new int[] {1}, BigInteger.TEN.pow(30), 0)), new ByteArrayOutputStream()));
+        MagicLinkBatchGenerator badSigner = new MagicLinkBatchGenerator(parser, MagicLinkInfo.MAINNET_NETWORK_ID, CONTRACT,
+                (message, offset, length) -> new byte[64], executor, 2);
+        // Failures while signing in parallel are passed on
+        RuntimeException e = assertThrows(RuntimeException.class, () -> badSigner.generate(orders(2), new ByteArrayOutputStream()));
+        assertTrue(e.getCause() instanceof IllegalArgumentException);
+        assertThrows(IllegalArgumentException.class, () -> badSigner.generate(orders(1), new ByteArrayOutputStream()));
+        assertThrows(IllegalArgumentException.class, () -> new MagicLinkBatchGenerator(parser, 1, CONTRACT,
+                MagicLinkBatchGeneratorTest::sign, executor, 0));
+    }
+}
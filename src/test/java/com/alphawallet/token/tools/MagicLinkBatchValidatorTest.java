@@ -0,0 +1,109 @@
+package com.alphawallet.token.tools;
+
+import com.alphawallet.token.entity.MagicLinkInfo;
+import com.alphawallet.token.tools.MagicLinkBatchValidator.Result;
+import com.alphawallet.token.tools.MagicLinkBatchValidator.Status;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class MagicLinkBatchValidatorTest {
+    private static final String CONTRACT = "0x63ccef733a093e5bd773b41c96d3ece361464942";
+    private static final long NOW = 1600000000L;
+    private static final byte UNRECOVERABLE = 9;
+
+    private final TestCryptoFunctions crypto = new TestCryptoFunctions() {
+        @Override
+        protected BigInteger recoverKey(byte[] data, byte[] signature) {
+            if (signature[0] == UNRECOVERABLE) {
+                throw new IllegalArgumentException("Invalid signature");
+            }
+            return super.recoverKey(data, signature);
+        }
+    };
+    private final ParseMagicLink parser = new ParseMagicLink(crypto, null);
+    private final ExecutorService executor = Executors.newFixedThreadPool(4);
+
+    @AfterEach
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    private String link(int index, long expiry, int signatureStart) throws Exception {
+        byte[] signature = new byte[65];
+        for (int i = 0; i < signature.length; i++) signature[i] = (byte) (signatureStart + i);
+        return parser.generateUniversalLink(new int[] {index}, CONTRACT, BigInteger.TEN.pow(15), expiry, signature,
+                MagicLinkInfo.MAINNET_NETWORK_ID);
+    }
+
+    /**
+     * Valid, expired, malformed, unrecoverable and duplicated links
+     */
+    private List<String> corpus() throws Exception {
+        String valid = link(1, NOW + 100, 1);
+        return Arrays.asList(valid, link(2, NOW, 2), "https://aw.app/AAAA", link(3, NOW + 100, UNRECOVERABLE),
+                link(4, NOW + 100, 4), valid);
+    }
+
+    @Test
+    public void validateInOrder() throws Exception {
+        List<String> links = corpus();
+        List<Result> results = new MagicLinkBatchValidator(parser, executor, () -> NOW).validate(links);
+        assertEquals(links.size(), results.size());
+        Status[] expected = {Status.VALID, Status.EXPIRED, Status.MALFORMED, Status.INVALID, Status.VALID, Status.VALID};
+        for (int i = 0; i < results.size(); i++) {
+            assertEquals(i, results.get(i).index);
+            assertSame(links.get(i), results.get(i).link);
+            assertEquals(expected[i], results.get(i).status);
+        }
+        assertEquals(2, results.get(1).data.indices[0]);
+        assertNull(results.get(2).data);
+        assertTrue(results.get(0).data.ownerAddress.startsWith("0x"));
+        assertEquals(42, results.get(0).data.ownerAddress.length());
+        // Neither the expired link nor the duplicate are recovered
+        assertEquals(3, crypto.getRecoveries());
+        assertSame(results.get(0).data, results.get(5).data);
+    }
+
+    @Test
+    public void validateAsCompleted() throws Exception {
+        List<String> links = new ArrayList<>();
+        for (int i = 0; i < 50; i++) {
+            links.add(link(i, NOW + i, i));
+        }
+        List<Result> results = new ArrayList<>();
+        new MagicLinkBatchValidator(parser, executor, () -> NOW).validate(links, results::add, false);
+        assertEquals(links.size(), results.size());
+        results.sort((a, b) -> Integer.compare(a.index, b.index));
+        for (int i = 0; i < links.size(); i++) {
+            assertEquals(i, results.get(i).index);
+            assertEquals(i == 0 ? Status.EXPIRED : i == UNRECOVERABLE ? Status.INVALID : Status.VALID,
+                    results.get(i).status);
+        }
+        assertEquals(49, crypto.getRecoveries());
+    }
+
+    @Test
+    public void failures() throws Exception {
+        MagicLinkBatchValidator validator = new MagicLinkBatchValidator(parser, executor, () -> NOW);
+        assertEquals(0, validator.validate(Collections.emptyList()).size());
+        List<String> links = corpus();
+        assertThrows(RuntimeException.class, () -> validator.validate(links, result -> {
+            throw new IllegalStateException();
+        }, false));
+        assertThrows(RuntimeException.class, () -> validator.validate(Collections.singletonList(null)));
+    }
+}
@@ -0,0 +1,104 @@
+package com.alphawallet.token.tools;
+
+import com.alphawallet.token.entity.MagicLinkData;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class OwnerKeyCacheTest {
+    private static final String OWNER = "0x0123456789abcdef0123456789abcdef01234567";
+    private static final long NOW = 1600000000L;
+
+    private final AtomicLong clock = new AtomicLong(NOW);
+
+    private static byte[] bytes(int seed, int length) {
+        byte[] res = new byte[length];
+        for (int i = 0; i < length; i++) res[i] = (byte) (seed + i);
+        return res;
+    }
+
+    @Test
+    public void hitsAndMisses() {
+        OwnerKeyCache cache = new OwnerKeyCache(10, clock::get);
+        byte[] message = bytes(1, 84);
+        byte[] signature = bytes(2, 65);
+        assertNull(cache.get(message, signature));
+        cache.put(message, signature, NOW + 100, OWNER);
+        // Changes to the arrays of the link do not affect the cache
+        message[0]++;
+        assertNull(cache.get(message, signature));
+        message[0]--;
+        assertEquals(OWNER, cache.get(message.clone(), signature.clone()));
+        assertNull(cache.get(message, bytes(3, 65)));
+        assertEquals(1, cache.getHits());
+        assertEquals(3, cache.getMisses());
+
+        // Expired links are not cached
+        cache.put(bytes(4, 84), signature, NOW, OWNER);
+        assertEquals(1, cache.size());
+        assertThrows(IllegalArgumentException.class, () -> new OwnerKeyCache(0));
+    }
+
+    @Test
+    public void expiry() {
+        OwnerKeyCache cache = new OwnerKeyCache(10, clock::get);
+        byte[] signature = bytes(2, 65);
+        cache.put(bytes(1, 84), signature, NOW + 10, OWNER);
+        cache.put(bytes(2, 84), signature, NOW + 20, OWNER);
+        clock.set(NOW + 10);
+        assertNull(cache.get(bytes(1, 84), signature));
+        assertEquals(OWNER, cache.get(bytes(2, 84), signature));
+        assertEquals(1, cache.getExpired());
+        assertEquals(1, cache.size());
+    }
+
+    @Test
+    public void capacity() {
+        OwnerKeyCache cache = new OwnerKeyCache(20, clock::get);
+        byte[] signature = bytes(2, 65);
+        cache.put(bytes(0, 84), signature, NOW + 1, OWNER);
+        for (int i = 1; i < 20; i++) {
+            cache.put(bytes(i, 84), signature, NOW + 1000 - i, OWNER);
+        }
+        // Expired entries go first, then those expiring soonest until a tenth is free
+        clock.set(NOW + 1);
+        cache.put(bytes(21, 84), signature, NOW + 2000, OWNER);
+        assertEquals(18, cache.size());
+        assertEquals(1, cache.getExpired());
+        assertEquals(2, cache.getEvicted());
+        assertNull(cache.get(bytes(19, 84), signature));
+        assertNull(cache.get(bytes(18, 84), signature));
+        assertEquals(OWNER, cache.get(bytes(17, 84), signature));
+        assertEquals(OWNER, cache.get(bytes(21, 84), signature));
+    }
+
+    @Test
+    public void parserRecoversOnce() {
+        TestCryptoFunctions crypto = new TestCryptoFunctions();
+        ParseMagicLink parser = new ParseMagicLink(crypto, null);
+        OwnerKeyCache cache = new OwnerKeyCache(10, clock::get);
+        parser.setOwnerKeyCache(cache);
+
+        MagicLinkData data = new MagicLinkData();
+        data.message = bytes(1, 84);
+        data.signature = bytes(2, 65);
+        data.expiry = NOW + 100;
+        String owner = parser.getOwnerKey(data);
+        data.ownerAddress = null;
+        assertEquals(owner, parser.getOwnerKey(data));
+        assertEquals(owner, data.ownerAddress);
+        assertEquals(1, crypto.getRecoveries());
+        assertEquals(1, cache.getHits());
+
+        // Expired links are recovered every time
+        data.message = bytes(3, 84);
+        data.expiry = NOW;
+        parser.getOwnerKey(data);
+        parser.getOwnerKey(data);
+        assertEquals(3, crypto.getRecoveries());
+    }
+}
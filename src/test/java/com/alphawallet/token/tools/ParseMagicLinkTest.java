@@ -0,0 +1,231 @@
+package com.alphawallet.token.tools;
+
+import com.alphawallet.token.entity.ChainSpec;
+import com.alphawallet.token.entity.EthereumByteReader;
+import com.alphawallet.token.entity.EthereumWriteBuffer;
+import com.alphawallet.token.entity.MagicLinkData;
+import com.alphawallet.token.entity.MagicLinkInfo;
+import com.alphawallet.token.entity.SalesOrderMalformed;
+import com.alphawallet.token.entity.UnsignedLong;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class ParseMagicLinkTest {
+    private static final String CONTRACT = "0x63ccef733a093e5bd773b41c96d3ece361464942";
+    private static final BigInteger PRICE = BigInteger.TEN.pow(15);
+    private static final long EXPIRY = 1700000000L;
+    private static final int[] INDICES = {0, 5, 127, 128, 200, 32000};
+    private static final List<BigInteger> TOKEN_IDS = Arrays.asList(
+            BigInteger.ONE,
+            new BigInteger("546048445646851568430134455064804806"),
+            BigInteger.ONE.shiftLeft(255).subtract(BigInteger.ONE));
+
+    private final ParseMagicLink parser = new ParseMagicLink(new TestCryptoFunctions(), null);
+
+    private static byte[] signature() {
+        byte[] res = new byte[65];
+        for (int i = 0; i < res.length; i++) res[i] = (byte) i;
+        return res;
+    }
+
+    /**
+     * The trade bytes as formed with EthereumWriteBuffer
+     */
+    private static byte[] expectedTradeHeader() throws IOException {
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+        EthereumWriteBuffer wb = new EthereumWriteBuffer(buffer);
+        wb.write(Numeric.toBytesPadded(PRICE, 32));
+        wb.write(Numeric.toBytesPadded(UnsignedLong.create(EXPIRY), 32));
+        wb.writeAddress(CONTRACT);
+        wb.close();
+        return buffer.toByteArray();
+    }
+
+    @Test
+    public void normalLink() throws Exception {
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+        EthereumWriteBuffer wb = new EthereumWriteBuffer(buffer);
+        wb.writeByte(ParseMagicLink.normal);
+        wb.write4ByteMicroEth(PRICE);
+        wb.writeUnsigned4(EXPIRY);
+        wb.writeAddress(CONTRACT);
+        wb.writeCompressedIndices(INDICES);
+        wb.close();
+        byte[] leading = ParseMagicLink.generateLeadingLinkBytes(INDICES, CONTRACT, PRICE, EXPIRY);
+        assertArrayEquals(buffer.toByteArray(), leading);
+
+        String link = parser.completeUniversalLink(MagicLinkInfo.MAINNET_NETWORK_ID, leading, signature());
+        MagicLinkData data = parser.parseUniversalLink(link);
+        assertArrayEquals(INDICES, data.indices);
+        assertEquals(INDICES.length, data.ticketCount);
+        assertEquals(PRICE, data.priceWei);
+        assertEquals(EXPIRY, data.expiry);
+        assertEquals(CONTRACT, data.contractAddress);
+        assertArrayEquals(signature(), data.signature);
+
+        buffer = new ByteArrayOutputStream();
+        buffer.write(expectedTradeHeader());
+        for (int i : INDICES) {
+            buffer.write(i >> 8);
+            buffer.write(i);
+        }
+        assertArrayEquals(buffer.toByteArray(), data.message);
+        assertArrayEquals(data.message, parser.getTradeBytes(INDICES, CONTRACT, PRICE, EXPIRY));
+    }
+
+    @Test
+    public void largeExpiry() throws Exception {
+        // Beyond 32 bits, and negative longs which are written as unsigned
+        for (long expiry : new long[] {1L << 32, 0x123456789ABCDEFL, -1L, Long.MIN_VALUE}) {
+            byte[] message = parser.getTradeBytes(INDICES, CONTRACT, PRICE, expiry);
+            BigInteger unsigned = new BigInteger(Long.toUnsignedString(expiry));
+            assertArrayEquals(Numeric.toBytesPadded(unsigned, 32), Arrays.copyOfRange(message, 32, 64));
+            assertEquals(unsigned, new BigInteger(1, Arrays.copyOfRange(message, 32, 64)));
+            assertArrayEquals(Arrays.copyOf(message, ParseMagicLink.TRADE_HEADER_LENGTH),
+                    parser.getSpawnableBytes(Collections.emptyList(), CONTRACT, PRICE, expiry));
+        }
+    }
+
+    @Test
+    public void spawnableLink() throws Exception {
+        byte[] leading = ParseMagicLink.generateSpawnableLeadingLinkBytes(TOKEN_IDS, CONTRACT, PRICE, EXPIRY);
+        String link = parser.completeUniversalLink(MagicLinkInfo.MAINNET_NETWORK_ID, leading, signature());
+        MagicLinkData data = parser.parseUniversalLink(link);
+        assertEquals(TOKEN_IDS, data.tokenIds);
+        assertEquals(TOKEN_IDS.size(), data.ticketCount);
+
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+        buffer.write(expectedTradeHeader());
+        EthereumWriteBuffer wb = new EthereumWriteBuffer(buffer);
+        wb.writeTokenIds(TOKEN_IDS);
+        wb.close();
+        assertArrayEquals(buffer.toByteArray(), data.message);
+        assertArrayEquals(data.message, parser.getSpawnableBytes(TOKEN_IDS, CONTRACT, PRICE, EXPIRY));
+    }
+
+    @Test
+    public void compressedSpawnableLink() throws Exception {
+        BigInteger base = new BigInteger("546048445646851568430134455064804806").shiftLeft(64);
+        List<BigInteger> range = new ArrayList<>();
+        for (int i = 0; i < 100; i++) range.add(base.add(BigInteger.valueOf(i)));
+        // Unordered ids sharing only a few bytes, ids differing in every byte and a single id
+        List<BigInteger> unordered = Arrays.asList(base.add(BigInteger.valueOf(1000)), base.subtract(BigInteger.ONE.shiftLeft(70)),
+                base, base.add(BigInteger.ONE.shiftLeft(63)));
+        List<List<BigInteger>> cases = Arrays.asList(range, unordered, TOKEN_IDS, Collections.singletonList(base),
+                Collections.emptyList());
+        for (List<BigInteger> tokenIds : cases) {
+            byte[] leading = ParseMagicLink.generateCompressedSpawnableLeadingLinkBytes(tokenIds, CONTRACT, PRICE, EXPIRY);
+            byte[] uncompressed = ParseMagicLink.generateSpawnableLeadingLinkBytes(tokenIds, CONTRACT, PRICE, EXPIRY);
+            assertEquals(ParseMagicLink.compressedSpawnable, leading[0]);
+            assertTrue(leading.length <= uncompressed.length + 1);
+            MagicLinkData data = parser.parseUniversalLink(
+                    parser.completeUniversalLink(MagicLinkInfo.MAINNET_NETWORK_ID, leading, signature()));
+            assertEquals(tokenIds, data.tokenIds);
+            assertEquals(tokenIds.size(), data.ticketCount);
+            assertArrayEquals(signature(), data.signature);
+            // The same message is signed as for a spawnable link
+            MagicLinkData spawnableData = parser.parseUniversalLink(
+                    parser.completeUniversalLink(MagicLinkInfo.MAINNET_NETWORK_ID, uncompressed, signature()));
+            assertArrayEquals(spawnableData.message, data.message);
+            assertEquals(spawnableData.expiry, data.expiry);
+            assertEquals(spawnableData.priceWei, data.priceWei);
+            assertEquals(spawnableData.contractAddress, data.contractAddress);
+        }
+        // A range takes a byte per token id after the shared prefix
+        byte[] leading = ParseMagicLink.generateCompressedSpawnableLeadingLinkBytes(range, CONTRACT, PRICE, EXPIRY);
+        assertEquals(29 + 1 + 31 + 100, leading.length);
+
+        // Truncated, unterminated and out of range token ids
+        assertThrows(IOException.class, () -> new EthereumByteReader(new byte[0]).readCompressedTokenIds(0));
+        assertThrows(IOException.class, () -> new EthereumByteReader(new byte[] {32}).readCompressedTokenIds(1));
+        assertThrows(IOException.class, () -> new EthereumByteReader(new byte[] {2, 1}).readCompressedTokenIds(2));
+        assertThrows(IOException.class, () -> new EthereumByteReader(new byte[] {0, 2, (byte) 0x81}).readCompressedTokenIds(3));
+        assertThrows(IOException.class, () -> new EthereumByteReader(new byte[] {0, 1}).readCompressedTokenIds(2));
+        assertThrows(IOException.class, () -> new EthereumByteReader(new byte[] {31, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0,
+                0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, (byte) 0x80, 0x04}).readCompressedTokenIds(34));
+    }
+
+    @Test
+    public void tokenIdViews() throws Exception {
+        byte[] leading = ParseMagicLink.generateSpawnableLeadingLinkBytes(TOKEN_IDS, CONTRACT, PRICE, EXPIRY);
+        int start = 29;
+        int length = leading.length - start;
+        EthereumByteReader reader = new EthereumByteReader(leading);
+        reader.readBytes(start);
+        long[] limbs = reader.readTokenIdLimbs(length);
+        assertEquals(0, reader.remaining());
+        reader.reset();
+        reader.readBytes(start);
+        ByteBuffer[] slices = reader.readTokenIdSlices(length);
+        assertEquals(TOKEN_IDS.size(), slices.length);
+        for (int i = 0; i < TOKEN_IDS.size(); i++) {
+            byte[] fromSlice = new byte[32];
+            slices[i].get(fromSlice);
+            assertEquals(TOKEN_IDS.get(i), new BigInteger(1, fromSlice));
+            BigInteger fromLimbs = BigInteger.ZERO;
+            for (int j = 0; j < 4; j++) {
+                fromLimbs = fromLimbs.shiftLeft(64).or(new BigInteger(Long.toUnsignedString(limbs[4 * i + j])));
+            }
+            assertEquals(TOKEN_IDS.get(i), fromLimbs);
+        }
+    }
+
+    @Test
+    public void malformedLinks() throws Exception {
+        byte[] leading = ParseMagicLink.generateLeadingLinkBytes(INDICES, CONTRACT, PRICE, EXPIRY);
+        // Missing signature
+        String link = MagicLinkInfo.generatePrefix(MagicLinkInfo.MAINNET_NETWORK_ID)
+                + Base64.getUrlEncoder().encodeToString(leading);
+        assertThrows(SalesOrderMalformed.class, () -> parser.parseUniversalLink(link));
+        // Index which cannot be represented
+        assertThrows(SalesOrderMalformed.class,
+                () -> ParseMagicLink.generateLeadingLinkBytes(new int[] {1 << 15}, CONTRACT, PRICE, EXPIRY));
+        // Truncated index
+        assertThrows(IOException.class, () -> new EthereumByteReader(new byte[] {1, (byte) 0x81}).readCompressedIndices(2));
+    }
+
+    @Test
+    public void chainIdentification() throws Exception {
+        byte[] leading = ParseMagicLink.generateLeadingLinkBytes(INDICES, CONTRACT, PRICE, EXPIRY);
+        for (int chainId : new int[] {MagicLinkInfo.MAINNET_NETWORK_ID, MagicLinkInfo.KOVAN_NETWORK_ID,
+                MagicLinkInfo.XDAI_NETWORK_ID, MagicLinkInfo.ARTIS_TAU1_NETWORK_ID, MagicLinkInfo.LEGACY_VALUE}) {
+            String link = parser.completeUniversalLink(chainId, leading, signature());
+            assertEquals(chainId, MagicLinkInfo.identifyChainId(link));
+            MagicLinkData data = parser.parseUniversalLink(link);
+            assertEquals(chainId, data.chainId);
+            assertArrayEquals(INDICES, data.indices);
+        }
+        // Unknown subdomains are treated as mainnet
+        String mainnetLink = parser.completeUniversalLink(MagicLinkInfo.MAINNET_NETWORK_ID, leading, signature());
+        String encoded = mainnetLink.substring(MagicLinkInfo.generatePrefix(MagicLinkInfo.MAINNET_NETWORK_ID).length());
+        assertEquals(MagicLinkInfo.MAINNET_NETWORK_ID, parser.parseUniversalLink("https://new.aw.app/" + encoded).chainId);
+        assertThrows(SalesOrderMalformed.class, () -> parser.parseUniversalLink("https://example.com/" + encoded));
+        assertThrows(SalesOrderMalformed.class, () -> parser.parseUniversalLink("https://example.com/aw.app/" + encoded));
+        assertEquals(0, MagicLinkInfo.identifyChainId("https://example.com/aw.app/" + encoded));
+
+        // Chains added later are resolved by their host
+        ChainSpec custom = new ChainSpec();
+        custom.chainId = 8888;
+        custom.name = "Custom";
+        custom.urlPrefix = "https://custom.example.org/";
+        parser.addChain(custom);
+        String link = parser.completeUniversalLink(custom.chainId, leading, signature());
+        MagicLinkData data = parser.parseUniversalLink(link);
+        assertEquals(custom.chainId, data.chainId);
+        assertArrayEquals(INDICES, data.indices);
+    }
+}
@@ -0,0 +1,123 @@
+package com.alphawallet.token.tools;
+
+import com.alphawallet.token.entity.EthereumReadBuffer;
+import com.alphawallet.token.entity.MessageData;
+import com.alphawallet.token.entity.SalesOrderMalformed;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.math.BigInteger;
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class SalesOrderReaderTest {
+    private static final String CONTRACT = "0x63ccef733a093e5bd773b41c96d3ece361464942";
+
+    private final ParseMagicLink parser = new ParseMagicLink(null, null);
+
+    private static int[] indices(int i) {
+        int[] res = new int[i % 4 + 1];
+        for (int j = 0; j < res.length; j++) res[j] = 20000 * j + i;
+        return res;
+    }
+
+    private byte[] message(int i) {
+        return parser.getTradeBytes(indices(i), CONTRACT, BigInteger.TEN.pow(18).multiply(BigInteger.valueOf(i)), 1700000000L + i);
+    }
+
+    @Test
+    public void readFields() throws Exception {
+        byte[] message = message(3);
+        // The message in the middle of a larger buffer
+        byte[] buffer = new byte[message.length + 10];
+        System.arraycopy(message, 0, buffer, 7, message.length);
+        assertEquals(4, SalesOrderReader.indexCount(buffer, 7, message.length));
+        assertEquals(BigInteger.TEN.pow(18).multiply(BigInteger.valueOf(3)), SalesOrderReader.readPriceWei(buffer, 7));
+        assertEquals(1700000003L, SalesOrderReader.readExpiry(buffer, 7));
+        byte[] contract = new byte[20];
+        SalesOrderReader.readContract(buffer, 7, contract, 0);
+        assertEquals(CONTRACT, Numeric.toHexString(contract));
+        assertTrue(SalesOrderReader.isContract(buffer, 7, contract));
+        contract[19]++;
+        assertFalse(SalesOrderReader.isContract(buffer, 7, contract));
+        int[] indices = new int[6];
+        SalesOrderReader.readIndices(buffer, 7, 4, indices, 2);
+        assertArrayEquals(new int[] {0, 0, 3, 20003, 40003, 60003}, indices);
+
+        // Expiries which do not fit a signed long are unsigned, as written
+        for (long expiry : new long[] {1L << 32, Long.MAX_VALUE, Long.MIN_VALUE, -1L}) {
+            byte[] large = parser.getTradeBytes(indices(1), CONTRACT, BigInteger.ONE, expiry);
+            assertEquals(expiry, SalesOrderReader.readExpiry(large, 0));
+        }
+
+        // Expiry beyond a long
+        message[32 + 23] = 1;
+        assertThrows(SalesOrderMalformed.class, () -> SalesOrderReader.readExpiry(message, 0));
+        assertThrows(SalesOrderMalformed.class, () -> SalesOrderReader.indexCount(message, 0, message.length - 1));
+        assertThrows(SalesOrderMalformed.class, () -> SalesOrderReader.indexCount(message, 1, message.length));
+        assertThrows(SalesOrderMalformed.class, () -> SalesOrderReader.indexCount(message, 0, 10));
+    }
+
+    @Test
+    public void readByteMessageSameAsReadBuffer() throws Exception {
+        byte[] sig = new byte[65];
+        for (int i = 0; i < sig.length; i++) sig[i] = (byte) i;
+        for (int i = 0; i < 8; i++) {
+            byte[] message = message(i);
+            int count = indices(i).length;
+            MessageData data = parser.readByteMessage(message, sig, count);
+
+            EthereumReadBuffer ds = new EthereumReadBuffer(new ByteArrayInputStream(message));
+            assertEquals(ds.readBI(), data.priceWei);
+            ds.readBI();
+            ds.readAddress();
+            int[] tickets = new int[count];
+            ds.readUnsignedShort(tickets);
+            ds.close();
+            assertArrayEquals(tickets, data.tickets);
+            assertArrayEquals(sig, data.signature);
+        }
+        assertThrows(SalesOrderMalformed.class, () -> parser.readByteMessage(message(1), sig, 3));
+    }
+
+    @Test
+    public void readOrders() throws Exception {
+        byte[][] messages = new byte[10][];
+        for (int i = 0; i < messages.length; i++) messages[i] = message(i);
+        BigInteger[] prices = new BigInteger[messages.length];
+        long[] expiries = new long[messages.length];
+        byte[] contracts = new byte[20 * messages.length];
+        int[] indices = new int[40];
+        int[] offsets = new int[messages.length + 1];
+        // Only the first 8 messages
+        int total = SalesOrderReader.readOrders(messages, 8, prices, expiries, contracts, indices, offsets);
+        assertEquals(offsets[8], total);
+        for (int i = 0; i < 8; i++) {
+            assertEquals(BigInteger.TEN.pow(18).multiply(BigInteger.valueOf(i)), prices[i]);
+            assertEquals(1700000000L + i, expiries[i]);
+            assertEquals(CONTRACT, Numeric.toHexString(Arrays.copyOfRange(contracts, 20 * i, 20 * i + 20)));
+            assertArrayEquals(indices(i), Arrays.copyOfRange(indices, offsets[i], offsets[i + 1]));
+        }
+        assertNull(prices[8]);
+
+        // Only the expiries
+        long[] onlyExpiries = new long[messages.length];
+        assertEquals(23, SalesOrderReader.readOrders(messages, messages.length, null, onlyExpiries, null, null, null));
+        assertEquals(1700000009L, onlyExpiries[9]);
+
+        assertThrows(IllegalArgumentException.class,
+                () -> SalesOrderReader.readOrders(messages, messages.length, null, null, null, new int[10], new int[11]));
+        assertThrows(IllegalArgumentException.class,
+                () -> SalesOrderReader.readOrders(messages, messages.length, null, null, null, indices, null));
+        messages[5] = Arrays.copyOf(messages[5], messages[5].length - 1);
+        SalesOrderMalformed e = assertThrows(SalesOrderMalformed.class,
+                () -> SalesOrderReader.readOrders(messages, messages.length, prices, null, null, null, null));
+        assertTrue(e.getMessage().startsWith("Order 5"));
+    }
+}
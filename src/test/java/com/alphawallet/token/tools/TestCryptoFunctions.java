@@ -0,0 +1,52 @@
+package com.alphawallet.token.tools;
+
+import com.alphawallet.token.entity.CryptoFunctionsInterface;
+
+import java.math.BigInteger;
+import java.util.Base64;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * CryptoFunctionsInterface for tests which do not need real signatures.
+ * Links are encoded with URL safe Base64, the recovered key is the signature read as an unsigned
+ * integer and the address is the lowest 160 bits of the key in hex.
+ * Tests override the methods they need to behave differently.
+ */
+public class TestCryptoFunctions implements CryptoFunctionsInterface {
+    private final AtomicInteger recoveries = new AtomicInteger();
+
+    @Override
+    public byte[] Base64Decode(String message) {
+        return Base64.getUrlDecoder().decode(message);
+    }
+
+    @Override
+    public byte[] Base64Encode(byte[] data) {
+        return Base64.getUrlEncoder().encode(data);
+    }
+
+    @Override
+    public BigInteger signedMessageToKey(byte[] data, byte[] signature) {
+        recoveries.incrementAndGet();
+        return recoverKey(data, signature);
+    }
+
+    /**
+     * Returns the key recovered by signedMessageToKey, which counts the calls
+     */
+    protected BigInteger recoverKey(byte[] data, byte[] signature) {
+        return new BigInteger(1, signature);
+    }
+
+    @Override
+    public String getAddressFromKey(BigInteger recoveredKey) {
+        return String.format("%040x", recoveredKey.mod(BigInteger.ONE.shiftLeft(160)));
+    }
+
+    /**
+     * Returns the amount of calls to signedMessageToKey
+     */
+    public int getRecoveries() {
+        return recoveries.get();
+    }
+}
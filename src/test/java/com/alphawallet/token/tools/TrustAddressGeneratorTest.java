@@ -8,8 +8,12 @@ import javax.xml.crypto.dsig.XMLSignature;
 import javax.xml.crypto.dsig.XMLSignatureException;
 import javax.xml.parsers.ParserConfigurationException;
 import java.io.*;
+import java.util.ArrayList;
+import java.util.List;
 import org.bouncycastle.util.encoders.Base64;
 
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
 public class TrustAddressGeneratorTest {
     String digest;
 
@@ -34,6 +38,32 @@ public class TrustAddressGeneratorTest {
         assert(revokeAddress.equals("0x6b4c50938caef365fa3e04bfe5a25da518dba447"));
     }
 
+    @Test
+    public void deriveAll() throws Exception {
+        List<TrustAddressGenerator.Request> requests = new ArrayList<>();
+        requests.add(new TrustAddressGenerator.Request("0x63cCEF733a093E5Bd773b41C96D3eCE361464942", digest));
+        for (int i = 0; i < 20; i++) {
+            requests.add(new TrustAddressGenerator.Request("0x63cCEF733a093E5Bd773b41C96D3eCE36146494" + (i % 10), digest + i));
+        }
+        List<TrustAddressGenerator.Response> responses = TrustAddressGenerator.deriveAll(requests);
+        assertEquals(requests.size(), responses.size());
+        assertEquals("0x2e02934b4ed1bee0defa7a58061dd8ee9440094c", responses.get(0).getTrustAddress());
+        assertEquals("0x6b4c50938caef365fa3e04bfe5a25da518dba447", responses.get(0).getRevokeAddress());
+        for (int i = 0; i < requests.size(); i++) {
+            TrustAddressGenerator.Request req = requests.get(i);
+            assertEquals(TrustAddressGenerator.getTrustAddress(req.getContractAddress(), req.getDigest()), responses.get(i).getTrustAddress());
+            assertEquals(TrustAddressGenerator.getRevokeAddress(req.getContractAddress(), req.getDigest()), responses.get(i).getRevokeAddress());
+        }
+    }
+
+    @Test
+    public void deriveTrustAddress() throws Exception {
+        TrustAddressGenerator.Response response = new TrustAddressGenerator().DeriveTrustAddress(
+                new TrustAddressGenerator.Request("0x63cCEF733a093E5Bd773b41C96D3eCE361464942", digest));
+        assertEquals("0x2e02934b4ed1bee0defa7a58061dd8ee9440094c", response.getTrustAddress());
+        assertEquals("0x6b4c50938caef365fa3e04bfe5a25da518dba447", response.getRevokeAddress());
+    }
+
     /*
      * the following utility functions are moved from
      * TrustAddressGenerator because it doesn't belong
@@ -0,0 +1,39 @@
+package com.alphawallet.token.tools;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class TrustAddressHandlerTest {
+    @Test
+    public void sameAsTrustAddressGenerator() throws Exception {
+        TrustAddressHandler handler = new TrustAddressHandler();
+        for (int i = 0; i < 10; i++) {
+            String contract = "0x63cCEF733a093E5Bd773b41C96D3eCE36146494" + i;
+            String digest = "z+I6NxdALVtlc3TuUo2QEeV9rwyAmKB4UtQWkTLQhp" + i + "=";
+            TrustAddressGenerator.Response response = handler.handleRequest(new TrustAddressGenerator.Request(contract, digest), null);
+            assertEquals(TrustAddressGenerator.getTrustAddress(contract, digest), response.getTrustAddress());
+            assertEquals(TrustAddressGenerator.getRevokeAddress(contract, digest), response.getRevokeAddress());
+        }
+    }
+
+    @Test
+    public void constantsResourceUpToDate() throws IOException {
+        StringWriter expected = new StringWriter();
+        TrustAddressHandler.exportConstants(expected);
+        ByteArrayOutputStream actual = new ByteArrayOutputStream();
+        try (InputStream in = TrustAddressHandler.class.getResourceAsStream(TrustAddressHandler.CONSTANTS_RESOURCE)) {
+            byte[] buffer = new byte[4096];
+            for (int len = in.read(buffer); len != -1; len = in.read(buffer)) {
+                actual.write(buffer, 0, len);
+            }
+        }
+        assertEquals(expected.toString(), new String(actual.toByteArray(), StandardCharsets.ISO_8859_1));
+    }
+}
@@ -0,0 +1,166 @@
+package org.devcon.ticket;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.alphawallet.attestation.core.AttestationCrypto;
+import com.alphawallet.attestation.core.AttestationCryptoWithEthereumCharacteristics;
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.SecureRandom;
+import java.util.ArrayList;
+import java.util.List;
+import org.bouncycastle.crypto.AsymmetricCipherKeyPair;
+import org.devcon.ticket.TicketLinkDecoder.TicketLink;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+public class BulkIssuerTest {
+  private static final int TICKETS = 10;
+
+  @TempDir
+  Path tempDir;
+
+  private static AsymmetricCipherKeyPair keys;
+  private static SecureRandom rand;
+  private static String csv;
+
+  @BeforeAll
+  public static void setup() throws Exception {
+    rand = SecureRandom.getInstance("SHA1PRNG");
+    rand.setSeed("seed".getBytes());
+    AttestationCrypto crypto = new AttestationCryptoWithEthereumCharacteristics(rand);
+    keys = crypto.constructECKeys();
+    StringBuilder builder = new StringBuilder("# mail,devconId,ticketId,ticketClass\n");
+    for (int i = 0; i < TICKETS; i++) {
+      builder.append("holder").append(i).append("@test.ts,6,").append(ticketId(i)).append(',').append(i % 3).append('\n');
+      if (i == 4) {
+        builder.append('\n');
+      }
+    }
+    csv = builder.toString();
+  }
+
+  private static BigInteger ticketId(int i) {
+    return new BigInteger("48646435").add(BigInteger.valueOf(1000L * i));
+  }
+
+  private static void assertLinks(List<String> links, TicketLinkDecoder decoder) throws IOException {
+    assertEquals(TICKETS, links.size());
+    for (int i = 0; i < TICKETS; i++) {
+      TicketLink decoded = decoder.decode(links.get(i));
+      assertTrue(links.get(i).startsWith(Ticket.magicLinkURLPrefix + "?ticket="));
+      assertEquals(ticketId(i), decoded.getTicket().getTicketId());
+      assertEquals(i % 3, decoded.getTicket().getTicketClass());
+      assertEquals(6, decoded.getTicket().getDevconId());
+      assertTrue(decoded.getSecret().compareTo(AttestationCrypto.curveOrder) < 0);
+      Ticket expected = new Ticket("holder" + i + "@test.ts", 6, ticketId(i), i % 3, keys, decoded.getSecret());
+      assertEquals(new BigInteger(1, expected.getCommitment()), new BigInteger(1, decoded.getTicket().getCommitment()));
+    }
+  }
+
+  @Test
+  public void issueAll() throws IOException {
+    TicketLinkDecoder decoder = new TicketLinkDecoder(keys.getPublic());
+    for (int threads : new int[] {1, 3}) {
+      for (boolean compact : new boolean[] {false, true}) {
+        StringWriter out = new StringWriter();
+        assertEquals(TICKETS, new BulkIssuer(keys, rand, threads, compact, 4)
+            .issue(new StringReader(csv), out, 0));
+        List<String> links = new ArrayList<>();
+        for (String link : out.toString().split("\n")) {
+          links.add(link);
+        }
+        assertLinks(links, decoder);
+      }
+    }
+  }
+
+  @Test
+  public void resume() throws IOException {
+    Path input = tempDir.resolve("tickets.csv");
+    Path output = tempDir.resolve("links.txt");
+    Files.write(input, csv.getBytes(StandardCharsets.UTF_8));
+    BulkIssuer issuer = new BulkIssuer(keys, rand, 2, true, 3);
+    assertEquals(0, BulkIssuer.completeLinks(output));
+
+    // An interrupted run, which wrote four links and half of the fifth
+    StringWriter out = new StringWriter();
+    issuer.issue(new StringReader(csv), out, 0);
+    String[] links = out.toString().split("\n");
+    StringBuilder interrupted = new StringBuilder();
+    for (int i = 0; i < 4; i++) {
+      interrupted.append(links[i]).append('\n');
+    }
+    interrupted.append(links[4], 0, links[4].length() / 2);
+    Files.write(output, interrupted.toString().getBytes(StandardCharsets.US_ASCII));
+
+    assertEquals(TICKETS - 4, issuer.issue(input, output));
+    List<String> resumed = Files.readAllLines(output, StandardCharsets.US_ASCII);
+    assertLinks(resumed, new TicketLinkDecoder(keys.getPublic()));
+    for (int i = 0; i < 4; i++) {
+      assertEquals(links[i], resumed.get(i));
+    }
+    // Everything has been issued
+    assertEquals(0, issuer.issue(input, output));
+    assertEquals(TICKETS, Files.readAllLines(output, StandardCharsets.US_ASCII).size());
+  }
+
+  @Test
+  public void resumeRepeatedTicketIds() throws IOException {
+    // The same ticket ids for two events
+    StringBuilder builder = new StringBuilder();
+    for (int i = 0; i < 6; i++) {
+      builder.append("holder").append(i).append("@test.ts,").append(6 + i / 3).append(',').append(ticketId(i % 3))
+          .append(",0\n");
+    }
+    Path input = tempDir.resolve("repeated.csv");
+    Path output = tempDir.resolve("repeated.txt");
+    Files.write(input, builder.toString().getBytes(StandardCharsets.UTF_8));
+    BulkIssuer issuer = new BulkIssuer(keys, rand, 2, false, 2);
+    StringWriter out = new StringWriter();
+    issuer.issue(new StringReader(builder.toString()), out, 0);
+    String[] links = out.toString().split("\n");
+    // Interrupted after the second ticket of the first event
+    Files.write(output, (links[0] + "\n" + links[1] + "\n").getBytes(StandardCharsets.US_ASCII));
+
+    assertEquals(4, issuer.issue(input, output));
+    List<String> resumed = Files.readAllLines(output, StandardCharsets.US_ASCII);
+    assertEquals(6, resumed.size());
+    TicketLinkDecoder decoder = new TicketLinkDecoder(keys.getPublic());
+    for (int i = 0; i < 6; i++) {
+      Ticket ticket = decoder.decode(resumed.get(i)).getTicket();
+      assertEquals(6 + i / 3, ticket.getDevconId());
+      assertEquals(ticketId(i % 3), ticket.getTicketId());
+    }
+  }
+
+  @Test
+  public void invalidInput() {
+    BulkIssuer issuer = new BulkIssuer(keys, rand, 1, false);
+    assertThrows(IOException.class, () -> issuer.issue(new StringReader("a@b.c,6,1\n"), new StringWriter(), 0));
+    assertThrows(IOException.class, () -> issuer.issue(new StringReader("a@b.c,six,1,0\n"), new StringWriter(), 0));
+    // More links were written than the file has tickets, so it is not the file they were issued from
+    assertThrows(IOException.class, () -> issuer.issue(new StringReader(csv), new StringWriter(), TICKETS + 1));
+    assertThrows(IllegalArgumentException.class, () -> new BulkIssuer(keys, rand, 0, false));
+    AsymmetricCipherKeyPair otherKeys = new AttestationCryptoWithEthereumCharacteristics(rand).constructECKeys();
+    assertThrows(IllegalArgumentException.class,
+        () -> new BulkIssuer(new AsymmetricCipherKeyPair(keys.getPublic(), otherKeys.getPrivate()), rand, 1, false));
+  }
+
+  @Test
+  public void sampleSecret() {
+    for (int i = 0; i < 100; i++) {
+      BigInteger secret = Issuer.sampleSecret(rand);
+      assertTrue(secret.signum() >= 0);
+      assertTrue(secret.compareTo(AttestationCrypto.curveOrder) < 0);
+    }
+  }
+}
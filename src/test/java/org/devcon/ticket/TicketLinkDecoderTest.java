@@ -0,0 +1,108 @@
+package org.devcon.ticket;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.alphawallet.attestation.core.AttestationCrypto;
+import com.alphawallet.attestation.core.AttestationCryptoWithEthereumCharacteristics;
+import java.io.IOException;
+import java.math.BigInteger;
+import java.security.SecureRandom;
+import java.util.Base64;
+import org.bouncycastle.crypto.AsymmetricCipherKeyPair;
+import org.bouncycastle.crypto.params.ECPublicKeyParameters;
+import org.devcon.ticket.TicketLinkDecoder.TicketLink;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+public class TicketLinkDecoderTest {
+  private static final BigInteger TICKET_ID = new BigInteger("14840860468475837258758376");
+  private static final BigInteger SECRET = new BigInteger("546048445646851568430134455064804806");
+
+  private static AsymmetricCipherKeyPair issuerKeys;
+  private static AsymmetricCipherKeyPair otherKeys;
+  private static Ticket ticket;
+
+  @BeforeAll
+  public static void setup() throws Exception {
+    SecureRandom rand = SecureRandom.getInstance("SHA1PRNG");
+    rand.setSeed("seed".getBytes());
+    AttestationCrypto crypto = new AttestationCryptoWithEthereumCharacteristics(rand);
+    issuerKeys = crypto.constructECKeys();
+    otherKeys = crypto.constructECKeys();
+    ticket = new Ticket("test@test.ts", 6, TICKET_ID, 1, issuerKeys, SECRET);
+  }
+
+  private static String link(byte[] encoding, String secret) {
+    return Ticket.magicLinkURLPrefix + "?ticket=" + Base64.getUrlEncoder().encodeToString(encoding) + "&secret=" + secret;
+  }
+
+  @Test
+  public void issuerLinks() throws IOException {
+    TicketLinkDecoder decoder = new TicketLinkDecoder(issuerKeys.getPublic());
+    for (byte[] encoding : new byte[][] {ticket.getDerEncoding(), ticket.getDerEncodingWithPK(), ticket.getCompactEncoding()}) {
+      TicketLink decoded = decoder.decode(link(encoding, SECRET.toString()));
+      assertTrue(decoded.getTicket().isVerified());
+      assertArrayEquals(ticket.getDerEncoding(), decoded.getTicket().getDerEncoding());
+      assertEquals(SECRET, decoded.getSecret());
+      assertNull(decoded.getLinkKey());
+    }
+    // Only the query, other parameters, a small secret and a fragment
+    String query = "lang=en&ticket=" + Base64.getUrlEncoder().encodeToString(ticket.getDerEncoding()) + "&secret=42&x#top";
+    TicketLink decoded = decoder.decode(query);
+    assertEquals(BigInteger.valueOf(42), decoded.getSecret());
+    assertEquals(TICKET_ID, decoded.getTicket().getTicketId());
+    // Without secret
+    assertNull(decoder.decode("?ticket=" + Base64.getUrlEncoder().encodeToString(ticket.getDerEncoding())).getSecret());
+  }
+
+  @Test
+  public void linksWithKey() throws IOException {
+    // The list of the ticket and the key, as made by getUrlEncoding
+    String link = Ticket.magicLinkURLPrefix + "?ticket=" + ticket.getUrlEncoding() + "&secret=" + SECRET;
+    for (TicketLinkDecoder decoder : new TicketLinkDecoder[] {new TicketLinkDecoder(null),
+        new TicketLinkDecoder(issuerKeys.getPublic())}) {
+      TicketLink decoded = decoder.decode(link);
+      assertTrue(decoded.getTicket().isVerified());
+      assertArrayEquals(ticket.getDerEncoding(), decoded.getTicket().getDerEncoding());
+      assertEquals(((ECPublicKeyParameters) issuerKeys.getPublic()).getQ(),
+          ((ECPublicKeyParameters) decoded.getLinkKey()).getQ());
+    }
+    // The key inside the ticket
+    TicketLink decoded = new TicketLinkDecoder(null).decode(link(ticket.getDerEncodingWithPK(), SECRET.toString()));
+    assertTrue(decoded.getTicket().verify());
+    // A key which is not the one of the issuer
+    assertThrows(IllegalArgumentException.class, () -> new TicketLinkDecoder(otherKeys.getPublic()).decode(link));
+    assertThrows(IllegalArgumentException.class,
+        () -> new TicketLinkDecoder(otherKeys.getPublic()).decode(link(ticket.getDerEncodingWithPK(), "1")));
+  }
+
+  @Test
+  public void invalidLinks() {
+    TicketLinkDecoder decoder = new TicketLinkDecoder(issuerKeys.getPublic());
+    String encoded = Base64.getUrlEncoder().encodeToString(ticket.getDerEncoding());
+    assertThrows(IOException.class, () -> decoder.decode(Ticket.magicLinkURLPrefix + "?secret=1"));
+    assertThrows(IOException.class, () -> decoder.decode("?ticket=" + encoded + "&secret="));
+    assertThrows(IOException.class, () -> decoder.decode("?ticket=" + encoded + "&secret=1a"));
+    assertThrows(IOException.class, () -> decoder.decode("?ticket&secret=1"));
+    assertThrows(IOException.class, () -> decoder.decode("?ticket=" + encoded.substring(4)));
+    // Keys are needed for compact tickets and tickets without key
+    assertThrows(IOException.class, () -> new TicketLinkDecoder(null).decode(link(ticket.getCompactEncoding(), "1")));
+    assertThrows(IOException.class, () -> new TicketLinkDecoder(null).decode(link(ticket.getDerEncoding(), "1")));
+
+    // Signed by another key
+    byte[] tampered = ticket.getDerEncoding().clone();
+    tampered[tampered.length - 1] ^= 0x01;
+    assertThrows(IllegalArgumentException.class, () -> decoder.decode(link(tampered, "1")));
+    try {
+      TicketLink decoded = decoder.decodeUnverified(link(tampered, "1"));
+      assertFalse(decoded.getTicket().verify());
+    } catch (IOException e) {
+      throw new RuntimeException(e);
+    }
+  }
+}
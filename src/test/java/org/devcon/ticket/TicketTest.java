@@ -2,12 +2,21 @@ package org.devcon.ticket;
 
 import com.alphawallet.attestation.core.AttestationCrypto;
 import com.alphawallet.attestation.core.AttestationCryptoWithEthereumCharacteristics;
+import com.alphawallet.attestation.core.ConstructionPolicy;
 import com.alphawallet.attestation.core.SignatureUtility;
 import com.alphawallet.attestation.core.URLUtility;
+import com.alphawallet.attestation.core.VarInt;
+import org.bouncycastle.asn1.ASN1Encodable;
+import org.bouncycastle.asn1.ASN1EncodableVector;
+import org.bouncycastle.asn1.ASN1Integer;
+import org.bouncycastle.asn1.DERBitString;
+import org.bouncycastle.asn1.DEROctetString;
+import org.bouncycastle.asn1.DERSequence;
 import org.bouncycastle.asn1.x509.SubjectPublicKeyInfo;
 import org.bouncycastle.crypto.AsymmetricCipherKeyPair;
 import org.bouncycastle.crypto.params.AsymmetricKeyParameter;
 import org.bouncycastle.crypto.util.SubjectPublicKeyInfoFactory;
+import org.bouncycastle.util.encoders.Hex;
 import org.junit.jupiter.api.BeforeAll;
 import org.junit.jupiter.api.Test;
 
@@ -198,4 +207,142 @@ public class TicketTest {
       // Expected
     }
   }
+  @Test
+  public void testGoldenTicketEncoding() {
+    // Vectors produced by the previous BouncyCastle based encoder
+    assertEquals("300d020106020561376a9dfe020100",
+        Hex.toHexString(Ticket.encodeTicket(6, new BigInteger("417541561854"), 0)));
+    assertEquals("300902010002010002017f",
+        Hex.toHexString(Ticket.encodeTicket(0, BigInteger.ZERO, 127)));
+    assertEquals("300b0201ff0202ff7f02020080",
+        Hex.toHexString(Ticket.encodeTicket(-1, new BigInteger("-129"), 128)));
+    assertEquals("302f02047fffffff022100fffffffffffffffffffffffffffffffffffffffffffffffffffffffefffffc2f020480000000",
+        Hex.toHexString(Ticket.encodeTicket(Integer.MAX_VALUE, new BigInteger(
+            "115792089237316195423570985008687907853269984665640564039457584007908834671663"), Integer.MIN_VALUE)));
+  }
+
+  @Test
+  public void testSignedTicketEncoding() throws IOException {
+    Ticket ticket = new Ticket(MAIL, CONFERENCE_ID, TICKET_ID, TICKET_CLASS, senderKeys, SECRET);
+    ASN1EncodableVector ticketVec = new ASN1EncodableVector();
+    ticketVec.add(new ASN1Integer(CONFERENCE_ID));
+    ticketVec.add(new ASN1Integer(TICKET_ID));
+    ticketVec.add(new ASN1Integer(TICKET_CLASS));
+    ASN1EncodableVector signedTicket = new ASN1EncodableVector();
+    signedTicket.add(new DERSequence(ticketVec));
+    signedTicket.add(new DEROctetString(ticket.getCommitment()));
+    signedTicket.add(new DERBitString(ticket.getSignature()));
+    assertArrayEquals(new DERSequence(signedTicket).getEncoded(), ticket.getDerEncoding());
+
+    SubjectPublicKeyInfo spki = SubjectPublicKeyInfoFactory.createSubjectPublicKeyInfo(senderKeys.getPublic());
+    ASN1EncodableVector withPK = new ASN1EncodableVector();
+    withPK.add(new DERSequence(ticketVec));
+    withPK.add(new DEROctetString(ticket.getCommitment()));
+    withPK.add(new DERSequence(new ASN1Encodable[] {spki.getAlgorithm(), spki.getPublicKeyData()}));
+    withPK.add(new DERBitString(ticket.getSignature()));
+    assertArrayEquals(new DERSequence(withPK).getEncoded(), ticket.getDerEncodingWithPK());
+  }
+
+  @Test
+  public void testUnverifiedDecoding() throws IOException {
+    Ticket ticket = new Ticket(MAIL, CONFERENCE_ID, TICKET_ID, TICKET_CLASS, senderKeys, SECRET);
+    assertTrue(ticket.isVerified());
+    Ticket unverified = new TicketDecoder(senderKeys.getPublic()).decodeUnverified(ticket.getDerEncoding());
+    assertFalse(unverified.isVerified());
+    assertEquals(TICKET_ID, unverified.getTicketId());
+    assertTrue(unverified.verify());
+    assertTrue(unverified.isVerified());
+
+    // Change the last byte of the signature
+    byte[] tampered = ticket.getDerEncoding().clone();
+    tampered[tampered.length - 1] ^= 0x01;
+    assertThrows(IllegalArgumentException.class, () -> new TicketDecoder(senderKeys.getPublic()).decode(tampered));
+    Ticket invalid = new TicketDecoder(senderKeys.getPublic()).decodeUnverified(tampered);
+    assertEquals(TICKET_ID, invalid.getTicketId());
+    assertFalse(invalid.verify());
+    assertFalse(invalid.isVerified());
+  }
+
+  @Test
+  public void testBuilder() {
+    Ticket ticket = new Ticket(MAIL, CONFERENCE_ID, TICKET_ID, TICKET_CLASS, senderKeys, SECRET);
+    Ticket.Builder builder = new Ticket.Builder()
+        .mail(MAIL)
+        .devconId(CONFERENCE_ID)
+        .ticketId(TICKET_ID)
+        .ticketClass(TICKET_CLASS)
+        .keys(senderKeys)
+        .secret(SECRET);
+    Ticket built = builder.build();
+    assertTrue(built.isVerified());
+    assertArrayEquals(ticket.getDerEncoding(), built.getDerEncoding());
+    Ticket trusted = builder.policy(ConstructionPolicy.TRUSTED).build();
+    assertTrue(trusted.isVerified());
+    assertArrayEquals(ticket.getDerEncoding(), trusted.getDerEncoding());
+    assertThrows(IllegalStateException.class, () -> new Ticket.Builder().mail(MAIL).build());
+  }
+
+  @Test
+  public void testExternalSignature() {
+    Ticket ticket = new Ticket(MAIL, CONFERENCE_ID, TICKET_ID, TICKET_CLASS, senderKeys, SECRET);
+    Ticket trusted = new Ticket(CONFERENCE_ID, TICKET_ID, TICKET_CLASS, ticket.getCommitment(),
+        ticket.getSignature(), senderKeys.getPublic(), ConstructionPolicy.TRUSTED);
+    assertTrue(trusted.isVerified());
+    assertArrayEquals(ticket.getDerEncoding(), trusted.getDerEncoding());
+    assertThrows(IllegalArgumentException.class, () -> new Ticket(CONFERENCE_ID, TICKET_ID, TICKET_CLASS,
+        ticket.getCommitment(), ticket.getSignature(), otherKeys.getPublic(), ConstructionPolicy.VERIFY));
+  }
+
+  @Test
+  public void testCompactEncoding() throws IOException {
+    Ticket ticket = new Ticket(MAIL, CONFERENCE_ID, SECRET, 1, senderKeys, SECRET);
+    byte[] compact = ticket.getCompactEncoding();
+    assertTrue(compact.length < ticket.getDerEncoding().length);
+    Ticket decoded = new CompactTicketDecoder(senderKeys.getPublic()).decode(compact);
+    assertTrue(decoded.isVerified());
+    assertEquals(SECRET, decoded.getTicketId());
+    assertEquals(CONFERENCE_ID, decoded.getDevconId());
+    assertEquals(1, decoded.getTicketClass());
+    // The formats are converted into each other without loss
+    assertArrayEquals(ticket.getDerEncoding(), decoded.getDerEncoding());
+    assertArrayEquals(compact, decoded.getCompactEncoding());
+
+    // Magic links can carry either format
+    Ticket fromUrl = new TicketDecoder(senderKeys.getPublic()).decode(URLUtility.decodeData(ticket.getCompactUrlEncoding()));
+    assertArrayEquals(ticket.getDerEncoding(), fromUrl.getDerEncoding());
+    assertThrows(IOException.class, () -> new TicketDecoder().decode(compact));
+
+    // Change the last byte of the signature
+    byte[] tampered = compact.clone();
+    tampered[tampered.length - 1] ^= 0x01;
+    assertThrows(IllegalArgumentException.class, () -> new CompactTicketDecoder(senderKeys.getPublic()).decode(tampered));
+    assertFalse(new CompactTicketDecoder(otherKeys.getPublic()).decodeUnverified(compact).verify());
+    // Truncated
+    assertThrows(IOException.class, () -> new CompactTicketDecoder(senderKeys.getPublic())
+        .decode(Arrays.copyOf(compact, compact.length - 1)));
+    // Non-minimal encoding of the conference id
+    byte[] nonMinimal = new byte[compact.length + 1];
+    nonMinimal[0] = compact[0];
+    nonMinimal[1] = (byte) (compact[1] | 0x80);
+    System.arraycopy(compact, 2, nonMinimal, 3, compact.length - 2);
+    assertThrows(IOException.class, () -> new CompactTicketDecoder(senderKeys.getPublic()).decode(nonMinimal));
+    // Conference ids which do not fit in an int
+    byte[] tooLarge = withDevconId(compact, BigInteger.ONE.shiftLeft(31));
+    assertThrows(IOException.class, () -> new TicketDecoder(senderKeys.getPublic()).decode(tooLarge));
+    byte[] tooLong = withDevconId(compact, BigInteger.ONE.shiftLeft(63));
+    assertThrows(IOException.class, () -> new TicketDecoder(senderKeys.getPublic()).decode(tooLong));
+  }
+
+  /**
+   * Replaces the single byte conference id of a compact ticket
+   */
+  private static byte[] withDevconId(byte[] compact, BigInteger devconId) {
+    byte[] varInt = new byte[VarInt.encodedLength(devconId)];
+    VarInt.write(varInt, 0, devconId);
+    byte[] res = new byte[compact.length - 1 + varInt.length];
+    res[0] = compact[0];
+    System.arraycopy(varInt, 0, res, 1, varInt.length);
+    System.arraycopy(compact, 2, res, 1 + varInt.length, compact.length - 2);
+    return res;
+  }
 }
@@ -3,6 +3,7 @@ package org.devcon.ticket;
 import com.alphawallet.attestation.*;
 import com.alphawallet.attestation.core.AttestationCrypto;
 import com.alphawallet.attestation.core.AttestationCryptoWithEthereumCharacteristics;
+import com.alphawallet.attestation.core.ConstructionPolicy;
 import com.alphawallet.attestation.core.DERUtility;
 import org.bouncycastle.asn1.ASN1Integer;
 import org.bouncycastle.asn1.ASN1OctetString;
@@ -119,6 +120,73 @@ public class UseTicketTest {
     assertArrayEquals(attestedTicket.getDerEncoding(), newConstructor.getDerEncoding());
   }
 
+  @Test
+  public void testUnverifiedDecoding() {
+    byte[] encoding = attestedTicket.getDerEncoding();
+    AttestedObject<Ticket> unverified = AttestedObject.decodeUnverified(encoding,
+        new TicketDecoder(ticketIssuerKeys.getPublic()), attestorKeys.getPublic(), subjectKeys.getPublic());
+    assertFalse(unverified.isVerified());
+    assertFalse(unverified.getAttestableObject().isVerified());
+    assertFalse(unverified.getAtt().isVerified());
+    assertTrue(unverified.verify());
+    assertTrue(unverified.isVerified());
+    assertTrue(unverified.getAttestableObject().isVerified());
+    assertTrue(unverified.getAtt().isVerified());
+
+    // Decoding with the wrong attestor key only fails once verified
+    AttestedObject<Ticket> wrongKey = AttestedObject.decodeUnverified(encoding,
+        new TicketDecoder(ticketIssuerKeys.getPublic()), subjectKeys.getPublic(), subjectKeys.getPublic());
+    assertFalse(wrongKey.verify());
+    assertFalse(wrongKey.isVerified());
+    assertThrows(IllegalArgumentException.class, () -> new AttestedObject<>(encoding,
+        new TicketDecoder(ticketIssuerKeys.getPublic()), subjectKeys.getPublic(), subjectKeys.getPublic()));
+  }
+
+  @Test
+  public void testTrustedBuilder() throws IOException {
+    Ticket ticket = new Ticket.Builder().mail(MAIL).devconId(CONFERENCE_ID).ticketId(TICKET_ID)
+        .ticketClass(TICKET_CLASS).keys(ticketIssuerKeys).secret(TICKET_SECRET)
+        .policy(ConstructionPolicy.TRUSTED).build();
+    AttestedObject.Builder<Ticket> builder = new AttestedObject.Builder<Ticket>()
+        .attestableObject(ticket)
+        .attestation(attestedTicket.getAtt())
+        .userKeys(subjectKeys)
+        .secrets(ATTESTATION_SECRET, TICKET_SECRET)
+        .crypto(crypto)
+        .policy(ConstructionPolicy.TRUSTED);
+    AttestedObject<Ticket> trusted = builder.build();
+    assertTrue(trusted.isVerified());
+    // The result is accepted by a verifying decoder
+    AttestedObject<Ticket> decoded = new AttestedObject<>(trusted.getDerEncoding(),
+        new TicketDecoder(ticketIssuerKeys.getPublic()), attestorKeys.getPublic(), subjectKeys.getPublic());
+    assertTrue(decoded.verify());
+
+    // An attestation which was decoded without verification is still verified
+    SignedAttestation wrongKey = SignedAttestation.decodeUnverified(attestedTicket.getAtt().getDerEncoding(),
+        subjectKeys.getPublic());
+    assertThrows(IllegalArgumentException.class, () -> builder.attestation(wrongKey).build());
+    assertThrows(IllegalStateException.class, () -> new AttestedObject.Builder<Ticket>().attestableObject(ticket).build());
+  }
+
+  @Test
+  public void testDecodingFromLargerBuffer() {
+    byte[] encoding = attestedTicket.getDerEncoding();
+    byte[] buffer = new byte[encoding.length + 20];
+    System.arraycopy(encoding, 0, buffer, 13, encoding.length);
+    AttestedObject<Ticket> newAttestedTicket = new AttestedObject<>(buffer, 13, encoding.length,
+        new TicketDecoder(ticketIssuerKeys.getPublic()), attestorKeys.getPublic(), subjectKeys.getPublic());
+    assertTrue(newAttestedTicket.verify());
+    assertArrayEquals(encoding, newAttestedTicket.getDerEncoding());
+    assertArrayEquals(attestedTicket.getAttestableObject().getDerEncoding(),
+        newAttestedTicket.getAttestableObject().getDerEncoding());
+    assertArrayEquals(attestedTicket.getAtt().getDerEncoding(), newAttestedTicket.getAtt().getDerEncoding());
+    assertArrayEquals(attestedTicket.getPok().getDerEncoding(), newAttestedTicket.getPok().getDerEncoding());
+    assertArrayEquals(attestedTicket.getSignature(), newAttestedTicket.getSignature());
+    // Truncated encodings cannot be decoded
+    assertThrows(RuntimeException.class, () -> new AttestedObject<>(buffer, 13, encoding.length - 1,
+        new TicketDecoder(ticketIssuerKeys.getPublic()), attestorKeys.getPublic(), subjectKeys.getPublic()));
+  }
+
   @Test
   public void testNegativeAttestation() throws Exception {
     Attestation att = attestedTicket.getAtt().getUnsignedAttestation();